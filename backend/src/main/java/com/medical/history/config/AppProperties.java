@@ -4,7 +4,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import lombok.Data;
 
+import java.time.Duration;
+import java.time.Period;
 import java.util.List;
+import java.util.UUID;
 
 @Component
 @ConfigurationProperties(prefix = "app")
@@ -13,6 +16,13 @@ public class AppProperties {
     
     private final Jwt jwt = new Jwt();
     private final Cors cors = new Cors();
+    private final Doctors doctors = new Doctors();
+    private final Reports reports = new Reports();
+    private final Visits visits = new Visits();
+    private final Patients patients = new Patients();
+    private final Outbox outbox = new Outbox();
+    private final Datasource datasource = new Datasource();
+    private final Pagination pagination = new Pagination();
     
     @Data
     public static class Jwt {
@@ -24,4 +34,88 @@ public class AppProperties {
     public static class Cors {
         private List<String> allowedOrigins;
     }
+    
+    @Data
+    public static class Doctors {
+        // Serve patientCount/visitCount from the denormalized doctor columns instead of the count projection
+        private boolean denormalizedCounts = false;
+    }
+    
+    @Data
+    public static class Visits {
+        // POST /medical-visits/batch rejects larger payloads outright
+        private int batchMaxItems = 5000;
+        // Visits inserted per transaction; a failing chunk does not roll back the others
+        private int batchChunkSize = 500;
+        // Visits dated more than this before today are moved to the archive tables
+        private Period archiveAfter = Period.ofYears(2);
+        // Visits moved per archival transaction
+        private int archiveBatchSize = 1000;
+        // Visits per row group of GET /medical-visits/export; each group is buffered once, column by column
+        private int exportRowGroupSize = 8192;
+    }
+    
+    @Data
+    public static class Patients {
+        // Patients committed per transaction by the CSV import
+        private int importChunkSize = 1000;
+        // Rejected rows kept per import for the report; later ones are only counted
+        private int importMaxRejectedRows = 10_000;
+        // Finished imports kept for GET /patients/import
+        private int importHistorySize = 20;
+        // Uploads imported at once; each holds a request and a DB connection while it runs
+        private int importConcurrency = 2;
+    }
+    
+    @Data
+    public static class Pagination {
+        // Items per page when the request does not ask for a size
+        private int defaultSize = 50;
+        // Larger sizes are cut down to this
+        private int maxSize = 500;
+    }
+    
+    @Data
+    public static class Datasource {
+        private final Replica replica = new Replica();
+    }
+    
+    // Read replica for read-only transactions; see ReadReplicaConfig. Unused unless url is set
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = 10;
+        // Also the longest a read-only transaction waits for a replica connection before falling back
+        private Duration healthCheckTimeout = Duration.ofSeconds(2);
+        // After a user's own write, their read-only transactions stay on the primary this long (0 = off)
+        private Duration readYourWrites = Duration.ZERO;
+    }
+    
+    @Data
+    public static class Outbox {
+        // Events handed to a subscriber per call and per transaction
+        private int relayBatchSize = 500;
+        // Events younger than this are not relayed yet, so a transaction still committing a lower id is not skipped
+        private Duration settleDelay = Duration.ofSeconds(2);
+        // Events every subscriber has consumed are deleted once older than this
+        private Duration retention = Duration.ofDays(7);
+        // Written to the events this instance appends, see OutboxSubscriber#perInstance; random per start unless set
+        private String instanceId = UUID.randomUUID().toString();
+    }
+    
+    @Data
+    public static class Reports {
+        // Worker threads and queue for /reports/bundle; each running report holds one DB connection
+        private int bundlePoolSize = 4;
+        private int bundleQueueCapacity = 100;
+        // Reports still running after this are returned as TIMEOUT
+        private Duration bundleTimeout = Duration.ofSeconds(30);
+        // In-process report result cache; weight is roughly the number of rows held
+        private boolean cacheEnabled = true;
+        private Duration cacheTtl = Duration.ofMinutes(10);
+        private long cacheMaxWeight = 50_000;
+    }
 }
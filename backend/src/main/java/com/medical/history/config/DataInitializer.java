@@ -2,16 +2,22 @@ package com.medical.history.config;
 
 import com.medical.history.entity.*;
 import com.medical.history.repository.*;
+import com.medical.history.service.DoctorService;
+import com.medical.history.service.RollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.util.Set;
 
+// First runner, so seed data and roll-ups exist before anything else runs at startup
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
 @RequiredArgsConstructor
 @Slf4j
 public class DataInitializer implements CommandLineRunner {
@@ -21,13 +27,21 @@ public class DataInitializer implements CommandLineRunner {
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
     private final DiagnosisRepository diagnosisRepository;
+    private final MedicalVisitRepository medicalVisitRepository;
+    private final RollupService rollupService;
+    private final DoctorService doctorService;
+    private final AppProperties appProperties;
+    private final IdSequenceAligner idSequenceAligner;
     private final PasswordEncoder passwordEncoder;
     
     @Override
     public void run(String... args) throws Exception {
+        idSequenceAligner.align();
         initializeRoles();
         initializeUsers();
         initializeDiagnoses();
+        initializeRollups();
+        initializeDoctorCounts();
     }
     
     private void initializeRoles() {
@@ -131,4 +145,27 @@ public class DataInitializer implements CommandLineRunner {
             log.info("Common diagnoses created successfully");
         }
     }
+    
+    private void initializeRollups() {
+        if (rollupService.isEmpty() && medicalVisitRepository.count() > 0) {
+            log.info("Backfilling report roll-ups from existing visits...");
+            rollupService.rebuild();
+            return;
+        }
+        if (!rollupService.hasSketches() && medicalVisitRepository.count() > 0) {
+            log.info("Backfilling daily patient sketches from existing visits...");
+            rollupService.rebuildSketches();
+        }
+        if (!rollupService.hasHourlyRollups() && medicalVisitRepository.count() > 0) {
+            log.info("Backfilling hourly visit counters from existing visits...");
+            rollupService.rebuildHourly();
+        }
+    }
+    
+    private void initializeDoctorCounts() {
+        if (appProperties.getDoctors().isDenormalizedCounts()) {
+            log.info("Refreshing denormalized doctor patient/visit counts...");
+            doctorService.refreshDenormalizedCounts();
+        }
+    }
 }
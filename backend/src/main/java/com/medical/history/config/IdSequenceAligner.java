@@ -0,0 +1,56 @@
+package com.medical.history.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves each entity id sequence past the table's current MAX(id), so the pooled optimizer never
+ * hands out ids that already exist. On PostgreSQL the V1_2 migration positions the sequences
+ * when it replaces the bigserial ids; this covers H2, whose V1_2 only drops the identity
+ * columns, and rows inserted with explicit ids since.
+ * A sequence that is already ahead is left alone, so running this on every start is safe.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceAligner {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    public void align() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+
+        sessionFactory.getMappingMetamodel().forEachEntityDescriptor(persister -> {
+            if (!(persister.getGenerator() instanceof SequenceStyleGenerator generator)
+                    || !(persister instanceof AbstractEntityPersister entityPersister)) {
+                return;
+            }
+            DatabaseStructure structure = generator.getDatabaseStructure();
+            String sequence = structure.getPhysicalName().render();
+            int increment = structure.getIncrementSize();
+
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + entityPersister.getTableName(), Long.class);
+            if (maxId == null) {
+                return;
+            }
+            // The pooled optimizer uses (value - increment, value] for the value it fetches
+            Long next = jdbcTemplate.queryForObject(dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class);
+            if (next != null && next - increment >= maxId) {
+                return;
+            }
+            long restartWith = maxId + increment;
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + restartWith);
+            log.info("Moved sequence {} to {} past existing ids in {}", sequence, restartWith, entityPersister.getTableName());
+        });
+    }
+}
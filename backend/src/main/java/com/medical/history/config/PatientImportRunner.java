@@ -0,0 +1,57 @@
+package com.medical.history.config;
+
+import com.medical.history.dto.PatientImportJob;
+import com.medical.history.service.PatientImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command line patient import: --import-patients=/path/to/patients.csv imports the file once
+ * DataInitializer has run and writes the rows that were not imported to
+ * patients.csv.rejected.csv next to it. Add --spring.main.web-application-type=none to
+ * exit when the import is done instead of starting the server.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PatientImportRunner implements ApplicationRunner {
+    
+    private static final String OPTION = "import-patients";
+    
+    private final PatientImportService patientImportService;
+    
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> files = args.getOptionValues(OPTION);
+        if (files == null) {
+            return;
+        }
+        for (String file : files) {
+            Path path = Path.of(file);
+            PatientImportJob job;
+            try (InputStream input = Files.newInputStream(path)) {
+                job = patientImportService.importPatients(path.toString(), input);
+            }
+            if (job.getRejected() > 0) {
+                Path report = path.resolveSibling(path.getFileName() + ".rejected.csv");
+                try (Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+                    patientImportService.writeRejectedRows(job.getId(), writer);
+                }
+                log.info("Rejected rows of {} written to {}", path, report);
+            }
+            if (job.getStatus() == PatientImportJob.Status.FAILED) {
+                log.error("Patient import from {} failed: {}", path, job.getError());
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.medical.history.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.BaseStream;
+
+/**
+ * Finds repository queries that PostgreSQL can only answer with a sequential scan. Every query
+ * method of every repository is called once with sample arguments inside a rolled-back
+ * transaction, and each statement it issued is planned with EXPLAIN. Planning uses a generic
+ * plan (parameter values do not matter) with enable_seqscan off, so a Seq Scan that remains
+ * means no index can serve the query, however small the seeded tables are. Only scans that
+ * filter rows are flagged; reading a whole table is reported but expected for full reports.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QueryPlanCheck {
+    
+    private static final Object UNSUPPORTED = new Object();
+    private static final Pattern UNTYPED_PARAMETER = Pattern.compile("could not determine data type of parameter \\$(\\d+)");
+    
+    private final ApplicationContext applicationContext;
+    private final SqlCapture sqlCapture;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    
+    public enum Status {
+        OK,
+        SEQ_SCAN,
+        NOT_CHECKED
+    }
+    
+    public List<MethodPlan> check() {
+        String database = jdbcTemplate.execute((Connection connection) -> connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            throw new IllegalStateException("The query plan check needs PostgreSQL, not " + database);
+        }
+        
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Repositories repositories = new Repositories(applicationContext);
+        List<MethodPlan> plans = new ArrayList<>();
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+            Object repository = repositories.getRepositoryFor(domainType).orElseThrow();
+            information.getQueryMethods().stream()
+                    .filter(method -> !method.isAnnotationPresent(Modifying.class))
+                    .sorted(Comparator.comparing(Method::getName))
+                    .forEach(method -> plans.add(check(information.getRepositoryInterface().getSimpleName(), repository, method, transactionTemplate)));
+        }
+        return plans;
+    }
+    
+    private MethodPlan check(String repositoryName, Object repository, Method method, TransactionTemplate transactionTemplate) {
+        MethodPlan plan = new MethodPlan();
+        plan.setMethod(repositoryName + "." + method.getName());
+        Object[] arguments = sampleArguments(method);
+        if (arguments == null) {
+            return notChecked(plan, "No sample value for a parameter type");
+        }
+        
+        Set<String> statements = new LinkedHashSet<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                statements.addAll(sqlCapture.capture(() -> {
+                    Object result = ReflectionUtils.invokeMethod(method, repository, arguments);
+                    if (result instanceof BaseStream<?, ?> stream) {
+                        stream.close();
+                    }
+                }));
+            });
+        } catch (RuntimeException e) {
+            return notChecked(plan, "Query failed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+        
+        plan.setStatus(Status.OK);
+        for (String sql : statements) {
+            try {
+                explain(sql, plan, transactionTemplate);
+            } catch (RuntimeException e) {
+                return notChecked(plan, "EXPLAIN failed for [" + sql + "]: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        }
+        return plan;
+    }
+    
+    private void explain(String sql, MethodPlan plan, TransactionTemplate transactionTemplate) {
+        StringBuilder positional = new StringBuilder();
+        int parameters = 0;
+        boolean quoted = false;
+        for (char c : sql.toCharArray()) {
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            if (c == '?' && !quoted) {
+                positional.append('$').append(++parameters);
+            } else {
+                positional.append(c);
+            }
+        }
+        String arguments = parameters == 0 ? "" : "(" + String.join(", ", Collections.nCopies(parameters, "NULL")) + ")";
+        
+        // JDBC sends a type with each bind, PREPARE has none; a parameter only ever tested with
+        // IS NULL cannot be inferred, so it is declared as text and the statement prepared again
+        String[] types = Collections.nCopies(parameters, "unknown").toArray(new String[0]);
+        String json = null;
+        while (json == null) {
+            String declared = parameters == 0 ? "" : "(" + String.join(", ", types) + ")";
+            try {
+                json = transactionTemplate.execute(status -> {
+                    status.setRollbackOnly();
+                    jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+                    jdbcTemplate.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+                    jdbcTemplate.execute("PREPARE query_plan_check" + declared + " AS " + positional);
+                    try {
+                        return jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) EXECUTE query_plan_check" + arguments, String.class);
+                    } finally {
+                        jdbcTemplate.execute("DEALLOCATE query_plan_check");
+                    }
+                });
+            } catch (DataAccessException e) {
+                Matcher untyped = UNTYPED_PARAMETER.matcher(String.valueOf(NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+                if (!untyped.find() || "text".equals(types[Integer.parseInt(untyped.group(1)) - 1])) {
+                    throw e;
+                }
+                types[Integer.parseInt(untyped.group(1)) - 1] = "text";
+            }
+        }
+        try {
+            collectSeqScans(objectMapper.readTree(json).get(0).get("Plan"), plan);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable plan: " + json, e);
+        }
+    }
+    
+    // With seq scans disabled the planner may walk a whole index (usually the primary key)
+    // instead; an index scan with a Filter but no Index Cond is a sequential scan all the same
+    private static void collectSeqScans(JsonNode node, MethodPlan plan) {
+        String nodeType = node.path("Node Type").asText();
+        boolean fullIndexScan = ("Index Scan".equals(nodeType) || "Index Only Scan".equals(nodeType))
+                && !node.has("Index Cond");
+        if ("Seq Scan".equals(nodeType) || fullIndexScan) {
+            String table = node.path("Relation Name").asText();
+            if (node.has("Filter")) {
+                plan.getSeqScans().add(table + " (filter: " + node.get("Filter").asText() + ")");
+                plan.setStatus(Status.SEQ_SCAN);
+            } else if (!plan.getFullScans().contains(table)) {
+                plan.getFullScans().add(table);
+            }
+        }
+        node.path("Plans").forEach(child -> collectSeqScans(child, plan));
+    }
+    
+    private static MethodPlan notChecked(MethodPlan plan, String reason) {
+        plan.setStatus(Status.NOT_CHECKED);
+        plan.setDetail(reason);
+        return plan;
+    }
+    
+    // Null when some parameter has a type there is no sample for
+    private static Object[] sampleArguments(Method method) {
+        Type[] types = method.getGenericParameterTypes();
+        Object[] arguments = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            arguments[i] = sample(types[i]);
+            if (arguments[i] == UNSUPPORTED) {
+                return null;
+            }
+        }
+        return arguments;
+    }
+    
+    private static Object sample(Type type) {
+        if (type instanceof ParameterizedType parameterized && parameterized.getRawType() instanceof Class<?> raw
+                && Collection.class.isAssignableFrom(raw)) {
+            Object element = sample(parameterized.getActualTypeArguments()[0]);
+            return element == UNSUPPORTED ? UNSUPPORTED : List.of(element);
+        }
+        if (!(type instanceof Class<?> cls)) {
+            return UNSUPPORTED;
+        }
+        if (cls == Long.class || cls == long.class) {
+            return 1L;
+        } else if (cls == Integer.class || cls == int.class) {
+            return 1;
+        } else if (cls == Boolean.class || cls == boolean.class) {
+            return true;
+        } else if (cls == String.class) {
+            return "x";
+        } else if (cls == LocalDate.class) {
+            return LocalDate.now();
+        } else if (cls == LocalDateTime.class) {
+            return LocalDateTime.now();
+        } else if (cls == LocalTime.class) {
+            return LocalTime.NOON;
+        } else if (cls.isEnum()) {
+            return cls.getEnumConstants()[0];
+        } else if (cls == Limit.class) {
+            return Limit.of(10);
+        } else if (cls == Pageable.class) {
+            return PageRequest.of(0, 10);
+        } else if (cls == Sort.class) {
+            return Sort.unsorted();
+        }
+        return UNSUPPORTED;
+    }
+    
+    @Data
+    public static class MethodPlan {
+        // Repository.method
+        private String method;
+        private Status status;
+        // Tables scanned sequentially to apply a filter, with the filter
+        private List<String> seqScans = new ArrayList<>();
+        // Tables read in full without a filter
+        private List<String> fullScans = new ArrayList<>();
+        private String detail;
+    }
+}
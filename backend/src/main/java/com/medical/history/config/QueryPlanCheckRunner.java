@@ -0,0 +1,50 @@
+package com.medical.history.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * --check-query-plans runs {@link QueryPlanCheck} once DataInitializer has seeded the database
+ * and fails startup if any repository query needs a sequential scan. Combine with
+ * --spring.main.web-application-type=none to run it as a one-off check, e.g. in CI.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QueryPlanCheckRunner implements ApplicationRunner {
+    
+    private static final String OPTION = "check-query-plans";
+    
+    private final QueryPlanCheck queryPlanCheck;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        List<QueryPlanCheck.MethodPlan> plans = queryPlanCheck.check();
+        plans.forEach(plan -> {
+            switch (plan.getStatus()) {
+                case OK -> log.info("{}: OK{}", plan.getMethod(),
+                        plan.getFullScans().isEmpty() ? "" : ", reads all of " + plan.getFullScans());
+                case SEQ_SCAN -> log.warn("{}: sequential scan on {}", plan.getMethod(), plan.getSeqScans());
+                case NOT_CHECKED -> log.warn("{}: not checked, {}", plan.getMethod(), plan.getDetail());
+            }
+        });
+        
+        List<String> flagged = plans.stream()
+                .filter(plan -> plan.getStatus() == QueryPlanCheck.Status.SEQ_SCAN)
+                .map(QueryPlanCheck.MethodPlan::getMethod)
+                .collect(Collectors.toList());
+        log.info("Query plan check: {} repository methods, {} with sequential scans", plans.size(), flagged.size());
+        if (!flagged.isEmpty()) {
+            throw new IllegalStateException("Repository queries that need a sequential scan: " + flagged);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.medical.history.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Active when app.datasource.replica.url is set: the primary pool is still configured from
+ * spring.datasource.*, a second pool points at the replica, and the application DataSource
+ * routes between them (see {@link ReplicaRoutingDataSource}). Without a replica url Spring
+ * Boot's single auto-configured DataSource is used as before.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "url")
+public class ReadReplicaConfig {
+    
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+    
+    @Bean
+    public HikariDataSource replicaDataSource(AppProperties appProperties) {
+        AppProperties.Replica replica = appProperties.getDatasource().getReplica();
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(replica.getUrl())
+                .username(replica.getUsername())
+                .password(replica.getPassword())
+                .driverClassName(replica.getDriverClassName())
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setReadOnly(true);
+        // A replica that is down must not hold read-only transactions for the default 30s
+        dataSource.setConnectionTimeout(replica.getHealthCheckTimeout().toMillis());
+        // Do not fail startup if the replica is down; the routing falls back to the primary
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+    
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             HikariDataSource replicaDataSource,
+                                                             AppProperties appProperties) {
+        return new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource,
+                appProperties.getDatasource().getReplica());
+    }
+    
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,173 @@
+package com.medical.history.config;
+
+import com.medical.history.event.DomainChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to
+ * everything else. Wrapped in a LazyConnectionDataSourceProxy (see {@link ReadReplicaConfig}),
+ * so the connection is only taken at the first statement, once the transaction's read-only
+ * flag is known.
+ * <p>
+ * Routing starts once the application is ready, so the startup runners (seed data, roll-up
+ * backfill) make their check-then-insert decisions on the primary.
+ * <p>
+ * Falls back to the primary while the replica is unhealthy: a failed connection attempt marks
+ * it down, and the periodic check brings it back. With app.datasource.replica.read-your-writes
+ * set, a user who just wrote keeps reading from the primary for that long, so they see their
+ * own change despite replication lag. Other users may still trail the primary by the
+ * replica's lag.
+ * <p>
+ * Anything kept beyond one request must not be filled from the replica, as a cache entry
+ * outlives the invalidation that was meant to replace it. The caches either load on the
+ * primary in a read-write transaction of their own, or skip storing a result when
+ * {@link #isReadingFromReplica} says the current transaction read it from the replica.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+    
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Duration healthCheckTimeout;
+    private final Duration readYourWrites;
+    
+    private volatile boolean started;
+    private volatile boolean replicaHealthy = true;
+    // Username -> end of their read-your-writes window
+    private final Map<String, Instant> recentWriters = new ConcurrentHashMap<>();
+    
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, AppProperties.Replica properties) {
+        this.primary = primary;
+        this.replica = replica;
+        this.healthCheckTimeout = properties.getHealthCheckTimeout();
+        this.readYourWrites = properties.getReadYourWrites();
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (routesToReplica()) {
+            try {
+                return markReplicaRead(replica.getConnection());
+            } catch (SQLException e) {
+                replicaDown(e);
+            }
+        }
+        return primary.getConnection();
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (routesToReplica()) {
+            try {
+                return markReplicaRead(replica.getConnection(username, password));
+            } catch (SQLException e) {
+                replicaDown(e);
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+    
+    public boolean isReplicaHealthy() {
+        return replicaHealthy;
+    }
+    
+    // Whether the current transaction has taken a replica connection
+    public boolean isReadingFromReplica() {
+        return TransactionSynchronizationManager.hasResource(this);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.datasource.replica.health-check-interval:PT10S}")
+    public void checkReplica() {
+        boolean healthy;
+        try (Connection connection = replica.getConnection()) {
+            healthy = connection.isValid((int) Math.max(1, healthCheckTimeout.toSeconds()));
+        } catch (SQLException e) {
+            healthy = false;
+        }
+        if (healthy && !replicaHealthy) {
+            log.info("Read replica is back, routing read-only transactions to it again");
+        } else if (!healthy && replicaHealthy) {
+            log.warn("Read replica failed its health check, routing read-only transactions to the primary");
+        }
+        replicaHealthy = healthy;
+        
+        Instant now = Instant.now();
+        recentWriters.values().removeIf(until -> until.isBefore(now));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        started = true;
+    }
+    
+    // Any committed domain write starts the writing user's window
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onDomainChange(DomainChangeEvent event) {
+        if (readYourWrites.isZero()) {
+            return;
+        }
+        String username = currentUsername();
+        if (username != null) {
+            recentWriters.put(username, Instant.now().plus(readYourWrites));
+        }
+    }
+    
+    private boolean routesToReplica() {
+        if (!started || !replicaHealthy || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        String username = currentUsername();
+        Instant until = username != null ? recentWriters.get(username) : null;
+        return until == null || until.isBefore(Instant.now());
+    }
+    
+    // Remembered until the transaction completes, for isReadingFromReplica
+    private Connection markReplicaRead(Connection connection) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ReplicaRoutingDataSource.this);
+                }
+            });
+        }
+        return connection;
+    }
+    
+    private void replicaDown(SQLException e) {
+        if (replicaHealthy) {
+            log.warn("Read replica unavailable, routing read-only transactions to the primary: {}", e.getMessage());
+        }
+        replicaHealthy = false;
+    }
+    
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,51 @@
+package com.medical.history.config;
+
+import com.medical.history.service.ReportBundleService;
+import com.medical.history.service.ReportCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * /actuator/reportcache: GET shows stats and entries, DELETE evicts everything (or one report
+ * with ?report=name), POST {"reports": "name,name"} warms the given reports, or every report
+ * that takes no filters when the list is omitted.
+ */
+@Component
+@Endpoint(id = "reportcache")
+@RequiredArgsConstructor
+public class ReportCacheEndpoint {
+
+    private final ReportCache reportCache;
+    private final ReportBundleService reportBundleService;
+
+    @ReadOperation
+    public ReportCache.CacheStats stats() {
+        return reportCache.getStats();
+    }
+
+    @DeleteOperation
+    public Map<String, Integer> evict(@Nullable String report) {
+        int evicted = report != null ? reportCache.evict(report) : reportCache.evictAll();
+        return Map.of("evicted", evicted);
+    }
+
+    @WriteOperation
+    public ReportBundleService.ReportBundle warm(@Nullable String reports) {
+        List<String> names = StringUtils.hasText(reports)
+                ? Arrays.stream(reports.split(",")).map(String::trim).filter(StringUtils::hasText).collect(Collectors.toList())
+                : new ArrayList<>(reportBundleService.getUnfilteredReportNames());
+        return reportBundleService.runBundle(names, new ReportBundleService.Filters());
+    }
+}
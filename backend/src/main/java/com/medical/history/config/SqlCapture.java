@@ -0,0 +1,47 @@
+package com.medical.history.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the SQL Hibernate prepares on the current thread while {@link #capture} runs, so
+ * {@link QueryPlanCheck} can see the statements behind a repository method. Statements pass
+ * through unchanged; outside a capture this costs one ThreadLocal read per statement.
+ */
+@Component
+public class SqlCapture implements StatementInspector, HibernatePropertiesCustomizer {
+    
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+    
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+    
+    @Override
+    public String inspect(String sql) {
+        List<String> captured = CAPTURED.get();
+        if (captured != null) {
+            captured.add(sql);
+        }
+        return sql;
+    }
+    
+    // Statements prepared by the action, in order; the action's exceptions propagate
+    public List<String> capture(Runnable action) {
+        List<String> captured = new ArrayList<>();
+        CAPTURED.set(captured);
+        try {
+            action.run();
+        } finally {
+            CAPTURED.remove();
+        }
+        return captured;
+    }
+}
@@ -3,12 +3,12 @@ package com.medical.history.controller;
 import com.medical.history.dto.*;
 import com.medical.history.entity.Role;
 import com.medical.history.entity.User;
-import com.medical.history.repository.RoleRepository;
 import com.medical.history.repository.UserRepository;
 import com.medical.history.security.JwtUtils;
 import com.medical.history.security.UserPrincipal;
 import com.medical.history.service.DoctorService;
 import com.medical.history.service.PatientService;
+import com.medical.history.service.ReferenceDataRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -35,7 +35,7 @@ public class AuthController {
 
     private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final ReferenceDataRegistry referenceData;
     private final PasswordEncoder encoder;
     private final JwtUtils jwtUtils;
     private final PatientService patientService;
@@ -86,26 +86,18 @@ public class AuthController {
         Set<Role> roles = new HashSet<>();
 
         if (strRoles == null) {
-            Role userRole = roleRepository.findByName(Role.RoleName.ROLE_PATIENT)
-                    .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-            roles.add(userRole);
+            roles.add(referenceData.role(Role.RoleName.ROLE_PATIENT));
         } else {
             strRoles.forEach(role -> {
                 switch (role) {
                     case "admin":
-                        Role adminRole = roleRepository.findByName(Role.RoleName.ROLE_ADMIN)
-                                .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-                        roles.add(adminRole);
+                        roles.add(referenceData.role(Role.RoleName.ROLE_ADMIN));
                         break;
                     case "doctor":
-                        Role doctorRole = roleRepository.findByName(Role.RoleName.ROLE_DOCTOR)
-                                .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-                        roles.add(doctorRole);
+                        roles.add(referenceData.role(Role.RoleName.ROLE_DOCTOR));
                         break;
                     default:
-                        Role patientRole = roleRepository.findByName(Role.RoleName.ROLE_PATIENT)
-                                .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-                        roles.add(patientRole);
+                        roles.add(referenceData.role(Role.RoleName.ROLE_PATIENT));
                 }
             });
         }
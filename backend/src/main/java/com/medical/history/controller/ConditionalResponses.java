@@ -0,0 +1,37 @@
+package com.medical.history.controller;
+
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.service.TableVersions;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Set;
+
+// Conditional GET for responses that only change when the entity types they read are written to
+final class ConditionalResponses {
+
+    private ConditionalResponses() {
+    }
+
+    /**
+     * Tags the response with the ETag of the entity types and reports whether the client's
+     * If-None-Match already matches it, in which case the handler returns null and a bodyless
+     * 304 goes out. Called first thing in the handler, so nothing is queried or serialized
+     * for a 304. The Cache-Control set here replaces Spring Security's no-store default,
+     * which would stop browsers keeping the response to revalidate.
+     * <p>
+     * With a read replica configured the response goes out untagged and is always read in full.
+     */
+    static boolean notModified(WebRequest request, TableVersions tableVersions, Set<EntityType> dependsOn) {
+        if (!tableVersions.issuesEtags()) {
+            return false;
+        }
+        HttpServletResponse response = ((NativeWebRequest) request).getNativeResponse(HttpServletResponse.class);
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        }
+        return request.checkNotModified(tableVersions.etag(dependsOn));
+    }
+}
@@ -1,15 +1,25 @@
 package com.medical.history.controller;
 
+import com.medical.history.dto.CursorPage;
 import com.medical.history.dto.DiagnosisDto;
+import com.medical.history.dto.PageQuery;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.service.CascadeDeleteService;
+import com.medical.history.service.CascadeDeleteService.DeleteResult;
 import com.medical.history.service.DiagnosisService;
+import com.medical.history.service.TableVersions;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/diagnoses")
@@ -17,12 +27,19 @@ import java.util.List;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class DiagnosisController {
     
+    private static final Set<EntityType> LIST_DEPENDS_ON = EnumSet.of(EntityType.DIAGNOSIS);
+    
     private final DiagnosisService diagnosisService;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final TableVersions tableVersions;
+    // Keyset-paginated, see PageQuery; sort=code (default, A to Z), name or id
      @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR') or hasRole('PATIENT')")
-    public ResponseEntity<List<DiagnosisDto>> getAllDiagnoses() {
-        List<DiagnosisDto> diagnoses = diagnosisService.getAllDiagnoses();
-        return ResponseEntity.ok(diagnoses);
+    public ResponseEntity<CursorPage<DiagnosisDto>> getAllDiagnoses(PageQuery page, WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, LIST_DEPENDS_ON)) {
+            return null;
+        }
+        return ResponseEntity.ok(diagnosisService.getDiagnoses(page));
     }
 
     @GetMapping("/{id}")
@@ -67,12 +84,15 @@ public class DiagnosisController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    // With dryRun=true nothing is deleted; the response lists the rows a delete would remove
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Void> deleteDiagnosis(@PathVariable Long id) {
-        if (diagnosisService.deleteDiagnosis(id)) {
-            return ResponseEntity.noContent().build();
+    public ResponseEntity<DeleteResult> deleteDiagnosis(
+            @PathVariable Long id, @RequestParam(defaultValue = "false") boolean dryRun) {
+        Optional<DeleteResult> result = cascadeDeleteService.deleteDiagnosis(id, dryRun);
+        if (result.isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
+        return dryRun ? ResponseEntity.ok(result.get()) : ResponseEntity.noContent().build();
     }
 }
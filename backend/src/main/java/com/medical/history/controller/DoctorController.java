@@ -1,7 +1,13 @@
 package com.medical.history.controller;
 
+import com.medical.history.dto.CursorPage;
 import com.medical.history.dto.DoctorDto;
+import com.medical.history.dto.PageQuery;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.service.CascadeDeleteService;
+import com.medical.history.service.CascadeDeleteService.DeleteResult;
 import com.medical.history.service.DoctorService;
+import com.medical.history.service.TableVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -10,8 +16,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/doctors")
@@ -20,14 +30,22 @@ import java.util.List;
 @Tag(name = "Doctor Management", description = "Doctor management APIs")
 public class DoctorController {
 
+    // Rows carry the doctor's patient and visit counts
+    private static final Set<EntityType> LIST_DEPENDS_ON =
+            EnumSet.of(EntityType.DOCTOR, EntityType.PATIENT, EntityType.MEDICAL_VISIT);
+    
     private final DoctorService doctorService;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final TableVersions tableVersions;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR') or hasRole('PATIENT')")
-    @Operation(summary = "Get all doctors")
-    public ResponseEntity<List<DoctorDto>> getAllDoctors() {
-        List<DoctorDto> doctors = doctorService.getAllDoctors();
-        return ResponseEntity.ok(doctors);
+    @Operation(summary = "Get all doctors, one keyset-paginated page at a time (sort=name or id)")
+    public ResponseEntity<CursorPage<DoctorDto>> getAllDoctors(PageQuery page, WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, LIST_DEPENDS_ON)) {
+            return null;
+        }
+        return ResponseEntity.ok(doctorService.getDoctors(page));
     }
 
     @GetMapping("/{id}")
@@ -81,14 +99,17 @@ public class DoctorController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // With dryRun=true nothing is deleted; the response lists the rows a delete would remove
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Delete doctor")
-    public ResponseEntity<Void> deleteDoctor(@PathVariable Long id) {
-        if (doctorService.deleteDoctor(id)) {
-            return ResponseEntity.noContent().build();
+    public ResponseEntity<DeleteResult> deleteDoctor(
+            @PathVariable Long id, @RequestParam(defaultValue = "false") boolean dryRun) {
+        Optional<DeleteResult> result = cascadeDeleteService.deleteDoctor(id, dryRun);
+        if (result.isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
+        return dryRun ? ResponseEntity.ok(result.get()) : ResponseEntity.noContent().build();
     }
 
     @GetMapping("/stats/by-patient-count")
@@ -1,17 +1,39 @@
 package com.medical.history.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.history.config.AppProperties;
+import com.medical.history.dto.CursorPage;
+import com.medical.history.dto.MedicalVisitBatchResult;
 import com.medical.history.dto.MedicalVisitDto;
+import com.medical.history.dto.MedicalVisitSearch;
+import com.medical.history.dto.MessageResponse;
+import com.medical.history.dto.PageQuery;
+import com.medical.history.dto.VisitExportFilter;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.service.MedicalVisitBatchService;
 import com.medical.history.service.MedicalVisitService;
+import com.medical.history.service.TableVersions;
+import com.medical.history.service.VisitArchiveService;
+import com.medical.history.service.VisitExportService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/medical-visits")
@@ -19,13 +41,38 @@ import java.util.List;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class MedicalVisitController {
     
+    // Rows carry the patient, doctor and diagnosis names and the sick leave
+    private static final Set<EntityType> LIST_DEPENDS_ON = EnumSet.allOf(EntityType.class);
+    
     private final MedicalVisitService medicalVisitService;
+    private final MedicalVisitBatchService medicalVisitBatchService;
+    private final VisitArchiveService visitArchiveService;
+    private final VisitExportService visitExportService;
+    private final AppProperties appProperties;
+    private final ObjectMapper objectMapper;
+    private final TableVersions tableVersions;
     
+    // Keyset-paginated, see PageQuery; sort=visitDate (default, newest first) or id.
+    // fields=summary (default), full or a list of properties, see VisitProjection; GET /{id} has them all
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<MedicalVisitDto>> getAllMedicalVisits() {
-        List<MedicalVisitDto> visits = medicalVisitService.getAllMedicalVisits();
-        return ResponseEntity.ok(visits);
+    public ResponseEntity<CursorPage<MedicalVisitDto>> getAllMedicalVisits(
+            PageQuery page, @RequestParam(required = false) String fields, WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, LIST_DEPENDS_ON)) {
+            return null;
+        }
+        return ResponseEntity.ok(medicalVisitService.getMedicalVisits(page, fields));
+    }
+    
+    // Any combination of doctorId, diagnosisId, patientEgn, from and to, paginated and projected like GET /medical-visits
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<CursorPage<MedicalVisitDto>> searchMedicalVisits(
+            MedicalVisitSearch search, PageQuery page, @RequestParam(required = false) String fields, WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, LIST_DEPENDS_ON)) {
+            return null;
+        }
+        return ResponseEntity.ok(medicalVisitService.searchMedicalVisits(search, page, fields));
     }
     
     @GetMapping("/{id}")
@@ -59,6 +106,47 @@ public class MedicalVisitController {
         return ResponseEntity.ok(visits);
     }
     
+    // Opt-in with Accept: application/x-ndjson, one visit per line without buffering the range
+    @GetMapping(value = "/date-range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> streamMedicalVisitsByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return NdjsonResponses.<MedicalVisitDto>stream(objectMapper,
+                consumer -> medicalVisitService.streamMedicalVisitsByDateRange(startDate, endDate, consumer));
+    }
+    
+    // Bulk pull for analytics in a columnar binary format, see ColumnarVisitWriter; from, to and updatedSince are optional
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportMedicalVisits(VisitExportFilter filter) {
+        if (filter.getFrom() != null && filter.getTo() != null && filter.getFrom().isAfter(filter.getTo())) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> {
+            try {
+                visitExportService.export(filter, outputStream);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(VisitExportService.MEDIA_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"medical-visits.mvcx\"")
+                .body(body);
+    }
+    
+    // The other half of an incremental pull: ids of the visits deleted since, as far back as the outbox retention
+    @GetMapping("/export/deleted")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getDeletedMedicalVisitIds(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        return visitExportService.deletedSince(since)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.GONE)
+                        .body(new MessageResponse("Error: deletes older than the outbox retention are gone, pull the full export again")));
+    }
+    
     @GetMapping("/doctor/{doctorId}/date-range")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
     public ResponseEntity<List<MedicalVisitDto>> getMedicalVisitsByDoctorAndDateRange(
@@ -80,6 +168,30 @@ public class MedicalVisitController {
         }
     }
     
+    // End-of-day dumps: each item succeeds or fails on its own, see MedicalVisitBatchResult
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<?> createMedicalVisits(@RequestBody List<MedicalVisitDto> visitDtos) {
+        int maxItems = appProperties.getVisits().getBatchMaxItems();
+        if (visitDtos.isEmpty() || visitDtos.size() > maxItems) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: A batch must contain between 1 and " + maxItems + " visits"));
+        }
+        MedicalVisitBatchResult result = medicalVisitBatchService.createMedicalVisits(visitDtos);
+        HttpStatus status = result.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(result);
+    }
+    
+    // Moves visits dated before the cutoff (default: app.visits.archive-after ago) to the archive tables
+    @PostMapping("/archive")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<VisitArchiveService.ArchiveResult> archiveMedicalVisits(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate before) {
+        VisitArchiveService.ArchiveResult result = visitArchiveService.archive(
+                before != null ? before : visitArchiveService.defaultCutoff());
+        return ResponseEntity.ok(result);
+    }
+    
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
     public ResponseEntity<MedicalVisitDto> updateMedicalVisit(@PathVariable Long id, @Valid @RequestBody MedicalVisitDto visitDto) {
@@ -88,6 +200,15 @@ public class MedicalVisitController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    // JSON merge patch (application/merge-patch+json or plain JSON); include "version" to get 409 on a stale edit
+    @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<MedicalVisitDto> patchMedicalVisit(@PathVariable Long id, @RequestBody JsonNode patch) {
+        return medicalVisitService.patchMedicalVisit(id, patch)
+                .map(visit -> ResponseEntity.ok(visit))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteMedicalVisit(@PathVariable Long id) {
@@ -1,15 +1,36 @@
 package com.medical.history.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.medical.history.dto.CursorPage;
+import com.medical.history.dto.PageQuery;
 import com.medical.history.dto.PatientDto;
+import com.medical.history.dto.PatientImportJob;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.service.CascadeDeleteService;
+import com.medical.history.service.CascadeDeleteService.DeleteResult;
+import com.medical.history.service.PatientImportService;
 import com.medical.history.service.PatientService;
+import com.medical.history.service.TableVersions;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/patients")
@@ -17,13 +38,22 @@ import java.util.List;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class PatientController {
     
+    // The family doctor's name is part of each row
+    private static final Set<EntityType> LIST_DEPENDS_ON = EnumSet.of(EntityType.PATIENT, EntityType.DOCTOR);
+    
     private final PatientService patientService;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final PatientImportService patientImportService;
+    private final TableVersions tableVersions;
     
+    // Keyset-paginated, see PageQuery; sort=name (default, A to Z), egn or id
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<PatientDto>> getAllPatients() {
-        List<PatientDto> patients = patientService.getAllPatients();
-        return ResponseEntity.ok(patients);
+    public ResponseEntity<CursorPage<PatientDto>> getAllPatients(PageQuery page, WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, LIST_DEPENDS_ON)) {
+            return null;
+        }
+        return ResponseEntity.ok(patientService.getPatients(page));
     }
     
     @GetMapping("/{id}")
@@ -67,6 +97,65 @@ public class PatientController {
         }
     }
     
+    /**
+     * Enrolls patients from a text/csv request body with the header
+     * name,egn,familyDoctorIdentificationNumber[,healthInsurancePaid][,lastInsurancePaymentDate];
+     * filename= names the upload in the job list. The body is read as it arrives, on an import
+     * thread rather than a request thread, and never stored. Returns the finished job;
+     * GET /patients/import/{id}/rejected has the rows that were not imported.
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    public DeferredResult<PatientImportJob> importPatients(@RequestParam(defaultValue = "upload.csv") String filename,
+                                                           InputStream body) {
+        // No timeout: the request must stay open for as long as the import reads its body
+        DeferredResult<PatientImportJob> result = new DeferredResult<>(0L);
+        patientImportService.startImport(filename, body).whenComplete((job, error) -> {
+            if (error != null) {
+                result.setErrorResult(error);
+            } else {
+                result.setResult(job);
+            }
+        });
+        return result;
+    }
+    
+    // Running imports and the most recent finished ones, newest first
+    @GetMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<PatientImportJob>> getImportJobs() {
+        return ResponseEntity.ok(patientImportService.getJobs());
+    }
+    
+    @GetMapping("/import/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PatientImportJob> getImportJob(@PathVariable String jobId) {
+        return patientImportService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(job))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    // Available once the import has finished; 409 while it is still running
+    @GetMapping("/import/{jobId}/rejected")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getImportRejectedRows(@PathVariable String jobId) {
+        PatientImportJob job = patientImportService.getJob(jobId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.getStatus() == PatientImportJob.Status.RUNNING) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            patientImportService.writeRejectedRows(jobId, writer);
+        };
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rejected-" + jobId + ".csv\"")
+                .body(body);
+    }
+    
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
     public ResponseEntity<PatientDto> updatePatient(@PathVariable Long id, @Valid @RequestBody PatientDto patientDto) {
@@ -75,12 +164,24 @@ public class PatientController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    // JSON merge patch (application/merge-patch+json or plain JSON); include "version" to get 409 on a stale edit
+    @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<PatientDto> patchPatient(@PathVariable Long id, @RequestBody JsonNode patch) {
+        return patientService.patchPatient(id, patch)
+                .map(patient -> ResponseEntity.ok(patient))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    // With dryRun=true nothing is deleted; the response lists the rows a delete would remove
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Void> deletePatient(@PathVariable Long id) {
-        if (patientService.deletePatient(id)) {
-            return ResponseEntity.noContent().build();
+    public ResponseEntity<DeleteResult> deletePatient(
+            @PathVariable Long id, @RequestParam(defaultValue = "false") boolean dryRun) {
+        Optional<DeleteResult> result = cascadeDeleteService.deletePatient(id, dryRun);
+        if (result.isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
+        return dryRun ? ResponseEntity.ok(result.get()) : ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,148 @@
+package com.medical.history.controller;
+
+import com.medical.history.controller.TableResponses.Table;
+import com.medical.history.dto.DoctorDto;
+import com.medical.history.dto.MedicalVisitDto;
+import com.medical.history.dto.PatientDto;
+import com.medical.history.dto.SickLeaveDto;
+import com.medical.history.service.ReportsService;
+import com.medical.history.service.SickLeaveActivityService;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Columns of the reports' CSV and XLSX exports; nested reports are flattened to one row per innermost item
+final class ReportTables {
+    
+    static final Table<PatientDto> PATIENTS = new Table<>(
+            List.of("id", "name", "egn", "healthInsurancePaid", "lastInsurancePaymentDate", "healthInsuranceValid",
+                    "familyDoctorId", "familyDoctorName"),
+            patient -> Arrays.asList(patient.getId(), patient.getName(), patient.getEgn(),
+                    patient.getHealthInsurancePaid(), patient.getLastInsurancePaymentDate(),
+                    patient.getHealthInsuranceValid(), patient.getFamilyDoctorId(), patient.getFamilyDoctorName()));
+    
+    static final Table<MedicalVisitDto> VISITS = new Table<>(
+            List.of("id", "visitDate", "visitTime", "patientId", "patientName", "doctorId", "doctorName",
+                    "diagnosisId", "diagnosisName", "symptoms", "treatment", "prescribedMedication", "notes",
+                    "sickLeaveStartDate", "sickLeaveEndDate", "sickLeaveDays", "archived"),
+            visit -> {
+                SickLeaveDto sickLeave = visit.getSickLeave();
+                return Arrays.asList(visit.getId(), visit.getVisitDate(), visit.getVisitTime(), visit.getPatientId(),
+                        visit.getPatientName(), visit.getDoctorId(), visit.getDoctorName(), visit.getDiagnosisId(),
+                        visit.getDiagnosisName(), visit.getSymptoms(), visit.getTreatment(),
+                        visit.getPrescribedMedication(), visit.getNotes(),
+                        sickLeave != null ? sickLeave.getStartDate() : null,
+                        sickLeave != null ? sickLeave.getEndDate() : null,
+                        sickLeave != null ? sickLeave.getDurationDays() : null, visit.isArchived());
+            });
+    
+    static final Table<ReportsService.DiagnosisReport> DIAGNOSIS_COUNTS = new Table<>(
+            List.of("diagnosisId", "code", "name", "patientCount"),
+            report -> Arrays.asList(report.getDiagnosis().getId(), report.getDiagnosis().getCode(),
+                    report.getDiagnosis().getName(), report.getPatientCount()));
+    
+    static final Table<ReportsService.DoctorPatientCountReport> DOCTOR_PATIENT_COUNTS = new Table<>(
+            doctorHeader("patientCount"), report -> doctorRow(report.getDoctor(), report.getPatientCount()));
+    
+    static final Table<ReportsService.DoctorVisitCountReport> DOCTOR_VISIT_COUNTS = new Table<>(
+            doctorHeader("visitCount"), report -> doctorRow(report.getDoctor(), report.getVisitCount()));
+    
+    static final Table<ReportsService.DoctorSickLeaveReport> DOCTOR_SICK_LEAVE_COUNTS = new Table<>(
+            doctorHeader("sickLeaveCount"), report -> doctorRow(report.getDoctor(), report.getSickLeaveCount()));
+    
+    static final Table<ReportsService.DoctorSickLeaveDetailedReport> DOCTOR_SICK_LEAVE_DETAILS = new Table<>(
+            doctorHeader("sickLeaveCount", "totalDays", "averageDays"),
+            report -> doctorRow(report.getDoctor(), report.getSickLeaveCount(), report.getTotalDays(),
+                    report.getAverageDays()));
+    
+    static final Table<ReportsService.MonthlyReport> MONTHLY_COUNTS = new Table<>(
+            List.of("year", "month", "count"),
+            report -> List.of(report.getYear(), report.getMonth(), report.getCount()));
+    
+    static final Table<ReportsService.SickLeaveDetailedReport> MONTHLY_SICK_LEAVE_DETAILS = new Table<>(
+            List.of("year", "month", "count", "totalDays", "averageDays"),
+            report -> List.of(report.getYear(), report.getMonth(), report.getCount(), report.getTotalDays(),
+                    report.getAverageDays()));
+    
+    static final Table<ReportsService.PatientVisitReport> PATIENT_VISIT_COUNTS = new Table<>(
+            concat(PATIENTS.header(), List.of("visitCount")),
+            report -> concat(PATIENTS.row().apply(report.getPatient()), Arrays.asList(report.getVisitCount())));
+    
+    static final Table<ReportsService.DailyVisitStats> DAILY_VISIT_STATS = new Table<>(
+            List.of("date", "visitCount", "distinctPatients", "distinctDoctors"),
+            day -> List.of(day.getDate(), day.getVisitCount(), day.getDistinctPatients(), day.getDistinctDoctors()));
+    
+    static final Table<ReportsService.DashboardStats> DASHBOARD_STATS = new Table<>(
+            List.of("totalDoctors", "totalPatients", "totalVisits", "totalSickLeaves"),
+            stats -> List.of(stats.getTotalDoctors(), stats.getTotalPatients(), stats.getTotalVisits(),
+                    stats.getTotalSickLeaves()));
+    
+    static final Table<ReportsService.InsuranceStats> INSURANCE_STATS = new Table<>(
+            List.of("paidCount", "unpaidCount", "paymentRate"),
+            stats -> List.of(stats.getPaidCount(), stats.getUnpaidCount(), stats.getPaymentRate()));
+    
+    // One row per weekday, Monday first, with a column per hour of the day
+    static final Table<List<?>> HEATMAP = new Table<>(heatmapHeader(), row -> row);
+    
+    static final Table<SickLeaveActivityService.GroupAbsence> SICK_LEAVE_ABSENCE = new Table<>(
+            List.of("groupId", "groupName", "absenceDays", "averageActive", "peakActive", "peakDate"),
+            group -> Arrays.asList(group.getGroupId(), group.getGroupName(), group.getAbsenceDays(),
+                    group.getAverageActive(), group.getPeakActive(), group.getPeakDate()));
+    
+    static final Table<List<?>> SICK_LEAVE_ACTIVE_DAYS = new Table<>(
+            List.of("groupId", "groupName", "date", "active"), row -> row);
+    
+    static final Table<List<?>> SICK_LEAVE_WEEKLY_PEAKS = new Table<>(
+            List.of("groupId", "groupName", "weekStart", "peakActive", "peakDate"), row -> row);
+    
+    private ReportTables() {
+    }
+    
+    static void heatmapRows(ReportsService.VisitHeatmap heatmap, Consumer<List<?>> rows) {
+        long[][] counts = heatmap.getCounts();
+        for (int day = 0; day < counts.length; day++) {
+            rows.accept(concat(List.of(DayOfWeek.of(day + 1)),
+                    Arrays.stream(counts[day]).boxed().toList()));
+        }
+    }
+    
+    static void activeDayRows(List<SickLeaveActivityService.GroupDailyActivity> groups, Consumer<List<?>> rows) {
+        for (SickLeaveActivityService.GroupDailyActivity group : groups) {
+            group.getDays().forEach(day -> rows.accept(Arrays.asList(group.getGroupId(), group.getGroupName(),
+                    day.getDate(), day.getActive())));
+        }
+    }
+    
+    static void weeklyPeakRows(List<SickLeaveActivityService.GroupWeeklyPeaks> groups, Consumer<List<?>> rows) {
+        for (SickLeaveActivityService.GroupWeeklyPeaks group : groups) {
+            group.getWeeks().forEach(week -> rows.accept(Arrays.asList(group.getGroupId(), group.getGroupName(),
+                    week.getWeekStart(), week.getPeakActive(), week.getPeakDate())));
+        }
+    }
+    
+    private static List<String> doctorHeader(String... counts) {
+        return concat(List.of("doctorId", "identificationNumber", "name", "specialty"), Arrays.asList(counts));
+    }
+    
+    private static List<String> heatmapHeader() {
+        List<String> header = new ArrayList<>(List.of("day"));
+        for (int hour = 0; hour < 24; hour++) {
+            header.add(Integer.toString(hour));
+        }
+        return header;
+    }
+    
+    private static List<?> doctorRow(DoctorDto doctor, Object... counts) {
+        return concat(Arrays.asList(doctor.getId(), doctor.getIdentificationNumber(), doctor.getName(),
+                doctor.getSpecialty()), Arrays.asList(counts));
+    }
+    
+    private static <T> List<T> concat(List<? extends T> first, List<? extends T> rest) {
+        List<T> row = new ArrayList<>(first);
+        row.addAll(rest);
+        return row;
+    }
+}
@@ -1,13 +1,23 @@
 package com.medical.history.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.medical.history.dto.MedicalVisitDto;
 import com.medical.history.dto.PatientDto;
+import com.medical.history.service.ReportBundleService;
+import com.medical.history.service.ReportCache;
+import com.medical.history.service.ReportParameters;
 import com.medical.history.service.ReportsService;
+import com.medical.history.service.RollupService;
+import com.medical.history.service.SickLeaveActivityService;
+import com.medical.history.service.TableVersions;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -19,124 +29,548 @@ import java.util.List;
 public class ReportsController {
     
     private final ReportsService reportsService;
+    private final RollupService rollupService;
+    private final ReportBundleService reportBundleService;
+    private final ReportCache reportCache;
+    // Each report answers a matching If-None-Match with 304 until an entity type it reads is written to
+    private final TableVersions tableVersions;
+    private final SickLeaveActivityService sickLeaveActivityService;
+    private final ObjectMapper objectMapper;
     
     // 3a. Списък с пациенти, с дадена диагноза
     @GetMapping("/patients-by-diagnosis/{diagnosisId}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<PatientDto>> getPatientsByDiagnosis(@PathVariable Long diagnosisId) {
+    public ResponseEntity<List<PatientDto>> getPatientsByDiagnosis(@PathVariable Long diagnosisId, WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.PATIENTS_AND_VISITS)) {
+            return null;
+        }
         List<PatientDto> patients = reportsService.getPatientsByDiagnosis(diagnosisId);
         return ResponseEntity.ok(patients);
     }
     
+    // Every report but the bundle also answers format=csv or format=xlsx with a spreadsheet download. The
+    // patient and visit lists are written row by row off a database cursor, the rest from their JSON's results
+    @GetMapping(value = "/patients-by-diagnosis/{diagnosisId}", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportPatientsByDiagnosis(@PathVariable Long diagnosisId, @RequestParam String format) {
+        return TableResponses.stream(format, "patients-by-diagnosis", ReportTables.PATIENTS,
+                consumer -> reportsService.streamPatientsByDiagnosis(diagnosisId, consumer));
+    }
+    
     // 3b. Най-често диагностицирани диагнози
+    // Ranking reports take an optional limit (top N, at most app.pagination.max-size) and from/to date window
     @GetMapping("/most-common-diagnoses")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<ReportsService.DiagnosisReport>> getMostCommonDiagnoses() {
-        List<ReportsService.DiagnosisReport> reports = reportsService.getMostCommonDiagnoses();
+    public ResponseEntity<List<ReportsService.DiagnosisReport>> getMostCommonDiagnoses(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        if (!ReportParameters.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.VISITS_AND_DIAGNOSES)) {
+            return null;
+        }
+        List<ReportsService.DiagnosisReport> reports = reportsService.getMostCommonDiagnoses(from, to, limit);
         return ResponseEntity.ok(reports);
     }
     
+    @GetMapping(value = "/most-common-diagnoses", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportMostCommonDiagnoses(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam String format) {
+        if (!ReportParameters.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return TableResponses.stream(format, "most-common-diagnoses", ReportTables.DIAGNOSIS_COUNTS,
+                consumer -> reportsService.getMostCommonDiagnoses(from, to, limit).forEach(consumer));
+    }
+    
     // 3c. Списък с пациенти, които имат даден личен лекар
     @GetMapping("/patients-by-family-doctor/{doctorId}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<PatientDto>> getPatientsByFamilyDoctor(@PathVariable Long doctorId) {
+    public ResponseEntity<List<PatientDto>> getPatientsByFamilyDoctor(@PathVariable Long doctorId, WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.PATIENTS)) {
+            return null;
+        }
         List<PatientDto> patients = reportsService.getPatientsByFamilyDoctor(doctorId);
         return ResponseEntity.ok(patients);
     }
     
+    @GetMapping(value = "/patients-by-family-doctor/{doctorId}", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportPatientsByFamilyDoctor(@PathVariable Long doctorId, @RequestParam String format) {
+        return TableResponses.stream(format, "patients-by-family-doctor", ReportTables.PATIENTS,
+                consumer -> reportsService.streamPatientsByFamilyDoctor(doctorId, consumer));
+    }
+    
     // 3d. Брой на пациентите, записани при всеки от личните лекари
     @GetMapping("/family-doctor-patient-counts")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<ReportsService.DoctorPatientCountReport>> getFamilyDoctorPatientCounts() {
+    public ResponseEntity<List<ReportsService.DoctorPatientCountReport>> getFamilyDoctorPatientCounts(WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.PATIENTS)) {
+            return null;
+        }
         List<ReportsService.DoctorPatientCountReport> reports = reportsService.getFamilyDoctorPatientCounts();
         return ResponseEntity.ok(reports);
     }
     
+    @GetMapping(value = "/family-doctor-patient-counts", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportFamilyDoctorPatientCounts(@RequestParam String format) {
+        return TableResponses.stream(format, "family-doctor-patient-counts", ReportTables.DOCTOR_PATIENT_COUNTS,
+                consumer -> reportsService.getFamilyDoctorPatientCounts().forEach(consumer));
+    }
+    
     // 3e. Брой посещения при всеки от лекарите
     @GetMapping("/doctor-visit-counts")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<ReportsService.DoctorVisitCountReport>> getDoctorVisitCounts() {
-        List<ReportsService.DoctorVisitCountReport> reports = reportsService.getDoctorVisitCounts();
+    public ResponseEntity<List<ReportsService.DoctorVisitCountReport>> getDoctorVisitCounts(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        if (!ReportParameters.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.VISITS)) {
+            return null;
+        }
+        List<ReportsService.DoctorVisitCountReport> reports = reportsService.getDoctorVisitCounts(from, to, limit);
         return ResponseEntity.ok(reports);
     }
     
+    @GetMapping(value = "/doctor-visit-counts", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportDoctorVisitCounts(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam String format) {
+        if (!ReportParameters.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return TableResponses.stream(format, "doctor-visit-counts", ReportTables.DOCTOR_VISIT_COUNTS,
+                consumer -> reportsService.getDoctorVisitCounts(from, to, limit).forEach(consumer));
+    }
+    
     // 3g. Списък на прегледите при всички лекари в даден период
     @GetMapping("/visits-by-date-range")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
     public ResponseEntity<List<MedicalVisitDto>> getVisitsByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.VISIT_LISTS)) {
+            return null;
+        }
         List<MedicalVisitDto> visits = reportsService.getVisitsByDateRange(startDate, endDate);
         return ResponseEntity.ok(visits);
     }
     
+    // 3g, streamed as application/x-ndjson for large ranges
+    @GetMapping(value = "/visits-by-date-range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> streamVisitsByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return NdjsonResponses.<MedicalVisitDto>stream(objectMapper,
+                consumer -> reportsService.streamVisitsByDateRange(startDate, endDate, consumer));
+    }
+    
+    @GetMapping(value = "/visits-by-date-range", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportVisitsByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam String format) {
+        return TableResponses.stream(format, "visits-by-date-range", ReportTables.VISITS,
+                consumer -> reportsService.streamVisitsByDateRange(startDate, endDate, consumer));
+    }
+    
+    // Day-by-day visit statistics for up to a year; approximate=true estimates distinct patients from
+    // daily sketches and takes up to ten years
+    @GetMapping("/daily-visit-stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<ReportsService.DailyVisitStatsReport> getDailyVisitStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "false") boolean approximate,
+            WebRequest request) {
+        if (!ReportParameters.isValidDailyStatsWindow(startDate, endDate, approximate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.VISITS)) {
+            return null;
+        }
+        ReportsService.DailyVisitStatsReport report = reportsService.getDailyVisitStats(startDate, endDate, approximate);
+        return ResponseEntity.ok(report);
+    }
+    
+    // One row per day; the range-wide totals are left to the spreadsheet
+    @GetMapping(value = "/daily-visit-stats", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportDailyVisitStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "false") boolean approximate,
+            @RequestParam String format) {
+        if (!ReportParameters.isValidDailyStatsWindow(startDate, endDate, approximate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return TableResponses.stream(format, "daily-visit-stats", ReportTables.DAILY_VISIT_STATS,
+                consumer -> reportsService.getDailyVisitStats(startDate, endDate, approximate).getDays().forEach(consumer));
+    }
+    
+    // Visits per weekday and hour of day, served from the hourly roll-up counters
+    @GetMapping("/visit-heatmap")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<ReportsService.VisitHeatmap> getVisitHeatmap(
+            @RequestParam(required = false) Long doctorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        if (!ReportParameters.isValidRange(from, to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.VISITS)) {
+            return null;
+        }
+        ReportsService.VisitHeatmap heatmap = reportsService.getVisitHeatmap(doctorId, from, to);
+        return ResponseEntity.ok(heatmap);
+    }
+    
+    @GetMapping(value = "/visit-heatmap", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportVisitHeatmap(
+            @RequestParam(required = false) Long doctorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam String format) {
+        if (!ReportParameters.isValidRange(from, to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return TableResponses.stream(format, "visit-heatmap", ReportTables.HEATMAP,
+                consumer -> ReportTables.heatmapRows(reportsService.getVisitHeatmap(doctorId, from, to), consumer));
+    }
+    
     // 3h. Списък на прегледите при определен лекар за даден период
     @GetMapping("/visits-by-doctor-and-date-range")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
     public ResponseEntity<List<MedicalVisitDto>> getVisitsByDoctorAndDateRange(
             @RequestParam Long doctorId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.VISIT_LISTS)) {
+            return null;
+        }
         List<MedicalVisitDto> visits = reportsService.getVisitsByDoctorAndDateRange(doctorId, startDate, endDate);
         return ResponseEntity.ok(visits);
     }
     
+    @GetMapping(value = "/visits-by-doctor-and-date-range", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportVisitsByDoctorAndDateRange(
+            @RequestParam Long doctorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam String format) {
+        return TableResponses.stream(format, "visits-by-doctor-and-date-range", ReportTables.VISITS,
+                consumer -> reportsService.streamVisitsByDoctorAndDateRange(doctorId, startDate, endDate, consumer));
+    }
+    
     // 3i. Месец в годината, в който са издадени най-много болнични
     @GetMapping("/month-most-sick-leaves")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<ReportsService.MonthlyReport> getMonthWithMostSickLeaves() {
+    public ResponseEntity<ReportsService.MonthlyReport> getMonthWithMostSickLeaves(WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.SICK_LEAVES)) {
+            return null;
+        }
         ReportsService.MonthlyReport report = reportsService.getMonthWithMostSickLeaves();
         return ResponseEntity.ok(report);
     }
     
+    @GetMapping(value = "/month-most-sick-leaves", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportMonthWithMostSickLeaves(@RequestParam String format) {
+        return TableResponses.stream(format, "month-most-sick-leaves", ReportTables.MONTHLY_COUNTS,
+                consumer -> consumer.accept(reportsService.getMonthWithMostSickLeaves()));
+    }
+    
+    // Patients actually on sick leave per day, counting each leave over its whole start..end span
+    @GetMapping("/sick-leaves-active-by-day")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<List<SickLeaveActivityService.GroupDailyActivity>> getSickLeavesActiveByDay(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "NONE") SickLeaveActivityService.GroupBy groupBy,
+            WebRequest request) {
+        if (!ReportParameters.isValidActivityWindow(startDate, endDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ConditionalResponses.notModified(request, tableVersions, SickLeaveActivityService.DEPENDS_ON)) {
+            return null;
+        }
+        return ResponseEntity.ok(sickLeaveActivityService.getActiveByDay(startDate, endDate, groupBy));
+    }
+    
+    @GetMapping(value = "/sick-leaves-active-by-day", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportSickLeavesActiveByDay(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "NONE") SickLeaveActivityService.GroupBy groupBy,
+            @RequestParam String format) {
+        if (!ReportParameters.isValidActivityWindow(startDate, endDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return TableResponses.stream(format, "sick-leaves-active-by-day", ReportTables.SICK_LEAVE_ACTIVE_DAYS,
+                consumer -> ReportTables.activeDayRows(sickLeaveActivityService.getActiveByDay(startDate, endDate, groupBy), consumer));
+    }
+    
+    @GetMapping("/sick-leaves-weekly-peaks")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<List<SickLeaveActivityService.GroupWeeklyPeaks>> getSickLeavesWeeklyPeaks(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "NONE") SickLeaveActivityService.GroupBy groupBy,
+            WebRequest request) {
+        if (!ReportParameters.isValidActivityWindow(startDate, endDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ConditionalResponses.notModified(request, tableVersions, SickLeaveActivityService.DEPENDS_ON)) {
+            return null;
+        }
+        return ResponseEntity.ok(sickLeaveActivityService.getWeeklyPeaks(startDate, endDate, groupBy));
+    }
+    
+    @GetMapping(value = "/sick-leaves-weekly-peaks", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportSickLeavesWeeklyPeaks(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "NONE") SickLeaveActivityService.GroupBy groupBy,
+            @RequestParam String format) {
+        if (!ReportParameters.isValidActivityWindow(startDate, endDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return TableResponses.stream(format, "sick-leaves-weekly-peaks", ReportTables.SICK_LEAVE_WEEKLY_PEAKS,
+                consumer -> ReportTables.weeklyPeakRows(sickLeaveActivityService.getWeeklyPeaks(startDate, endDate, groupBy), consumer));
+    }
+    
+    @GetMapping("/sick-leave-absence-days")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<List<SickLeaveActivityService.GroupAbsence>> getSickLeaveAbsenceDays(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "NONE") SickLeaveActivityService.GroupBy groupBy,
+            WebRequest request) {
+        if (!ReportParameters.isValidActivityWindow(startDate, endDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ConditionalResponses.notModified(request, tableVersions, SickLeaveActivityService.DEPENDS_ON)) {
+            return null;
+        }
+        return ResponseEntity.ok(sickLeaveActivityService.getAbsenceDays(startDate, endDate, groupBy));
+    }
+    
+    @GetMapping(value = "/sick-leave-absence-days", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportSickLeaveAbsenceDays(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "NONE") SickLeaveActivityService.GroupBy groupBy,
+            @RequestParam String format) {
+        if (!ReportParameters.isValidActivityWindow(startDate, endDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return TableResponses.stream(format, "sick-leave-absence-days", ReportTables.SICK_LEAVE_ABSENCE,
+                consumer -> sickLeaveActivityService.getAbsenceDays(startDate, endDate, groupBy).forEach(consumer));
+    }
+    
     // 3j. Лекар/лекари, които са издали най-много болнични
     @GetMapping("/doctors-most-sick-leaves")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<ReportsService.DoctorSickLeaveReport>> getDoctorsWithMostSickLeaves() {
-        List<ReportsService.DoctorSickLeaveReport> reports = reportsService.getDoctorsWithMostSickLeaves();
+    public ResponseEntity<List<ReportsService.DoctorSickLeaveReport>> getDoctorsWithMostSickLeaves(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        if (!ReportParameters.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.SICK_LEAVES)) {
+            return null;
+        }
+        List<ReportsService.DoctorSickLeaveReport> reports = reportsService.getDoctorsWithMostSickLeaves(from, to, limit);
         return ResponseEntity.ok(reports);
     }
     
+    @GetMapping(value = "/doctors-most-sick-leaves", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportDoctorsWithMostSickLeaves(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam String format) {
+        if (!ReportParameters.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return TableResponses.stream(format, "doctors-most-sick-leaves", ReportTables.DOCTOR_SICK_LEAVE_COUNTS,
+                consumer -> reportsService.getDoctorsWithMostSickLeaves(from, to, limit).forEach(consumer));
+    }
+    
     // Additional useful reports
     @GetMapping("/sick-leaves-by-month")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<ReportsService.MonthlyReport>> getSickLeavesByMonth() {
+    public ResponseEntity<List<ReportsService.MonthlyReport>> getSickLeavesByMonth(WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.SICK_LEAVES)) {
+            return null;
+        }
         List<ReportsService.MonthlyReport> reports = reportsService.getSickLeavesByMonth();
         return ResponseEntity.ok(reports);
     }
     
+    @GetMapping(value = "/sick-leaves-by-month", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportSickLeavesByMonth(@RequestParam String format) {
+        return TableResponses.stream(format, "sick-leaves-by-month", ReportTables.MONTHLY_COUNTS,
+                consumer -> reportsService.getSickLeavesByMonth().forEach(consumer));
+    }
+    
     @GetMapping("/dashboard-stats")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<ReportsService.DashboardStats> getDashboardStats() {
+    public ResponseEntity<ReportsService.DashboardStats> getDashboardStats(WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.ALL_ENTITIES)) {
+            return null;
+        }
         ReportsService.DashboardStats stats = reportsService.getDashboardStats();
         return ResponseEntity.ok(stats);
     }
     
+    @GetMapping(value = "/dashboard-stats", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportDashboardStats(@RequestParam String format) {
+        return TableResponses.stream(format, "dashboard-stats", ReportTables.DASHBOARD_STATS,
+                consumer -> consumer.accept(reportsService.getDashboardStats()));
+    }
+    
     @GetMapping("/patients-most-visits")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<ReportsService.PatientVisitReport>> getPatientsWithMostVisits() {
+    public ResponseEntity<List<ReportsService.PatientVisitReport>> getPatientsWithMostVisits(WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.PATIENTS_AND_VISITS)) {
+            return null;
+        }
         List<ReportsService.PatientVisitReport> reports = reportsService.getPatientsWithMostVisits();
         return ResponseEntity.ok(reports);
     }
     
+    @GetMapping(value = "/patients-most-visits", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportPatientsWithMostVisits(@RequestParam String format) {
+        return TableResponses.stream(format, "patients-most-visits", ReportTables.PATIENT_VISIT_COUNTS,
+                consumer -> reportsService.getPatientsWithMostVisits().forEach(consumer));
+    }
+    
     @GetMapping("/insurance-stats")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<ReportsService.InsuranceStats> getInsuranceStats() {
+    public ResponseEntity<ReportsService.InsuranceStats> getInsuranceStats(WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.INSURANCE)) {
+            return null;
+        }
         ReportsService.InsuranceStats stats = reportsService.getInsuranceStats();
         return ResponseEntity.ok(stats);
     }
     
+    @GetMapping(value = "/insurance-stats", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportInsuranceStats(@RequestParam String format) {
+        return TableResponses.stream(format, "insurance-stats", ReportTables.INSURANCE_STATS,
+                consumer -> consumer.accept(reportsService.getInsuranceStats()));
+    }
+    
     @GetMapping("/sick-leaves-detailed-monthly")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<ReportsService.SickLeaveDetailedReport>> getDetailedSickLeavesByMonth() {
+    public ResponseEntity<List<ReportsService.SickLeaveDetailedReport>> getDetailedSickLeavesByMonth(WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.SICK_LEAVES)) {
+            return null;
+        }
         List<ReportsService.SickLeaveDetailedReport> reports = reportsService.getDetailedSickLeavesByMonth();
         return ResponseEntity.ok(reports);
     }
     
+    @GetMapping(value = "/sick-leaves-detailed-monthly", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportDetailedSickLeavesByMonth(@RequestParam String format) {
+        return TableResponses.stream(format, "sick-leaves-detailed-monthly", ReportTables.MONTHLY_SICK_LEAVE_DETAILS,
+                consumer -> reportsService.getDetailedSickLeavesByMonth().forEach(consumer));
+    }
+    
     @GetMapping("/doctors-sick-leaves-detailed")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<ReportsService.DoctorSickLeaveDetailedReport>> getDetailedDoctorSickLeaveStats() {
-        List<ReportsService.DoctorSickLeaveDetailedReport> reports = reportsService.getDetailedDoctorSickLeaveStats();
+    public ResponseEntity<List<ReportsService.DoctorSickLeaveDetailedReport>> getDetailedDoctorSickLeaveStats(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        if (!ReportParameters.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.SICK_LEAVES)) {
+            return null;
+        }
+        List<ReportsService.DoctorSickLeaveDetailedReport> reports = reportsService.getDetailedDoctorSickLeaveStats(from, to, limit);
         return ResponseEntity.ok(reports);
     }
+    
+    @GetMapping(value = "/doctors-sick-leaves-detailed", params = "format")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<StreamingResponseBody> exportDetailedDoctorSickLeaveStats(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam String format) {
+        if (!ReportParameters.isValidLimit(limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return TableResponses.stream(format, "doctors-sick-leaves-detailed", ReportTables.DOCTOR_SICK_LEAVE_DETAILS,
+                consumer -> reportsService.getDetailedDoctorSickLeaveStats(from, to, limit).forEach(consumer));
+    }
+    
+    // Several reports in one round trip, run concurrently; reports= takes names matching the endpoint paths above
+    @GetMapping("/bundle")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<ReportBundleService.ReportBundle> getReportBundle(
+            @RequestParam List<String> reports,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long doctorId,
+            @RequestParam(required = false) Long diagnosisId,
+            WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, ReportsService.ALL_ENTITIES)) {
+            return null;
+        }
+        ReportBundleService.Filters filters = new ReportBundleService.Filters();
+        filters.setStartDate(startDate);
+        filters.setEndDate(endDate);
+        filters.setDoctorId(doctorId);
+        filters.setDiagnosisId(diagnosisId);
+        ReportBundleService.ReportBundle bundle = reportBundleService.runBundle(reports, filters);
+        return ResponseEntity.ok(bundle);
+    }
+    
+    // Recompute the daily roll-up tables from medical_visits and sick_leaves
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<RollupService.RebuildResult> rebuildRollups() {
+        RollupService.RebuildResult result = rollupService.rebuild();
+        reportCache.evictAll();
+        tableVersions.bumpAll();
+        return ResponseEntity.ok(result);
+    }
 }
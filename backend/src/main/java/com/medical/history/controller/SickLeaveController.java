@@ -1,17 +1,26 @@
 package com.medical.history.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.medical.history.dto.CursorPage;
+import com.medical.history.dto.PageQuery;
 import com.medical.history.dto.SickLeaveDto;
+import com.medical.history.event.DomainChangeEvent.EntityType;
 import com.medical.history.service.SickLeaveService;
+import com.medical.history.service.TableVersions;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 import java.time.LocalDate;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/sick-leaves")
@@ -19,13 +28,19 @@ import java.util.List;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class SickLeaveController {
     
+    private static final Set<EntityType> LIST_DEPENDS_ON = EnumSet.of(EntityType.SICK_LEAVE);
+    
     private final SickLeaveService sickLeaveService;
+    private final TableVersions tableVersions;
     
+    // Keyset-paginated, see PageQuery; sort=startDate (default, latest first) or id
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
-    public ResponseEntity<List<SickLeaveDto>> getAllSickLeaves() {
-        List<SickLeaveDto> sickLeaves = sickLeaveService.getAllSickLeaves();
-        return ResponseEntity.ok(sickLeaves);
+    public ResponseEntity<CursorPage<SickLeaveDto>> getAllSickLeaves(PageQuery page, WebRequest request) {
+        if (ConditionalResponses.notModified(request, tableVersions, LIST_DEPENDS_ON)) {
+            return null;
+        }
+        return ResponseEntity.ok(sickLeaveService.getSickLeaves(page));
     }
     
     @GetMapping("/{id}")
@@ -78,6 +93,15 @@ public class SickLeaveController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    // JSON merge patch (application/merge-patch+json or plain JSON); include "version" to get 409 on a stale edit
+    @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<SickLeaveDto> patchSickLeave(@PathVariable Long id, @RequestBody JsonNode patch) {
+        return sickLeaveService.patchSickLeave(id, patch)
+                .map(sickLeave -> ResponseEntity.ok(sickLeave))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteSickLeave(@PathVariable Long id) {
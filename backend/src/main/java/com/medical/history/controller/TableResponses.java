@@ -0,0 +1,55 @@
+package com.medical.history.controller;
+
+import com.medical.history.service.TableFormat;
+import com.medical.history.service.TableWriter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Builds format=csv and format=xlsx downloads that write each row as the producer hands it over
+final class TableResponses {
+    
+    private TableResponses() {
+    }
+    
+    // The column names of a report and how one of its items becomes a row
+    record Table<T>(List<String> header, Function<? super T, List<?>> row) {
+    }
+    
+    // 400 for a format other than csv or xlsx
+    static <T> ResponseEntity<StreamingResponseBody> stream(String format, String fileName, Table<T> table,
+                                                            Consumer<Consumer<T>> producer) {
+        Optional<TableFormat> tableFormat = TableFormat.of(format);
+        if (tableFormat.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> {
+            TableWriter writer = tableFormat.get().open(outputStream, table.header());
+            try {
+                producer.accept(item -> {
+                    try {
+                        writer.writeRow(table.row().apply(item));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(tableFormat.get().getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + fileName + "." + tableFormat.get().getExtension() + "\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,25 @@
+package com.medical.history.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One page of a keyset-paginated list; pass nextCursor back as ?cursor= for the page after it
+@Data
+@NoArgsConstructor
+public class CursorPage<T> {
+    
+    private List<T> items;
+    
+    // Null on the last page
+    private String nextCursor;
+    
+    // Rows matching across all pages; only with ?includeTotal=true. Counted once and cached until the next write
+    private Long total;
+    
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,38 @@
+package com.medical.history.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Outcome of POST /medical-visits/batch; items are in request order
+@Data
+public class MedicalVisitBatchResult {
+    
+    private int received;
+    
+    private int created;
+    
+    private int failed;
+    
+    private List<Item> items;
+    
+    @Data
+    public static class Item {
+        
+        // Position of the visit in the request body
+        private int index;
+        
+        private Status status;
+        
+        private Long id;
+        
+        private Long sickLeaveId;
+        
+        private String error;
+    }
+    
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+}
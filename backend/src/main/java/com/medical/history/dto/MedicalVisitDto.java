@@ -39,4 +39,10 @@ public class MedicalVisitDto {
     private String diagnosisName;
     
     private SickLeaveDto sickLeave;
+    
+    // Version the record was read at; sent back on PUT/PATCH, a stale one gets 409 Conflict
+    private Long version;
+    
+    // Read-only: the record was moved to the archive tables
+    private boolean archived;
 }
@@ -0,0 +1,24 @@
+package com.medical.history.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+// Filters of GET /medical-visits/search; every one is optional and they combine with AND
+@Data
+public class MedicalVisitSearch {
+    
+    private Long doctorId;
+    
+    private Long diagnosisId;
+    
+    private String patientEgn;
+    
+    // Inclusive visit date bounds
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+    
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+}
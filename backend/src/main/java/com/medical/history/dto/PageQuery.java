@@ -0,0 +1,20 @@
+package com.medical.history.dto;
+
+import lombok.Data;
+
+// Paging parameters shared by the list endpoints; see KeysetSort
+@Data
+public class PageQuery {
+    
+    // "key" or "key,asc|desc" from the endpoint's sort keys; null for the endpoint's default
+    private String sort;
+    
+    // nextCursor of the previous page; null for the first page
+    private String cursor;
+    
+    // Null for app.pagination.default-size; capped at app.pagination.max-size
+    private Integer size;
+    
+    // Adds the number of matching rows to the page, see CursorPage.total
+    private boolean includeTotal;
+}
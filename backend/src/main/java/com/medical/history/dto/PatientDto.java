@@ -27,4 +27,7 @@ public class PatientDto {
     private String familyDoctorName;
     
     private Boolean healthInsuranceValid;
+    
+    // Version the record was read at; sent back on PUT/PATCH, a stale one gets 409 Conflict
+    private Long version;
 }
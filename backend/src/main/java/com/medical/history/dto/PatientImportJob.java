@@ -0,0 +1,38 @@
+package com.medical.history.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Progress of a CSV patient import. Only the importing thread writes the volatile fields while
+// it runs, so other threads read current values without locking
+@Data
+public class PatientImportJob {
+    
+    private String id;
+    
+    // Uploaded file name, or the path for imports started from the command line
+    private String source;
+    
+    private volatile Status status;
+    
+    private LocalDateTime startedAt;
+    
+    private volatile LocalDateTime finishedAt;
+    
+    // Data rows read so far, not counting the header
+    private volatile long rowsRead;
+    
+    private volatile long imported;
+    
+    private volatile long rejected;
+    
+    // Why the import stopped early when FAILED; rows committed before that stay imported
+    private volatile String error;
+    
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
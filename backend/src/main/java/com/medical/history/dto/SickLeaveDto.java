@@ -23,4 +23,10 @@ public class SickLeaveDto {
     private String reason;
     
     private Long medicalVisitId;
+    
+    // Version the record was read at; sent back on PUT/PATCH, a stale one gets 409 Conflict
+    private Long version;
+    
+    // Read-only: the record was moved to the archive tables
+    private boolean archived;
 }
@@ -0,0 +1,23 @@
+package com.medical.history.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Filters of GET /medical-visits/export; every one is optional and they combine with AND
+@Data
+public class VisitExportFilter {
+    
+    // Inclusive visit date bounds
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+    
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+    
+    // Only visits created or last changed at or after this, for incremental pulls; deletes come from /export/deleted
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime updatedSince;
+}
@@ -0,0 +1,84 @@
+package com.medical.history.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * A visit moved to cold storage by VisitArchiveService, with its original id and columns.
+ * Archived visits are read-only; rows are only ever written by the archival INSERT ... SELECT.
+ */
+@Entity
+@Table(name = "medical_visits_archive")
+@Immutable
+@NamedEntityGraph(name = ArchivedMedicalVisit.WITH_ASSOCIATIONS, attributeNodes = {
+        @NamedAttributeNode("patient"),
+        @NamedAttributeNode("doctor"),
+        @NamedAttributeNode("diagnosis"),
+        @NamedAttributeNode("sickLeave")
+})
+@Data
+@EqualsAndHashCode(exclude = {"patient", "doctor", "diagnosis", "sickLeave"})
+public class ArchivedMedicalVisit {
+    
+    // Same fetch plan as MedicalVisit.WITH_ASSOCIATIONS
+    public static final String WITH_ASSOCIATIONS = "ArchivedMedicalVisit.withAssociations";
+    
+    @Id
+    private Long id;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+    
+    @Column(name = "visit_date", nullable = false)
+    private LocalDate visitDate;
+    
+    @Column(name = "visit_time")
+    private LocalTime visitTime;
+    
+    @Column(name = "symptoms", columnDefinition = "TEXT")
+    private String symptoms;
+    
+    @Column(name = "treatment", columnDefinition = "TEXT")
+    private String treatment;
+    
+    @Column(name = "prescribed_medication", columnDefinition = "TEXT")
+    private String prescribedMedication;
+    
+    @Column(name = "notes", columnDefinition = "TEXT")
+    private String notes;
+    
+    // Foreign keys as plain columns so the archival insert can copy them without joins
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+    
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+    
+    @Column(name = "diagnosis_id")
+    private Long diagnosisId;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id", insertable = false, updatable = false)
+    private Patient patient;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", insertable = false, updatable = false)
+    private Doctor doctor;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "diagnosis_id", insertable = false, updatable = false)
+    private Diagnosis diagnosis;
+    
+    @OneToOne(mappedBy = "medicalVisit", fetch = FetchType.LAZY)
+    private ArchivedSickLeave sickLeave;
+}
@@ -0,0 +1,47 @@
+package com.medical.history.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// The sick leave of an archived visit, moved together with it; read-only like ArchivedMedicalVisit
+@Entity
+@Table(name = "sick_leaves_archive")
+@Immutable
+@Data
+@EqualsAndHashCode(exclude = {"medicalVisit"})
+public class ArchivedSickLeave {
+    
+    @Id
+    private Long id;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+    
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+    
+    @Column(name = "duration_days", nullable = false)
+    private Integer durationDays;
+    
+    @Column(name = "end_date")
+    private LocalDate endDate;
+    
+    @Column(name = "reason", columnDefinition = "TEXT")
+    private String reason;
+    
+    @Column(name = "medical_visit_id", nullable = false)
+    private Long medicalVisitId;
+    
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "medical_visit_id", insertable = false, updatable = false)
+    private ArchivedMedicalVisit medicalVisit;
+}
@@ -13,8 +13,10 @@ import java.time.LocalDateTime;
 @EntityListeners(AuditingEntityListener.class)
 public abstract class BaseEntity {
     
+    // Pooled sequence (one <table>_seq per table, 50 ids per round trip) so Hibernate can
+    // batch inserts; IDENTITY forces an immediate INSERT per row to learn the generated key
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
     
     @CreatedDate
@@ -23,4 +25,9 @@ public abstract class BaseEntity {
     
     @LastModifiedDate
     private LocalDateTime updatedAt;
+    
+    // Optimistic lock: every UPDATE checks and bumps it, so a write based on a stale read
+    // fails instead of silently overwriting a concurrent one
+    @Version
+    private Long version;
 }
@@ -0,0 +1,27 @@
+package com.medical.history.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+// HyperLogLog sketch of the patients one doctor saw on one visit day, maintained by RollupService
+@Entity
+@Table(name = "daily_patient_sketches",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"visit_date", "doctor_id"}))
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class DailyPatientSketch extends BaseEntity {
+    
+    @Column(name = "visit_date", nullable = false)
+    private LocalDate visitDate;
+    
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+    
+    @Column(name = "registers", nullable = false, length = 2048)
+    @ToString.Exclude
+    private byte[] registers;
+}
@@ -0,0 +1,28 @@
+package com.medical.history.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDate;
+
+// Pre-aggregated sick leave counts and day totals per start day and issuing doctor, maintained by RollupService
+@Entity
+@Table(name = "daily_sick_leave_rollups",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"start_date", "doctor_id"}))
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class DailySickLeaveRollup extends BaseEntity {
+    
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+    
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+    
+    @Column(name = "leave_count", nullable = false)
+    private Long leaveCount = 0L;
+    
+    @Column(name = "total_days", nullable = false)
+    private Long totalDays = 0L;
+}
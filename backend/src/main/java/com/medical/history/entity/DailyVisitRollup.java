@@ -0,0 +1,30 @@
+package com.medical.history.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDate;
+
+// Pre-aggregated visit counts per day, doctor and diagnosis, maintained by RollupService.
+// The migration declares the unique key NULLS NOT DISTINCT, which the annotation cannot express
+@Entity
+@Table(name = "daily_visit_rollups",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"visit_date", "doctor_id", "diagnosis_id"}))
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class DailyVisitRollup extends BaseEntity {
+    
+    @Column(name = "visit_date", nullable = false)
+    private LocalDate visitDate;
+    
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+    
+    // Null for visits without a diagnosis
+    @Column(name = "diagnosis_id")
+    private Long diagnosisId;
+    
+    @Column(name = "visit_count", nullable = false)
+    private Long visitCount = 0L;
+}
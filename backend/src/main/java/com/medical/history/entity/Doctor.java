@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -29,6 +30,15 @@ public class Doctor extends BaseEntity {
     @Column(name = "is_family_doctor")
     private Boolean isFamilyDoctor = false;
     
+    // Denormalized counters, changed only through DoctorRepository.adjust*Count so the entity never overwrites them
+    @ColumnDefault("0")
+    @Column(name = "patient_count", nullable = false, updatable = false)
+    private Long patientCount = 0L;
+    
+    @ColumnDefault("0")
+    @Column(name = "visit_count", nullable = false, updatable = false)
+    private Long visitCount = 0L;
+    
     // Patients who have this doctor as their family doctor
     @OneToMany(mappedBy = "familyDoctor", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Patient> patients = new HashSet<>();
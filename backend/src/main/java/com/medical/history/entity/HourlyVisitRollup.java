@@ -0,0 +1,33 @@
+package com.medical.history.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDate;
+
+// Pre-aggregated visit counts per day, doctor and hour of day, maintained by RollupService
+@Entity
+@Table(name = "hourly_visit_rollups",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"visit_date", "doctor_id", "visit_hour"}))
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class HourlyVisitRollup extends BaseEntity {
+    
+    @Column(name = "visit_date", nullable = false)
+    private LocalDate visitDate;
+    
+    // ISO day of week of visit_date, 1 = Monday .. 7 = Sunday, so the heatmap can group on it
+    @Column(name = "day_of_week", nullable = false)
+    private Integer dayOfWeek;
+    
+    // 0..23
+    @Column(name = "visit_hour", nullable = false)
+    private Integer visitHour;
+    
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+    
+    @Column(name = "visit_count", nullable = false)
+    private Long visitCount = 0L;
+}
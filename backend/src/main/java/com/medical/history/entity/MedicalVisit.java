@@ -4,16 +4,29 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 
+// Updates only set the changed columns instead of rewriting the four TEXT fields every time
 @Entity
+@DynamicUpdate
 @Table(name = "medical_visits")
+@NamedEntityGraph(name = MedicalVisit.WITH_ASSOCIATIONS, attributeNodes = {
+        @NamedAttributeNode("patient"),
+        @NamedAttributeNode("doctor"),
+        @NamedAttributeNode("diagnosis"),
+        @NamedAttributeNode("sickLeave")
+})
 @Data
 @EqualsAndHashCode(callSuper = true, exclude = {"patient", "doctor", "diagnosis", "sickLeave"})
 public class MedicalVisit extends BaseEntity {
     
+    // Fetch plan for list endpoints: everything convertToDto reads, in one statement.
+    // sickLeave is included because the inverse one-to-one is otherwise loaded per visit.
+    public static final String WITH_ASSOCIATIONS = "MedicalVisit.withAssociations";
+    
     @NotNull(message = "Visit date is required")
     @Column(name = "visit_date", nullable = false)
     private LocalDate visitDate;
@@ -0,0 +1,30 @@
+package com.medical.history.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// How far one OutboxSubscriber has consumed outbox_events
+@Entity
+@Table(name = "outbox_cursors")
+@Data
+@NoArgsConstructor
+public class OutboxCursor {
+    
+    @Id
+    @Column(name = "subscriber", length = 100)
+    private String subscriber;
+    
+    // Id of the last event delivered and acknowledged; 0 before the first one
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId = 0L;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    public OutboxCursor(String subscriber) {
+        this.subscriber = subscriber;
+    }
+}
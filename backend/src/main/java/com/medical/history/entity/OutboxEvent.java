@@ -0,0 +1,59 @@
+package com.medical.history.entity;
+
+import com.medical.history.event.DomainChangeEvent.ChangeType;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+// The committed changes of one entity type and change type in one transaction, appended by
+// DomainEventPublisher and drained by OutboxRelay.
+// Ids are drawn from the sequence row by row at insert, just before commit, so they follow commit
+// order closely but not exactly; see OutboxRelay
+@Entity
+@Table(name = "outbox_events")
+@Immutable
+@Data
+public class OutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 1)
+    private Long id;
+    
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private EntityType entityType;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 10)
+    private ChangeType changeType;
+    
+    // A bulk delete puts every row it removed here, so it costs one outbox insert, not one per row
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "entity_ids", nullable = false)
+    private Long[] entityIds;
+    
+    // app.outbox.instance-id of the instance that appended the event
+    @Column(name = "origin", nullable = false, length = 100)
+    private String origin;
+    
+    public static OutboxEvent of(EntityType entityType, ChangeType changeType, Collection<Long> entityIds,
+                                 LocalDateTime occurredAt, String origin) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setOccurredAt(occurredAt);
+        outboxEvent.setOrigin(origin);
+        outboxEvent.setEntityType(entityType);
+        outboxEvent.setChangeType(changeType);
+        outboxEvent.setEntityIds(entityIds.toArray(Long[]::new));
+        return outboxEvent;
+    }
+}
@@ -5,17 +5,23 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@DynamicUpdate
 @Table(name = "patients")
+@NamedEntityGraph(name = Patient.WITH_FAMILY_DOCTOR, attributeNodes = @NamedAttributeNode("familyDoctor"))
 @Data
 @EqualsAndHashCode(callSuper = true, exclude = {"familyDoctor", "medicalVisits"})
 public class Patient extends BaseEntity {
     
+    // Fetch plan for list endpoints, which always show the family doctor's name
+    public static final String WITH_FAMILY_DOCTOR = "Patient.withFamilyDoctor";
+    
     @NotBlank(message = "Name is required")
     @Column(name = "name", nullable = false)
     private String name;
@@ -0,0 +1,29 @@
+package com.medical.history.event;
+
+import lombok.Data;
+
+import java.util.Set;
+
+// Published for the writes to a domain entity type, including rows removed by cascades: once per
+// entity type and change type per transaction, with every id it touched (see DomainEventPublisher)
+@Data
+public class DomainChangeEvent {
+    
+    private final EntityType entityType;
+    private final ChangeType changeType;
+    private final Set<Long> entityIds;
+    
+    public enum EntityType {
+        PATIENT,
+        DOCTOR,
+        DIAGNOSIS,
+        MEDICAL_VISIT,
+        SICK_LEAVE
+    }
+    
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
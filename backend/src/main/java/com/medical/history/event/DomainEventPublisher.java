@@ -0,0 +1,113 @@
+package com.medical.history.event;
+
+import com.medical.history.config.AppProperties;
+import com.medical.history.entity.MedicalVisit;
+import com.medical.history.entity.OutboxEvent;
+import com.medical.history.event.DomainChangeEvent.ChangeType;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Announces writes to the domain entities twice: as an in-process {@link DomainChangeEvent}
+ * for listeners that react on commit (caches), and in the outbox table, written in the same
+ * transaction, that {@link OutboxRelay} later drains to the {@link OutboxSubscriber}s.
+ * <p>
+ * Inside a transaction the ids are collected per entity type and change type, and each pair
+ * is announced once, just before commit, with all of its ids: one outbox row and one event.
+ * A cascade that removes a hundred thousand rows therefore invalidates each cache once per
+ * entity type rather than once per row.
+ */
+@Component
+@RequiredArgsConstructor
+public class DomainEventPublisher {
+    
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final OutboxEventRepository outboxEventRepository;
+    private final AppProperties appProperties;
+    
+    public void created(EntityType entityType, Long id) {
+        publish(entityType, ChangeType.CREATED, List.of(id));
+    }
+    
+    public void updated(EntityType entityType, Long id) {
+        publish(entityType, ChangeType.UPDATED, List.of(id));
+    }
+    
+    public void deleted(EntityType entityType, Long id) {
+        publish(entityType, ChangeType.DELETED, List.of(id));
+    }
+    
+    // Rows removed by a bulk delete, known only by id
+    public void deleted(EntityType entityType, Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            publish(entityType, ChangeType.DELETED, ids);
+        }
+    }
+    
+    // Visits deleted together with their sick leaves
+    public void visitsDeleted(Collection<MedicalVisit> visits) {
+        visits.forEach(visit -> {
+            if (visit.getSickLeave() != null) {
+                deleted(EntityType.SICK_LEAVE, visit.getSickLeave().getId());
+            }
+            deleted(EntityType.MEDICAL_VISIT, visit.getId());
+        });
+    }
+    
+    // Buffered per transaction and announced just before it commits, so an outbox row's id and
+    // occurredAt are as close to its commit as possible (see OutboxRelay)
+    private void publish(EntityType entityType, ChangeType changeType, Collection<Long> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            announce(entityType, changeType, ids, LocalDateTime.now());
+            return;
+        }
+        PendingChanges pending = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(PendingChanges.class::isInstance)
+                .map(PendingChanges.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    PendingChanges registered = new PendingChanges();
+                    TransactionSynchronizationManager.registerSynchronization(registered);
+                    return registered;
+                });
+        pending.ids.computeIfAbsent(new Change(entityType, changeType), change -> new LinkedHashSet<>()).addAll(ids);
+    }
+    
+    // Inside a transaction the listeners still run on commit: they are transactional event listeners
+    private void announce(EntityType entityType, ChangeType changeType, Collection<Long> ids, LocalDateTime occurredAt) {
+        outboxEventRepository.save(OutboxEvent.of(entityType, changeType, ids, occurredAt,
+                appProperties.getOutbox().getInstanceId()));
+        applicationEventPublisher.publishEvent(new DomainChangeEvent(entityType, changeType, Set.copyOf(ids)));
+    }
+    
+    private record Change(EntityType entityType, ChangeType changeType) {
+    }
+    
+    // Registered with the transaction, so a suspended outer transaction keeps its own changes
+    private class PendingChanges implements TransactionSynchronization {
+        
+        // In the order each change was first seen
+        private final Map<Change, Set<Long>> ids = new LinkedHashMap<>();
+        
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            LocalDateTime occurredAt = LocalDateTime.now();
+            ids.forEach((change, changedIds) -> announce(change.entityType(), change.changeType(), changedIds, occurredAt));
+            // Flushed here: a read-only transaction would not flush on commit
+            outboxEventRepository.flush();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.medical.history.event;
+
+import com.medical.history.config.AppProperties;
+import com.medical.history.entity.OutboxCursor;
+import com.medical.history.entity.OutboxEvent;
+import com.medical.history.repository.OutboxCursorRepository;
+import com.medical.history.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Drains outbox_events to every {@link OutboxSubscriber} bean, each from its own persistent
+ * cursor in outbox_cursors. A batch and the cursor move that acknowledges it share one
+ * transaction, which also holds the cursor row locked, so several instances can run the relay
+ * and a subscriber still sees each batch from one of them at a time. A
+ * {@link OutboxSubscriber#perInstance() per-instance} subscriber instead has a cursor in
+ * memory on every instance and is handed only the events other instances appended.
+ * <p>
+ * Ids come from an unpooled sequence and are drawn at insert, just before commit (see
+ * DomainEventPublisher), so a lower id can still become visible after a higher one, but only
+ * for as long as that commit takes. A pooled sequence would widen the gap to however long
+ * another instance sits on its cached block, and the cursor would skip those ids for good.
+ * Events are only relayed once older than app.outbox.settle-delay, which covers the commit
+ * window, and a batch stops before the first event that has not settled yet.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+    
+    private final List<OutboxSubscriber> subscribers;
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxCursorRepository outboxCursorRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AppProperties.Outbox properties;
+    // Cursors of the per-instance subscribers
+    private final Map<OutboxSubscriber, Long> instanceCursors = new ConcurrentHashMap<>();
+    
+    public OutboxRelay(ObjectProvider<OutboxSubscriber> subscribers, OutboxEventRepository outboxEventRepository,
+                       OutboxCursorRepository outboxCursorRepository, PlatformTransactionManager transactionManager,
+                       AppProperties appProperties) {
+        this.subscribers = subscribers.orderedStream().collect(Collectors.toList());
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxCursorRepository = outboxCursorRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = appProperties.getOutbox();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.outbox.relay-interval:PT1S}")
+    public void relayScheduled() {
+        relay();
+        prune();
+    }
+    
+    /**
+     * Delivers every settled event to every subscriber. A failing subscriber is logged and
+     * retried from the same cursor on the next run; the others are not held back.
+     * Returns the number of events delivered.
+     */
+    public int relay() {
+        int delivered = 0;
+        for (OutboxSubscriber subscriber : subscribers) {
+            try {
+                int batch;
+                do {
+                    batch = transactionTemplate.execute(status -> subscriber.perInstance()
+                            ? relayInstanceBatch(subscriber) : relayBatch(subscriber));
+                    delivered += batch;
+                } while (batch == properties.getRelayBatchSize());
+            } catch (RuntimeException e) {
+                log.warn("Outbox subscriber {} failed, retrying on the next run", subscriber.subscriberName(), e);
+            }
+        }
+        return delivered;
+    }
+    
+    private int relayBatch(OutboxSubscriber subscriber) {
+        OutboxCursor cursor = outboxCursorRepository.findForUpdate(subscriber.subscriberName())
+                .orElseGet(() -> new OutboxCursor(subscriber.subscriberName()));
+        List<OutboxEvent> events = outboxEventRepository.findNextBatch(cursor.getLastEventId(),
+                LocalDateTime.now().minus(properties.getSettleDelay()), Limit.of(properties.getRelayBatchSize()));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        subscriber.onEvents(events);
+        cursor.setLastEventId(events.get(events.size() - 1).getId());
+        cursor.setUpdatedAt(LocalDateTime.now());
+        outboxCursorRepository.save(cursor);
+        return events.size();
+    }
+    
+    // Returns the number of events read, including the skipped ones of this instance, so relay keeps going
+    private int relayInstanceBatch(OutboxSubscriber subscriber) {
+        LocalDateTime settledBefore = LocalDateTime.now().minus(properties.getSettleDelay());
+        Long lastEventId = instanceCursors.computeIfAbsent(subscriber,
+                s -> outboxEventRepository.findLastSettledId(settledBefore).orElse(0L));
+        List<OutboxEvent> events = outboxEventRepository.findNextBatch(lastEventId, settledBefore,
+                Limit.of(properties.getRelayBatchSize()));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<OutboxEvent> remote = events.stream()
+                .filter(event -> !event.getOrigin().equals(properties.getInstanceId()))
+                .collect(Collectors.toList());
+        if (!remote.isEmpty()) {
+            subscriber.onEvents(remote);
+        }
+        instanceCursors.put(subscriber, events.get(events.size() - 1).getId());
+        return events.size();
+    }
+    
+    // Deletes events past their retention that every current subscriber has consumed. Per-instance
+    // subscribers are not waited for: their cursors trail by seconds, not by the retention
+    public int prune() {
+        List<String> sharedCursors = subscribers.stream()
+                .filter(subscriber -> !subscriber.perInstance())
+                .map(OutboxSubscriber::subscriberName)
+                .collect(Collectors.toList());
+        Integer pruned = transactionTemplate.execute(status -> {
+            Long upToId = sharedCursors.isEmpty() ? Long.MAX_VALUE
+                    : outboxCursorRepository.findMinLastEventId(sharedCursors).orElse(0L);
+            return outboxEventRepository.deleteConsumedBefore(upToId,
+                    LocalDateTime.now().minus(properties.getRetention()));
+        });
+        if (pruned > 0) {
+            log.debug("Pruned {} consumed outbox events", pruned);
+        }
+        return pruned;
+    }
+}
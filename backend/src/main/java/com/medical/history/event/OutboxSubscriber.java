@@ -0,0 +1,35 @@
+package com.medical.history.event;
+
+import com.medical.history.entity.OutboxEvent;
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+
+/**
+ * In-process consumer of the outbox, fed by {@link OutboxRelay} in id order, one batch at a time.
+ * Delivery is at least once: the cursor only moves after onEvents returns, so a batch that
+ * throws, or whose acknowledgement is lost to a crash, is delivered again. Handlers must
+ * therefore be idempotent, e.g. by re-reading the entities named in the event.
+ * <p>
+ * A new subscriber starts at the oldest event still retained (app.outbox.retention).
+ */
+public interface OutboxSubscriber {
+    
+    // Key of the persistent cursor; renaming a subscriber makes it start over. Lambdas must override it
+    default String subscriberName() {
+        return ClassUtils.getUserClass(this).getSimpleName();
+    }
+    
+    /**
+     * False for a subscriber whose cursor all instances share, so each event reaches one of them.
+     * True for one that keeps state of its own instance, such as a cache: every instance then
+     * gets the events appended by the others (its own reach it in process, on commit). The
+     * cursor is kept in memory and starts at the newest settled event, so a restart replays
+     * nothing and a stopped instance leaves no cursor behind.
+     */
+    default boolean perInstance() {
+        return false;
+    }
+    
+    void onEvents(List<OutboxEvent> events);
+}
@@ -0,0 +1,127 @@
+package com.medical.history.repository;
+
+import com.medical.history.entity.ArchivedMedicalVisit;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Read side of the visit archive, mirroring the MedicalVisitRepository lookups; see VisitArchiveService
+@Repository
+public interface ArchivedMedicalVisitRepository extends JpaRepository<ArchivedMedicalVisit, Long>,
+        JpaSpecificationExecutor<ArchivedMedicalVisit> {
+    
+    @Override
+    @EntityGraph(ArchivedMedicalVisit.WITH_ASSOCIATIONS)
+    List<ArchivedMedicalVisit> findAll();
+    
+    @Override
+    @EntityGraph(ArchivedMedicalVisit.WITH_ASSOCIATIONS)
+    Optional<ArchivedMedicalVisit> findById(Long id);
+    
+    @EntityGraph(ArchivedMedicalVisit.WITH_ASSOCIATIONS)
+    List<ArchivedMedicalVisit> findByPatientId(Long patientId);
+    
+    @EntityGraph(ArchivedMedicalVisit.WITH_ASSOCIATIONS)
+    List<ArchivedMedicalVisit> findByDoctorId(Long doctorId);
+    
+    @EntityGraph(ArchivedMedicalVisit.WITH_ASSOCIATIONS)
+    List<ArchivedMedicalVisit> findByDiagnosisId(Long diagnosisId);
+    
+    @EntityGraph(ArchivedMedicalVisit.WITH_ASSOCIATIONS)
+    @Query("SELECT av FROM ArchivedMedicalVisit av WHERE av.visitDate BETWEEN :startDate AND :endDate")
+    List<ArchivedMedicalVisit> findByVisitDateBetween(@Param("startDate") LocalDate startDate,
+                                                      @Param("endDate") LocalDate endDate);
+    
+    @EntityGraph(ArchivedMedicalVisit.WITH_ASSOCIATIONS)
+    @Query("SELECT av FROM ArchivedMedicalVisit av WHERE av.doctorId = :doctorId " +
+           "AND av.visitDate BETWEEN :startDate AND :endDate")
+    List<ArchivedMedicalVisit> findByDoctorIdAndVisitDateBetween(@Param("doctorId") Long doctorId,
+                                                                 @Param("startDate") LocalDate startDate,
+                                                                 @Param("endDate") LocalDate endDate);
+    
+    // Same order and contract as MedicalVisitRepository.streamByVisitDateBetween
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = MedicalVisitRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT av FROM ArchivedMedicalVisit av " +
+           "JOIN FETCH av.patient " +
+           "JOIN FETCH av.doctor " +
+           "LEFT JOIN FETCH av.diagnosis " +
+           "LEFT JOIN FETCH av.sickLeave " +
+           "WHERE av.visitDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY av.visitDate, av.id")
+    Stream<ArchivedMedicalVisit> streamByVisitDateBetween(@Param("startDate") LocalDate startDate,
+                                                          @Param("endDate") LocalDate endDate);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = MedicalVisitRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT av FROM ArchivedMedicalVisit av " +
+           "JOIN FETCH av.patient " +
+           "JOIN FETCH av.doctor " +
+           "LEFT JOIN FETCH av.diagnosis " +
+           "LEFT JOIN FETCH av.sickLeave " +
+           "WHERE av.doctorId = :doctorId AND av.visitDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY av.visitDate, av.id")
+    Stream<ArchivedMedicalVisit> streamByDoctorIdAndVisitDateBetween(@Param("doctorId") Long doctorId,
+                                                                     @Param("startDate") LocalDate startDate,
+                                                                     @Param("endDate") LocalDate endDate);
+    
+    // Latest archived visit date; requests for later dates never need the archive
+    @Query("SELECT MAX(av.visitDate) FROM ArchivedMedicalVisit av")
+    Optional<LocalDate> findLatestVisitDate();
+    
+    // Copies the visits as they are; the caller deletes them from medical_visits in the same transaction
+    @Modifying
+    @Query("INSERT INTO ArchivedMedicalVisit (id, createdAt, updatedAt, archivedAt, visitDate, visitTime, " +
+           "symptoms, treatment, prescribedMedication, notes, patientId, doctorId, diagnosisId) " +
+           "SELECT mv.id, mv.createdAt, mv.updatedAt, :archivedAt, mv.visitDate, mv.visitTime, " +
+           "mv.symptoms, mv.treatment, mv.prescribedMedication, mv.notes, mv.patient.id, mv.doctor.id, mv.diagnosis.id " +
+           "FROM MedicalVisit mv WHERE mv.id IN :ids")
+    int copyFromMedicalVisits(@Param("ids") Collection<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+    
+    // Roll-up rebuild sources, the same shapes as the MedicalVisitRepository queries
+    @Query("SELECT av.visitDate, av.doctorId, av.diagnosisId, COUNT(av) FROM ArchivedMedicalVisit av " +
+           "GROUP BY av.visitDate, av.doctorId, av.diagnosisId")
+    List<Object[]> findDailyVisitRollup();
+    
+    @Query("SELECT av.visitDate, av.doctorId, EXTRACT(HOUR FROM av.visitTime), COUNT(av) FROM ArchivedMedicalVisit av " +
+           "WHERE av.visitTime IS NOT NULL " +
+           "GROUP BY av.visitDate, av.doctorId, EXTRACT(HOUR FROM av.visitTime)")
+    List<Object[]> findHourlyVisitRollup();
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = MedicalVisitRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT DISTINCT av.visitDate, av.doctorId, av.patientId FROM ArchivedMedicalVisit av " +
+           "ORDER BY av.visitDate, av.doctorId")
+    Stream<Object[]> streamDailyPatientIds();
+    
+    @Query("SELECT DISTINCT av.patientId FROM ArchivedMedicalVisit av " +
+           "WHERE av.visitDate = :visitDate AND av.doctorId = :doctorId AND av.id NOT IN :excludedVisitIds")
+    List<Long> findPatientIdsByVisitDateAndDoctorIdExcluding(@Param("visitDate") LocalDate visitDate,
+                                                             @Param("doctorId") Long doctorId,
+                                                             @Param("excludedVisitIds") Collection<Long> excludedVisitIds);
+    
+    @Query("SELECT DISTINCT av.visitDate, av.doctorId, av.patientId FROM ArchivedMedicalVisit av " +
+           "WHERE av.visitDate IN :visitDates AND av.doctorId IN :doctorIds")
+    List<Object[]> findDailyPatientIdsByVisitDateInAndDoctorIdIn(@Param("visitDates") Collection<LocalDate> visitDates,
+                                                                 @Param("doctorIds") Collection<Long> doctorIds);
+}
@@ -0,0 +1,67 @@
+package com.medical.history.repository;
+
+import com.medical.history.entity.ArchivedSickLeave;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Read side of the sick leave archive, mirroring the SickLeaveRepository lookups; see VisitArchiveService
+@Repository
+public interface ArchivedSickLeaveRepository extends JpaRepository<ArchivedSickLeave, Long>,
+        JpaSpecificationExecutor<ArchivedSickLeave> {
+    
+    @Query("SELECT sl FROM ArchivedSickLeave sl WHERE sl.medicalVisit.patientId = :patientId")
+    List<ArchivedSickLeave> findByMedicalVisitPatientId(@Param("patientId") Long patientId);
+    
+    @Query("SELECT sl FROM ArchivedSickLeave sl WHERE sl.medicalVisit.doctorId = :doctorId")
+    List<ArchivedSickLeave> findByMedicalVisitDoctorId(@Param("doctorId") Long doctorId);
+    
+    @Query("SELECT sl FROM ArchivedSickLeave sl WHERE sl.startDate BETWEEN :startDate AND :endDate")
+    List<ArchivedSickLeave> findByStartDateBetween(@Param("startDate") LocalDate startDate,
+                                                   @Param("endDate") LocalDate endDate);
+    
+    // Same rows and contract as SickLeaveRepository.streamIntervalsOverlapping
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = MedicalVisitRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT sl.startDate, sl.endDate, mv.doctorId, mv.diagnosisId FROM ArchivedSickLeave sl " +
+           "JOIN sl.medicalVisit mv " +
+           "WHERE sl.startDate <= :endDate AND sl.endDate >= :startDate")
+    Stream<Object[]> streamIntervalsOverlapping(@Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT MAX(sl.startDate) FROM ArchivedSickLeave sl")
+    Optional<LocalDate> findLatestStartDate();
+    
+    @Query("SELECT MAX(sl.endDate) FROM ArchivedSickLeave sl")
+    Optional<LocalDate> findLatestEndDate();
+    
+    // Copies the sick leaves of the given visits; run before the visits leave medical_visits
+    @Modifying
+    @Query("INSERT INTO ArchivedSickLeave (id, createdAt, updatedAt, archivedAt, startDate, durationDays, endDate, " +
+           "reason, medicalVisitId) " +
+           "SELECT sl.id, sl.createdAt, sl.updatedAt, :archivedAt, sl.startDate, sl.durationDays, sl.endDate, " +
+           "sl.reason, sl.medicalVisit.id " +
+           "FROM SickLeave sl WHERE sl.medicalVisit.id IN :visitIds")
+    int copyFromSickLeaves(@Param("visitIds") Collection<Long> visitIds, @Param("archivedAt") LocalDateTime archivedAt);
+    
+    @Query("SELECT sl.startDate, mv.doctorId, COUNT(sl), SUM(sl.durationDays) " +
+           "FROM ArchivedSickLeave sl " +
+           "JOIN sl.medicalVisit mv " +
+           "GROUP BY sl.startDate, mv.doctorId")
+    List<Object[]> findDailySickLeaveRollup();
+}
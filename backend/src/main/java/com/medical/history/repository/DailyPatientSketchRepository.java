@@ -0,0 +1,49 @@
+package com.medical.history.repository;
+
+import com.medical.history.entity.DailyPatientSketch;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface DailyPatientSketchRepository extends JpaRepository<DailyPatientSketch, Long> {
+    
+    // Creates a key's row with the given registers unless another transaction already has; merging
+    // into an existing row is left to the caller, since registers merge by maximum, not by sum
+    @Modifying
+    @Query(value = "INSERT INTO daily_patient_sketches (id, visit_date, doctor_id, registers, version, created_at, updated_at) " +
+                   "VALUES (nextval('daily_patient_sketches_seq'), :visitDate, :doctorId, :registers, 0, LOCALTIMESTAMP, LOCALTIMESTAMP) " +
+                   "ON CONFLICT (visit_date, doctor_id) DO NOTHING",
+           nativeQuery = true)
+    void insertIfAbsent(@Param("visitDate") LocalDate visitDate, @Param("doctorId") Long doctorId,
+                        @Param("registers") byte[] registers);
+    
+    // Locks the rows in key order, so writers of overlapping keys queue instead of deadlocking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DailyPatientSketch s WHERE s.visitDate IN :visitDates AND s.doctorId IN :doctorIds " +
+           "ORDER BY s.visitDate, s.doctorId")
+    List<DailyPatientSketch> lockByVisitDateInAndDoctorIdIn(@Param("visitDates") Collection<LocalDate> visitDates,
+                                                            @Param("doctorIds") Collection<Long> doctorIds);
+    
+    // (visitDate, registers) of every doctor's sketch in the range, ordered by day for merging
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = MedicalVisitRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s.visitDate, s.registers FROM DailyPatientSketch s " +
+           "WHERE s.visitDate BETWEEN :startDate AND :endDate ORDER BY s.visitDate")
+    Stream<Object[]> streamRegistersByVisitDateBetween(@Param("startDate") LocalDate startDate,
+                                                       @Param("endDate") LocalDate endDate);
+}
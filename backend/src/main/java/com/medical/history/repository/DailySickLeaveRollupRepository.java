@@ -0,0 +1,65 @@
+package com.medical.history.repository;
+
+import com.medical.history.entity.DailySickLeaveRollup;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DailySickLeaveRollupRepository extends JpaRepository<DailySickLeaveRollup, Long> {
+    
+    String DOCTOR_SICK_LEAVE_STATISTICS = "SELECT d, SUM(r.leaveCount), SUM(r.totalDays) FROM DailySickLeaveRollup r, Doctor d " +
+                                          "WHERE d.id = r.doctorId " +
+                                          "AND (CAST(:from AS LocalDate) IS NULL OR r.startDate >= :from) " +
+                                          "AND (CAST(:to AS LocalDate) IS NULL OR r.startDate <= :to) " +
+                                          "GROUP BY d " +
+                                          "HAVING SUM(r.leaveCount) > 0 ";
+    
+    // Adds the deltas to a key's totals, creating its row on first use (see DailyVisitRollupRepository.addVisitCount)
+    @Modifying
+    @Query(value = "INSERT INTO daily_sick_leave_rollups (id, start_date, doctor_id, leave_count, total_days, version, created_at, updated_at) " +
+                   "VALUES (nextval('daily_sick_leave_rollups_seq'), :startDate, :doctorId, :leaveDelta, :daysDelta, 0, LOCALTIMESTAMP, LOCALTIMESTAMP) " +
+                   "ON CONFLICT (start_date, doctor_id) DO UPDATE " +
+                   "SET leave_count = daily_sick_leave_rollups.leave_count + EXCLUDED.leave_count, " +
+                   "total_days = daily_sick_leave_rollups.total_days + EXCLUDED.total_days, " +
+                   "version = daily_sick_leave_rollups.version + 1, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    void addLeaves(@Param("startDate") LocalDate startDate, @Param("doctorId") Long doctorId,
+                   @Param("leaveDelta") long leaveDelta, @Param("daysDelta") long daysDelta);
+    
+    @Modifying
+    @Query("DELETE FROM DailySickLeaveRollup r WHERE r.leaveCount <= 0 " +
+           "AND r.startDate IN :startDates AND r.doctorId IN :doctorIds")
+    int deleteEmpty(@Param("startDates") Collection<LocalDate> startDates, @Param("doctorIds") Collection<Long> doctorIds);
+    
+    @Query("SELECT EXTRACT(MONTH FROM r.startDate) as month, " +
+           "EXTRACT(YEAR FROM r.startDate) as year, SUM(r.leaveCount) as count " +
+           "FROM DailySickLeaveRollup r " +
+           "GROUP BY EXTRACT(MONTH FROM r.startDate), EXTRACT(YEAR FROM r.startDate) " +
+           "HAVING SUM(r.leaveCount) > 0 " +
+           "ORDER BY SUM(r.leaveCount) DESC")
+    List<Object[]> findSickLeaveCountsByMonth();
+    
+    @Query("SELECT EXTRACT(MONTH FROM r.startDate) as month, " +
+           "EXTRACT(YEAR FROM r.startDate) as year, " +
+           "SUM(r.leaveCount) as count, SUM(r.totalDays) as totalDays " +
+           "FROM DailySickLeaveRollup r " +
+           "GROUP BY EXTRACT(MONTH FROM r.startDate), EXTRACT(YEAR FROM r.startDate) " +
+           "HAVING SUM(r.leaveCount) > 0 " +
+           "ORDER BY year DESC, month DESC")
+    List<Object[]> findSickLeaveMonthlyStatistics();
+    
+    // Unordered group set for the start_date window; ReportsService caches it and ranks in memory
+    @Query(DOCTOR_SICK_LEAVE_STATISTICS)
+    List<Object[]> findDoctorSickLeaveStatistics(@Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    @Query(DOCTOR_SICK_LEAVE_STATISTICS + "ORDER BY SUM(r.leaveCount) DESC, d.id")
+    List<Object[]> findTopDoctorSickLeaveStatistics(@Param("from") LocalDate from, @Param("to") LocalDate to, Limit limit);
+}
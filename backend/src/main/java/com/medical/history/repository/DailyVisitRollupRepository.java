@@ -0,0 +1,74 @@
+package com.medical.history.repository;
+
+import com.medical.history.entity.DailyVisitRollup;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DailyVisitRollupRepository extends JpaRepository<DailyVisitRollup, Long> {
+    
+    // Optional visit_date window shared by the ranking queries; a null bound is open. The casts
+    // give PostgreSQL a type for the IS NULL test, which it cannot infer from an untyped date bind
+    String VISIT_DATE_WINDOW = "AND (CAST(:from AS LocalDate) IS NULL OR r.visitDate >= :from) " +
+                               "AND (CAST(:to AS LocalDate) IS NULL OR r.visitDate <= :to) ";
+    
+    String DIAGNOSIS_COUNTS = "SELECT d, SUM(r.visitCount) FROM DailyVisitRollup r, Diagnosis d " +
+                              "WHERE d.id = r.diagnosisId " + VISIT_DATE_WINDOW +
+                              "GROUP BY d " +
+                              "HAVING SUM(r.visitCount) > 0 ";
+    
+    String DOCTOR_VISIT_COUNTS = "SELECT d, SUM(r.visitCount) FROM DailyVisitRollup r, Doctor d " +
+                                 "WHERE d.id = r.doctorId " + VISIT_DATE_WINDOW +
+                                 "GROUP BY d " +
+                                 "HAVING SUM(r.visitCount) > 0 ";
+    
+    // Adds delta to a key's count, creating its row on first use. One statement, so two
+    // transactions adding the first visit of a key cannot both insert it; the unique key
+    // treats a null diagnosis as one value (NULLS NOT DISTINCT), so visits without one share a row
+    @Modifying
+    @Query(value = "INSERT INTO daily_visit_rollups (id, visit_date, doctor_id, diagnosis_id, visit_count, version, created_at, updated_at) " +
+                   "VALUES (nextval('daily_visit_rollups_seq'), :visitDate, :doctorId, CAST(:diagnosisId AS bigint), :delta, 0, LOCALTIMESTAMP, LOCALTIMESTAMP) " +
+                   "ON CONFLICT (visit_date, doctor_id, diagnosis_id) DO UPDATE " +
+                   "SET visit_count = daily_visit_rollups.visit_count + EXCLUDED.visit_count, " +
+                   "version = daily_visit_rollups.version + 1, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    void addVisitCount(@Param("visitDate") LocalDate visitDate, @Param("doctorId") Long doctorId,
+                       @Param("diagnosisId") Long diagnosisId, @Param("delta") long delta);
+    
+    // Rows whose count dropped to zero are deleted rather than kept as empty rows
+    @Modifying
+    @Query("DELETE FROM DailyVisitRollup r WHERE r.visitCount <= 0 " +
+           "AND r.visitDate IN :visitDates AND r.doctorId IN :doctorIds")
+    int deleteEmpty(@Param("visitDates") Collection<LocalDate> visitDates, @Param("doctorIds") Collection<Long> doctorIds);
+    
+    // Unordered group set for the window; ReportsService caches it and ranks in memory
+    @Query(DIAGNOSIS_COUNTS)
+    List<Object[]> findDiagnosisCounts(@Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    @Query(DIAGNOSIS_COUNTS + "ORDER BY SUM(r.visitCount) DESC, d.id")
+    List<Object[]> findTopDiagnosisCounts(@Param("from") LocalDate from, @Param("to") LocalDate to, Limit limit);
+    
+    @Query(DOCTOR_VISIT_COUNTS)
+    List<Object[]> findDoctorVisitCounts(@Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    @Query(DOCTOR_VISIT_COUNTS + "ORDER BY SUM(r.visitCount) DESC, d.id")
+    List<Object[]> findTopDoctorVisitCounts(@Param("from") LocalDate from, @Param("to") LocalDate to, Limit limit);
+    
+    @Query("SELECT r.visitDate, SUM(r.visitCount), COUNT(DISTINCT r.doctorId) FROM DailyVisitRollup r " +
+           "WHERE r.visitDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.visitDate " +
+           "ORDER BY r.visitDate")
+    List<Object[]> findDailyTotals(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT COUNT(DISTINCT r.doctorId) FROM DailyVisitRollup r " +
+           "WHERE r.visitDate BETWEEN :startDate AND :endDate")
+    Long countDistinctDoctors(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+}
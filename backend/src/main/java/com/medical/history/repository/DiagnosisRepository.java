@@ -2,6 +2,7 @@ package com.medical.history.repository;
 
 import com.medical.history.entity.Diagnosis;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -9,12 +10,17 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DiagnosisRepository extends JpaRepository<Diagnosis, Long> {
+public interface DiagnosisRepository extends JpaRepository<Diagnosis, Long>,
+        JpaSpecificationExecutor<Diagnosis> {
     
     Optional<Diagnosis> findByCode(String code);
     
     List<Diagnosis> findByNameContainingIgnoreCase(String name);
     
+    // [id, name] for every diagnosis, see ReferenceDataRegistry
+    @Query("SELECT d.id, d.name FROM Diagnosis d")
+    List<Object[]> findReferenceData();
+    
     @Query("SELECT d, COUNT(mv) as visitCount FROM Diagnosis d " +
            "LEFT JOIN d.medicalVisits mv " +
            "GROUP BY d " +
@@ -2,18 +2,34 @@ package com.medical.history.repository;
 
 import com.medical.history.entity.Doctor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+public interface DoctorRepository extends JpaRepository<Doctor, Long>,
+        JpaSpecificationExecutor<Doctor> {
+    
+    // Doctor with its patient and visit counts as [doctor, patientCount, visitCount], in a single statement.
+    // Archived visits still count towards the doctor's total.
+    String SELECT_WITH_COUNTS = "SELECT d, " +
+            "(SELECT COUNT(p) FROM Patient p WHERE p.familyDoctor = d) as patientCount, " +
+            "(SELECT COUNT(mv) FROM MedicalVisit mv WHERE mv.doctor = d) + " +
+            "(SELECT COUNT(av) FROM ArchivedMedicalVisit av WHERE av.doctorId = d.id) as visitCount " +
+            "FROM Doctor d ";
     
     Optional<Doctor> findByIdentificationNumber(String identificationNumber);
     
+    // [id, identificationNumber, name] for every doctor, see ReferenceDataRegistry
+    @Query("SELECT d.id, d.identificationNumber, d.name FROM Doctor d")
+    List<Object[]> findReferenceData();
+    
     List<Doctor> findByIsFamilyDoctorTrue();
     
     List<Doctor> findBySpecialty(String specialty);
@@ -30,4 +46,47 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
            "GROUP BY d " +
            "ORDER BY COUNT(sl) DESC")
     List<Object[]> findDoctorsWithSickLeaveCount();
+    
+    @Query(SELECT_WITH_COUNTS)
+    List<Object[]> findAllWithCounts();
+    
+    @Query(SELECT_WITH_COUNTS + "WHERE d.id = :id")
+    List<Object[]> findByIdWithCounts(@Param("id") Long id);
+    
+    @Query(SELECT_WITH_COUNTS + "WHERE d.id IN :ids")
+    List<Object[]> findByIdInWithCounts(@Param("ids") Collection<Long> ids);
+    
+    @Query(SELECT_WITH_COUNTS + "WHERE d.identificationNumber = :identificationNumber")
+    List<Object[]> findByIdentificationNumberWithCounts(@Param("identificationNumber") String identificationNumber);
+    
+    @Query(SELECT_WITH_COUNTS + "WHERE d.isFamilyDoctor = true")
+    List<Object[]> findFamilyDoctorsWithCounts();
+    
+    @Query(SELECT_WITH_COUNTS + "WHERE d.specialty = :specialty")
+    List<Object[]> findBySpecialtyWithCounts(@Param("specialty") String specialty);
+    
+    @Query(SELECT_WITH_COUNTS + "ORDER BY patientCount DESC")
+    List<Object[]> findAllWithCountsOrderedByPatientCount();
+    
+    @Query(SELECT_WITH_COUNTS + "ORDER BY visitCount DESC")
+    List<Object[]> findAllWithCountsOrderedByVisitCount();
+    
+    List<Doctor> findAllByOrderByPatientCountDesc();
+    
+    List<Doctor> findAllByOrderByVisitCountDesc();
+    
+    @Modifying
+    @Query("UPDATE Doctor d SET d.patientCount = d.patientCount + :delta WHERE d.id = :id")
+    int adjustPatientCount(@Param("id") Long id, @Param("delta") long delta);
+    
+    @Modifying
+    @Query("UPDATE Doctor d SET d.visitCount = d.visitCount + :delta WHERE d.id = :id")
+    int adjustVisitCount(@Param("id") Long id, @Param("delta") long delta);
+    
+    @Modifying
+    @Query("UPDATE Doctor d SET " +
+           "d.patientCount = (SELECT COUNT(p) FROM Patient p WHERE p.familyDoctor = d), " +
+           "d.visitCount = (SELECT COUNT(mv) FROM MedicalVisit mv WHERE mv.doctor = d) + " +
+           "(SELECT COUNT(av) FROM ArchivedMedicalVisit av WHERE av.doctorId = d.id)")
+    int recountAll();
 }
@@ -0,0 +1,50 @@
+package com.medical.history.repository;
+
+import com.medical.history.entity.HourlyVisitRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HourlyVisitRollupRepository extends JpaRepository<HourlyVisitRollup, Long> {
+    
+    // Adds delta to a key's count, creating its row on first use (see DailyVisitRollupRepository.addVisitCount)
+    @Modifying
+    @Query(value = "INSERT INTO hourly_visit_rollups (id, visit_date, day_of_week, doctor_id, visit_hour, visit_count, version, created_at, updated_at) " +
+                   "VALUES (nextval('hourly_visit_rollups_seq'), :visitDate, :dayOfWeek, :doctorId, :visitHour, :delta, 0, LOCALTIMESTAMP, LOCALTIMESTAMP) " +
+                   "ON CONFLICT (visit_date, doctor_id, visit_hour) DO UPDATE " +
+                   "SET visit_count = hourly_visit_rollups.visit_count + EXCLUDED.visit_count, " +
+                   "version = hourly_visit_rollups.version + 1, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    void addVisitCount(@Param("visitDate") LocalDate visitDate, @Param("dayOfWeek") int dayOfWeek,
+                       @Param("doctorId") Long doctorId, @Param("visitHour") int visitHour, @Param("delta") long delta);
+    
+    @Modifying
+    @Query("DELETE FROM HourlyVisitRollup r WHERE r.visitCount <= 0 " +
+           "AND r.visitDate IN :visitDates AND r.doctorId IN :doctorIds")
+    int deleteEmpty(@Param("visitDates") Collection<LocalDate> visitDates, @Param("doctorIds") Collection<Long> doctorIds);
+    
+    // Stand-ins for an open window bound, so the date condition stays an index range
+    LocalDate OPEN_FROM = LocalDate.of(1, 1, 1);
+    LocalDate OPEN_TO = LocalDate.of(9999, 12, 31);
+    
+    // At most 7 x 24 rows whatever the window
+    @Query("SELECT r.dayOfWeek, r.visitHour, SUM(r.visitCount) FROM HourlyVisitRollup r " +
+           "WHERE r.visitDate BETWEEN :from AND :to " +
+           "GROUP BY r.dayOfWeek, r.visitHour")
+    List<Object[]> findWeekdayHourCounts(@Param("from") LocalDate from,
+                                         @Param("to") LocalDate to);
+    
+    @Query("SELECT r.dayOfWeek, r.visitHour, SUM(r.visitCount) FROM HourlyVisitRollup r " +
+           "WHERE r.doctorId = :doctorId AND r.visitDate BETWEEN :from AND :to " +
+           "GROUP BY r.dayOfWeek, r.visitHour")
+    List<Object[]> findDoctorWeekdayHourCounts(@Param("doctorId") Long doctorId,
+                                               @Param("from") LocalDate from,
+                                               @Param("to") LocalDate to);
+}
@@ -1,38 +1,100 @@
 package com.medical.history.repository;
 
 import com.medical.history.entity.MedicalVisit;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface MedicalVisitRepository extends JpaRepository<MedicalVisit, Long> {
+public interface MedicalVisitRepository extends JpaRepository<MedicalVisit, Long>,
+        JpaSpecificationExecutor<MedicalVisit> {
     
+    // Rows pulled per round trip by the forward-only cursors below
+    String STREAM_FETCH_SIZE = "500";
+    
+    @Override
+    @EntityGraph(MedicalVisit.WITH_ASSOCIATIONS)
+    List<MedicalVisit> findAll();
+    
+    @Override
+    @EntityGraph(MedicalVisit.WITH_ASSOCIATIONS)
+    Optional<MedicalVisit> findById(Long id);
+    
+    @EntityGraph(MedicalVisit.WITH_ASSOCIATIONS)
     List<MedicalVisit> findByPatientId(Long patientId);
     
+    @EntityGraph(MedicalVisit.WITH_ASSOCIATIONS)
     List<MedicalVisit> findByDoctorId(Long doctorId);
     
+    @EntityGraph(MedicalVisit.WITH_ASSOCIATIONS)
     List<MedicalVisit> findByPatientIdOrderByVisitDateDesc(Long patientId);
     
+    @EntityGraph(MedicalVisit.WITH_ASSOCIATIONS)
     List<MedicalVisit> findByDoctorIdOrderByVisitDateDesc(Long doctorId);
     
+    @EntityGraph(MedicalVisit.WITH_ASSOCIATIONS)
     @Query("SELECT mv FROM MedicalVisit mv WHERE mv.visitDate BETWEEN :startDate AND :endDate")
     List<MedicalVisit> findByVisitDateBetween(@Param("startDate") LocalDate startDate, 
                                               @Param("endDate") LocalDate endDate);
     
+    // Must be consumed inside a transaction and closed; see MedicalVisitService.streamMedicalVisitsByDateRange
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT mv FROM MedicalVisit mv " +
+           "JOIN FETCH mv.patient " +
+           "JOIN FETCH mv.doctor " +
+           "LEFT JOIN FETCH mv.diagnosis " +
+           "LEFT JOIN FETCH mv.sickLeave " +
+           "WHERE mv.visitDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY mv.visitDate, mv.id")
+    Stream<MedicalVisit> streamByVisitDateBetween(@Param("startDate") LocalDate startDate,
+                                                  @Param("endDate") LocalDate endDate);
+    
+    @EntityGraph(MedicalVisit.WITH_ASSOCIATIONS)
     @Query("SELECT mv FROM MedicalVisit mv WHERE mv.doctor.id = :doctorId " +
            "AND mv.visitDate BETWEEN :startDate AND :endDate")
     List<MedicalVisit> findByDoctorIdAndVisitDateBetween(@Param("doctorId") Long doctorId,
                                                          @Param("startDate") LocalDate startDate,
                                                          @Param("endDate") LocalDate endDate);
     
+    // streamByVisitDateBetween for one doctor
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT mv FROM MedicalVisit mv " +
+           "JOIN FETCH mv.patient " +
+           "JOIN FETCH mv.doctor " +
+           "LEFT JOIN FETCH mv.diagnosis " +
+           "LEFT JOIN FETCH mv.sickLeave " +
+           "WHERE mv.doctor.id = :doctorId AND mv.visitDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY mv.visitDate, mv.id")
+    Stream<MedicalVisit> streamByDoctorIdAndVisitDateBetween(@Param("doctorId") Long doctorId,
+                                                             @Param("startDate") LocalDate startDate,
+                                                             @Param("endDate") LocalDate endDate);
+    
     @Query("SELECT COUNT(mv) FROM MedicalVisit mv WHERE mv.doctor.id = :doctorId")
     Long countByDoctorId(@Param("doctorId") Long doctorId);
     
+    @EntityGraph(MedicalVisit.WITH_ASSOCIATIONS)
     @Query("SELECT mv FROM MedicalVisit mv WHERE mv.diagnosis.id = :diagnosisId")
     List<MedicalVisit> findByDiagnosisId(@Param("diagnosisId") Long diagnosisId);
     
@@ -67,4 +129,71 @@ public interface MedicalVisitRepository extends JpaRepository<MedicalVisit, Long
            "ORDER BY mv.visitDate")
     List<Object[]> findVisitStatsByDateRange(@Param("startDate") LocalDate startDate,
                                              @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT COUNT(mv), COUNT(DISTINCT mv.patient), COUNT(DISTINCT mv.doctor) " +
+           "FROM MedicalVisit mv " +
+           "WHERE mv.visitDate BETWEEN :startDate AND :endDate")
+    List<Object[]> findVisitTotalsByDateRange(@Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate);
+    
+    // The two queries above over medical_visits and medical_visits_archive together, for ranges
+    // that reach into the archive; distinct counts stay exact across both tables
+    String VISITS_WITH_ARCHIVE = "(SELECT mv.visitDate visitDate, mv.patient.id patientId, mv.doctor.id doctorId " +
+                                 "FROM MedicalVisit mv WHERE mv.visitDate BETWEEN :startDate AND :endDate " +
+                                 "UNION ALL " +
+                                 "SELECT av.visitDate, av.patientId, av.doctorId " +
+                                 "FROM ArchivedMedicalVisit av WHERE av.visitDate BETWEEN :startDate AND :endDate) v ";
+    
+    @Query("SELECT v.visitDate, COUNT(*), COUNT(DISTINCT v.patientId), COUNT(DISTINCT v.doctorId) " +
+           "FROM " + VISITS_WITH_ARCHIVE +
+           "GROUP BY v.visitDate " +
+           "ORDER BY v.visitDate")
+    List<Object[]> findVisitStatsByDateRangeWithArchive(@Param("startDate") LocalDate startDate,
+                                                        @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT COUNT(*), COUNT(DISTINCT v.patientId), COUNT(DISTINCT v.doctorId) " +
+           "FROM " + VISITS_WITH_ARCHIVE)
+    List<Object[]> findVisitTotalsByDateRangeWithArchive(@Param("startDate") LocalDate startDate,
+                                                         @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT DISTINCT mv.patient.id FROM MedicalVisit mv " +
+           "WHERE mv.visitDate = :visitDate AND mv.doctor.id = :doctorId AND mv.id NOT IN :excludedVisitIds")
+    List<Long> findPatientIdsByVisitDateAndDoctorIdExcluding(@Param("visitDate") LocalDate visitDate,
+                                                             @Param("doctorId") Long doctorId,
+                                                             @Param("excludedVisitIds") Collection<Long> excludedVisitIds);
+    
+    // (visitDate, doctorId, patientId) rows of the given days and doctors, to recompute their sketches after a bulk delete
+    @Query("SELECT DISTINCT mv.visitDate, mv.doctor.id, mv.patient.id FROM MedicalVisit mv " +
+           "WHERE mv.visitDate IN :visitDates AND mv.doctor.id IN :doctorIds")
+    List<Object[]> findDailyPatientIdsByVisitDateInAndDoctorIdIn(@Param("visitDates") Collection<LocalDate> visitDates,
+                                                                 @Param("doctorIds") Collection<Long> doctorIds);
+    
+    // Source for rebuilding the daily patient sketches, one (visitDate, doctorId, patientId) row each
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT DISTINCT mv.visitDate, mv.doctor.id, mv.patient.id FROM MedicalVisit mv " +
+           "ORDER BY mv.visitDate, mv.doctor.id")
+    Stream<Object[]> streamDailyPatientIds();
+    
+    // Next visits for VisitArchiveService to move, oldest first, locked until the move commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT mv.id FROM MedicalVisit mv WHERE mv.visitDate < :cutoff ORDER BY mv.visitDate, mv.id")
+    List<Long> findIdsByVisitDateBefore(@Param("cutoff") LocalDate cutoff, Limit limit);
+    
+    // Bulk delete that skips the cascade; the visits' sick leaves must be gone already
+    @Modifying
+    @Query("DELETE FROM MedicalVisit mv WHERE mv.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT mv.visitDate, mv.doctor.id, dg.id, COUNT(mv) FROM MedicalVisit mv " +
+           "LEFT JOIN mv.diagnosis dg " +
+           "GROUP BY mv.visitDate, mv.doctor.id, dg.id")
+    List<Object[]> findDailyVisitRollup();
+    
+    @Query("SELECT mv.visitDate, mv.doctor.id, EXTRACT(HOUR FROM mv.visitTime), COUNT(mv) FROM MedicalVisit mv " +
+           "WHERE mv.visitTime IS NOT NULL " +
+           "GROUP BY mv.visitDate, mv.doctor.id, EXTRACT(HOUR FROM mv.visitTime)")
+    List<Object[]> findHourlyVisitRollup();
 }
@@ -0,0 +1,24 @@
+package com.medical.history.repository;
+
+import com.medical.history.entity.OutboxCursor;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface OutboxCursorRepository extends JpaRepository<OutboxCursor, String> {
+    
+    // Held until the batch is acknowledged, so two instances never relay to the same subscriber at once
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM OutboxCursor c WHERE c.subscriber = :subscriber")
+    Optional<OutboxCursor> findForUpdate(@Param("subscriber") String subscriber);
+    
+    @Query("SELECT MIN(c.lastEventId) FROM OutboxCursor c WHERE c.subscriber IN :subscribers")
+    Optional<Long> findMinLastEventId(@Param("subscribers") Collection<String> subscribers);
+}
@@ -0,0 +1,46 @@
+package com.medical.history.repository;
+
+import com.medical.history.entity.OutboxEvent;
+import com.medical.history.event.DomainChangeEvent.ChangeType;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    // Next events after a subscriber's cursor, up to the first one too recent to be sure no lower id is
+    // still committing. Stopping there, rather than skipping it, keeps a clock skew between instances
+    // from moving the cursor past an event that is not delivered yet
+    @Query("SELECT e FROM OutboxEvent e WHERE e.id > :afterId AND e.occurredAt < :settledBefore " +
+           "AND e.id < COALESCE((SELECT MIN(u.id) FROM OutboxEvent u " +
+           "WHERE u.id > :afterId AND u.occurredAt >= :settledBefore), e.id + 1) " +
+           "ORDER BY e.id")
+    List<OutboxEvent> findNextBatch(@Param("afterId") Long afterId,
+                                    @Param("settledBefore") LocalDateTime settledBefore,
+                                    Limit limit);
+    
+    // Where a subscriber that skips the backlog starts
+    @Query("SELECT MAX(e.id) FROM OutboxEvent e WHERE e.occurredAt < :settledBefore")
+    Optional<Long> findLastSettledId(@Param("settledBefore") LocalDateTime settledBefore);
+    
+    // Id sets of the changes of one type at or after since, oldest first. Scans the retained
+    // events: occurred_at has no index, so appending events stays a primary key insert
+    @Query("SELECT e.entityIds FROM OutboxEvent e WHERE e.entityType = :entityType " +
+           "AND e.changeType = :changeType AND e.occurredAt >= :since ORDER BY e.id")
+    List<Long[]> findEntityIdsByChangeSince(@Param("entityType") EntityType entityType,
+                                          @Param("changeType") ChangeType changeType,
+                                          @Param("since") LocalDateTime since);
+    
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id <= :upToId AND e.occurredAt < :before")
+    int deleteConsumedBefore(@Param("upToId") Long upToId, @Param("before") LocalDateTime before);
+}
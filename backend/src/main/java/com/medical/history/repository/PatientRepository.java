@@ -1,27 +1,82 @@
 package com.medical.history.repository;
 
 import com.medical.history.entity.Patient;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient, Long> {
+public interface PatientRepository extends JpaRepository<Patient, Long>,
+        JpaSpecificationExecutor<Patient> {
     
+    @Override
+    @EntityGraph(Patient.WITH_FAMILY_DOCTOR)
+    List<Patient> findAll();
+    
+    @EntityGraph(Patient.WITH_FAMILY_DOCTOR)
     Optional<Patient> findByEgn(String egn);
     
+    @Query("SELECT p.egn FROM Patient p")
+    List<String> findAllEgns();
+    
+    @EntityGraph(Patient.WITH_FAMILY_DOCTOR)
     List<Patient> findByFamilyDoctorId(Long familyDoctorId);
     
-    @Query("SELECT p FROM Patient p " +
+    @EntityGraph(Patient.WITH_FAMILY_DOCTOR)
+    @Query("SELECT DISTINCT p FROM Patient p " +
            "JOIN p.medicalVisits mv " +
            "WHERE mv.diagnosis.id = :diagnosisId")
     List<Patient> findByDiagnosisId(@Param("diagnosisId") Long diagnosisId);
     
-    @Query("SELECT p FROM Patient p " +
+    // findByDiagnosisId including archived visits
+    @EntityGraph(Patient.WITH_FAMILY_DOCTOR)
+    @Query("SELECT p FROM Patient p WHERE p.id IN (" +
+           "SELECT mv.patient.id FROM MedicalVisit mv WHERE mv.diagnosis.id = :diagnosisId " +
+           "UNION " +
+           "SELECT av.patientId FROM ArchivedMedicalVisit av WHERE av.diagnosisId = :diagnosisId)")
+    List<Patient> findByDiagnosisIdWithArchive(@Param("diagnosisId") Long diagnosisId);
+    
+    // Forward-only cursors for the report exports, ordered by id; consume inside a transaction and close
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = MedicalVisitRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Patient p LEFT JOIN FETCH p.familyDoctor " +
+           "WHERE p.familyDoctor.id = :doctorId ORDER BY p.id")
+    Stream<Patient> streamByFamilyDoctorId(@Param("doctorId") Long doctorId);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = MedicalVisitRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Patient p LEFT JOIN FETCH p.familyDoctor WHERE p.id IN (" +
+           "SELECT mv.patient.id FROM MedicalVisit mv WHERE mv.diagnosis.id = :diagnosisId) " +
+           "ORDER BY p.id")
+    Stream<Patient> streamByDiagnosisId(@Param("diagnosisId") Long diagnosisId);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = MedicalVisitRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Patient p LEFT JOIN FETCH p.familyDoctor WHERE p.id IN (" +
+           "SELECT mv.patient.id FROM MedicalVisit mv WHERE mv.diagnosis.id = :diagnosisId " +
+           "UNION " +
+           "SELECT av.patientId FROM ArchivedMedicalVisit av WHERE av.diagnosisId = :diagnosisId) " +
+           "ORDER BY p.id")
+    Stream<Patient> streamByDiagnosisIdWithArchive(@Param("diagnosisId") Long diagnosisId);
+    
+    @EntityGraph(Patient.WITH_FAMILY_DOCTOR)
+    @Query("SELECT DISTINCT p FROM Patient p " +
            "JOIN p.medicalVisits mv " +
            "WHERE mv.diagnosis.code = :diagnosisCode")
     List<Patient> findByDiagnosisCode(@Param("diagnosisCode") String diagnosisCode);
@@ -35,13 +90,27 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
            "ORDER BY COUNT(p) DESC")
     List<Object[]> findFamilyDoctorPatientCounts();
     
-    @Query("SELECT p, COUNT(mv) as visitCount FROM Patient p " +
+    // The family doctor is selected alongside each patient so convertPatientToDto does not lazy-load it
+    @Query("SELECT p, fd, COUNT(mv) as visitCount FROM Patient p " +
+           "JOIN p.familyDoctor fd " +
            "JOIN p.medicalVisits mv " +
-           "GROUP BY p " +
+           "GROUP BY p, fd " +
            "ORDER BY COUNT(mv) DESC " +
            "LIMIT 10")
     List<Object[]> findPatientsWithMostVisits();
     
+    // findPatientsWithMostVisits counting archived visits too
+    @Query("SELECT p, fd, v.visitCount FROM Patient p " +
+           "JOIN p.familyDoctor fd " +
+           "JOIN (SELECT u.patientId patientId, COUNT(*) visitCount FROM (" +
+           "SELECT mv.patient.id patientId FROM MedicalVisit mv " +
+           "UNION ALL " +
+           "SELECT av.patientId FROM ArchivedMedicalVisit av) u " +
+           "GROUP BY u.patientId) v ON v.patientId = p.id " +
+           "ORDER BY v.visitCount DESC " +
+           "LIMIT 10")
+    List<Object[]> findPatientsWithMostVisitsWithArchive();
+    
     @Query("SELECT COUNT(p) FROM Patient p WHERE p.healthInsurancePaid = true")
     Long countPatientsWithPaidInsurance();
     
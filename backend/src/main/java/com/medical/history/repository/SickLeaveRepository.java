@@ -1,16 +1,24 @@
 package com.medical.history.repository;
 
 import com.medical.history.entity.SickLeave;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface SickLeaveRepository extends JpaRepository<SickLeave, Long> {
+public interface SickLeaveRepository extends JpaRepository<SickLeave, Long>,
+        JpaSpecificationExecutor<SickLeave> {
     
     List<SickLeave> findByMedicalVisitPatientId(Long patientId);
     
@@ -58,4 +66,26 @@ public interface SickLeaveRepository extends JpaRepository<SickLeave, Long> {
            "GROUP BY EXTRACT(MONTH FROM sl.startDate), EXTRACT(YEAR FROM sl.startDate) " +
            "ORDER BY year DESC, month DESC")
     List<Object[]> findSickLeaveMonthlyStatistics();
+    
+    @Modifying
+    @Query("DELETE FROM SickLeave sl WHERE sl.medicalVisit.id IN :visitIds")
+    int deleteByMedicalVisitIdIn(@Param("visitIds") Collection<Long> visitIds);
+    
+    @Query("SELECT sl.startDate, mv.doctor.id, COUNT(sl), SUM(sl.durationDays) " +
+           "FROM SickLeave sl " +
+           "JOIN sl.medicalVisit mv " +
+           "GROUP BY sl.startDate, mv.doctor.id")
+    List<Object[]> findDailySickLeaveRollup();
+    
+    // Start/end days with the issuing doctor and visit diagnosis of every leave overlapping the window
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = MedicalVisitRepository.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT sl.startDate, sl.endDate, mv.doctor.id, dg.id FROM SickLeave sl " +
+           "JOIN sl.medicalVisit mv " +
+           "LEFT JOIN mv.diagnosis dg " +
+           "WHERE sl.startDate <= :endDate AND sl.endDate >= :startDate")
+    Stream<Object[]> streamIntervalsOverlapping(@Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
 }
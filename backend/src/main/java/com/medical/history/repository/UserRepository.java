@@ -2,6 +2,9 @@ package com.medical.history.repository;
 
 import com.medical.history.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -16,4 +19,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Boolean existsByUsername(String username);
     
     Boolean existsByEmail(String email);
+    
+    long countByDoctorId(Long doctorId);
+    
+    // Accounts outlive the doctor record they were linked to; patients see CascadeDeleteService
+    @Modifying
+    @Query("UPDATE User u SET u.doctor = null WHERE u.doctor.id = :doctorId")
+    int unlinkDoctor(@Param("doctorId") Long doctorId);
 }
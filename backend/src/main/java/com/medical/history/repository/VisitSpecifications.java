@@ -0,0 +1,58 @@
+package com.medical.history.repository;
+
+import com.medical.history.dto.MedicalVisitSearch;
+import com.medical.history.entity.ArchivedMedicalVisit;
+import com.medical.history.entity.MedicalVisit;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WHERE clauses for GET /medical-visits/search. Only the filters that are set become
+ * predicates, so each combination is its own plain statement the planner can match to an
+ * index, instead of one catch-all query with "(:x IS NULL OR ...)" for every parameter.
+ * The patient is filtered by id; the caller resolves the EGN first.
+ */
+public final class VisitSpecifications {
+
+    private VisitSpecifications() {
+    }
+
+    public static Specification<MedicalVisit> medicalVisits(MedicalVisitSearch search, Long patientId) {
+        return (root, query, cb) -> matching(cb, search, patientId, root.get("visitDate"),
+                root.get("patient").get("id"), root.get("doctor").get("id"), root.get("diagnosis").get("id"));
+    }
+
+    // The archive keeps its foreign keys as plain columns
+    public static Specification<ArchivedMedicalVisit> archivedVisits(MedicalVisitSearch search, Long patientId) {
+        return (root, query, cb) -> matching(cb, search, patientId, root.get("visitDate"),
+                root.get("patientId"), root.get("doctorId"), root.get("diagnosisId"));
+    }
+
+    private static Predicate matching(CriteriaBuilder cb, MedicalVisitSearch search, Long patientId,
+                                      Path<LocalDate> visitDate, Path<Long> patient, Path<Long> doctor,
+                                      Path<Long> diagnosis) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (patientId != null) {
+            predicates.add(cb.equal(patient, patientId));
+        }
+        if (search.getDoctorId() != null) {
+            predicates.add(cb.equal(doctor, search.getDoctorId()));
+        }
+        if (search.getDiagnosisId() != null) {
+            predicates.add(cb.equal(diagnosis, search.getDiagnosisId()));
+        }
+        if (search.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(visitDate, search.getFrom()));
+        }
+        if (search.getTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(visitDate, search.getTo()));
+        }
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+}
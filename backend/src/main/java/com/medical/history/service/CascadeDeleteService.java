@@ -0,0 +1,214 @@
+package com.medical.history.service;
+
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.event.DomainEventPublisher;
+import com.medical.history.repository.DiagnosisRepository;
+import com.medical.history.repository.DoctorRepository;
+import com.medical.history.repository.PatientRepository;
+import com.medical.history.repository.UserRepository;
+import com.medical.history.service.RollupService.VisitAggregates;
+import jakarta.persistence.EntityManager;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Deletes a patient, doctor or diagnosis with everything that references it, without loading
+ * any of it. Each delete is described by a {@link Scope}: JPQL conditions on the row's id that
+ * pick the affected visits (hot and archived) and patients. Their sick leaves, the visits, the
+ * patients and finally the row itself then go in set-based DELETEs whose IN lists are
+ * subqueries on those conditions, all in one transaction. The roll-ups are adjusted from
+ * GROUP BY sums over the same conditions, and user accounts linked to a deleted patient or
+ * doctor are kept but unlinked.
+ * <p>
+ * The entities' CascadeType.ALL collections are not involved: walking them loads every visit
+ * and sick leave and removes them one statement at a time.
+ * <p>
+ * A dry run only counts the rows a delete would remove. A real delete still selects the
+ * removed ids, once per table, for their DELETED outbox events.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+@Slf4j
+public class CascadeDeleteService {
+
+    private final PatientRepository patientRepository;
+    private final DoctorRepository doctorRepository;
+    private final DiagnosisRepository diagnosisRepository;
+    private final UserRepository userRepository;
+    private final RollupService rollupService;
+    private final DomainEventPublisher domainEventPublisher;
+    private final EntityManager entityManager;
+
+    public Optional<DeleteResult> deletePatient(Long id, boolean dryRun) {
+        return patientRepository.findById(id)
+                .map(patient -> {
+                    DeleteResult result = delete(EntityType.PATIENT, id, Scope.PATIENT, dryRun);
+                    if (!dryRun) {
+                        doctorRepository.adjustPatientCount(patient.getFamilyDoctor().getId(), -1);
+                    }
+                    return result;
+                });
+    }
+
+    public Optional<DeleteResult> deleteDoctor(Long id, boolean dryRun) {
+        if (!doctorRepository.existsById(id)) {
+            return Optional.empty();
+        }
+        DeleteResult result = delete(EntityType.DOCTOR, id, Scope.DOCTOR, dryRun);
+        if (dryRun) {
+            result.setUnlinkedUsers(result.getUnlinkedUsers() + userRepository.countByDoctorId(id));
+        } else {
+            result.setUnlinkedUsers(result.getUnlinkedUsers() + userRepository.unlinkDoctor(id));
+            doctorRepository.deleteAllByIdInBatch(List.of(id));
+        }
+        return Optional.of(result);
+    }
+
+    public Optional<DeleteResult> deleteDiagnosis(Long id, boolean dryRun) {
+        if (!diagnosisRepository.existsById(id)) {
+            return Optional.empty();
+        }
+        DeleteResult result = delete(EntityType.DIAGNOSIS, id, Scope.DIAGNOSIS, dryRun);
+        if (!dryRun) {
+            diagnosisRepository.deleteAllByIdInBatch(List.of(id));
+        }
+        return Optional.of(result);
+    }
+
+    // Removes the visits and patients of the scope. Deleting a doctor or diagnosis row itself
+    // is left to the caller, as it must come last
+    private DeleteResult delete(EntityType entityType, Long id, Scope scope, boolean dryRun) {
+        String visits = "SELECT mv.id FROM MedicalVisit mv WHERE " + scope.visits;
+        String archivedVisits = "SELECT av.id FROM ArchivedMedicalVisit av WHERE " + scope.archivedVisits;
+        String sickLeaves = "FROM SickLeave sl WHERE sl.medicalVisit.id IN (" + visits + ")";
+        String archivedSickLeaves = "FROM ArchivedSickLeave sl WHERE sl.medicalVisitId IN (" + archivedVisits + ")";
+        String patients = scope.patients == null ? null : "SELECT p.id FROM Patient p WHERE " + scope.patients;
+
+        DeleteResult result = new DeleteResult(entityType, id, dryRun);
+        if (dryRun) {
+            result.setPatients(patients == null ? 0 : count("SELECT COUNT(p) FROM Patient p WHERE " + scope.patients, id));
+            result.setMedicalVisits(count("SELECT COUNT(mv) FROM MedicalVisit mv WHERE " + scope.visits, id));
+            result.setSickLeaves(count("SELECT COUNT(sl) " + sickLeaves, id));
+            result.setArchivedMedicalVisits(count("SELECT COUNT(av) FROM ArchivedMedicalVisit av WHERE " + scope.archivedVisits, id));
+            result.setArchivedSickLeaves(count("SELECT COUNT(sl) " + archivedSickLeaves, id));
+            result.setUnlinkedUsers(patients == null ? 0 : count("SELECT COUNT(u) FROM User u WHERE u.patient.id IN (" + patients + ")", id));
+            return result;
+        }
+
+        List<Long> visitIds = ids(visits, id);
+        List<Long> archivedVisitIds = ids(archivedVisits, id);
+        List<Long> sickLeaveIds = ids("SELECT sl.id " + sickLeaves, id);
+        List<Long> archivedSickLeaveIds = ids("SELECT sl.id " + archivedSickLeaves, id);
+        List<Long> patientIds = patients == null ? List.of() : ids(patients, id);
+
+        // Sum the roll-up contributions before the rows are gone
+        VisitAggregates removed = new VisitAggregates();
+        removed.daily().addAll(rows("SELECT mv.visitDate, mv.doctor.id, dg.id, COUNT(mv) FROM MedicalVisit mv " +
+                "LEFT JOIN mv.diagnosis dg WHERE " + scope.visits +
+                " GROUP BY mv.visitDate, mv.doctor.id, dg.id", id));
+        removed.hourly().addAll(rows("SELECT mv.visitDate, mv.doctor.id, EXTRACT(HOUR FROM mv.visitTime), COUNT(mv) " +
+                "FROM MedicalVisit mv WHERE " + scope.visits + " AND mv.visitTime IS NOT NULL" +
+                " GROUP BY mv.visitDate, mv.doctor.id, EXTRACT(HOUR FROM mv.visitTime)", id));
+        removed.sickLeaves().addAll(rows("SELECT sl.startDate, mv.doctor.id, COUNT(sl), SUM(sl.durationDays) " +
+                "FROM SickLeave sl JOIN sl.medicalVisit mv WHERE " + scope.visits +
+                " GROUP BY sl.startDate, mv.doctor.id", id));
+        removed.daily().addAll(rows("SELECT av.visitDate, av.doctorId, av.diagnosisId, COUNT(av) " +
+                "FROM ArchivedMedicalVisit av WHERE " + scope.archivedVisits +
+                " GROUP BY av.visitDate, av.doctorId, av.diagnosisId", id));
+        removed.hourly().addAll(rows("SELECT av.visitDate, av.doctorId, EXTRACT(HOUR FROM av.visitTime), COUNT(av) " +
+                "FROM ArchivedMedicalVisit av WHERE " + scope.archivedVisits + " AND av.visitTime IS NOT NULL" +
+                " GROUP BY av.visitDate, av.doctorId, EXTRACT(HOUR FROM av.visitTime)", id));
+        removed.sickLeaves().addAll(rows("SELECT sl.startDate, av.doctorId, COUNT(sl), SUM(sl.durationDays) " +
+                "FROM ArchivedSickLeave sl JOIN sl.medicalVisit av WHERE " + scope.archivedVisits +
+                " GROUP BY sl.startDate, av.doctorId", id));
+
+        result.setSickLeaves(execute("DELETE " + sickLeaves, id));
+        result.setMedicalVisits(execute("DELETE FROM MedicalVisit mv WHERE " + scope.visits, id));
+        result.setArchivedSickLeaves(execute("DELETE " + archivedSickLeaves, id));
+        result.setArchivedMedicalVisits(execute("DELETE FROM ArchivedMedicalVisit av WHERE " + scope.archivedVisits, id));
+        if (patients != null) {
+            result.setUnlinkedUsers(execute("UPDATE User u SET u.patient = null WHERE u.patient.id IN (" + patients + ")", id));
+            result.setPatients(execute("DELETE FROM Patient p WHERE " + scope.patients, id));
+        }
+        rollupService.visitAggregatesRemoved(removed);
+
+        domainEventPublisher.deleted(EntityType.SICK_LEAVE, sickLeaveIds);
+        domainEventPublisher.deleted(EntityType.SICK_LEAVE, archivedSickLeaveIds);
+        domainEventPublisher.deleted(EntityType.MEDICAL_VISIT, visitIds);
+        domainEventPublisher.deleted(EntityType.MEDICAL_VISIT, archivedVisitIds);
+        domainEventPublisher.deleted(EntityType.PATIENT, patientIds);
+        if (entityType != EntityType.PATIENT) {
+            domainEventPublisher.deleted(entityType, id);
+        }
+        log.info("Deleted {} {} with {} patients, {} visits and {} sick leaves ({} visits and {} sick leaves archived)",
+                entityType, id, result.getPatients(), result.getMedicalVisits(), result.getSickLeaves(),
+                result.getArchivedMedicalVisits(), result.getArchivedSickLeaves());
+        return result;
+    }
+
+    private long count(String jpql, Long id) {
+        return entityManager.createQuery(jpql, Long.class).setParameter("id", id).getSingleResult();
+    }
+
+    private List<Long> ids(String jpql, Long id) {
+        return entityManager.createQuery(jpql, Long.class).setParameter("id", id).getResultList();
+    }
+
+    private List<Object[]> rows(String jpql, Long id) {
+        return entityManager.createQuery(jpql, Object[].class).setParameter("id", id).getResultList();
+    }
+
+    private int execute(String jpql, Long id) {
+        return entityManager.createQuery(jpql).setParameter("id", id).executeUpdate();
+    }
+
+    /**
+     * The rows a delete takes, as parenthesized JPQL conditions on the deleted row's :id over
+     * hot visits (mv), archived visits (av) and patients (p, null when no patient goes).
+     * Constants only: nothing from a request is ever spliced into them.
+     */
+    private enum Scope {
+        PATIENT("(mv.patient.id = :id)", "(av.patientId = :id)", "(p.id = :id)"),
+        // The doctor's own visits, their patients and every visit of those patients
+        DOCTOR("(mv.doctor.id = :id OR mv.patient.id IN (SELECT fp.id FROM Patient fp WHERE fp.familyDoctor.id = :id))",
+                "(av.doctorId = :id OR av.patientId IN (SELECT fp.id FROM Patient fp WHERE fp.familyDoctor.id = :id))",
+                "(p.familyDoctor.id = :id)"),
+        DIAGNOSIS("(mv.diagnosis.id = :id)", "(av.diagnosisId = :id)", null);
+
+        private final String visits;
+        private final String archivedVisits;
+        private final String patients;
+
+        Scope(String visits, String archivedVisits, String patients) {
+            this.visits = visits;
+            this.archivedVisits = archivedVisits;
+            this.patients = patients;
+        }
+    }
+
+    @Data
+    public static class DeleteResult {
+        private EntityType entityType;
+        private Long id;
+        private boolean dryRun;
+        private long patients;
+        private long medicalVisits;
+        private long sickLeaves;
+        private long archivedMedicalVisits;
+        private long archivedSickLeaves;
+        private long unlinkedUsers;
+
+        public DeleteResult(EntityType entityType, Long id, boolean dryRun) {
+            this.entityType = entityType;
+            this.id = id;
+            this.dryRun = dryRun;
+        }
+    }
+}
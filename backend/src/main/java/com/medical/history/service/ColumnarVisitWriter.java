@@ -0,0 +1,184 @@
+package com.medical.history.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes visits in the columnar format of GET /medical-visits/export. Everything is big-endian,
+ * strings are length-prefixed UTF-8 (as DataOutput.writeUTF).
+ * <pre>
+ * header     "MVCX", u16 format version (1), i32 row group size, u16 column count,
+ *            then per column: string name, u8 type (1 = i32, 2 = i64, 3 = dictionary code, 4 = u8)
+ * row group  i32 row count; 0 ends the stream
+ *            per dictionary column, in schema order: i32 new entry count, then the new strings;
+ *            codes number a column's entries from 0 in order of appearance across the stream
+ *            per column, in schema order: one value per row
+ * </pre>
+ * The columns are id, visit_date (days since 1970-01-01), patient_id, doctor_id, doctor_name,
+ * diagnosis_id (0 if none), diagnosis_name (-1 if none), updated_at (milliseconds since
+ * 1970-01-01T00:00 of the stored local timestamp) and archived (0 or 1).
+ * <p>
+ * Rows are buffered one row group at a time in primitive arrays and written column by column,
+ * so memory stays flat however many visits are exported.
+ */
+final class ColumnarVisitWriter {
+
+    private static final byte[] MAGIC = "MVCX".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 1;
+    private static final byte INT32 = 1;
+    private static final byte INT64 = 2;
+    private static final byte DICTIONARY = 3;
+    private static final byte UINT8 = 4;
+    private static final String[] COLUMN_NAMES = {"id", "visit_date", "patient_id", "doctor_id", "doctor_name",
+            "diagnosis_id", "diagnosis_name", "updated_at", "archived"};
+    private static final byte[] COLUMN_TYPES = {INT64, INT32, INT64, INT64, DICTIONARY,
+            INT64, DICTIONARY, INT64, UINT8};
+
+    private final DataOutputStream out;
+    private final int rowGroupSize;
+    private final Dictionary doctorNames = new Dictionary();
+    private final Dictionary diagnosisNames = new Dictionary();
+
+    private final long[] ids;
+    private final int[] visitDays;
+    private final long[] patientIds;
+    private final long[] doctorIds;
+    private final int[] doctorCodes;
+    private final long[] diagnosisIds;
+    private final int[] diagnosisCodes;
+    private final long[] updatedAt;
+    private final boolean[] archived;
+    private int rows;
+    private long written;
+
+    ColumnarVisitWriter(OutputStream outputStream, int rowGroupSize) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+        this.rowGroupSize = rowGroupSize;
+        this.ids = new long[rowGroupSize];
+        this.visitDays = new int[rowGroupSize];
+        this.patientIds = new long[rowGroupSize];
+        this.doctorIds = new long[rowGroupSize];
+        this.doctorCodes = new int[rowGroupSize];
+        this.diagnosisIds = new long[rowGroupSize];
+        this.diagnosisCodes = new int[rowGroupSize];
+        this.updatedAt = new long[rowGroupSize];
+        this.archived = new boolean[rowGroupSize];
+
+        out.write(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeInt(rowGroupSize);
+        out.writeShort(COLUMN_NAMES.length);
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            out.writeUTF(COLUMN_NAMES[i]);
+            out.writeByte(COLUMN_TYPES[i]);
+        }
+    }
+
+    // Throws UncheckedIOException, so it can be handed out as a Consumer
+    void write(VisitRow row) {
+        ids[rows] = row.id();
+        visitDays[rows] = (int) row.visitDate().toEpochDay();
+        patientIds[rows] = row.patientId();
+        doctorIds[rows] = row.doctorId();
+        doctorCodes[rows] = doctorNames.code(row.doctorName());
+        diagnosisIds[rows] = row.diagnosisId() != null ? row.diagnosisId() : 0;
+        diagnosisCodes[rows] = row.diagnosisName() != null ? diagnosisNames.code(row.diagnosisName()) : -1;
+        updatedAt[rows] = row.updatedAt() != null ? row.updatedAt().toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+        archived[rows] = row.archived();
+        if (++rows == rowGroupSize) {
+            try {
+                flushRowGroup();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Writes the last row group and the end marker; returns the number of visits written
+    long finish() throws IOException {
+        flushRowGroup();
+        out.writeInt(0);
+        out.flush();
+        return written;
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        out.writeInt(rows);
+        doctorNames.writeNewEntries(out);
+        diagnosisNames.writeNewEntries(out);
+        for (int i = 0; i < rows; i++) {
+            out.writeLong(ids[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeInt(visitDays[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeLong(patientIds[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeLong(doctorIds[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeInt(doctorCodes[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeLong(diagnosisIds[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeInt(diagnosisCodes[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeLong(updatedAt[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeByte(archived[i] ? 1 : 0);
+        }
+        // Hands each group to the client as soon as it is complete
+        out.flush();
+        written += rows;
+        rows = 0;
+    }
+
+    // Codes of one dictionary column; entries added since the last row group are written with the next one
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> pending = new ArrayList<>();
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = codes.size();
+                codes.put(value, code);
+                pending.add(value);
+            }
+            return code;
+        }
+
+        void writeNewEntries(DataOutputStream out) throws IOException {
+            out.writeInt(pending.size());
+            for (String value : pending) {
+                out.writeUTF(value);
+            }
+            pending.clear();
+        }
+    }
+
+    // One exported visit, read as columns from medical_visits or medical_visits_archive
+    record VisitRow(long id, LocalDate visitDate, long patientId, long doctorId, String doctorName,
+                    Long diagnosisId, String diagnosisName, LocalDateTime updatedAt, boolean archived) {
+    }
+}
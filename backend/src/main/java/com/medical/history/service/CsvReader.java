@@ -0,0 +1,105 @@
+package com.medical.history.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time: quoted fields may contain commas, doubled quotes
+ * and line breaks, and a leading byte order mark is skipped. Only the current record is held
+ * in memory, so input of any size can be read from a stream.
+ */
+final class CsvReader {
+    
+    private static final int NONE = -2;
+    
+    private final Reader reader;
+    private int pushedBack = NONE;
+    private boolean started;
+    private long line = 1;
+    private long recordLine;
+    
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+    
+    // Fields of the next record, or null at end of input; blank lines are skipped
+    List<String> readRecord() throws IOException {
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == '﻿') {
+                c = read();
+            }
+        }
+        while (c == '\r' || c == '\n') {
+            endOfLine(c);
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+        
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                } else if (c == '\n') {
+                    line++;
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                fields.add(field.toString());
+                if (c != -1) {
+                    endOfLine(c);
+                }
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+    
+    // Line the last record returned by readRecord started on, counting from 1
+    long recordLine() {
+        return recordLine;
+    }
+    
+    // Counts a line break, taking the LF of a CRLF pair along with the CR
+    private void endOfLine(int c) throws IOException {
+        line++;
+        if (c == '\r') {
+            int next = read();
+            if (next != '\n') {
+                pushedBack = next;
+            }
+        }
+    }
+    
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,54 @@
+package com.medical.history.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 4180 CSV in UTF-8, quoted the way {@link CsvReader} reads it back. It starts with a byte
+ * order mark so spreadsheet programs do not misread Cyrillic names. A text cell starting with
+ * =, +, - or @ is prefixed with ' so that opening the file never evaluates it as a formula.
+ */
+final class CsvTableWriter implements TableWriter {
+    
+    private final Writer out;
+    
+    CsvTableWriter(OutputStream outputStream) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 1 << 16);
+        out.write('\uFEFF');
+    }
+    
+    @Override
+    public void writeRow(Iterable<?> cells) throws IOException {
+        boolean first = true;
+        for (Object cell : cells) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            if (cell != null) {
+                out.write(field(cell));
+            }
+        }
+        out.write("\r\n");
+    }
+    
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+    
+    private static String field(Object cell) {
+        String field = cell.toString();
+        if (cell instanceof CharSequence && !field.isEmpty() && "=+-@".indexOf(field.charAt(0)) >= 0) {
+            field = "'" + field;
+        }
+        if (field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
+            field = '"' + field.replace("\"", "\"\"") + '"';
+        }
+        return field;
+    }
+}
@@ -1,14 +1,22 @@
 package com.medical.history.service;
 
+import com.medical.history.config.AppProperties;
+import com.medical.history.dto.CursorPage;
 import com.medical.history.dto.DiagnosisDto;
+import com.medical.history.dto.PageQuery;
 import com.medical.history.entity.Diagnosis;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.event.DomainEventPublisher;
 import com.medical.history.repository.DiagnosisRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,12 +24,29 @@ import java.util.stream.Collectors;
 @Transactional
 public class DiagnosisService {
     
+    // Backed by the primary key, idx_diagnoses_name and the unique code index
+    private static final Map<String, Function<String, ? extends Comparable<?>>> SORT_KEYS =
+            Map.of("code", String::valueOf, "name", String::valueOf, "id", Long::valueOf);
+    private static final String DEFAULT_SORT = "code,asc";
+    
     private final DiagnosisRepository diagnosisRepository;
+    private final DomainEventPublisher domainEventPublisher;
+    private final ReportCache reportCache;
+    private final AppProperties appProperties;
     
-    public List<DiagnosisDto> getAllDiagnoses() {
-        return diagnosisRepository.findAll().stream()
+    @Transactional(readOnly = true)
+    public CursorPage<DiagnosisDto> getDiagnoses(PageQuery pageQuery) {
+        KeysetSort keyset = KeysetSort.parse(pageQuery.getSort(), DEFAULT_SORT, SORT_KEYS);
+        int size = KeysetSort.pageSize(pageQuery.getSize(), appProperties.getPagination());
+        List<DiagnosisDto> rows = keyset.read(diagnosisRepository, null, keyset.position(pageQuery.getCursor()), size)
+                .stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
+        CursorPage<DiagnosisDto> page = keyset.page(rows, size);
+        if (pageQuery.isIncludeTotal()) {
+            page.setTotal(reportCache.get("diagnoses-count", List.of(), Set.of(EntityType.DIAGNOSIS), diagnosisRepository::count));
+        }
+        return page;
     }
     
     public Optional<DiagnosisDto> getDiagnosisById(Long id) {
@@ -43,6 +68,7 @@ public class DiagnosisService {
     public DiagnosisDto createDiagnosis(DiagnosisDto diagnosisDto) {
         Diagnosis diagnosis = convertToEntity(diagnosisDto);
         Diagnosis savedDiagnosis = diagnosisRepository.save(diagnosis);
+        domainEventPublisher.created(EntityType.DIAGNOSIS, savedDiagnosis.getId());
         return convertToDto(savedDiagnosis);
     }
     
@@ -52,18 +78,12 @@ public class DiagnosisService {
                     existingDiagnosis.setCode(diagnosisDto.getCode());
                     existingDiagnosis.setName(diagnosisDto.getName());
                     existingDiagnosis.setDescription(diagnosisDto.getDescription());
-                    return convertToDto(diagnosisRepository.save(existingDiagnosis));
+                    Diagnosis savedDiagnosis = diagnosisRepository.save(existingDiagnosis);
+                    domainEventPublisher.updated(EntityType.DIAGNOSIS, savedDiagnosis.getId());
+                    return convertToDto(savedDiagnosis);
                 });
     }
     
-    public boolean deleteDiagnosis(Long id) {
-        if (diagnosisRepository.existsById(id)) {
-            diagnosisRepository.deleteById(id);
-            return true;
-        }
-        return false;
-    }
-    
     private DiagnosisDto convertToDto(Diagnosis diagnosis) {
         DiagnosisDto dto = new DiagnosisDto();
         dto.setId(diagnosis.getId());
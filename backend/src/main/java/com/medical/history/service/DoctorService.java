@@ -1,14 +1,23 @@
 package com.medical.history.service;
 
+import com.medical.history.config.AppProperties;
+import com.medical.history.dto.CursorPage;
 import com.medical.history.dto.DoctorDto;
+import com.medical.history.dto.PageQuery;
 import com.medical.history.entity.Doctor;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.event.DomainEventPublisher;
 import com.medical.history.repository.DoctorRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,40 +25,57 @@ import java.util.stream.Collectors;
 @Transactional
 public class DoctorService {
     
+    // Backed by the primary key and idx_doctors_name
+    private static final Map<String, Function<String, ? extends Comparable<?>>> SORT_KEYS =
+            Map.of("name", String::valueOf, "id", Long::valueOf);
+    private static final String DEFAULT_SORT = "name,asc";
+    
     private final DoctorRepository doctorRepository;
+    private final DomainEventPublisher domainEventPublisher;
+    private final AppProperties appProperties;
+    private final ReportCache reportCache;
+    private final TableVersions tableVersions;
     
-    public List<DoctorDto> getAllDoctors() {
-        return doctorRepository.findAll().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<DoctorDto> getDoctors(PageQuery pageQuery) {
+        KeysetSort keyset = KeysetSort.parse(pageQuery.getSort(), DEFAULT_SORT, SORT_KEYS);
+        int size = KeysetSort.pageSize(pageQuery.getSize(), appProperties.getPagination());
+        List<Doctor> doctors = keyset.read(doctorRepository, null, keyset.position(pageQuery.getCursor()), size);
+        // The count projection comes back in no particular order, so it is put back in page order
+        Map<Long, DoctorDto> byId = withCounts(() -> doctors,
+                () -> doctorRepository.findByIdInWithCounts(doctors.stream().map(Doctor::getId).toList())).stream()
+                .collect(Collectors.toMap(DoctorDto::getId, Function.identity()));
+        CursorPage<DoctorDto> page = keyset.page(doctors.stream().map(doctor -> byId.get(doctor.getId())).toList(), size);
+        if (pageQuery.isIncludeTotal()) {
+            page.setTotal(reportCache.get("doctors-count", List.of(), Set.of(EntityType.DOCTOR), doctorRepository::count));
+        }
+        return page;
     }
     
     public Optional<DoctorDto> getDoctorById(Long id) {
-        return doctorRepository.findById(id)
-                .map(this::convertToDto);
+        return withCounts(() -> doctorRepository.findById(id).stream().toList(),
+                () -> doctorRepository.findByIdWithCounts(id)).stream().findFirst();
     }
     
     public Optional<DoctorDto> getDoctorByIdentificationNumber(String identificationNumber) {
-        return doctorRepository.findByIdentificationNumber(identificationNumber)
-                .map(this::convertToDto);
+        return withCounts(() -> doctorRepository.findByIdentificationNumber(identificationNumber).stream().toList(),
+                () -> doctorRepository.findByIdentificationNumberWithCounts(identificationNumber)).stream().findFirst();
     }
     
     public List<DoctorDto> getFamilyDoctors() {
-        return doctorRepository.findByIsFamilyDoctorTrue().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return withCounts(doctorRepository::findByIsFamilyDoctorTrue, doctorRepository::findFamilyDoctorsWithCounts);
     }
     
     public List<DoctorDto> getDoctorsBySpecialty(String specialty) {
-        return doctorRepository.findBySpecialty(specialty).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return withCounts(() -> doctorRepository.findBySpecialty(specialty),
+                () -> doctorRepository.findBySpecialtyWithCounts(specialty));
     }
     
     public DoctorDto createDoctor(DoctorDto doctorDto) {
         Doctor doctor = convertToEntity(doctorDto);
         Doctor savedDoctor = doctorRepository.save(doctor);
-        return convertToDto(savedDoctor);
+        domainEventPublisher.created(EntityType.DOCTOR, savedDoctor.getId());
+        return convertToDto(savedDoctor, 0L, 0L);
     }
     
     public Optional<DoctorDto> updateDoctor(Long id, DoctorDto doctorDto) {
@@ -59,39 +85,55 @@ public class DoctorService {
                     existingDoctor.setName(doctorDto.getName());
                     existingDoctor.setSpecialty(doctorDto.getSpecialty());
                     existingDoctor.setIsFamilyDoctor(doctorDto.getIsFamilyDoctor());
-                    return convertToDto(doctorRepository.save(existingDoctor));
+                    doctorRepository.save(existingDoctor);
+                    domainEventPublisher.updated(EntityType.DOCTOR, id);
+                    return getDoctorById(id).orElseThrow();
                 });
     }
     
-    public boolean deleteDoctor(Long id) {
-        if (doctorRepository.existsById(id)) {
-            doctorRepository.deleteById(id);
-            return true;
-        }
-        return false;
-    }
-    
     public List<DoctorDto> getDoctorsOrderedByPatientCount() {
-        return doctorRepository.findDoctorsOrderedByPatientCount().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return withCounts(doctorRepository::findAllByOrderByPatientCountDesc,
+                doctorRepository::findAllWithCountsOrderedByPatientCount);
     }
     
     public List<DoctorDto> getDoctorsOrderedByVisitCount() {
-        return doctorRepository.findDoctorsOrderedByVisitCount().stream()
-                .map(this::convertToDto)
+        return withCounts(doctorRepository::findAllByOrderByVisitCountDesc,
+                doctorRepository::findAllWithCountsOrderedByVisitCount);
+    }
+    
+    /**
+     * Recomputes the denormalized patient_count/visit_count columns from the patients,
+     * medical_visits and medical_visits_archive tables. Needed once after enabling app.doctors.denormalized-counts on
+     * existing data, and to repair drift after manual SQL edits.
+     */
+    public int refreshDenormalizedCounts() {
+        int updated = doctorRepository.recountAll();
+        tableVersions.bump(EntityType.DOCTOR);
+        return updated;
+    }
+    
+    // Counts never come from the lazy collections: either the denormalized columns
+    // (app.doctors.denormalized-counts) or the single-statement count projection
+    private List<DoctorDto> withCounts(Supplier<List<Doctor>> denormalized, Supplier<List<Object[]>> projected) {
+        if (appProperties.getDoctors().isDenormalizedCounts()) {
+            return denormalized.get().stream()
+                    .map(doctor -> convertToDto(doctor, doctor.getPatientCount(), doctor.getVisitCount()))
+                    .collect(Collectors.toList());
+        }
+        return projected.get().stream()
+                .map(result -> convertToDto((Doctor) result[0], (Long) result[1], (Long) result[2]))
                 .collect(Collectors.toList());
     }
     
-    private DoctorDto convertToDto(Doctor doctor) {
+    private DoctorDto convertToDto(Doctor doctor, Long patientCount, Long visitCount) {
         DoctorDto dto = new DoctorDto();
         dto.setId(doctor.getId());
         dto.setIdentificationNumber(doctor.getIdentificationNumber());
         dto.setName(doctor.getName());
         dto.setSpecialty(doctor.getSpecialty());
         dto.setIsFamilyDoctor(doctor.getIsFamilyDoctor());
-        dto.setPatientCount(doctor.getPatients().size());
-        dto.setVisitCount(doctor.getMedicalVisits().size());
+        dto.setPatientCount(patientCount.intValue());
+        dto.setVisitCount(visitCount.intValue());
         return dto;
     }
     
@@ -0,0 +1,55 @@
+package com.medical.history.service;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * EGN (Bulgarian personal number) checks beyond the 10-digit pattern on PatientDto: the
+ * first six digits encode the birth date, with 20 added to the month for the 1800s and 40
+ * for the 2000s, and the last digit is a weighted checksum of the other nine.
+ */
+final class Egn {
+    
+    private static final int[] WEIGHTS = {2, 4, 8, 5, 10, 9, 7, 3, 6};
+    
+    private Egn() {
+    }
+    
+    // Null when the EGN is valid, otherwise why it is not
+    static String check(String egn) {
+        if (egn == null || !egn.matches("\\d{10}")) {
+            return "EGN must be exactly 10 digits";
+        }
+        int year = digits(egn, 0);
+        int month = digits(egn, 2);
+        int day = digits(egn, 4);
+        if (month > 40) {
+            year += 2000;
+            month -= 40;
+        } else if (month > 20) {
+            year += 1800;
+            month -= 20;
+        } else {
+            year += 1900;
+        }
+        try {
+            LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return "EGN does not encode a valid birth date";
+        }
+        
+        int sum = 0;
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            sum += (egn.charAt(i) - '0') * WEIGHTS[i];
+        }
+        int checksum = sum % 11 % 10;
+        if (checksum != egn.charAt(9) - '0') {
+            return "EGN checksum does not match";
+        }
+        return null;
+    }
+    
+    private static int digits(String egn, int from) {
+        return (egn.charAt(from) - '0') * 10 + egn.charAt(from + 1) - '0';
+    }
+}
@@ -0,0 +1,13 @@
+package com.medical.history.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// A page request with an unknown sort key, a bad size, or a cursor that was not issued for this sort
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidPageRequestException extends RuntimeException {
+    
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
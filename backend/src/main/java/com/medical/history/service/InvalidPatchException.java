@@ -0,0 +1,13 @@
+package com.medical.history.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// A PATCH body that is not a JSON object, does not bind, or leaves the record invalid
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidPatchException extends RuntimeException {
+    
+    public InvalidPatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,78 @@
+package com.medical.history.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.history.entity.BaseEntity;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a JSON merge patch (RFC 7396) to the DTO of a record: fields present in the patch
+ * replace the DTO's values, an explicit null clears one, absent fields keep theirs. The services
+ * copy the patched DTO back onto the managed entity; fields the patch did not touch keep equal
+ * values there, so Hibernate's dirty check and @DynamicUpdate leave their columns out of the UPDATE.
+ * <p>
+ * Also holds the optimistic lock checks shared by PUT and PATCH.
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonMergePatcher {
+    
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    
+    public <T> T apply(T current, JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidPatchException("A patch must be a JSON object");
+        }
+        T patched;
+        try {
+            patched = objectMapper.readerForUpdating(current).readValue(patch);
+        } catch (JsonProcessingException e) {
+            throw new InvalidPatchException("Invalid patch: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new InvalidPatchException("Invalid patch: " + e.getMessage());
+        }
+        String errors = validator.validate(patched).stream()
+                .map(JsonMergePatcher::describe)
+                .sorted()
+                .collect(Collectors.joining("; "));
+        if (!errors.isEmpty()) {
+            throw new InvalidPatchException(errors);
+        }
+        return patched;
+    }
+    
+    // A client that sends the version it read gets a conflict if the record changed since; no version skips the check
+    public static void checkVersion(BaseEntity entity, Long expectedVersion) {
+        if (expectedVersion != null && !Objects.equals(expectedVersion, entity.getVersion())) {
+            throw new VersionConflictException(conflict(entity));
+        }
+    }
+    
+    // Runs a save-and-flush so a concurrent commit between our read and our UPDATE surfaces here as a conflict
+    public static <T> T flushed(BaseEntity entity, Supplier<T> saveAndFlush) {
+        try {
+            return saveAndFlush.get();
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new VersionConflictException(conflict(entity));
+        }
+    }
+    
+    private static String conflict(BaseEntity entity) {
+        return entity.getClass().getSimpleName() + " " + entity.getId() + " was modified by someone else; reload it and retry";
+    }
+    
+    private static String describe(ConstraintViolation<?> violation) {
+        return violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+}
@@ -0,0 +1,201 @@
+package com.medical.history.service;
+
+import com.medical.history.config.AppProperties;
+import com.medical.history.dto.CursorPage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Sort order of a keyset-paginated list: one whitelisted key, with the id as tie-breaker so
+ * the order is total. A page is read as "the next size + 1 rows after the last row of the
+ * previous page" rather than with an OFFSET, so every page costs the same however deep it is.
+ * Each list whitelists only keys that lead an index ending in id.
+ * <p>
+ * The cursor handed to the client is the sort plus the last row's key and id, base64url
+ * encoded. It is opaque to the client and only valid for the sort it was issued with.
+ * Sort keys are entity attributes, and the DTOs expose them under the same names.
+ */
+public final class KeysetSort {
+
+    private static final char SEPARATOR = '\n';
+    private static final String ID = "id";
+
+    private final String key;
+    private final Sort.Direction direction;
+    // Reads the key's value back from a cursor
+    private final Function<String, ? extends Comparable<?>> keyParser;
+
+    private KeysetSort(String key, Sort.Direction direction, Function<String, ? extends Comparable<?>> keyParser) {
+        this.key = key;
+        this.direction = direction;
+        this.keyParser = keyParser;
+    }
+
+    /**
+     * Parses "key" or "key,asc|desc" (descending when no direction is given), falling back to
+     * the list's default sort when none is requested.
+     */
+    public static KeysetSort parse(String sort, String defaultSort,
+                                   Map<String, Function<String, ? extends Comparable<?>>> keys) {
+        String requested = sort != null && !sort.isBlank() ? sort : defaultSort;
+        String[] parts = requested.split(",", -1);
+        if (parts.length > 2 || !keys.containsKey(parts[0])) {
+            throw new InvalidPageRequestException("Unsupported sort '" + requested + "', expected one of " + keys.keySet());
+        }
+        if (parts.length == 1) {
+            return new KeysetSort(parts[0], Sort.Direction.DESC, keys.get(parts[0]));
+        }
+        return Sort.Direction.fromOptionalString(parts[1])
+                .map(direction -> new KeysetSort(parts[0], direction, keys.get(parts[0])))
+                .orElseThrow(() -> new InvalidPageRequestException("Unsupported sort direction '" + parts[1] + "'"));
+    }
+
+    // The requested page size, or the default; larger requests are capped at app.pagination.max-size
+    public static int pageSize(Integer requested, AppProperties.Pagination pagination) {
+        if (requested == null) {
+            return pagination.getDefaultSize();
+        }
+        if (requested < 1) {
+            throw new InvalidPageRequestException("Page size must be positive");
+        }
+        return Math.min(requested, pagination.getMaxSize());
+    }
+
+    public Sort.Direction direction() {
+        return direction;
+    }
+
+    public Sort toSort() {
+        return key.equals(ID) ? Sort.by(direction, ID) : Sort.by(direction, key, ID);
+    }
+
+    public String token() {
+        return key + "," + direction.name().toLowerCase();
+    }
+
+    // Reads back a cursor issued for this sort; null for the first page
+    public Position position(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int keyStart = position.indexOf(SEPARATOR);
+            int idStart = position.lastIndexOf(SEPARATOR);
+            if (keyStart < 0 || keyStart == idStart || !position.substring(0, keyStart).equals(token())) {
+                throw new InvalidPageRequestException("Cursor does not belong to sort '" + token() + "'");
+            }
+            return new Position(keyParser.apply(position.substring(keyStart + 1, idStart)),
+                    Long.valueOf(position.substring(idStart + 1)));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidPageRequestException("Malformed cursor");
+        }
+    }
+
+    /**
+     * Rows strictly after the position in this order. The OR alone would leave the database
+     * scanning the index from its start, so the key's inclusive bound is repeated outside it.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> Specification<T> after(Position after) {
+        if (after == null) {
+            return Specification.where(null);
+        }
+        return (root, query, cb) -> {
+            Path<Long> idPath = root.get(ID);
+            if (key.equals(ID)) {
+                return direction.isAscending() ? cb.greaterThan(idPath, after.id()) : cb.lessThan(idPath, after.id());
+            }
+            Path<Comparable> keyPath = root.get(key);
+            Comparable keyValue = after.key();
+            if (direction.isAscending()) {
+                return cb.and(cb.greaterThanOrEqualTo(keyPath, keyValue),
+                        cb.or(cb.greaterThan(keyPath, keyValue), cb.greaterThan(idPath, after.id())));
+            }
+            return cb.and(cb.lessThanOrEqualTo(keyPath, keyValue),
+                    cb.or(cb.lessThan(keyPath, keyValue), cb.lessThan(idPath, after.id())));
+        };
+    }
+
+    /**
+     * Up to size + 1 rows matching the filter after the position, in this order, with the
+     * given associations fetched in the same statement.
+     */
+    public <T> List<T> read(JpaSpecificationExecutor<T> repository, Specification<T> filter,
+                            Position after, int size, String... fetch) {
+        Specification<T> spec = Specification.<T>where(filter).and(after(after));
+        return repository.findBy(spec, query -> query
+                .sortBy(toSort()).limit(size + 1).project(fetch).all());
+    }
+
+    /**
+     * Like {@link #read}, but selects the given columns instead of whole entities, one tuple
+     * per row.
+     */
+    public <T> List<Tuple> readColumns(EntityManager entityManager, Class<T> entityType, Specification<T> filter,
+                                       Position after, int size, Function<Root<T>, List<Selection<?>>> columns) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityType);
+        Predicate where = Specification.<T>where(filter).and(after(after)).toPredicate(root, query, cb);
+        if (where != null) {
+            query.where(where);
+        }
+        query.multiselect(columns.apply(root)).orderBy(QueryUtils.toOrders(toSort(), root, cb));
+        return entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+    }
+
+    // This order over rows of any type that has the key and id properties, e.g. for merging two pages
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Comparator<Object> comparator() {
+        Comparator<Object> ascending = Comparator
+                .comparing(row -> (Comparable) property(row, key))
+                .thenComparing(row -> (Comparable) property(row, ID));
+        return direction.isAscending() ? ascending : ascending.reversed();
+    }
+
+    /**
+     * Cuts rows read with a limit of size + 1 down to a page; the extra row only tells
+     * whether there is a next page, whose cursor points at the last row kept.
+     */
+    public <T> CursorPage<T> page(List<T> rows, int size) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        T last = items.get(size - 1);
+        return new CursorPage<>(items, cursor(property(last, key), (Long) property(last, ID)));
+    }
+
+    private String cursor(Object keyValue, Long id) {
+        String position = token() + SEPARATOR + keyValue + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object property(Object row, String name) {
+        return PropertyAccessorFactory.forBeanPropertyAccess(row).getPropertyValue(name);
+    }
+
+    // Sort key value and id of the last row of the previous page
+    public record Position(Comparable<?> key, Long id) {
+    }
+}
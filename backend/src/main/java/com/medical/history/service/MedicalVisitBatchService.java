@@ -0,0 +1,201 @@
+package com.medical.history.service;
+
+import com.medical.history.config.AppProperties;
+import com.medical.history.dto.MedicalVisitBatchResult;
+import com.medical.history.dto.MedicalVisitDto;
+import com.medical.history.dto.SickLeaveDto;
+import com.medical.history.entity.BaseEntity;
+import com.medical.history.entity.Diagnosis;
+import com.medical.history.entity.Doctor;
+import com.medical.history.entity.MedicalVisit;
+import com.medical.history.entity.Patient;
+import com.medical.history.entity.SickLeave;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.event.DomainEventPublisher;
+import com.medical.history.repository.MedicalVisitRepository;
+import com.medical.history.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk visit creation for POST /medical-visits/batch.
+ * Every item is validated up front; the valid ones are then inserted in chunks, each in its
+ * own transaction. A chunk loads the patients it references with one IN query, takes doctors
+ * and diagnoses from {@link ReferenceDataRegistry}, takes ids from the pooled sequences and
+ * sends the inserts as JDBC batches on flush. An invalid item or one that references a missing row is reported and
+ * skipped; if a chunk fails to commit, every visit in that chunk is reported as failed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MedicalVisitBatchService {
+
+    private final MedicalVisitRepository medicalVisitRepository;
+    private final PatientRepository patientRepository;
+    private final ReferenceDataRegistry referenceData;
+    private final RollupService rollupService;
+    private final DomainEventPublisher domainEventPublisher;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final Validator validator;
+    private final AppProperties appProperties;
+
+    public MedicalVisitBatchResult createMedicalVisits(List<MedicalVisitDto> visitDtos) {
+        List<MedicalVisitBatchResult.Item> items = new ArrayList<>(visitDtos.size());
+        List<Integer> valid = new ArrayList<>();
+        for (int index = 0; index < visitDtos.size(); index++) {
+            MedicalVisitBatchResult.Item item = new MedicalVisitBatchResult.Item();
+            item.setIndex(index);
+            items.add(item);
+
+            String error = validate(visitDtos.get(index));
+            if (error != null) {
+                fail(item, error);
+            } else {
+                valid.add(index);
+            }
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int chunkSize = appProperties.getVisits().getBatchChunkSize();
+        for (int start = 0; start < valid.size(); start += chunkSize) {
+            List<Integer> chunk = valid.subList(start, Math.min(start + chunkSize, valid.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertChunk(visitDtos, chunk, items));
+            } catch (RuntimeException e) {
+                String reason = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                log.warn("Visit batch chunk of {} items failed: {}", chunk.size(), reason);
+                chunk.stream()
+                        .map(items::get)
+                        .filter(item -> item.getStatus() != MedicalVisitBatchResult.Status.FAILED)
+                        .forEach(item -> {
+                            item.setId(null);
+                            item.setSickLeaveId(null);
+                            fail(item, "Insert failed: " + reason);
+                        });
+            }
+        }
+
+        MedicalVisitBatchResult result = new MedicalVisitBatchResult();
+        result.setReceived(visitDtos.size());
+        result.setItems(items);
+        result.setCreated((int) items.stream().filter(item -> item.getStatus() == MedicalVisitBatchResult.Status.CREATED).count());
+        result.setFailed(visitDtos.size() - result.getCreated());
+        return result;
+    }
+
+    private void insertChunk(List<MedicalVisitDto> visitDtos, List<Integer> chunk, List<MedicalVisitBatchResult.Item> items) {
+        Map<Long, Patient> patients = byId(patientRepository.findAllById(referencedIds(visitDtos, chunk, MedicalVisitDto::getPatientId)));
+
+        List<MedicalVisit> visits = new ArrayList<>();
+        List<MedicalVisitBatchResult.Item> inserted = new ArrayList<>();
+        for (int index : chunk) {
+            MedicalVisitDto dto = visitDtos.get(index);
+            MedicalVisitBatchResult.Item item = items.get(index);
+
+            Patient patient = patients.get(dto.getPatientId());
+            if (patient == null) {
+                fail(item, "Patient not found: " + dto.getPatientId());
+                continue;
+            }
+            try {
+                Doctor doctor = referenceData.doctorReference(dto.getDoctorId());
+                Diagnosis diagnosis = dto.getDiagnosisId() != null ? referenceData.diagnosisReference(dto.getDiagnosisId()) : null;
+                visits.add(toEntity(dto, patient, doctor, diagnosis));
+                inserted.add(item);
+            } catch (ReferenceNotFoundException e) {
+                fail(item, e.getMessage());
+            }
+        }
+
+        medicalVisitRepository.saveAll(visits);
+        rollupService.visitsAdded(visits);
+        entityManager.flush();
+
+        for (int i = 0; i < visits.size(); i++) {
+            MedicalVisit visit = visits.get(i);
+            MedicalVisitBatchResult.Item item = inserted.get(i);
+            item.setStatus(MedicalVisitBatchResult.Status.CREATED);
+            item.setId(visit.getId());
+            domainEventPublisher.created(EntityType.MEDICAL_VISIT, visit.getId());
+            if (visit.getSickLeave() != null) {
+                item.setSickLeaveId(visit.getSickLeave().getId());
+                domainEventPublisher.created(EntityType.SICK_LEAVE, visit.getSickLeave().getId());
+            }
+        }
+        // The chunk's entities are not read again; keep the persistence context from growing
+        entityManager.clear();
+    }
+
+    private MedicalVisit toEntity(MedicalVisitDto dto, Patient patient, Doctor doctor, Diagnosis diagnosis) {
+        MedicalVisit visit = new MedicalVisit();
+        visit.setVisitDate(dto.getVisitDate());
+        visit.setVisitTime(dto.getVisitTime());
+        visit.setSymptoms(dto.getSymptoms());
+        visit.setTreatment(dto.getTreatment());
+        visit.setPrescribedMedication(dto.getPrescribedMedication());
+        visit.setNotes(dto.getNotes());
+        visit.setPatient(patient);
+        visit.setDoctor(doctor);
+        visit.setDiagnosis(diagnosis);
+
+        SickLeaveDto sickLeaveDto = dto.getSickLeave();
+        if (sickLeaveDto != null) {
+            SickLeave sickLeave = new SickLeave();
+            sickLeave.setStartDate(sickLeaveDto.getStartDate());
+            sickLeave.setDurationDays(sickLeaveDto.getDurationDays());
+            sickLeave.setReason(sickLeaveDto.getReason());
+            sickLeave.setMedicalVisit(visit);
+            visit.setSickLeave(sickLeave);
+        }
+        return visit;
+    }
+
+    // Null when the visit (and its embedded sick leave, if any) passes bean validation
+    private String validate(MedicalVisitDto dto) {
+        if (dto == null) {
+            return "Visit is required";
+        }
+        List<String> errors = new ArrayList<>();
+        validator.validate(dto).forEach(violation -> errors.add(describe("", violation)));
+        if (dto.getSickLeave() != null) {
+            validator.validate(dto.getSickLeave()).forEach(violation -> errors.add(describe("sickLeave.", violation)));
+        }
+        return errors.isEmpty() ? null : String.join("; ", errors);
+    }
+
+    private static String describe(String prefix, ConstraintViolation<?> violation) {
+        return prefix + violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+
+    private static void fail(MedicalVisitBatchResult.Item item, String error) {
+        item.setStatus(MedicalVisitBatchResult.Status.FAILED);
+        item.setError(error);
+    }
+
+    private static Set<Long> referencedIds(List<MedicalVisitDto> visitDtos, List<Integer> chunk, Function<MedicalVisitDto, Long> id) {
+        return chunk.stream()
+                .map(index -> id.apply(visitDtos.get(index)))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    private static <T extends BaseEntity> Map<Long, T> byId(List<T> entities) {
+        return entities.stream().collect(Collectors.toMap(BaseEntity::getId, Function.identity()));
+    }
+}
@@ -1,112 +1,336 @@
 package com.medical.history.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.medical.history.config.AppProperties;
+import com.medical.history.dto.CursorPage;
 import com.medical.history.dto.MedicalVisitDto;
-import com.medical.history.entity.Doctor;
-import com.medical.history.entity.Diagnosis;
+import com.medical.history.dto.MedicalVisitSearch;
+import com.medical.history.dto.PageQuery;
+import com.medical.history.entity.ArchivedMedicalVisit;
+import com.medical.history.entity.BaseEntity;
 import com.medical.history.entity.MedicalVisit;
 import com.medical.history.entity.Patient;
-import com.medical.history.repository.DiagnosisRepository;
-import com.medical.history.repository.DoctorRepository;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.event.DomainEventPublisher;
+import com.medical.history.repository.ArchivedMedicalVisitRepository;
 import com.medical.history.repository.MedicalVisitRepository;
 import com.medical.history.repository.PatientRepository;
+import com.medical.history.repository.VisitSpecifications;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class MedicalVisitService {
     
+    private static final Comparator<MedicalVisitDto> STREAM_ORDER =
+            Comparator.comparing(MedicalVisitDto::getVisitDate).thenComparing(MedicalVisitDto::getId);
+    
+    // Backed by the primary key and the (..., visit_date, id) indexes
+    private static final Map<String, Function<String, ? extends Comparable<?>>> SORT_KEYS =
+            Map.of("visitDate", LocalDate::parse, "id", Long::valueOf);
+    private static final String DEFAULT_SORT = "visitDate,desc";
+    
     private final MedicalVisitRepository medicalVisitRepository;
+    private final ArchivedMedicalVisitRepository archivedVisitRepository;
+    private final VisitArchiveService visitArchiveService;
     private final PatientRepository patientRepository;
-    private final DoctorRepository doctorRepository;
-    private final DiagnosisRepository diagnosisRepository;
+    private final ReferenceDataRegistry referenceData;
+    private final RollupService rollupService;
+    private final DomainEventPublisher domainEventPublisher;
+    private final EntityManager entityManager;
+    private final JsonMergePatcher jsonMergePatcher;
+    private final AppProperties appProperties;
+    private final ReportCache reportCache;
     
-    public List<MedicalVisitDto> getAllMedicalVisits() {
-        return medicalVisitRepository.findAll().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    // Reads without a date range cover the whole history, archive included; ranged reads only
+    // query the archive when the range starts on or before its latest visit (see VisitArchiveService)
+    @Transactional(readOnly = true)
+    public CursorPage<MedicalVisitDto> getMedicalVisits(PageQuery pageQuery, String fields) {
+        return searchMedicalVisits(new MedicalVisitSearch(), pageQuery, fields);
     }
     
     public Optional<MedicalVisitDto> getMedicalVisitById(Long id) {
-        return medicalVisitRepository.findById(id)
+        Optional<MedicalVisitDto> visit = medicalVisitRepository.findById(id)
                 .map(this::convertToDto);
+        if (visit.isPresent() || !visitArchiveService.hasArchive()) {
+            return visit;
+        }
+        return archivedVisitRepository.findById(id).map(this::convertToDto);
     }
     
     public List<MedicalVisitDto> getMedicalVisitsByPatient(Long patientId) {
-        return medicalVisitRepository.findByPatientId(patientId).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return withArchived(medicalVisitRepository.findByPatientId(patientId),
+                visitArchiveService.hasArchive(), () -> archivedVisitRepository.findByPatientId(patientId));
     }
     
     public List<MedicalVisitDto> getMedicalVisitsByDoctor(Long doctorId) {
-        return medicalVisitRepository.findByDoctorId(doctorId).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return withArchived(medicalVisitRepository.findByDoctorId(doctorId),
+                visitArchiveService.hasArchive(), () -> archivedVisitRepository.findByDoctorId(doctorId));
     }
     
     public List<MedicalVisitDto> getMedicalVisitsByDateRange(LocalDate startDate, LocalDate endDate) {
-        return medicalVisitRepository.findByVisitDateBetween(startDate, endDate).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return withArchived(medicalVisitRepository.findByVisitDateBetween(startDate, endDate),
+                visitArchiveService.visitsReach(startDate),
+                () -> archivedVisitRepository.findByVisitDateBetween(startDate, endDate));
+    }
+    
+    /**
+     * Walks the visits in the range over a forward-only cursor and hands each converted DTO
+     * to the consumer before reading the next row. The persistence context is cleared after
+     * every fetch batch, so memory stays flat regardless of how wide the range is.
+     */
+    @Transactional(readOnly = true)
+    public void streamMedicalVisitsByDateRange(LocalDate startDate, LocalDate endDate, Consumer<MedicalVisitDto> consumer) {
+        stream(visitArchiveService.visitsReach(startDate),
+                () -> medicalVisitRepository.streamByVisitDateBetween(startDate, endDate),
+                () -> archivedVisitRepository.streamByVisitDateBetween(startDate, endDate), consumer);
+    }
+    
+    // streamMedicalVisitsByDateRange for one doctor
+    @Transactional(readOnly = true)
+    public void streamMedicalVisitsByDoctorAndDateRange(Long doctorId, LocalDate startDate, LocalDate endDate,
+                                                        Consumer<MedicalVisitDto> consumer) {
+        stream(visitArchiveService.visitsReach(startDate),
+                () -> medicalVisitRepository.streamByDoctorIdAndVisitDateBetween(doctorId, startDate, endDate),
+                () -> archivedVisitRepository.streamByDoctorIdAndVisitDateBetween(doctorId, startDate, endDate), consumer);
+    }
+    
+    private void stream(boolean readArchive, Supplier<Stream<MedicalVisit>> hotVisits,
+                        Supplier<Stream<ArchivedMedicalVisit>> archivedVisits, Consumer<MedicalVisitDto> consumer) {
+        int batchSize = Integer.parseInt(MedicalVisitRepository.STREAM_FETCH_SIZE);
+        int[] converted = {0};
+        Consumer<MedicalVisitDto> clearing = dto -> {
+            consumer.accept(dto);
+            if (++converted[0] % batchSize == 0) {
+                entityManager.clear();
+            }
+        };
+        try (Stream<MedicalVisit> visits = hotVisits.get()) {
+            Stream<MedicalVisitDto> hot = visits.map(this::convertToDto);
+            if (!readArchive) {
+                hot.forEach(clearing);
+                return;
+            }
+            // Both cursors are ordered by (visitDate, id); merging keeps that order across them
+            try (Stream<ArchivedMedicalVisit> archived = archivedVisits.get()) {
+                VisitArchiveService.mergeOrdered(archived.map(this::convertToDto).iterator(), hot.iterator(),
+                        STREAM_ORDER, clearing);
+            }
+        }
     }
     
     public List<MedicalVisitDto> getMedicalVisitsByDoctorAndDateRange(Long doctorId, LocalDate startDate, LocalDate endDate) {
-        return medicalVisitRepository.findByDoctorIdAndVisitDateBetween(doctorId, startDate, endDate).stream()
-                .map(this::convertToDto)
+        return withArchived(medicalVisitRepository.findByDoctorIdAndVisitDateBetween(doctorId, startDate, endDate),
+                visitArchiveService.visitsReach(startDate),
+                () -> archivedVisitRepository.findByDoctorIdAndVisitDateBetween(doctorId, startDate, endDate));
+    }
+    
+    /**
+     * One page of the visits matching every filter that is set. Both tables are read with the
+     * same keyset predicate and a limit of size + 1, and merged; the archive only when the
+     * filtered range, narrowed by the cursor, still reaches into it. Only the columns of the
+     * requested fields are selected, see VisitProjection.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<MedicalVisitDto> searchMedicalVisits(MedicalVisitSearch search, PageQuery pageQuery, String fields) {
+        KeysetSort keyset = KeysetSort.parse(pageQuery.getSort(), DEFAULT_SORT, SORT_KEYS);
+        VisitProjection projection = VisitProjection.parse(fields);
+        int size = KeysetSort.pageSize(pageQuery.getSize(), appProperties.getPagination());
+        KeysetSort.Position after = keyset.position(pageQuery.getCursor());
+        
+        Long patientId = null;
+        if (search.getPatientEgn() != null) {
+            Optional<Patient> patient = patientRepository.findByEgn(search.getPatientEgn());
+            if (patient.isEmpty()) {
+                CursorPage<MedicalVisitDto> empty = new CursorPage<>(List.of(), null);
+                empty.setTotal(pageQuery.isIncludeTotal() ? 0L : null);
+                return empty;
+            }
+            patientId = patient.get().getId();
+        }
+        Specification<MedicalVisit> hot = VisitSpecifications.medicalVisits(search, patientId);
+        Specification<ArchivedMedicalVisit> archived = VisitSpecifications.archivedVisits(search, patientId);
+        boolean archiveInRange = search.getFrom() != null
+                ? visitArchiveService.visitsReach(search.getFrom())
+                : visitArchiveService.hasArchive();
+        
+        List<MedicalVisitDto> rows = keyset.readColumns(entityManager, MedicalVisit.class, hot, after, size,
+                        root -> projection.select(root, false)).stream()
+                .map(row -> projection.toDto(row, false, referenceData))
                 .collect(Collectors.toList());
+        // Ascending by date, a page that starts past the archive's latest visit has nothing left there
+        boolean archivePassed = after != null && after.key() instanceof LocalDate cursorDate
+                && keyset.direction().isAscending() && !visitArchiveService.visitsReach(cursorDate);
+        if (archiveInRange && !archivePassed) {
+            // Archived ids are the original ones, so both tables sort alike
+            List<MedicalVisitDto> merged = new ArrayList<>();
+            VisitArchiveService.mergeOrdered(
+                    keyset.readColumns(entityManager, ArchivedMedicalVisit.class, archived, after, size,
+                                    root -> projection.select(root, true)).stream()
+                            .map(row -> projection.toDto(row, true, referenceData)).iterator(),
+                    rows.iterator(), keyset.comparator(), merged::add);
+            rows = merged;
+        }
+        return withTotal(keyset.page(rows, size), pageQuery, search, () -> medicalVisitRepository.count(hot)
+                + (archiveInRange ? archivedVisitRepository.count(archived) : 0));
+    }
+    
+    // Counted once per filter combination and kept until the next visit write
+    private CursorPage<MedicalVisitDto> withTotal(CursorPage<MedicalVisitDto> page, PageQuery pageQuery,
+                                                  MedicalVisitSearch search, Supplier<Long> count) {
+        if (pageQuery.isIncludeTotal()) {
+            page.setTotal(reportCache.get("medical-visits-count",
+                    List.of(String.valueOf(search.getDoctorId()), String.valueOf(search.getDiagnosisId()),
+                            String.valueOf(search.getPatientEgn()), String.valueOf(search.getFrom()), String.valueOf(search.getTo())),
+                    Set.of(EntityType.MEDICAL_VISIT), count));
+        }
+        return page;
+    }
+    
+    // Archived visits first, as they are the older ones
+    private List<MedicalVisitDto> withArchived(List<MedicalVisit> visits, boolean readArchive,
+                                               Supplier<List<ArchivedMedicalVisit>> archived) {
+        List<MedicalVisitDto> dtos = new ArrayList<>();
+        if (readArchive) {
+            archived.get().forEach(visit -> dtos.add(convertToDto(visit)));
+        }
+        visits.forEach(visit -> dtos.add(convertToDto(visit)));
+        return dtos;
     }
     
     public MedicalVisitDto createMedicalVisit(MedicalVisitDto visitDto) {
         MedicalVisit visit = convertToEntity(visitDto);
         MedicalVisit savedVisit = medicalVisitRepository.save(visit);
+        rollupService.visitAdded(savedVisit);
+        domainEventPublisher.created(EntityType.MEDICAL_VISIT, savedVisit.getId());
         return convertToDto(savedVisit);
     }
     
     public Optional<MedicalVisitDto> updateMedicalVisit(Long id, MedicalVisitDto visitDto) {
         return medicalVisitRepository.findById(id)
                 .map(existingVisit -> {
-                    existingVisit.setVisitDate(visitDto.getVisitDate());
-                    existingVisit.setVisitTime(visitDto.getVisitTime());
-                    existingVisit.setSymptoms(visitDto.getSymptoms());
-                    existingVisit.setTreatment(visitDto.getTreatment());
-                    existingVisit.setPrescribedMedication(visitDto.getPrescribedMedication());
-                    existingVisit.setNotes(visitDto.getNotes());
-                    
-                    if (visitDto.getPatientId() != null) {
-                        Patient patient = patientRepository.findById(visitDto.getPatientId())
-                                .orElseThrow(() -> new RuntimeException("Patient not found"));
-                        existingVisit.setPatient(patient);
-                    }
-                    
-                    if (visitDto.getDoctorId() != null) {
-                        Doctor doctor = doctorRepository.findById(visitDto.getDoctorId())
-                                .orElseThrow(() -> new RuntimeException("Doctor not found"));
-                        existingVisit.setDoctor(doctor);
-                    }
-                    
-                    if (visitDto.getDiagnosisId() != null) {
-                        Diagnosis diagnosis = diagnosisRepository.findById(visitDto.getDiagnosisId())
-                                .orElseThrow(() -> new RuntimeException("Diagnosis not found"));
-                        existingVisit.setDiagnosis(diagnosis);
-                    }
-                    
-                    return convertToDto(medicalVisitRepository.save(existingVisit));
+                    JsonMergePatcher.checkVersion(existingVisit, visitDto.getVersion());
+                    return saveChanges(existingVisit, visitDto, false);
+                });
+    }
+    
+    // JSON merge patch: only the fields in the patch change, and only their columns are written
+    public Optional<MedicalVisitDto> patchMedicalVisit(Long id, JsonNode patch) {
+        return medicalVisitRepository.findById(id)
+                .map(existingVisit -> {
+                    MedicalVisitDto patched = jsonMergePatcher.apply(convertToDto(existingVisit), patch);
+                    JsonMergePatcher.checkVersion(existingVisit, patched.getVersion());
+                    return saveChanges(existingVisit, patched, true);
                 });
     }
     
+    // A PUT without diagnosisId keeps the diagnosis; a patch that nulls it clears it
+    private MedicalVisitDto saveChanges(MedicalVisit existingVisit, MedicalVisitDto visitDto, boolean clearDiagnosis) {
+        Long diagnosisId = visitDto.getDiagnosisId() != null || clearDiagnosis
+                ? visitDto.getDiagnosisId()
+                : idOf(existingVisit.getDiagnosis());
+        boolean rollupsMove = !Objects.equals(existingVisit.getVisitDate(), visitDto.getVisitDate())
+                || !Objects.equals(existingVisit.getVisitTime(), visitDto.getVisitTime())
+                || changes(existingVisit.getPatient(), visitDto.getPatientId())
+                || changes(existingVisit.getDoctor(), visitDto.getDoctorId())
+                || !Objects.equals(idOf(existingVisit.getDiagnosis()), diagnosisId);
+        if (rollupsMove) {
+            rollupService.visitRemoved(existingVisit);
+        }
+        
+        Long versionBefore = existingVisit.getVersion();
+        existingVisit.setVisitDate(visitDto.getVisitDate());
+        existingVisit.setVisitTime(visitDto.getVisitTime());
+        existingVisit.setSymptoms(visitDto.getSymptoms());
+        existingVisit.setTreatment(visitDto.getTreatment());
+        existingVisit.setPrescribedMedication(visitDto.getPrescribedMedication());
+        existingVisit.setNotes(visitDto.getNotes());
+        
+        if (changes(existingVisit.getPatient(), visitDto.getPatientId())) {
+            Patient patient = patientRepository.findById(visitDto.getPatientId())
+                    .orElseThrow(() -> new RuntimeException("Patient not found"));
+            existingVisit.setPatient(patient);
+        }
+        
+        if (changes(existingVisit.getDoctor(), visitDto.getDoctorId())) {
+            existingVisit.setDoctor(referenceData.doctorReference(visitDto.getDoctorId()));
+        }
+        
+        if (!Objects.equals(idOf(existingVisit.getDiagnosis()), diagnosisId)) {
+            existingVisit.setDiagnosis(diagnosisId != null ? referenceData.diagnosisReference(diagnosisId) : null);
+        }
+        
+        MedicalVisit savedVisit = JsonMergePatcher.flushed(existingVisit,
+                () -> medicalVisitRepository.saveAndFlush(existingVisit));
+        if (rollupsMove) {
+            rollupService.visitAdded(savedVisit);
+        }
+        // Nothing was written when the version did not move
+        if (!Objects.equals(versionBefore, savedVisit.getVersion())) {
+            domainEventPublisher.updated(EntityType.MEDICAL_VISIT, savedVisit.getId());
+        }
+        return convertToDto(savedVisit);
+    }
+    
+    // True when a non-null id in the request points somewhere else than the current reference
+    private static boolean changes(BaseEntity current, Long requestedId) {
+        return requestedId != null && !requestedId.equals(idOf(current));
+    }
+    
+    private static Long idOf(BaseEntity entity) {
+        return entity != null ? entity.getId() : null;
+    }
+    
     public boolean deleteMedicalVisit(Long id) {
-        if (medicalVisitRepository.existsById(id)) {
-            medicalVisitRepository.deleteById(id);
-            return true;
+        return medicalVisitRepository.findById(id)
+                .map(visit -> {
+                    rollupService.visitRemoved(visit);
+                    domainEventPublisher.visitsDeleted(List.of(visit));
+                    medicalVisitRepository.delete(visit);
+                    return true;
+                })
+                .orElse(false);
+    }
+    
+    // Archived visits read like live ones, flagged archived; they cannot be updated or deleted
+    private MedicalVisitDto convertToDto(ArchivedMedicalVisit visit) {
+        MedicalVisitDto dto = new MedicalVisitDto();
+        dto.setId(visit.getId());
+        dto.setVisitDate(visit.getVisitDate());
+        dto.setVisitTime(visit.getVisitTime());
+        dto.setSymptoms(visit.getSymptoms());
+        dto.setTreatment(visit.getTreatment());
+        dto.setPrescribedMedication(visit.getPrescribedMedication());
+        dto.setNotes(visit.getNotes());
+        dto.setPatientId(visit.getPatientId());
+        dto.setPatientName(visit.getPatient().getName());
+        dto.setDoctorId(visit.getDoctorId());
+        dto.setDoctorName(referenceData.doctorName(visit.getDoctor()));
+        if (visit.getDiagnosis() != null) {
+            dto.setDiagnosisId(visit.getDiagnosisId());
+            dto.setDiagnosisName(referenceData.diagnosisName(visit.getDiagnosis()));
         }
-        return false;
+        dto.setArchived(true);
+        return dto;
     }
     
     private MedicalVisitDto convertToDto(MedicalVisit visit) {
@@ -118,6 +342,7 @@ public class MedicalVisitService {
         dto.setTreatment(visit.getTreatment());
         dto.setPrescribedMedication(visit.getPrescribedMedication());
         dto.setNotes(visit.getNotes());
+        dto.setVersion(visit.getVersion());
         
         if (visit.getPatient() != null) {
             dto.setPatientId(visit.getPatient().getId());
@@ -126,12 +351,12 @@ public class MedicalVisitService {
         
         if (visit.getDoctor() != null) {
             dto.setDoctorId(visit.getDoctor().getId());
-            dto.setDoctorName(visit.getDoctor().getName());
+            dto.setDoctorName(referenceData.doctorName(visit.getDoctor()));
         }
         
         if (visit.getDiagnosis() != null) {
             dto.setDiagnosisId(visit.getDiagnosis().getId());
-            dto.setDiagnosisName(visit.getDiagnosis().getName());
+            dto.setDiagnosisName(referenceData.diagnosisName(visit.getDiagnosis()));
         }
         
         return dto;
@@ -153,15 +378,11 @@ public class MedicalVisitService {
         }
         
         if (dto.getDoctorId() != null) {
-            Doctor doctor = doctorRepository.findById(dto.getDoctorId())
-                    .orElseThrow(() -> new RuntimeException("Doctor not found"));
-            visit.setDoctor(doctor);
+            visit.setDoctor(referenceData.doctorReference(dto.getDoctorId()));
         }
         
         if (dto.getDiagnosisId() != null) {
-            Diagnosis diagnosis = diagnosisRepository.findById(dto.getDiagnosisId())
-                    .orElseThrow(() -> new RuntimeException("Diagnosis not found"));
-            visit.setDiagnosis(diagnosis);
+            visit.setDiagnosis(referenceData.diagnosisReference(dto.getDiagnosisId()));
         }
         
         return visit;
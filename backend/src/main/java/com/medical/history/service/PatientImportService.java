@@ -0,0 +1,392 @@
+package com.medical.history.service;
+
+import com.medical.history.config.AppProperties;
+import com.medical.history.dto.PatientImportJob;
+import com.medical.history.entity.Patient;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.event.DomainEventPublisher;
+import com.medical.history.repository.DoctorRepository;
+import com.medical.history.repository.PatientRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Enrolls patients from a CSV stream (POST /patients/import or --import-patients at startup).
+ * The input is read one record at a time and never held whole. Existing EGNs are loaded once
+ * up front and family doctors are looked up in {@link ReferenceDataRegistry}, so checking a
+ * row costs no queries; valid rows are inserted in chunks of app.patients.import-chunk-size,
+ * each in its own transaction. Invalid rows, and every row of a chunk that fails to commit,
+ * are kept for the rejected-rows report. Uploads are imported on a pool of
+ * app.patients.import-concurrency threads, command line imports on the calling thread;
+ * GET /patients/import shows their progress.
+ */
+@Service
+@Slf4j
+public class PatientImportService {
+    
+    public static final String COLUMN_NAME = "name";
+    public static final String COLUMN_EGN = "egn";
+    public static final String COLUMN_FAMILY_DOCTOR = "familyDoctorIdentificationNumber";
+    public static final String COLUMN_INSURANCE_PAID = "healthInsurancePaid";
+    public static final String COLUMN_LAST_PAYMENT = "lastInsurancePaymentDate";
+    
+    private static final List<String> REQUIRED_COLUMNS = List.of(COLUMN_NAME, COLUMN_EGN, COLUMN_FAMILY_DOCTOR);
+    
+    private final PatientRepository patientRepository;
+    private final DoctorRepository doctorRepository;
+    private final ReferenceDataRegistry referenceData;
+    private final DomainEventPublisher domainEventPublisher;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final AppProperties appProperties;
+    private final ThreadPoolTaskExecutor executor;
+    
+    // Insertion order, so the oldest finished imports are dropped first
+    private final Map<String, ImportRun> runs = new LinkedHashMap<>();
+    
+    public PatientImportService(PatientRepository patientRepository, DoctorRepository doctorRepository,
+                                ReferenceDataRegistry referenceData, DomainEventPublisher domainEventPublisher,
+                                EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                AppProperties appProperties) {
+        this.patientRepository = patientRepository;
+        this.doctorRepository = doctorRepository;
+        this.referenceData = referenceData;
+        this.domainEventPublisher = domainEventPublisher;
+        this.entityManager = entityManager;
+        this.transactionManager = transactionManager;
+        this.appProperties = appProperties;
+        this.executor = createExecutor(appProperties.getPatients());
+    }
+    
+    public PatientImportJob importPatients(String source, InputStream input) {
+        ImportRun run = start(source);
+        importRun(run, input);
+        return run.job;
+    }
+    
+    /**
+     * Imports on the import pool and completes with the finished job. The job is listed as
+     * RUNNING from the moment this returns; the input must stay open until the future completes.
+     * When every import thread is busy the job fails at once instead of waiting.
+     */
+    public CompletableFuture<PatientImportJob> startImport(String source, InputStream input) {
+        ImportRun run = start(source);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                importRun(run, input);
+                return run.job;
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            finish(run.job, "Too many imports are running; try again when one has finished");
+            return CompletableFuture.completedFuture(run.job);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    private void importRun(ImportRun run, InputStream input) {
+        PatientImportJob job = run.job;
+        log.info("Patient import {} started from {}", job.getId(), job.getSource());
+        String error;
+        try {
+            read(run, new CsvReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))));
+            error = run.error;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Patient import {} stopped after {} rows", job.getId(), job.getRowsRead(), e);
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+        finish(job, error);
+        log.info("Patient import {} {}: {} rows, {} imported, {} rejected",
+                job.getId(), job.getStatus(), job.getRowsRead(), job.getImported(), job.getRejected());
+    }
+    
+    // The status goes last: readers that see it finished also see everything else
+    private static void finish(PatientImportJob job, String error) {
+        job.setError(error);
+        job.setFinishedAt(LocalDateTime.now());
+        job.setStatus(error == null ? PatientImportJob.Status.COMPLETED : PatientImportJob.Status.FAILED);
+    }
+    
+    public synchronized List<PatientImportJob> getJobs() {
+        List<PatientImportJob> jobs = runs.values().stream()
+                .map(run -> run.job)
+                .collect(Collectors.toList());
+        // Newest first
+        Collections.reverse(jobs);
+        return jobs;
+    }
+    
+    public synchronized Optional<PatientImportJob> getJob(String id) {
+        return Optional.ofNullable(runs.get(id)).map(run -> run.job);
+    }
+    
+    /**
+     * Writes the rejected rows of a finished import as CSV: the line number and reason,
+     * followed by the row's original columns so it can be corrected and imported again.
+     */
+    public void writeRejectedRows(String id, Writer out) throws IOException {
+        ImportRun run;
+        synchronized (this) {
+            run = runs.get(id);
+        }
+        if (run == null || run.job.getStatus() == PatientImportJob.Status.RUNNING) {
+            throw new IllegalStateException("Import " + id + " is not finished");
+        }
+        List<String> header = new ArrayList<>(List.of("line", "reason"));
+        header.addAll(run.header);
+        writeRecord(out, header);
+        for (RejectedRow row : run.rejectedRows) {
+            List<String> record = new ArrayList<>(List.of(Long.toString(row.line), row.reason));
+            record.addAll(row.fields);
+            writeRecord(out, record);
+        }
+        out.flush();
+    }
+    
+    private void read(ImportRun run, CsvReader csv) throws IOException {
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            run.error = "The file is empty";
+            return;
+        }
+        run.header = header;
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream()
+                .filter(column -> !columns.containsKey(column.toLowerCase(Locale.ROOT)))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            run.error = "Missing required columns: " + String.join(", ", missing);
+            return;
+        }
+        
+        Set<String> egns = new HashSet<>(patientRepository.findAllEgns());
+        
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int chunkSize = appProperties.getPatients().getImportChunkSize();
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        List<String> fields;
+        while ((fields = csv.readRecord()) != null) {
+            run.job.setRowsRead(run.job.getRowsRead() + 1);
+            PendingRow row = new PendingRow(csv.recordLine(), fields);
+            String reason = parse(row, columns);
+            if (reason == null && !egns.add(row.egn)) {
+                reason = "Duplicate EGN";
+            }
+            if (reason != null) {
+                reject(run, row, reason);
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                insertChunk(run, chunk, egns, transactionTemplate);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(run, chunk, egns, transactionTemplate);
+        }
+    }
+    
+    // Fills in the row's values; null when the row can be inserted, otherwise why not
+    private String parse(PendingRow row, Map<String, Integer> columns) {
+        row.name = column(row, columns, COLUMN_NAME);
+        row.egn = column(row, columns, COLUMN_EGN);
+        String doctor = column(row, columns, COLUMN_FAMILY_DOCTOR);
+        String paid = column(row, columns, COLUMN_INSURANCE_PAID);
+        String lastPayment = column(row, columns, COLUMN_LAST_PAYMENT);
+        
+        if (row.name.isEmpty()) {
+            return "Name is required";
+        }
+        if (row.name.length() > 255) {
+            return "Name is longer than 255 characters";
+        }
+        String egnError = Egn.check(row.egn);
+        if (egnError != null) {
+            return egnError;
+        }
+        if (doctor.isEmpty()) {
+            return "Family doctor identification number is required";
+        }
+        row.familyDoctorId = referenceData.doctorIdByIdentificationNumber(doctor).orElse(null);
+        if (row.familyDoctorId == null) {
+            return "Family doctor not found: " + doctor;
+        }
+        
+        switch (paid.toLowerCase(Locale.ROOT)) {
+            case "", "false", "no", "0" -> row.healthInsurancePaid = false;
+            case "true", "yes", "1" -> row.healthInsurancePaid = true;
+            default -> {
+                return COLUMN_INSURANCE_PAID + " must be true or false";
+            }
+        }
+        if (!lastPayment.isEmpty()) {
+            try {
+                row.lastInsurancePaymentDate = LocalDate.parse(lastPayment);
+            } catch (DateTimeParseException e) {
+                return COLUMN_LAST_PAYMENT + " must be a date as yyyy-MM-dd";
+            }
+        }
+        return null;
+    }
+    
+    // Trimmed value, or "" when the column is absent from the header or the row is short
+    private static String column(PendingRow row, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+        return index != null && index < row.fields.size() ? row.fields.get(index).trim() : "";
+    }
+    
+    private void insertChunk(ImportRun run, List<PendingRow> chunk, Set<String> egns, TransactionTemplate transactionTemplate) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Patient> patients = new ArrayList<>(chunk.size());
+                Map<Long, Long> patientsPerDoctor = new HashMap<>();
+                for (PendingRow row : chunk) {
+                    Patient patient = new Patient();
+                    patient.setName(row.name);
+                    patient.setEgn(row.egn);
+                    patient.setHealthInsurancePaid(row.healthInsurancePaid);
+                    patient.setLastInsurancePaymentDate(row.lastInsurancePaymentDate);
+                    patient.setFamilyDoctor(referenceData.doctorReference(row.familyDoctorId));
+                    patients.add(patient);
+                    patientsPerDoctor.merge(row.familyDoctorId, 1L, Long::sum);
+                }
+                patientRepository.saveAll(patients);
+                entityManager.flush();
+                patientsPerDoctor.forEach(doctorRepository::adjustPatientCount);
+                patients.forEach(patient -> domainEventPublisher.created(EntityType.PATIENT, patient.getId()));
+                entityManager.clear();
+            });
+            run.job.setImported(run.job.getImported() + chunk.size());
+        } catch (RuntimeException e) {
+            String reason = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            log.warn("Patient import {} chunk of {} rows failed: {}", run.job.getId(), chunk.size(), reason);
+            for (PendingRow row : chunk) {
+                // Not inserted, so a later row with the same EGN may still go in
+                egns.remove(row.egn);
+                reject(run, row, "Insert failed: " + reason);
+            }
+        }
+    }
+    
+    private void reject(ImportRun run, PendingRow row, String reason) {
+        run.job.setRejected(run.job.getRejected() + 1);
+        if (run.rejectedRows.size() < appProperties.getPatients().getImportMaxRejectedRows()) {
+            run.rejectedRows.add(new RejectedRow(row.line, reason, row.fields));
+        }
+    }
+    
+    private synchronized ImportRun start(String source) {
+        PatientImportJob job = new PatientImportJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setSource(source);
+        job.setStatus(PatientImportJob.Status.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        
+        int finishedToKeep = Math.max(appProperties.getPatients().getImportHistorySize() - 1, 0);
+        long finished = runs.values().stream().filter(run -> run.job.getStatus() != PatientImportJob.Status.RUNNING).count();
+        Iterator<ImportRun> iterator = runs.values().iterator();
+        while (finished > finishedToKeep && iterator.hasNext()) {
+            if (iterator.next().job.getStatus() != PatientImportJob.Status.RUNNING) {
+                iterator.remove();
+                finished--;
+            }
+        }
+        
+        ImportRun run = new ImportRun(job);
+        runs.put(job.getId(), run);
+        return run;
+    }
+    
+    private static ThreadPoolTaskExecutor createExecutor(AppProperties.Patients properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getImportConcurrency());
+        executor.setMaxPoolSize(properties.getImportConcurrency());
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("patient-import-");
+        executor.initialize();
+        return executor;
+    }
+    
+    private static void writeRecord(Writer out, List<String> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String field = fields.get(i);
+            if (field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
+                field = '"' + field.replace("\"", "\"\"") + '"';
+            }
+            out.write(field);
+        }
+        out.write("\r\n");
+    }
+    
+    private static class ImportRun {
+        private final PatientImportJob job;
+        // Written only by the importing thread; read once the job is no longer RUNNING
+        private final List<RejectedRow> rejectedRows = new ArrayList<>();
+        private List<String> header = List.of();
+        // Why the file could not be read at all; becomes the job's error when it finishes
+        private String error;
+        
+        ImportRun(PatientImportJob job) {
+            this.job = job;
+        }
+    }
+    
+    private static class PendingRow {
+        private final long line;
+        private final List<String> fields;
+        private String name;
+        private String egn;
+        private Long familyDoctorId;
+        private boolean healthInsurancePaid;
+        private LocalDate lastInsurancePaymentDate;
+        
+        PendingRow(long line, List<String> fields) {
+            this.line = line;
+            this.fields = fields;
+        }
+    }
+    
+    private record RejectedRow(long line, String reason, List<String> fields) {
+    }
+}
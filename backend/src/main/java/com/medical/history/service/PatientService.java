@@ -1,9 +1,15 @@
 package com.medical.history.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.medical.history.config.AppProperties;
+import com.medical.history.dto.CursorPage;
+import com.medical.history.dto.PageQuery;
 import com.medical.history.dto.PatientDto;
 import com.medical.history.entity.Doctor;
 import com.medical.history.entity.Patient;
 import com.medical.history.entity.User;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.event.DomainEventPublisher;
 import com.medical.history.repository.DoctorRepository;
 import com.medical.history.repository.PatientRepository;
 import com.medical.history.repository.UserRepository;
@@ -12,7 +18,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,14 +30,34 @@ import java.util.stream.Collectors;
 @Transactional
 public class PatientService {
     
+    // Backed by the primary key, idx_patients_name and the unique EGN index
+    private static final Map<String, Function<String, ? extends Comparable<?>>> SORT_KEYS =
+            Map.of("name", String::valueOf, "egn", String::valueOf, "id", Long::valueOf);
+    private static final String DEFAULT_SORT = "name,asc";
+    
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
     private final UserRepository userRepository;
+    private final ReferenceDataRegistry referenceData;
+    private final DomainEventPublisher domainEventPublisher;
+    private final VisitArchiveService visitArchiveService;
+    private final JsonMergePatcher jsonMergePatcher;
+    private final ReportCache reportCache;
+    private final AppProperties appProperties;
     
-    public List<PatientDto> getAllPatients() {
-        return patientRepository.findAll().stream()
+    @Transactional(readOnly = true)
+    public CursorPage<PatientDto> getPatients(PageQuery pageQuery) {
+        KeysetSort keyset = KeysetSort.parse(pageQuery.getSort(), DEFAULT_SORT, SORT_KEYS);
+        int size = KeysetSort.pageSize(pageQuery.getSize(), appProperties.getPagination());
+        List<PatientDto> rows = keyset.read(patientRepository, null, keyset.position(pageQuery.getCursor()), size, "familyDoctor")
+                .stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
+        CursorPage<PatientDto> page = keyset.page(rows, size);
+        if (pageQuery.isIncludeTotal()) {
+            page.setTotal(reportCache.get("patients-count", List.of(), Set.of(EntityType.PATIENT), patientRepository::count));
+        }
+        return page;
     }
     
     public Optional<PatientDto> getPatientById(Long id) {
@@ -47,7 +77,10 @@ public class PatientService {
     }
     
     public List<PatientDto> getPatientsByDiagnosis(Long diagnosisId) {
-        return patientRepository.findByDiagnosisId(diagnosisId).stream()
+        List<Patient> patients = visitArchiveService.hasArchive()
+                ? patientRepository.findByDiagnosisIdWithArchive(diagnosisId)
+                : patientRepository.findByDiagnosisId(diagnosisId);
+        return patients.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
@@ -55,33 +88,53 @@ public class PatientService {
     public PatientDto createPatient(PatientDto patientDto) {
         Patient patient = convertToEntity(patientDto);
         Patient savedPatient = patientRepository.save(patient);
+        if (savedPatient.getFamilyDoctor() != null) {
+            doctorRepository.adjustPatientCount(savedPatient.getFamilyDoctor().getId(), 1);
+        }
+        domainEventPublisher.created(EntityType.PATIENT, savedPatient.getId());
         return convertToDto(savedPatient);
     }
     
     public Optional<PatientDto> updatePatient(Long id, PatientDto patientDto) {
         return patientRepository.findById(id)
                 .map(existingPatient -> {
-                    existingPatient.setName(patientDto.getName());
-                    existingPatient.setEgn(patientDto.getEgn());
-                    existingPatient.setHealthInsurancePaid(patientDto.getHealthInsurancePaid());
-                    existingPatient.setLastInsurancePaymentDate(patientDto.getLastInsurancePaymentDate());
-                    
-                    if (patientDto.getFamilyDoctorId() != null) {
-                        Doctor familyDoctor = doctorRepository.findById(patientDto.getFamilyDoctorId())
-                                .orElseThrow(() -> new RuntimeException("Family doctor not found"));
-                        existingPatient.setFamilyDoctor(familyDoctor);
-                    }
-                    
-                    return convertToDto(patientRepository.save(existingPatient));
+                    JsonMergePatcher.checkVersion(existingPatient, patientDto.getVersion());
+                    return saveChanges(existingPatient, patientDto);
                 });
     }
     
-    public boolean deletePatient(Long id) {
-        if (patientRepository.existsById(id)) {
-            patientRepository.deleteById(id);
-            return true;
+    // JSON merge patch: only the fields in the patch change, and only their columns are written
+    public Optional<PatientDto> patchPatient(Long id, JsonNode patch) {
+        return patientRepository.findById(id)
+                .map(existingPatient -> {
+                    PatientDto patched = jsonMergePatcher.apply(convertToDto(existingPatient), patch);
+                    JsonMergePatcher.checkVersion(existingPatient, patched.getVersion());
+                    return saveChanges(existingPatient, patched);
+                });
+    }
+    
+    private PatientDto saveChanges(Patient existingPatient, PatientDto patientDto) {
+        Long versionBefore = existingPatient.getVersion();
+        existingPatient.setName(patientDto.getName());
+        existingPatient.setEgn(patientDto.getEgn());
+        existingPatient.setHealthInsurancePaid(patientDto.getHealthInsurancePaid());
+        existingPatient.setLastInsurancePaymentDate(patientDto.getLastInsurancePaymentDate());
+        
+        if (patientDto.getFamilyDoctorId() != null
+                && !patientDto.getFamilyDoctorId().equals(existingPatient.getFamilyDoctor().getId())) {
+            Doctor familyDoctor = referenceData.doctorReference(patientDto.getFamilyDoctorId());
+            doctorRepository.adjustPatientCount(existingPatient.getFamilyDoctor().getId(), -1);
+            doctorRepository.adjustPatientCount(familyDoctor.getId(), 1);
+            existingPatient.setFamilyDoctor(familyDoctor);
         }
-        return false;
+        
+        Patient savedPatient = JsonMergePatcher.flushed(existingPatient,
+                () -> patientRepository.saveAndFlush(existingPatient));
+        // Nothing was written when the version did not move
+        if (!Objects.equals(versionBefore, savedPatient.getVersion())) {
+            domainEventPublisher.updated(EntityType.PATIENT, savedPatient.getId());
+        }
+        return convertToDto(savedPatient);
     }
     
     /**
@@ -103,10 +156,11 @@ public class PatientService {
         dto.setHealthInsurancePaid(patient.getHealthInsurancePaid());
         dto.setLastInsurancePaymentDate(patient.getLastInsurancePaymentDate());
         dto.setHealthInsuranceValid(patient.isHealthInsuranceValid());
+        dto.setVersion(patient.getVersion());
         
         if (patient.getFamilyDoctor() != null) {
             dto.setFamilyDoctorId(patient.getFamilyDoctor().getId());
-            dto.setFamilyDoctorName(patient.getFamilyDoctor().getName());
+            dto.setFamilyDoctorName(referenceData.doctorName(patient.getFamilyDoctor()));
         }
         
         return dto;
@@ -120,9 +174,7 @@ public class PatientService {
         patient.setLastInsurancePaymentDate(dto.getLastInsurancePaymentDate());
         
         if (dto.getFamilyDoctorId() != null) {
-            Doctor familyDoctor = doctorRepository.findById(dto.getFamilyDoctorId())
-                    .orElseThrow(() -> new RuntimeException("Family doctor not found"));
-            patient.setFamilyDoctor(familyDoctor);
+            patient.setFamilyDoctor(referenceData.doctorReference(dto.getFamilyDoctorId()));
         }
         
         return patient;
@@ -0,0 +1,158 @@
+package com.medical.history.service;
+
+import com.medical.history.entity.Diagnosis;
+import com.medical.history.entity.Doctor;
+import com.medical.history.entity.Role;
+import com.medical.history.event.DomainChangeEvent;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.repository.DiagnosisRepository;
+import com.medical.history.repository.DoctorRepository;
+import com.medical.history.repository.RoleRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory id/name maps of the doctors (also by identification number), diagnoses and roles, so write paths can check a
+ * foreign key and assign it without selecting the row. Doctors and diagnoses are handed out as
+ * {@link EntityManager#getReference} proxies; the name helpers read the cached name instead of
+ * initializing them. The maps are loaded on first use and dropped whenever a transaction that
+ * changed a doctor or diagnosis commits. Roles are seed data and never change at runtime.
+ * <p>
+ * Loads run on the primary in a transaction of their own, whatever the caller's: a read-only
+ * caller would otherwise fill the maps from the read replica, which may not have the doctor
+ * whose creation just dropped them yet.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceDataRegistry {
+    
+    private final DoctorRepository doctorRepository;
+    private final DiagnosisRepository diagnosisRepository;
+    private final RoleRepository roleRepository;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+    
+    public Doctor doctorReference(Long id) {
+        // Not cached yet, e.g. created earlier in the current transaction
+        if (!snapshot().doctorNames.containsKey(id) && !doctorRepository.existsById(id)) {
+            throw new ReferenceNotFoundException("Doctor not found: " + id);
+        }
+        return entityManager.getReference(Doctor.class, id);
+    }
+    
+    public Diagnosis diagnosisReference(Long id) {
+        if (!snapshot().diagnosisNames.containsKey(id) && !diagnosisRepository.existsById(id)) {
+            throw new ReferenceNotFoundException("Diagnosis not found: " + id);
+        }
+        return entityManager.getReference(Diagnosis.class, id);
+    }
+    
+    // A detached instance rather than a proxy: roles go into User.roles, a hash set, and hashing a proxy loads it
+    public Role role(Role.RoleName name) {
+        Role role = snapshot().roles.get(name);
+        if (role != null) {
+            return role;
+        }
+        return roleRepository.findByName(name)
+                .orElseThrow(() -> new ReferenceNotFoundException("Role is not found: " + name));
+    }
+    
+    public Optional<Long> doctorIdByIdentificationNumber(String identificationNumber) {
+        return Optional.ofNullable(snapshot().doctorIdsByIdentificationNumber.get(identificationNumber));
+    }
+    
+    public String doctorName(Doctor doctor) {
+        String name = Hibernate.isInitialized(doctor) ? null : snapshot().doctorNames.get(doctor.getId());
+        return name != null ? name : doctor.getName();
+    }
+    
+    public String diagnosisName(Diagnosis diagnosis) {
+        String name = Hibernate.isInitialized(diagnosis) ? null : snapshot().diagnosisNames.get(diagnosis.getId());
+        return name != null ? name : diagnosis.getName();
+    }
+    
+    // For rows read as columns, which carry only the id
+    public String doctorName(Long id) {
+        return doctorName(entityManager.getReference(Doctor.class, id));
+    }
+    
+    public String diagnosisName(Long id) {
+        return diagnosisName(entityManager.getReference(Diagnosis.class, id));
+    }
+    
+    // Loads run in their own transaction and never see uncommitted rows, so a rollback needs no invalidation
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDomainChange(DomainChangeEvent event) {
+        if (event.getEntityType() == EntityType.DOCTOR || event.getEntityType() == EntityType.DIAGNOSIS) {
+            invalidate();
+        }
+    }
+    
+    public synchronized void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+    
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        long loadedGeneration = generation.get();
+        TransactionTemplate primaryRead = new TransactionTemplate(transactionManager);
+        primaryRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Snapshot loaded = primaryRead.execute(status -> load());
+        // Keep it only if nothing changed while loading; otherwise the next call loads again
+        synchronized (this) {
+            if (generation.get() == loadedGeneration) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+    
+    private Snapshot load() {
+        Snapshot loaded = new Snapshot();
+        doctorRepository.findReferenceData().forEach(row -> {
+            loaded.doctorIdsByIdentificationNumber.put((String) row[1], (Long) row[0]);
+            loaded.doctorNames.put((Long) row[0], (String) row[2]);
+        });
+        diagnosisRepository.findReferenceData().forEach(row -> loaded.diagnosisNames.put((Long) row[0], (String) row[1]));
+        // Copies, so the caller's persistence context never shares an instance with other threads
+        roleRepository.findAll().forEach(role -> {
+            Role copy = new Role();
+            copy.setId(role.getId());
+            copy.setName(role.getName());
+            copy.setVersion(role.getVersion());
+            loaded.roles.put(copy.getName(), copy);
+        });
+        log.debug("Loaded reference data: {} doctors, {} diagnoses, {} roles",
+                loaded.doctorNames.size(), loaded.diagnosisNames.size(), loaded.roles.size());
+        return loaded;
+    }
+    
+    private static class Snapshot {
+        private final Map<String, Long> doctorIdsByIdentificationNumber = new HashMap<>();
+        private final Map<Long, String> doctorNames = new HashMap<>();
+        private final Map<Long, String> diagnosisNames = new HashMap<>();
+        private final Map<Role.RoleName, Role> roles = new EnumMap<>(Role.RoleName.class);
+    }
+}
@@ -0,0 +1,13 @@
+package com.medical.history.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// A write referred to a doctor, diagnosis or role that does not exist
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class ReferenceNotFoundException extends RuntimeException {
+    
+    public ReferenceNotFoundException(String message) {
+        super(message);
+    }
+}
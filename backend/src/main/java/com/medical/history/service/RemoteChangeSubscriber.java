@@ -0,0 +1,46 @@
+package com.medical.history.service;
+
+import com.medical.history.entity.OutboxEvent;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.event.OutboxSubscriber;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies the writes committed through other instances to this instance's {@link ReportCache},
+ * {@link TableVersions} and {@link ReferenceDataRegistry}, which otherwise only hear of the
+ * writes made here. They catch up once the outbox relay gets to the event, i.e. after
+ * app.outbox.settle-delay plus up to one app.outbox.relay-interval. Each batch invalidates once
+ * per entity type it touches.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RemoteChangeSubscriber implements OutboxSubscriber {
+
+    private final ReportCache reportCache;
+    private final TableVersions tableVersions;
+    private final ReferenceDataRegistry referenceDataRegistry;
+
+    @Override
+    public boolean perInstance() {
+        return true;
+    }
+
+    @Override
+    public void onEvents(List<OutboxEvent> events) {
+        Set<EntityType> changed = EnumSet.noneOf(EntityType.class);
+        events.forEach(event -> changed.add(event.getEntityType()));
+        changed.forEach(reportCache::invalidate);
+        tableVersions.bump(changed.toArray(EntityType[]::new));
+        if (changed.contains(EntityType.DOCTOR) || changed.contains(EntityType.DIAGNOSIS)) {
+            referenceDataRegistry.invalidate();
+        }
+        log.debug("Applied {} outbox events from other instances to {}", events.size(), changed);
+    }
+}
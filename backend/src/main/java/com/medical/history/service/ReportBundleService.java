@@ -0,0 +1,271 @@
+package com.medical.history.service;
+
+import com.medical.history.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs several ReportsService reports for one request on a bounded pool. Each report runs on
+ * its own worker thread in its own read-only transaction, so a slow or failing report only
+ * affects its own entry in the bundle. The transaction's timeout is what is left of the bundle
+ * timeout, which bounds the report's statements in the database; a report still running at the
+ * deadline is also interrupted.
+ */
+@Service
+@Slf4j
+public class ReportBundleService {
+    
+    private final Map<String, Function<Filters, Object>> reports = new LinkedHashMap<>();
+    private final Set<String> unfilteredReports = new LinkedHashSet<>();
+    private final ThreadPoolTaskExecutor executor;
+    private final PlatformTransactionManager transactionManager;
+    private final AppProperties appProperties;
+    
+    public ReportBundleService(ReportsService reportsService, SickLeaveActivityService sickLeaveActivityService,
+                               PlatformTransactionManager transactionManager, AppProperties appProperties) {
+        this.transactionManager = transactionManager;
+        this.appProperties = appProperties;
+        this.executor = createExecutor(appProperties.getReports());
+        
+        // Names match the /reports/* endpoint paths, and filters are checked as those endpoints check them
+        reports.put("patients-by-diagnosis", f -> reportsService.getPatientsByDiagnosis(f.requireDiagnosisId()));
+        register("most-common-diagnoses", reportsService::getMostCommonDiagnoses);
+        reports.put("patients-by-family-doctor", f -> reportsService.getPatientsByFamilyDoctor(f.requireDoctorId()));
+        register("family-doctor-patient-counts", reportsService::getFamilyDoctorPatientCounts);
+        register("doctor-visit-counts", reportsService::getDoctorVisitCounts);
+        reports.put("visits-by-date-range", f -> reportsService.getVisitsByDateRange(f.requireStartDate(), f.requireEndDate()));
+        reports.put("visits-by-doctor-and-date-range", f -> reportsService.getVisitsByDoctorAndDateRange(
+                f.requireDoctorId(), f.requireStartDate(), f.requireEndDate()));
+        reports.put("visit-heatmap", f -> {
+            f.requireValidRange();
+            return reportsService.getVisitHeatmap(f.getDoctorId(), f.getStartDate(), f.getEndDate());
+        });
+        reports.put("daily-visit-stats", f -> {
+            f.requireDailyStatsWindow();
+            return reportsService.getDailyVisitStats(f.getStartDate(), f.getEndDate(), false);
+        });
+        register("month-most-sick-leaves", reportsService::getMonthWithMostSickLeaves);
+        reports.put("sick-leaves-active-by-day", f -> {
+            f.requireActivityWindow();
+            return sickLeaveActivityService.getActiveByDay(f.getStartDate(), f.getEndDate(), SickLeaveActivityService.GroupBy.NONE);
+        });
+        reports.put("sick-leaves-weekly-peaks", f -> {
+            f.requireActivityWindow();
+            return sickLeaveActivityService.getWeeklyPeaks(f.getStartDate(), f.getEndDate(), SickLeaveActivityService.GroupBy.NONE);
+        });
+        reports.put("sick-leave-absence-days", f -> {
+            f.requireActivityWindow();
+            return sickLeaveActivityService.getAbsenceDays(f.getStartDate(), f.getEndDate(), SickLeaveActivityService.GroupBy.NONE);
+        });
+        register("doctors-most-sick-leaves", reportsService::getDoctorsWithMostSickLeaves);
+        register("sick-leaves-by-month", reportsService::getSickLeavesByMonth);
+        register("dashboard-stats", reportsService::getDashboardStats);
+        register("patients-most-visits", reportsService::getPatientsWithMostVisits);
+        register("insurance-stats", reportsService::getInsuranceStats);
+        register("sick-leaves-detailed-monthly", reportsService::getDetailedSickLeavesByMonth);
+        register("doctors-sick-leaves-detailed", reportsService::getDetailedDoctorSickLeaveStats);
+    }
+    
+    public ReportBundle runBundle(List<String> names, Filters filters) {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + appProperties.getReports().getBundleTimeout().toNanos();
+        
+        Map<String, Future<ReportResult>> pending = new LinkedHashMap<>();
+        for (String name : new LinkedHashSet<>(names)) {
+            Function<Filters, Object> report = reports.get(name);
+            if (report == null) {
+                pending.put(name, CompletableFuture.completedFuture(ReportResult.failed("Unknown report: " + name, 0)));
+                continue;
+            }
+            try {
+                // A FutureTask, unlike a CompletableFuture, interrupts its thread when cancelled
+                pending.put(name, executor.submit(() -> execute(name, report, filters, deadline)));
+            } catch (RejectedExecutionException e) {
+                pending.put(name, CompletableFuture.completedFuture(ReportResult.failed("Report executor is saturated", 0)));
+            }
+        }
+        
+        Map<String, ReportResult> results = new LinkedHashMap<>();
+        pending.forEach((name, future) -> results.put(name, await(future, deadline, startedAt)));
+        
+        return new ReportBundle(results, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+    
+    // Reports that take no filters; these are what the report cache warms by default
+    public Set<String> getUnfilteredReportNames() {
+        return Collections.unmodifiableSet(unfilteredReports);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    private void register(String name, Supplier<Object> report) {
+        reports.put(name, f -> report.get());
+        unfilteredReports.add(name);
+    }
+    
+    private ReportResult execute(String name, Function<Filters, Object> report, Filters filters, long deadline) {
+        long startedAt = System.nanoTime();
+        if (startedAt >= deadline) {
+            return ReportResult.timedOut(0);
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(deadline - startedAt + 999_999_999L)));
+        try {
+            Object data = transaction.execute(status -> report.apply(filters));
+            return ReportResult.ok(data, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        } catch (Exception e) {
+            log.warn("Bundled report {} failed: {}", name, e.getMessage());
+            return ReportResult.failed(e.getMessage(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        }
+    }
+    
+    private ReportResult await(Future<ReportResult> future, long deadline, long startedAt) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return ReportResult.timedOut(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        } catch (ExecutionException e) {
+            return ReportResult.failed(e.getCause().getMessage(), 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ReportResult.failed("Interrupted", 0);
+        }
+    }
+    
+    private static ThreadPoolTaskExecutor createExecutor(AppProperties.Reports properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getBundlePoolSize());
+        executor.setMaxPoolSize(properties.getBundlePoolSize());
+        executor.setQueueCapacity(properties.getBundleQueueCapacity());
+        executor.setThreadNamePrefix("report-");
+        executor.initialize();
+        return executor;
+    }
+    
+    // Shared filters; each report reads only the ones it needs
+    @Data
+    public static class Filters {
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private Long doctorId;
+        private Long diagnosisId;
+        
+        LocalDate requireStartDate() {
+            return require(startDate, "startDate");
+        }
+        
+        LocalDate requireEndDate() {
+            return require(endDate, "endDate");
+        }
+        
+        Long requireDoctorId() {
+            return require(doctorId, "doctorId");
+        }
+        
+        Long requireDiagnosisId() {
+            return require(diagnosisId, "diagnosisId");
+        }
+        
+        void requireValidRange() {
+            check(ReportParameters.isValidRange(startDate, endDate), "endDate must not be before startDate");
+        }
+        
+        void requireActivityWindow() {
+            check(ReportParameters.isValidActivityWindow(requireStartDate(), requireEndDate()),
+                    "startDate to endDate must span at most " + SickLeaveActivityService.MAX_WINDOW_DAYS + " days");
+        }
+        
+        void requireDailyStatsWindow() {
+            check(ReportParameters.isValidDailyStatsWindow(requireStartDate(), requireEndDate(), false),
+                    "startDate to endDate must span at most " + ReportsService.MAX_DAILY_STATS_DAYS + " days");
+        }
+        
+        private static void check(boolean valid, String message) {
+            if (!valid) {
+                throw new IllegalArgumentException(message);
+            }
+        }
+        
+        private static <T> T require(T value, String name) {
+            if (value == null) {
+                throw new IllegalArgumentException(name + " is required for this report");
+            }
+            return value;
+        }
+    }
+    
+    public enum ReportStatus {
+        OK,
+        ERROR,
+        TIMEOUT
+    }
+    
+    @Data
+    public static class ReportResult {
+        private ReportStatus status;
+        private long durationMillis;
+        private Object data;
+        private String error;
+        
+        static ReportResult ok(Object data, long durationMillis) {
+            ReportResult result = new ReportResult();
+            result.setStatus(ReportStatus.OK);
+            result.setData(data);
+            result.setDurationMillis(durationMillis);
+            return result;
+        }
+        
+        static ReportResult failed(String error, long durationMillis) {
+            ReportResult result = new ReportResult();
+            result.setStatus(ReportStatus.ERROR);
+            result.setError(error);
+            result.setDurationMillis(durationMillis);
+            return result;
+        }
+        
+        static ReportResult timedOut(long durationMillis) {
+            ReportResult result = new ReportResult();
+            result.setStatus(ReportStatus.TIMEOUT);
+            result.setError("Report did not finish in time");
+            result.setDurationMillis(durationMillis);
+            return result;
+        }
+    }
+    
+    @Data
+    public static class ReportBundle {
+        private Map<String, ReportResult> reports;
+        private long totalMillis;
+        
+        public ReportBundle(Map<String, ReportResult> reports, long totalMillis) {
+            this.reports = reports;
+            this.totalMillis = totalMillis;
+        }
+    }
+}
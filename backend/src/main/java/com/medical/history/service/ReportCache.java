@@ -0,0 +1,309 @@
+package com.medical.history.service;
+
+import com.medical.history.config.AppProperties;
+import com.medical.history.config.ReplicaRoutingDataSource;
+import com.medical.history.event.DomainChangeEvent;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of report results keyed by report name and parameters.
+ * Entries expire after the configured TTL and the least recently used ones are evicted
+ * once the total weight (roughly the number of rows held) exceeds the limit.
+ * Each entry records the entity types its report reads and is dropped as soon as a
+ * committed write to one of those types is announced by a {@link DomainChangeEvent}, or, for
+ * a write through another instance, by {@link RemoteChangeSubscriber} a few seconds later.
+ * A result the loader read from the read replica is returned but not stored: it may predate
+ * a write whose invalidation has already happened on the primary.
+ */
+@Component
+public class ReportCache {
+
+    private final AppProperties.Reports properties;
+    // Null without a read replica
+    private final ReplicaRoutingDataSource replicaRouting;
+    private final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // Bumped on every invalidation, so a result computed across a concurrent write is not stored
+    private final Map<EntityType, Long> generations = new EnumMap<>(EntityType.class);
+    private long totalWeight;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Map<EvictionCause, Counter> evictions = new EnumMap<>(EvictionCause.class);
+
+    public ReportCache(AppProperties appProperties, MeterRegistry meterRegistry,
+                       ObjectProvider<ReplicaRoutingDataSource> replicaRouting) {
+        this.properties = appProperties.getReports();
+        this.replicaRouting = replicaRouting.getIfAvailable();
+        for (EntityType type : EntityType.values()) {
+            generations.put(type, 0L);
+        }
+
+        this.hits = Counter.builder("reports.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("reports.cache.requests").tag("result", "miss").register(meterRegistry);
+        for (EvictionCause cause : EvictionCause.values()) {
+            evictions.put(cause, Counter.builder("reports.cache.evictions")
+                    .tag("cause", cause.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("reports.cache.entries", this, cache -> cache.size()).register(meterRegistry);
+        Gauge.builder("reports.cache.weight", this, cache -> cache.weight()).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached result for the report and parameters, or runs the loader and caches
+     * what it returns. The loader runs outside the cache lock; two concurrent misses for the
+     * same key may both compute the report.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String report, List<?> params, Set<EntityType> dependsOn, Supplier<T> loader) {
+        if (!properties.isCacheEnabled()) {
+            return loader.get();
+        }
+
+        CacheKey key = keyOf(report, params);
+        Map<EntityType, Long> generationsAtStart;
+        synchronized (this) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.isExpired()) {
+                    entry.hits++;
+                    hits.increment();
+                    return (T) entry.value;
+                }
+                remove(key, EvictionCause.EXPIRED);
+            }
+            generationsAtStart = new EnumMap<>(generations);
+        }
+        misses.increment();
+
+        T value = loader.get();
+        if (replicaRouting != null && replicaRouting.isReadingFromReplica()) {
+            return value;
+        }
+        long weight = weigh(value);
+
+        synchronized (this) {
+            boolean invalidatedMeanwhile = dependsOn.stream()
+                    .anyMatch(type -> !generations.get(type).equals(generationsAtStart.get(type)));
+            if (!invalidatedMeanwhile && weight <= properties.getCacheMaxWeight()) {
+                CacheEntry previous = entries.put(key, new CacheEntry(value, weight, dependsOn, properties.getCacheTtl()));
+                if (previous != null) {
+                    totalWeight -= previous.weight;
+                }
+                totalWeight += weight;
+                evictToFit();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached result if there is a live entry for the report and parameters, without
+     * loading anything on a miss. Lets callers derive a cheaper view from a wider cached result.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T getIfPresent(String report, List<?> params) {
+        if (!properties.isCacheEnabled()) {
+            return null;
+        }
+        CacheEntry entry = entries.get(keyOf(report, params));
+        if (entry == null || entry.isExpired()) {
+            return null;
+        }
+        entry.hits++;
+        hits.increment();
+        return (T) entry.value;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDomainChange(DomainChangeEvent event) {
+        invalidate(event.getEntityType());
+    }
+
+    public synchronized int invalidate(EntityType entityType) {
+        generations.merge(entityType, 1L, Long::sum);
+        return removeIf(entry -> entry.dependsOn.contains(entityType), EvictionCause.INVALIDATED);
+    }
+
+    public synchronized int evict(String report) {
+        return removeMatching(key -> key.report().equals(report));
+    }
+
+    public synchronized int evictAll() {
+        return removeMatching(key -> true);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    public synchronized CacheStats getStats() {
+        CacheStats stats = new CacheStats();
+        stats.setEnabled(properties.isCacheEnabled());
+        stats.setSize(entries.size());
+        stats.setWeight(totalWeight);
+        stats.setMaxWeight(properties.getCacheMaxWeight());
+        stats.setTtlSeconds(properties.getCacheTtl().toSeconds());
+        stats.setHits((long) hits.count());
+        stats.setMisses((long) misses.count());
+        Map<String, Long> evicted = new LinkedHashMap<>();
+        evictions.forEach((cause, counter) -> evicted.put(cause.name().toLowerCase(), (long) counter.count()));
+        stats.setEvictions(evicted);
+
+        // Least recently used first, the order entries would be evicted in
+        List<EntrySummary> summaries = new ArrayList<>();
+        long now = System.nanoTime();
+        entries.forEach((key, entry) -> {
+            EntrySummary summary = new EntrySummary();
+            summary.setReport(key.report());
+            summary.setParams(key.params());
+            summary.setWeight(entry.weight);
+            summary.setHits(entry.hits);
+            summary.setDependsOn(entry.dependsOn);
+            summary.setAgeSeconds(Duration.ofNanos(now - entry.createdAt).toSeconds());
+            summary.setExpiresInSeconds(Duration.ofNanos(entry.expiresAt - now).toSeconds());
+            summaries.add(summary);
+        });
+        stats.setEntries(summaries);
+        return stats;
+    }
+
+    private int removeMatching(Predicate<CacheKey> predicate) {
+        int removed = 0;
+        Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<CacheKey, CacheEntry> mapEntry = iterator.next();
+            if (predicate.test(mapEntry.getKey())) {
+                totalWeight -= mapEntry.getValue().weight;
+                iterator.remove();
+                evictions.get(EvictionCause.MANUAL).increment();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private int removeIf(Predicate<CacheEntry> predicate, EvictionCause cause) {
+        int removed = 0;
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            CacheEntry entry = iterator.next();
+            if (predicate.test(entry)) {
+                totalWeight -= entry.weight;
+                iterator.remove();
+                evictions.get(cause).increment();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private void remove(CacheKey key, EvictionCause cause) {
+        CacheEntry removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+            evictions.get(cause).increment();
+        }
+    }
+
+    private void evictToFit() {
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while (totalWeight > properties.getCacheMaxWeight() && iterator.hasNext()) {
+            CacheEntry eldest = iterator.next();
+            totalWeight -= eldest.weight;
+            iterator.remove();
+            evictions.get(EvictionCause.SIZE).increment();
+        }
+    }
+
+    private static CacheKey keyOf(String report, List<?> params) {
+        return new CacheKey(report, Collections.unmodifiableList(new ArrayList<>(params)));
+    }
+
+    private static long weigh(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return collection.size() + 1L;
+        }
+        return 1L;
+    }
+
+    private enum EvictionCause {
+        EXPIRED,
+        SIZE,
+        INVALIDATED,
+        MANUAL
+    }
+
+    private record CacheKey(String report, List<?> params) {
+    }
+
+    private static class CacheEntry {
+        private final Object value;
+        private final long weight;
+        private final Set<EntityType> dependsOn;
+        private final long createdAt;
+        private final long expiresAt;
+        private long hits;
+
+        CacheEntry(Object value, long weight, Set<EntityType> dependsOn, Duration ttl) {
+            this.value = value;
+            this.weight = weight;
+            this.dependsOn = dependsOn;
+            this.createdAt = System.nanoTime();
+            this.expiresAt = createdAt + ttl.toNanos();
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+    }
+
+    @Data
+    public static class CacheStats {
+        private boolean enabled;
+        private int size;
+        private long weight;
+        private long maxWeight;
+        private long ttlSeconds;
+        private long hits;
+        private long misses;
+        private Map<String, Long> evictions;
+        private List<EntrySummary> entries;
+    }
+
+    @Data
+    public static class EntrySummary {
+        private String report;
+        private List<?> params;
+        private long weight;
+        private long hits;
+        private Set<EntityType> dependsOn;
+        private long ageSeconds;
+        private long expiresInSeconds;
+    }
+}
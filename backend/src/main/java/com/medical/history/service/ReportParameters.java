@@ -0,0 +1,37 @@
+package com.medical.history.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Checks on report parameters, shared by ReportsController and ReportBundleService so a report
+ * accepts the same input whether it is requested on its own or in a bundle.
+ */
+public final class ReportParameters {
+    
+    private ReportParameters() {
+    }
+    
+    // Either end may be open; only two given dates can be out of order
+    public static boolean isValidRange(LocalDate from, LocalDate to) {
+        return from == null || to == null || !to.isBefore(from);
+    }
+    
+    public static boolean isValidActivityWindow(LocalDate startDate, LocalDate endDate) {
+        return isWithin(startDate, endDate, SickLeaveActivityService.MAX_WINDOW_DAYS);
+    }
+    
+    public static boolean isValidDailyStatsWindow(LocalDate startDate, LocalDate endDate, boolean approximate) {
+        return isWithin(startDate, endDate,
+                approximate ? ReportsService.MAX_APPROXIMATE_DAILY_STATS_DAYS : ReportsService.MAX_DAILY_STATS_DAYS);
+    }
+    
+    // Ranking limits are optional; a given one asks for at least one row
+    public static boolean isValidLimit(Integer limit) {
+        return limit == null || limit >= 1;
+    }
+    
+    private static boolean isWithin(LocalDate startDate, LocalDate endDate, int maxDays) {
+        return !endDate.isBefore(startDate) && ChronoUnit.DAYS.between(startDate, endDate) < maxDays;
+    }
+}
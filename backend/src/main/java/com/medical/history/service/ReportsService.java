@@ -1,5 +1,6 @@
 package com.medical.history.service;
 
+import com.medical.history.config.AppProperties;
 import com.medical.history.dto.DiagnosisDto;
 import com.medical.history.dto.DoctorDto;
 import com.medical.history.dto.MedicalVisitDto;
@@ -7,218 +8,430 @@ import com.medical.history.dto.PatientDto;
 import com.medical.history.entity.Diagnosis;
 import com.medical.history.entity.Doctor;
 import com.medical.history.entity.Patient;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.repository.ArchivedMedicalVisitRepository;
+import com.medical.history.repository.ArchivedSickLeaveRepository;
+import com.medical.history.repository.DailyPatientSketchRepository;
+import com.medical.history.repository.DailySickLeaveRollupRepository;
+import com.medical.history.repository.DailyVisitRollupRepository;
 import com.medical.history.repository.DoctorRepository;
+import com.medical.history.repository.HourlyVisitRollupRepository;
 import com.medical.history.repository.MedicalVisitRepository;
 import com.medical.history.repository.PatientRepository;
 import com.medical.history.repository.SickLeaveRepository;
+import jakarta.persistence.EntityManager;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class ReportsService {
     
+    // Longest range of the exact daily visit statistics, which run COUNT(DISTINCT) over the visits
+    public static final int MAX_DAILY_STATS_DAYS = 366;
+    // The approximate mode only merges roll-up sketches, so it gets the activity reports' ten years
+    public static final int MAX_APPROXIMATE_DAILY_STATS_DAYS = SickLeaveActivityService.MAX_WINDOW_DAYS;
+    
+    // Entity types each cached report reads; a committed write to any of them drops the entry.
+    // Deleting a patient, doctor or diagnosis also announces the visits and sick leaves it cascaded to.
+    // ReportsController builds the reports' ETags from the same sets.
+    public static final Set<EntityType> PATIENTS = EnumSet.of(EntityType.PATIENT, EntityType.DOCTOR);
+    public static final Set<EntityType> VISITS = EnumSet.of(EntityType.MEDICAL_VISIT, EntityType.DOCTOR);
+    public static final Set<EntityType> VISITS_AND_DIAGNOSES = EnumSet.of(EntityType.MEDICAL_VISIT, EntityType.DIAGNOSIS);
+    public static final Set<EntityType> PATIENTS_AND_VISITS =
+            EnumSet.of(EntityType.PATIENT, EntityType.DOCTOR, EntityType.MEDICAL_VISIT);
+    public static final Set<EntityType> VISIT_LISTS =
+            EnumSet.of(EntityType.MEDICAL_VISIT, EntityType.PATIENT, EntityType.DOCTOR, EntityType.DIAGNOSIS);
+    public static final Set<EntityType> SICK_LEAVES =
+            EnumSet.of(EntityType.SICK_LEAVE, EntityType.MEDICAL_VISIT, EntityType.DOCTOR);
+    public static final Set<EntityType> INSURANCE = EnumSet.of(EntityType.PATIENT);
+    public static final Set<EntityType> ALL_ENTITIES = EnumSet.allOf(EntityType.class);
+    
+    // Ranking orders, matching the ORDER BY of the top-K repository queries
+    private static final Comparator<DiagnosisReport> DIAGNOSIS_ORDER =
+            Comparator.comparingInt(DiagnosisReport::getPatientCount).reversed()
+                    .thenComparing(report -> report.getDiagnosis().getId());
+    private static final Comparator<DoctorVisitCountReport> DOCTOR_VISIT_ORDER =
+            Comparator.comparingInt(DoctorVisitCountReport::getVisitCount).reversed()
+                    .thenComparing(report -> report.getDoctor().getId());
+    private static final Comparator<DoctorSickLeaveReport> DOCTOR_SICK_LEAVE_ORDER =
+            Comparator.comparingInt(DoctorSickLeaveReport::getSickLeaveCount).reversed()
+                    .thenComparing(report -> report.getDoctor().getId());
+    private static final Comparator<DoctorSickLeaveDetailedReport> DOCTOR_SICK_LEAVE_DETAILED_ORDER =
+            Comparator.comparingInt(DoctorSickLeaveDetailedReport::getSickLeaveCount).reversed()
+                    .thenComparing(report -> report.getDoctor().getId());
+    
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
     private final MedicalVisitRepository medicalVisitRepository;
     private final SickLeaveRepository sickLeaveRepository;
+    private final ArchivedMedicalVisitRepository archivedVisitRepository;
+    private final ArchivedSickLeaveRepository archivedSickLeaveRepository;
+    private final VisitArchiveService visitArchiveService;
+    private final DailyVisitRollupRepository visitRollupRepository;
+    private final DailySickLeaveRollupRepository sickLeaveRollupRepository;
+    private final DailyPatientSketchRepository sketchRepository;
+    private final HourlyVisitRollupRepository hourlyRollupRepository;
     private final PatientService patientService;
     private final MedicalVisitService medicalVisitService;
+    private final ReportCache reportCache;
+    private final AppProperties appProperties;
+    private final EntityManager entityManager;
     
     // 3a. Списък с пациенти, с дадена диагноза
     public List<PatientDto> getPatientsByDiagnosis(Long diagnosisId) {
-        List<Patient> patients = patientRepository.findByDiagnosisId(diagnosisId);
-        return patients.stream()
-                .map(this::convertPatientToDto)
-                .collect(Collectors.toList());
+        return reportCache.get("patients-by-diagnosis", List.of(diagnosisId), PATIENTS_AND_VISITS, () ->
+                (visitArchiveService.hasArchive()
+                        ? patientRepository.findByDiagnosisIdWithArchive(diagnosisId)
+                        : patientRepository.findByDiagnosisId(diagnosisId)).stream()
+                        .map(this::convertPatientToDto)
+                        .collect(Collectors.toList()));
+    }
+    
+    // The stream* methods hand each row to the consumer as it comes off a forward-only cursor, for
+    // the exports; they bypass the cache, which only ever holds whole lists
+    public void streamPatientsByDiagnosis(Long diagnosisId, Consumer<PatientDto> consumer) {
+        streamPatients(visitArchiveService.hasArchive()
+                ? patientRepository.streamByDiagnosisIdWithArchive(diagnosisId)
+                : patientRepository.streamByDiagnosisId(diagnosisId), consumer);
     }
     
     // 3b. Най-често диагностицирани диагнози
     public List<DiagnosisReport> getMostCommonDiagnoses() {
-        List<Object[]> results = medicalVisitRepository.findDiagnosisCountReport();
-        return results.stream()
-                .map(result -> {
+        return getMostCommonDiagnoses(null, null, null);
+    }
+    
+    public List<DiagnosisReport> getMostCommonDiagnoses(LocalDate from, LocalDate to, Integer limit) {
+        return ranking("most-common-diagnoses", from, to, limit, VISITS_AND_DIAGNOSES, DIAGNOSIS_ORDER,
+                () -> visitRollupRepository.findDiagnosisCounts(from, to),
+                top -> visitRollupRepository.findTopDiagnosisCounts(from, to, top),
+                result -> {
                     Diagnosis diagnosis = (Diagnosis) result[0];
-                    Long count = (Long) result[1];
+                    Long count = ((Number) result[1]).longValue();
                     DiagnosisReport report = new DiagnosisReport();
                     report.setDiagnosis(convertDiagnosisToDto(diagnosis));
                     report.setPatientCount(count.intValue());
                     return report;
-                })
-                .collect(Collectors.toList());
+                });
     }
     
     // 3c. Списък с пациенти, които имат даден личен лекар
     public List<PatientDto> getPatientsByFamilyDoctor(Long doctorId) {
-        return patientService.getPatientsByFamilyDoctor(doctorId);
+        return reportCache.get("patients-by-family-doctor", List.of(doctorId), PATIENTS,
+                () -> patientService.getPatientsByFamilyDoctor(doctorId));
+    }
+    
+    public void streamPatientsByFamilyDoctor(Long doctorId, Consumer<PatientDto> consumer) {
+        streamPatients(patientRepository.streamByFamilyDoctorId(doctorId), consumer);
     }
     
     // 3d. Брой на пациентите, записани при всеки от личните лекари
     public List<DoctorPatientCountReport> getFamilyDoctorPatientCounts() {
-        List<Object[]> results = patientRepository.findFamilyDoctorPatientCounts();
-        return results.stream()
-                .map(result -> {
-                    Doctor doctor = (Doctor) result[0];
-                    Long count = (Long) result[1];
-                    DoctorPatientCountReport report = new DoctorPatientCountReport();
-                    report.setDoctor(convertDoctorToDto(doctor));
-                    report.setPatientCount(count.intValue());
-                    return report;
-                })
-                .collect(Collectors.toList());
+        return reportCache.get("family-doctor-patient-counts", List.of(), PATIENTS, () ->
+                patientRepository.findFamilyDoctorPatientCounts().stream()
+                        .map(result -> {
+                            Doctor doctor = (Doctor) result[0];
+                            Long count = (Long) result[1];
+                            DoctorPatientCountReport report = new DoctorPatientCountReport();
+                            report.setDoctor(convertDoctorToDto(doctor));
+                            report.setPatientCount(count.intValue());
+                            return report;
+                        })
+                        .collect(Collectors.toList()));
     }
     
     // 3e. Брой посещения при всеки от лекарите
     public List<DoctorVisitCountReport> getDoctorVisitCounts() {
-        List<Object[]> results = medicalVisitRepository.findDoctorVisitCounts();
-        return results.stream()
-                .map(result -> {
+        return getDoctorVisitCounts(null, null, null);
+    }
+    
+    public List<DoctorVisitCountReport> getDoctorVisitCounts(LocalDate from, LocalDate to, Integer limit) {
+        return ranking("doctor-visit-counts", from, to, limit, VISITS, DOCTOR_VISIT_ORDER,
+                () -> visitRollupRepository.findDoctorVisitCounts(from, to),
+                top -> visitRollupRepository.findTopDoctorVisitCounts(from, to, top),
+                result -> {
                     Doctor doctor = (Doctor) result[0];
-                    Long count = (Long) result[1];
+                    Long count = ((Number) result[1]).longValue();
                     DoctorVisitCountReport report = new DoctorVisitCountReport();
                     report.setDoctor(convertDoctorToDto(doctor));
                     report.setVisitCount(count.intValue());
                     return report;
-                })
-                .collect(Collectors.toList());
+                });
     }
     
     // 3g. Списък на прегледите при всички лекари в даден период
     public List<MedicalVisitDto> getVisitsByDateRange(LocalDate startDate, LocalDate endDate) {
-        return medicalVisitService.getMedicalVisitsByDateRange(startDate, endDate);
+        return reportCache.get("visits-by-date-range", List.of(startDate, endDate), VISIT_LISTS,
+                () -> medicalVisitService.getMedicalVisitsByDateRange(startDate, endDate));
+    }
+    
+    public void streamVisitsByDateRange(LocalDate startDate, LocalDate endDate, Consumer<MedicalVisitDto> consumer) {
+        medicalVisitService.streamMedicalVisitsByDateRange(startDate, endDate, consumer);
     }
     
     // 3h. Списък на прегледите при определен лекар за даден период
     public List<MedicalVisitDto> getVisitsByDoctorAndDateRange(Long doctorId, LocalDate startDate, LocalDate endDate) {
-        return medicalVisitService.getMedicalVisitsByDoctorAndDateRange(doctorId, startDate, endDate);
+        return reportCache.get("visits-by-doctor-and-date-range", List.of(doctorId, startDate, endDate), VISIT_LISTS,
+                () -> medicalVisitService.getMedicalVisitsByDoctorAndDateRange(doctorId, startDate, endDate));
+    }
+    
+    public void streamVisitsByDoctorAndDateRange(Long doctorId, LocalDate startDate, LocalDate endDate,
+                                                 Consumer<MedicalVisitDto> consumer) {
+        medicalVisitService.streamMedicalVisitsByDoctorAndDateRange(doctorId, startDate, endDate, consumer);
     }
     
     // 3i. Месец в годината, в който са издадени най-много болнични
     public MonthlyReport getMonthWithMostSickLeaves() {
-        List<Object[]> results = sickLeaveRepository.findSickLeaveCountsByMonth();
-        if (results.isEmpty()) {
-            return new MonthlyReport(0, 0, 0);
-        }
-        
-        Object[] maxResult = results.get(0); // Assuming query orders by count DESC
-        Integer month = (Integer) maxResult[0];
-        Integer year = (Integer) maxResult[1];
-        Long count = (Long) maxResult[2];
-        
-        return new MonthlyReport(month, year, count.intValue());
+        return reportCache.get("month-most-sick-leaves", List.of(), SICK_LEAVES, () -> {
+            List<Object[]> results = sickLeaveRollupRepository.findSickLeaveCountsByMonth();
+            if (results.isEmpty()) {
+                return new MonthlyReport(0, 0, 0);
+            }
+            
+            Object[] maxResult = results.get(0); // Assuming query orders by count DESC
+            Integer month = (Integer) maxResult[0];
+            Integer year = (Integer) maxResult[1];
+            Long count = ((Number) maxResult[2]).longValue();
+            
+            return new MonthlyReport(month, year, count.intValue());
+        });
     }
     
     // 3j. Лекар/лекари, които са издали най-много болнични
     public List<DoctorSickLeaveReport> getDoctorsWithMostSickLeaves() {
-        List<Object[]> results = sickLeaveRepository.findDoctorSickLeaveCounts();
-        return results.stream()
-                .map(result -> {
+        return getDoctorsWithMostSickLeaves(null, null, null);
+    }
+    
+    public List<DoctorSickLeaveReport> getDoctorsWithMostSickLeaves(LocalDate from, LocalDate to, Integer limit) {
+        return ranking("doctors-most-sick-leaves", from, to, limit, SICK_LEAVES, DOCTOR_SICK_LEAVE_ORDER,
+                () -> sickLeaveRollupRepository.findDoctorSickLeaveStatistics(from, to),
+                top -> sickLeaveRollupRepository.findTopDoctorSickLeaveStatistics(from, to, top),
+                result -> {
                     Doctor doctor = (Doctor) result[0];
-                    Long count = (Long) result[1];
+                    Long count = ((Number) result[1]).longValue();
                     DoctorSickLeaveReport report = new DoctorSickLeaveReport();
                     report.setDoctor(convertDoctorToDto(doctor));
                     report.setSickLeaveCount(count.intValue());
                     return report;
-                })
-                .collect(Collectors.toList());
+                });
     }
     
     // Additional reports
     public List<MonthlyReport> getSickLeavesByMonth() {
-        List<Object[]> results = sickLeaveRepository.findSickLeaveCountsByMonth();
-        return results.stream()
-                .map(result -> {
-                    Integer month = (Integer) result[0];
-                    Integer year = (Integer) result[1];
-                    Long count = (Long) result[2];
-                    return new MonthlyReport(month, year, count.intValue());
-                })
-                .collect(Collectors.toList());
+        return reportCache.get("sick-leaves-by-month", List.of(), SICK_LEAVES, () ->
+                sickLeaveRollupRepository.findSickLeaveCountsByMonth().stream()
+                        .map(result -> {
+                            Integer month = (Integer) result[0];
+                            Integer year = (Integer) result[1];
+                            Long count = ((Number) result[2]).longValue();
+                            return new MonthlyReport(month, year, count.intValue());
+                        })
+                        .collect(Collectors.toList()));
     }
     
     public DashboardStats getDashboardStats() {
-        long totalDoctors = doctorRepository.count();
-        long totalPatients = patientRepository.count();
-        long totalVisits = medicalVisitRepository.count();
-        long totalSickLeaves = sickLeaveRepository.count();
+        return reportCache.get("dashboard-stats", List.of(), ALL_ENTITIES, () -> {
+            long totalDoctors = doctorRepository.count();
+            long totalPatients = patientRepository.count();
+            long totalVisits = medicalVisitRepository.count();
+            long totalSickLeaves = sickLeaveRepository.count();
+            if (visitArchiveService.hasArchive()) {
+                totalVisits += archivedVisitRepository.count();
+                totalSickLeaves += archivedSickLeaveRepository.count();
+            }
+            
+            return new DashboardStats(
+                    (int) totalDoctors,
+                    (int) totalPatients,
+                    (int) totalVisits,
+                    (int) totalSickLeaves
+            );
+        });
+    }
+    
+    /**
+     * Per-day visit counts with distinct patients and doctors for every day in the range,
+     * including days without visits. The exact mode runs COUNT(DISTINCT) over the visits,
+     * archived ones included when the range reaches into the archive.
+     * The approximate mode reads the daily roll-ups and merges the patient sketches kept per day and doctor,
+     * so the range-wide distinct patient count never rescans medical_visits.
+     */
+    public DailyVisitStatsReport getDailyVisitStats(LocalDate startDate, LocalDate endDate, boolean approximate) {
+        return reportCache.get("daily-visit-stats", List.of(startDate, endDate, approximate), VISITS, () ->
+                approximate ? approximateDailyVisitStats(startDate, endDate) : exactDailyVisitStats(startDate, endDate));
+    }
+    
+    private DailyVisitStatsReport exactDailyVisitStats(LocalDate startDate, LocalDate endDate) {
+        boolean readArchive = visitArchiveService.visitsReach(startDate);
+        Map<LocalDate, DailyVisitStats> byDate = new HashMap<>();
+        (readArchive
+                ? medicalVisitRepository.findVisitStatsByDateRangeWithArchive(startDate, endDate)
+                : medicalVisitRepository.findVisitStatsByDateRange(startDate, endDate)).forEach(result -> byDate.put(
+                (LocalDate) result[0],
+                new DailyVisitStats((LocalDate) result[0], ((Number) result[1]).longValue(),
+                        ((Number) result[2]).longValue(), ((Number) result[3]).longValue())));
+        
+        Object[] totals = (readArchive
+                ? medicalVisitRepository.findVisitTotalsByDateRangeWithArchive(startDate, endDate)
+                : medicalVisitRepository.findVisitTotalsByDateRange(startDate, endDate)).get(0);
+        return new DailyVisitStatsReport(startDate, endDate, false,
+                ((Number) totals[0]).longValue(), ((Number) totals[1]).longValue(), ((Number) totals[2]).longValue(),
+                gapFilled(startDate, endDate, byDate));
+    }
+    
+    private DailyVisitStatsReport approximateDailyVisitStats(LocalDate startDate, LocalDate endDate) {
+        // Each day's per-doctor sketches merge into one, and the days into the range's
+        Map<LocalDate, HyperLogLog> sketchesByDate = new HashMap<>();
+        try (Stream<Object[]> rows = sketchRepository.streamRegistersByVisitDateBetween(startDate, endDate)) {
+            rows.forEach(row -> sketchesByDate.computeIfAbsent((LocalDate) row[0], date -> new HyperLogLog())
+                    .merge(HyperLogLog.fromBytes((byte[]) row[1])));
+        }
+        Map<LocalDate, Long> patientsByDate = new HashMap<>();
+        HyperLogLog rangeSketch = new HyperLogLog();
+        sketchesByDate.forEach((date, daySketch) -> {
+            patientsByDate.put(date, daySketch.estimate());
+            rangeSketch.merge(daySketch);
+        });
+        
+        Map<LocalDate, DailyVisitStats> byDate = new HashMap<>();
+        long totalVisits = 0;
+        for (Object[] result : visitRollupRepository.findDailyTotals(startDate, endDate)) {
+            LocalDate date = (LocalDate) result[0];
+            long visits = ((Number) result[1]).longValue();
+            totalVisits += visits;
+            // An estimate can overshoot; a day never has more distinct patients than visits
+            long patients = Math.min(patientsByDate.getOrDefault(date, 0L), visits);
+            byDate.put(date, new DailyVisitStats(date, visits, patients, ((Number) result[2]).longValue()));
+        }
         
-        return new DashboardStats(
-                (int) totalDoctors,
-                (int) totalPatients,
-                (int) totalVisits,
-                (int) totalSickLeaves
-        );
+        return new DailyVisitStatsReport(startDate, endDate, true,
+                totalVisits, Math.min(rangeSketch.estimate(), totalVisits),
+                visitRollupRepository.countDistinctDoctors(startDate, endDate),
+                gapFilled(startDate, endDate, byDate));
+    }
+    
+    private static List<DailyVisitStats> gapFilled(LocalDate startDate, LocalDate endDate, Map<LocalDate, DailyVisitStats> byDate) {
+        return startDate.datesUntil(endDate.plusDays(1))
+                .map(date -> byDate.getOrDefault(date, new DailyVisitStats(date, 0, 0, 0)))
+                .collect(Collectors.toList());
+    }
+    
+    // Weekday x hour visit counts from the hourly roll-up, optionally for one doctor and a date window
+    public VisitHeatmap getVisitHeatmap(Long doctorId, LocalDate from, LocalDate to) {
+        return reportCache.get("visit-heatmap", Arrays.asList(doctorId, from, to), VISITS, () -> {
+            VisitHeatmap heatmap = new VisitHeatmap(doctorId, from, to);
+            LocalDate windowFrom = from != null ? from : HourlyVisitRollupRepository.OPEN_FROM;
+            LocalDate windowTo = to != null ? to : HourlyVisitRollupRepository.OPEN_TO;
+            List<Object[]> results = doctorId != null
+                    ? hourlyRollupRepository.findDoctorWeekdayHourCounts(doctorId, windowFrom, windowTo)
+                    : hourlyRollupRepository.findWeekdayHourCounts(windowFrom, windowTo);
+            for (Object[] result : results) {
+                int dayOfWeek = ((Number) result[0]).intValue();
+                int hour = ((Number) result[1]).intValue();
+                long count = ((Number) result[2]).longValue();
+                heatmap.getCounts()[dayOfWeek - 1][hour] = count;
+                heatmap.setTotalVisits(heatmap.getTotalVisits() + count);
+                if (count > heatmap.getPeakCount()) {
+                    heatmap.setPeakCount(count);
+                    heatmap.setPeakDay(DayOfWeek.of(dayOfWeek));
+                    heatmap.setPeakHour(hour);
+                }
+            }
+            return heatmap;
+        });
     }
     
     // Get patients with most visits
     public List<PatientVisitReport> getPatientsWithMostVisits() {
-        List<Object[]> results = patientRepository.findPatientsWithMostVisits();
-        return results.stream()
-                .map(result -> {
-                    Patient patient = (Patient) result[0];
-                    Long visitCount = (Long) result[1];
-                    PatientVisitReport report = new PatientVisitReport();
-                    report.setPatient(convertPatientToDto(patient));
-                    report.setVisitCount(visitCount.intValue());
-                    return report;
-                })
-                .collect(Collectors.toList());
+        return reportCache.get("patients-most-visits", List.of(), PATIENTS_AND_VISITS, () ->
+                (visitArchiveService.hasArchive()
+                        ? patientRepository.findPatientsWithMostVisitsWithArchive()
+                        : patientRepository.findPatientsWithMostVisits()).stream()
+                        .map(result -> {
+                            Patient patient = (Patient) result[0];
+                            Long visitCount = ((Number) result[2]).longValue();
+                            PatientVisitReport report = new PatientVisitReport();
+                            report.setPatient(convertPatientToDto(patient));
+                            report.setVisitCount(visitCount.intValue());
+                            return report;
+                        })
+                        .collect(Collectors.toList()));
     }
     
     // Get insurance payment statistics
     public InsuranceStats getInsuranceStats() {
-        long paidCount = patientRepository.countPatientsWithPaidInsurance();
-        long unpaidCount = patientRepository.countPatientsWithUnpaidInsurance();
-        long totalPatients = patientRepository.count();
-        
-        double paymentRate = totalPatients > 0 ? (double) paidCount / totalPatients * 100 : 0;
-        
-        return new InsuranceStats(
-                (int) paidCount,
-                (int) unpaidCount,
-                Math.round(paymentRate * 100.0) / 100.0
-        );
+        return reportCache.get("insurance-stats", List.of(), INSURANCE, () -> {
+            long paidCount = patientRepository.countPatientsWithPaidInsurance();
+            long unpaidCount = patientRepository.countPatientsWithUnpaidInsurance();
+            long totalPatients = patientRepository.count();
+            
+            double paymentRate = totalPatients > 0 ? (double) paidCount / totalPatients * 100 : 0;
+            
+            return new InsuranceStats(
+                    (int) paidCount,
+                    (int) unpaidCount,
+                    Math.round(paymentRate * 100.0) / 100.0
+            );
+        });
     }
     
     // Get detailed sick leave statistics with actual days
     public List<SickLeaveDetailedReport> getDetailedSickLeavesByMonth() {
-        List<Object[]> results = sickLeaveRepository.findSickLeaveMonthlyStatistics();
-        return results.stream()
-                .map(result -> {
-                    Integer month = (Integer) result[0];
-                    Integer year = (Integer) result[1];
-                    Long count = (Long) result[2];
-                    Long totalDays = result[3] != null ? ((Number) result[3]).longValue() : 0L;
-                    Double avgDays = result[4] != null ? ((Number) result[4]).doubleValue() : 0.0;
+        return reportCache.get("sick-leaves-detailed-monthly", List.of(), SICK_LEAVES, () ->
+                sickLeaveRollupRepository.findSickLeaveMonthlyStatistics().stream()
+                        .map(result -> {
+                            Integer month = (Integer) result[0];
+                            Integer year = (Integer) result[1];
+                            Long count = ((Number) result[2]).longValue();
+                            Long totalDays = result[3] != null ? ((Number) result[3]).longValue() : 0L;
+                            Double avgDays = count > 0 ? (double) totalDays / count : 0.0;
                     
-                    SickLeaveDetailedReport report = new SickLeaveDetailedReport();
-                    report.setMonth(month);
-                    report.setYear(year);
-                    report.setCount(count.intValue());
-                    report.setTotalDays(totalDays.intValue());
-                    report.setAverageDays(Math.round(avgDays * 100.0) / 100.0);
+                            SickLeaveDetailedReport report = new SickLeaveDetailedReport();
+                            report.setMonth(month);
+                            report.setYear(year);
+                            report.setCount(count.intValue());
+                            report.setTotalDays(totalDays.intValue());
+                            report.setAverageDays(Math.round(avgDays * 100.0) / 100.0);
                     
-                    return report;
-                })
-                .collect(Collectors.toList());
+                            return report;
+                        })
+                        .collect(Collectors.toList()));
     }
     
     // Get detailed doctor sick leave statistics
     public List<DoctorSickLeaveDetailedReport> getDetailedDoctorSickLeaveStats() {
-        List<Object[]> results = sickLeaveRepository.findDoctorSickLeaveStatistics();
-        return results.stream()
-                .map(result -> {
+        return getDetailedDoctorSickLeaveStats(null, null, null);
+    }
+    
+    public List<DoctorSickLeaveDetailedReport> getDetailedDoctorSickLeaveStats(LocalDate from, LocalDate to, Integer limit) {
+        return ranking("doctors-sick-leaves-detailed", from, to, limit, SICK_LEAVES, DOCTOR_SICK_LEAVE_DETAILED_ORDER,
+                () -> sickLeaveRollupRepository.findDoctorSickLeaveStatistics(from, to),
+                top -> sickLeaveRollupRepository.findTopDoctorSickLeaveStatistics(from, to, top),
+                result -> {
                     Doctor doctor = (Doctor) result[0];
-                    Long count = (Long) result[1];
+                    Long count = ((Number) result[1]).longValue();
                     Long totalDays = result[2] != null ? ((Number) result[2]).longValue() : 0L;
-                    Double avgDays = result[3] != null ? ((Number) result[3]).doubleValue() : 0.0;
+                    Double avgDays = count > 0 ? (double) totalDays / count : 0.0;
                     
                     DoctorSickLeaveDetailedReport report = new DoctorSickLeaveDetailedReport();
                     report.setDoctor(convertDoctorToDto(doctor));
@@ -227,8 +440,49 @@ public class ReportsService {
                     report.setAverageDays(Math.round(avgDays * 100.0) / 100.0);
                     
                     return report;
-                })
-                .collect(Collectors.toList());
+                });
+    }
+    
+    /**
+     * Serves a ranking report over an optional date window. The window's whole group set is
+     * cached unordered: a request without a limit gets it sorted, and a limited request is
+     * answered from it with a bounded top-K selection. When the group set is not cached, a
+     * limited request pushes ORDER BY ... LIMIT down to the database instead of loading it.
+     * Limits above app.pagination.max-size are capped to it, like page sizes.
+     */
+    private <T> List<T> ranking(String report, LocalDate from, LocalDate to, Integer limit,
+                                Set<EntityType> dependsOn, Comparator<T> order,
+                                Supplier<List<Object[]>> groups,
+                                Function<Limit, List<Object[]>> topGroups,
+                                Function<Object[], T> mapper) {
+        List<LocalDate> window = Arrays.asList(from, to);
+        if (limit == null) {
+            List<T> all = reportCache.get(report, window, dependsOn,
+                    () -> groups.get().stream().map(mapper).collect(Collectors.toList()));
+            return all.stream().sorted(order).collect(Collectors.toList());
+        }
+        
+        int top = Math.min(limit, appProperties.getPagination().getMaxSize());
+        List<T> cached = reportCache.getIfPresent(report, window);
+        if (cached != null) {
+            return TopK.select(cached, top, order);
+        }
+        return reportCache.get(report, Arrays.asList(from, to, top), dependsOn,
+                () -> topGroups.apply(Limit.of(top)).stream().map(mapper).collect(Collectors.toList()));
+    }
+    
+    // Clears the persistence context after every fetch batch, as MedicalVisitService.streamMedicalVisitsByDateRange
+    private void streamPatients(Stream<Patient> patients, Consumer<PatientDto> consumer) {
+        int batchSize = Integer.parseInt(MedicalVisitRepository.STREAM_FETCH_SIZE);
+        int converted = 0;
+        try (patients) {
+            for (Iterator<Patient> rows = patients.iterator(); rows.hasNext(); ) {
+                consumer.accept(convertPatientToDto(rows.next()));
+                if (++converted % batchSize == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
     }
     
     // Helper methods for DTO conversion
@@ -321,6 +575,64 @@ public class ReportsService {
         }
     }
     
+    @Data
+    public static class DailyVisitStats {
+        private LocalDate date;
+        private long visitCount;
+        private long distinctPatients;
+        private long distinctDoctors;
+        
+        public DailyVisitStats(LocalDate date, long visitCount, long distinctPatients, long distinctDoctors) {
+            this.date = date;
+            this.visitCount = visitCount;
+            this.distinctPatients = distinctPatients;
+            this.distinctDoctors = distinctDoctors;
+        }
+    }
+    
+    @Data
+    public static class DailyVisitStatsReport {
+        private LocalDate startDate;
+        private LocalDate endDate;
+        // true when distinct patient counts are HyperLogLog estimates (about 2% error)
+        private boolean approximate;
+        private long totalVisits;
+        private long distinctPatients;
+        private long distinctDoctors;
+        private List<DailyVisitStats> days;
+        
+        public DailyVisitStatsReport(LocalDate startDate, LocalDate endDate, boolean approximate, long totalVisits,
+                                     long distinctPatients, long distinctDoctors, List<DailyVisitStats> days) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.approximate = approximate;
+            this.totalVisits = totalVisits;
+            this.distinctPatients = distinctPatients;
+            this.distinctDoctors = distinctDoctors;
+            this.days = days;
+        }
+    }
+    
+    @Data
+    public static class VisitHeatmap {
+        private Long doctorId;
+        private LocalDate from;
+        private LocalDate to;
+        // counts[day][hour]: day 0 is Monday and 6 is Sunday, hour 0..23
+        private long[][] counts = new long[7][24];
+        private long totalVisits;
+        // Busiest slot, null when there are no visits
+        private DayOfWeek peakDay;
+        private Integer peakHour;
+        private long peakCount;
+        
+        public VisitHeatmap(Long doctorId, LocalDate from, LocalDate to) {
+            this.doctorId = doctorId;
+            this.from = from;
+            this.to = to;
+        }
+    }
+    
     @Data
     public static class PatientVisitReport {
         private PatientDto patient;
@@ -0,0 +1,522 @@
+package com.medical.history.service;
+
+import com.medical.history.entity.DailySickLeaveRollup;
+import com.medical.history.entity.DailyPatientSketch;
+import com.medical.history.entity.DailyVisitRollup;
+import com.medical.history.entity.HourlyVisitRollup;
+import com.medical.history.entity.MedicalVisit;
+import com.medical.history.entity.SickLeave;
+import com.medical.history.repository.ArchivedMedicalVisitRepository;
+import com.medical.history.repository.ArchivedSickLeaveRepository;
+import com.medical.history.repository.DailyPatientSketchRepository;
+import com.medical.history.repository.DailySickLeaveRollupRepository;
+import com.medical.history.repository.DailyVisitRollupRepository;
+import com.medical.history.repository.DoctorRepository;
+import com.medical.history.repository.HourlyVisitRollupRepository;
+import com.medical.history.repository.MedicalVisitRepository;
+import com.medical.history.repository.SickLeaveRepository;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the daily visit and sick leave roll-up tables, the hourly visit counters behind the
+ * weekday x hour heatmap, the daily patient sketches, and the
+ * denormalized doctor visit_count, in step with the fact tables.
+ * Callers invoke the added/removed hooks inside their own write transaction, so a
+ * roll-up row never diverges from the visits and sick leaves it summarizes.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+@Slf4j
+public class RollupService {
+
+    private final DailyVisitRollupRepository visitRollupRepository;
+    private final DailySickLeaveRollupRepository sickLeaveRollupRepository;
+    private final HourlyVisitRollupRepository hourlyRollupRepository;
+    private final DailyPatientSketchRepository sketchRepository;
+    private final MedicalVisitRepository medicalVisitRepository;
+    private final SickLeaveRepository sickLeaveRepository;
+    private final DoctorRepository doctorRepository;
+    private final ArchivedMedicalVisitRepository archivedVisitRepository;
+    private final ArchivedSickLeaveRepository archivedSickLeaveRepository;
+    private final VisitArchiveService visitArchiveService;
+
+    public void visitAdded(MedicalVisit visit) {
+        visitsAdded(List.of(visit));
+    }
+
+    public void visitsAdded(Collection<MedicalVisit> visits) {
+        applyVisits(visits, 1);
+        addToSketches(visits);
+    }
+
+    public void visitRemoved(MedicalVisit visit) {
+        visitsRemoved(List.of(visit));
+    }
+
+    public void visitsRemoved(Collection<MedicalVisit> visits) {
+        applyVisits(visits, -1);
+        recomputeSketches(visits);
+    }
+
+    /**
+     * Counterpart of {@link #visitsRemoved} for bulk deletes that never load the visits: takes
+     * their contributions as aggregate rows instead (see {@link VisitAggregates}). Call it after
+     * the visits are gone, since the sketches of the affected days are recomputed from what is left.
+     */
+    public void visitAggregatesRemoved(VisitAggregates removed) {
+        Map<DailyKey, Long> daily = new HashMap<>();
+        Map<HourlyKey, Long> hourly = new HashMap<>();
+        Map<Long, Long> doctorVisits = new HashMap<>();
+        Map<SickLeaveKey, long[]> sickLeaves = new HashMap<>();
+
+        for (Object[] row : removed.daily()) {
+            long count = ((Number) row[3]).longValue();
+            daily.merge(new DailyKey((LocalDate) row[0], (Long) row[1], (Long) row[2]), -count, Long::sum);
+            doctorVisits.merge((Long) row[1], -count, Long::sum);
+        }
+        for (Object[] row : removed.hourly()) {
+            hourly.merge(new HourlyKey((LocalDate) row[0], (Long) row[1], ((Number) row[2]).intValue()),
+                    -((Number) row[3]).longValue(), Long::sum);
+        }
+        for (Object[] row : removed.sickLeaves()) {
+            addSickLeave(sickLeaves, (LocalDate) row[0], (Long) row[1], -((Number) row[2]).longValue(),
+                    row[3] != null ? -((Number) row[3]).longValue() : 0L);
+        }
+
+        applyDaily(daily);
+        applyHourly(hourly);
+        doctorVisits.forEach(doctorRepository::adjustVisitCount);
+        applySickLeaves(sickLeaves);
+        recomputeSketches(daily.keySet().stream()
+                .map(key -> new SketchKey(key.visitDate(), key.doctorId()))
+                .collect(Collectors.toCollection(() -> new TreeSet<>(SketchKey.ORDER))));
+    }
+
+    public void sickLeaveAdded(SickLeave sickLeave) {
+        if (sickLeave.getMedicalVisit() != null) {
+            Map<SickLeaveKey, long[]> deltas = new HashMap<>();
+            addSickLeave(deltas, sickLeave.getStartDate(), sickLeave.getMedicalVisit().getDoctor().getId(),
+                    1, sickLeave.getDurationDays());
+            applySickLeaves(deltas);
+        }
+    }
+
+    public void sickLeaveRemoved(SickLeave sickLeave) {
+        if (sickLeave.getMedicalVisit() != null) {
+            Map<SickLeaveKey, long[]> deltas = new HashMap<>();
+            addSickLeave(deltas, sickLeave.getStartDate(), sickLeave.getMedicalVisit().getDoctor().getId(),
+                    -1, -sickLeave.getDurationDays());
+            applySickLeaves(deltas);
+        }
+    }
+
+    /**
+     * Drops every roll-up row and recomputes them from medical_visits and sick_leaves, plus
+     * their archive tables, which keep counting towards the roll-ups once moved there.
+     * Used as the backfill for existing data and to repair drift after manual SQL edits.
+     */
+    public RebuildResult rebuild() {
+        visitRollupRepository.deleteAllInBatch();
+        sickLeaveRollupRepository.deleteAllInBatch();
+
+        List<DailyVisitRollup> visitRollups = summed(medicalVisitRepository.findDailyVisitRollup(),
+                archivedVisitRepository.findDailyVisitRollup(), 3).stream()
+                .map(result -> {
+                    DailyVisitRollup rollup = new DailyVisitRollup();
+                    rollup.setVisitDate((LocalDate) result[0]);
+                    rollup.setDoctorId((Long) result[1]);
+                    rollup.setDiagnosisId((Long) result[2]);
+                    rollup.setVisitCount((Long) result[3]);
+                    return rollup;
+                })
+                .collect(Collectors.toList());
+        visitRollupRepository.saveAll(visitRollups);
+
+        List<DailySickLeaveRollup> sickLeaveRollups = summed(sickLeaveRepository.findDailySickLeaveRollup(),
+                archivedSickLeaveRepository.findDailySickLeaveRollup(), 2).stream()
+                .map(result -> {
+                    DailySickLeaveRollup rollup = new DailySickLeaveRollup();
+                    rollup.setStartDate((LocalDate) result[0]);
+                    rollup.setDoctorId((Long) result[1]);
+                    rollup.setLeaveCount((Long) result[2]);
+                    rollup.setTotalDays(result[3] != null ? ((Number) result[3]).longValue() : 0L);
+                    return rollup;
+                })
+                .collect(Collectors.toList());
+        sickLeaveRollupRepository.saveAll(sickLeaveRollups);
+
+        int hourlyRows = rebuildHourly();
+        int sketchRows = rebuildSketches();
+
+        log.info("Rebuilt roll-ups: {} daily visit rows, {} daily sick leave rows, {} hourly visit rows, {} daily patient sketches",
+                visitRollups.size(), sickLeaveRollups.size(), hourlyRows, sketchRows);
+        return new RebuildResult(visitRollups.size(), sickLeaveRollups.size(), hourlyRows, sketchRows);
+    }
+
+    /**
+     * Recomputes the hourly visit counters from medical_visits and its archive. Returns the number of rows written.
+     */
+    public int rebuildHourly() {
+        hourlyRollupRepository.deleteAllInBatch();
+
+        List<HourlyVisitRollup> hourlyRollups = summed(medicalVisitRepository.findHourlyVisitRollup(),
+                archivedVisitRepository.findHourlyVisitRollup(), 3).stream()
+                .map(result -> {
+                    HourlyVisitRollup rollup = new HourlyVisitRollup();
+                    rollup.setVisitDate((LocalDate) result[0]);
+                    rollup.setDayOfWeek(rollup.getVisitDate().getDayOfWeek().getValue());
+                    rollup.setDoctorId((Long) result[1]);
+                    rollup.setVisitHour(((Number) result[2]).intValue());
+                    rollup.setVisitCount((Long) result[3]);
+                    return rollup;
+                })
+                .collect(Collectors.toList());
+        hourlyRollupRepository.saveAll(hourlyRollups);
+        return hourlyRollups.size();
+    }
+
+    /**
+     * Recomputes every daily patient sketch from one ordered pass over the distinct
+     * (visit date, doctor, patient) rows. The archive's rows are merged into the same pass by
+     * date and doctor; a patient seen in both tables is simply added to the sketch twice.
+     * Returns the number of sketches written.
+     */
+    public int rebuildSketches() {
+        sketchRepository.deleteAllInBatch();
+
+        SketchPass pass = new SketchPass();
+        try (Stream<Object[]> pairs = medicalVisitRepository.streamDailyPatientIds();
+             Stream<Object[]> archivedPairs = visitArchiveService.hasArchive()
+                     ? archivedVisitRepository.streamDailyPatientIds() : Stream.empty()) {
+            VisitArchiveService.mergeOrdered(pairs.iterator(), archivedPairs.iterator(),
+                    Comparator.comparing((Object[] row) -> (LocalDate) row[0]).thenComparing(row -> (Long) row[1]),
+                    pass::add);
+        }
+        return pass.finish();
+    }
+
+    public boolean isEmpty() {
+        return visitRollupRepository.count() == 0 && sickLeaveRollupRepository.count() == 0;
+    }
+
+    public boolean hasSketches() {
+        return sketchRepository.count() > 0;
+    }
+
+    public boolean hasHourlyRollups() {
+        return hourlyRollupRepository.count() > 0;
+    }
+
+    // Sums the visits' contributions per roll-up key first, then reads and writes each
+    // roll-up table once, so a batch of visits costs a few statements rather than a few per visit
+    private void applyVisits(Collection<MedicalVisit> visits, long sign) {
+        Map<DailyKey, Long> daily = new HashMap<>();
+        Map<HourlyKey, Long> hourly = new HashMap<>();
+        Map<Long, Long> doctorVisits = new HashMap<>();
+        Map<SickLeaveKey, long[]> sickLeaves = new HashMap<>();
+
+        for (MedicalVisit visit : visits) {
+            Long doctorId = visit.getDoctor().getId();
+            Long diagnosisId = visit.getDiagnosis() != null ? visit.getDiagnosis().getId() : null;
+            daily.merge(new DailyKey(visit.getVisitDate(), doctorId, diagnosisId), sign, Long::sum);
+            doctorVisits.merge(doctorId, sign, Long::sum);
+            if (visit.getVisitTime() != null) {
+                hourly.merge(new HourlyKey(visit.getVisitDate(), doctorId, visit.getVisitTime().getHour()), sign, Long::sum);
+            }
+            SickLeave sickLeave = visit.getSickLeave();
+            if (sickLeave != null) {
+                addSickLeave(sickLeaves, sickLeave.getStartDate(), doctorId, sign, sign * sickLeave.getDurationDays());
+            }
+        }
+
+        applyDaily(daily);
+        applyHourly(hourly);
+        doctorVisits.forEach(doctorRepository::adjustVisitCount);
+        applySickLeaves(sickLeaves);
+    }
+
+    // Each key is one upsert; keys are applied in a fixed order so that two transactions touching
+    // the same rows lock them in the same order instead of deadlocking
+    private void applyDaily(Map<DailyKey, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .sorted(Map.Entry.comparingByKey(DailyKey.ORDER))
+                .forEach(entry -> visitRollupRepository.addVisitCount(entry.getKey().visitDate(),
+                        entry.getKey().doctorId(), entry.getKey().diagnosisId(), entry.getValue()));
+        visitRollupRepository.deleteEmpty(
+                deltas.keySet().stream().map(DailyKey::visitDate).collect(Collectors.toSet()),
+                deltas.keySet().stream().map(DailyKey::doctorId).collect(Collectors.toSet()));
+    }
+
+    private void applyHourly(Map<HourlyKey, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .sorted(Map.Entry.comparingByKey(HourlyKey.ORDER))
+                .forEach(entry -> hourlyRollupRepository.addVisitCount(entry.getKey().visitDate(),
+                        entry.getKey().visitDate().getDayOfWeek().getValue(), entry.getKey().doctorId(),
+                        entry.getKey().visitHour(), entry.getValue()));
+        hourlyRollupRepository.deleteEmpty(
+                deltas.keySet().stream().map(HourlyKey::visitDate).collect(Collectors.toSet()),
+                deltas.keySet().stream().map(HourlyKey::doctorId).collect(Collectors.toSet()));
+    }
+
+    private static void addSickLeave(Map<SickLeaveKey, long[]> totals, LocalDate startDate, Long doctorId,
+                                     long leaveDelta, long daysDelta) {
+        long[] total = totals.computeIfAbsent(new SickLeaveKey(startDate, doctorId), key -> new long[2]);
+        total[0] += leaveDelta;
+        total[1] += daysDelta;
+    }
+
+    // Values are {leave count delta, total days delta}
+    private void applySickLeaves(Map<SickLeaveKey, long[]> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        deltas.entrySet().stream()
+                .filter(entry -> entry.getValue()[0] != 0 || entry.getValue()[1] != 0)
+                .sorted(Map.Entry.comparingByKey(SickLeaveKey.ORDER))
+                .forEach(entry -> sickLeaveRollupRepository.addLeaves(entry.getKey().startDate(),
+                        entry.getKey().doctorId(), entry.getValue()[0], entry.getValue()[1]));
+        sickLeaveRollupRepository.deleteEmpty(
+                deltas.keySet().stream().map(SickLeaveKey::startDate).collect(Collectors.toSet()),
+                deltas.keySet().stream().map(SickLeaveKey::doctorId).collect(Collectors.toSet()));
+    }
+
+    // Sketches are kept per day and doctor, so concurrent visit writes only contend on the same
+    // doctor's day. Missing rows are created with the batch's registers, then every row is locked
+    // in key order and merged with them, which changes nothing in the rows just created.
+    private void addToSketches(Collection<MedicalVisit> visits) {
+        Map<SketchKey, HyperLogLog> added = new TreeMap<>(SketchKey.ORDER);
+        for (MedicalVisit visit : visits) {
+            added.computeIfAbsent(new SketchKey(visit.getVisitDate(), visit.getDoctor().getId()), key -> new HyperLogLog())
+                    .add(visit.getPatient().getId());
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        added.forEach((key, sketch) -> sketchRepository.insertIfAbsent(key.visitDate(), key.doctorId(), sketch.toBytes()));
+
+        lockSketches(added.keySet()).forEach((key, row) -> {
+            HyperLogLog sketch = HyperLogLog.fromBytes(row.getRegisters());
+            sketch.merge(added.get(key));
+            byte[] registers = sketch.toBytes();
+            if (!Arrays.equals(registers, row.getRegisters())) {
+                row.setRegisters(registers);
+                sketchRepository.save(row);
+            }
+        });
+    }
+
+    // A sketch cannot forget an id, so each affected sketch is recomputed from its remaining visits.
+    // Its row is locked before they are read: a visit added meanwhile is either read here or
+    // merged into the recomputed row once this transaction commits.
+    private void recomputeSketches(Collection<MedicalVisit> removedVisits) {
+        Map<SketchKey, Set<Long>> removedIdsByKey = removedVisits.stream()
+                .collect(Collectors.groupingBy(visit -> new SketchKey(visit.getVisitDate(), visit.getDoctor().getId()),
+                        () -> new TreeMap<>(SketchKey.ORDER),
+                        Collectors.mapping(MedicalVisit::getId, Collectors.toSet())));
+        if (removedIdsByKey.isEmpty()) {
+            return;
+        }
+        Map<SketchKey, DailyPatientSketch> rows = lockSketches(removedIdsByKey.keySet());
+
+        removedIdsByKey.forEach((key, removedIds) -> {
+            List<Long> patientIds = new ArrayList<>(medicalVisitRepository.findPatientIdsByVisitDateAndDoctorIdExcluding(
+                    key.visitDate(), key.doctorId(), removedIds));
+            if (visitArchiveService.visitsReach(key.visitDate())) {
+                patientIds.addAll(archivedVisitRepository.findPatientIdsByVisitDateAndDoctorIdExcluding(
+                        key.visitDate(), key.doctorId(), removedIds));
+            }
+            HyperLogLog sketch = null;
+            if (!patientIds.isEmpty()) {
+                sketch = new HyperLogLog();
+                patientIds.forEach(sketch::add);
+            }
+            writeSketch(key, rows.get(key), sketch);
+        });
+    }
+
+    // recomputeSketches for keys whose removed visits are already deleted, in one read per table
+    private void recomputeSketches(Set<SketchKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Map<SketchKey, DailyPatientSketch> rows = lockSketches(keys);
+
+        Set<LocalDate> visitDates = keys.stream().map(SketchKey::visitDate).collect(Collectors.toSet());
+        Set<Long> doctorIds = keys.stream().map(SketchKey::doctorId).collect(Collectors.toSet());
+        List<Object[]> patientRows = new ArrayList<>(
+                medicalVisitRepository.findDailyPatientIdsByVisitDateInAndDoctorIdIn(visitDates, doctorIds));
+        if (visitArchiveService.visitsReach(visitDates.stream().min(Comparator.naturalOrder()).orElseThrow())) {
+            patientRows.addAll(archivedVisitRepository.findDailyPatientIdsByVisitDateInAndDoctorIdIn(visitDates, doctorIds));
+        }
+        Map<SketchKey, HyperLogLog> sketches = new HashMap<>();
+        for (Object[] row : patientRows) {
+            SketchKey key = new SketchKey((LocalDate) row[0], (Long) row[1]);
+            if (keys.contains(key)) {
+                sketches.computeIfAbsent(key, k -> new HyperLogLog()).add((Long) row[2]);
+            }
+        }
+
+        keys.forEach(key -> writeSketch(key, rows.get(key), sketches.get(key)));
+    }
+
+    // The keys' rows, locked in key order; the query may lock a few more rows of the same days and doctors
+    private Map<SketchKey, DailyPatientSketch> lockSketches(Set<SketchKey> keys) {
+        Map<SketchKey, DailyPatientSketch> rows = new TreeMap<>(SketchKey.ORDER);
+        sketchRepository.lockByVisitDateInAndDoctorIdIn(
+                keys.stream().map(SketchKey::visitDate).collect(Collectors.toSet()),
+                keys.stream().map(SketchKey::doctorId).collect(Collectors.toSet())).forEach(row -> {
+            SketchKey key = new SketchKey(row.getVisitDate(), row.getDoctorId());
+            if (keys.contains(key)) {
+                rows.put(key, row);
+            }
+        });
+        return rows;
+    }
+
+    // A null sketch means no visits are left for the key, so its row goes
+    private void writeSketch(SketchKey key, DailyPatientSketch existing, HyperLogLog sketch) {
+        if (sketch == null) {
+            if (existing != null) {
+                sketchRepository.delete(existing);
+            }
+        } else if (existing != null) {
+            saveSketch(existing, key, sketch);
+        } else {
+            sketchRepository.insertIfAbsent(key.visitDate(), key.doctorId(), sketch.toBytes());
+        }
+    }
+
+    // Adds up the aggregate rows of the hot table and its archive that share the leading key columns
+    private static List<Object[]> summed(List<Object[]> rows, List<Object[]> archived, int keyColumns) {
+        if (archived.isEmpty()) {
+            return rows;
+        }
+        Map<List<Object>, Object[]> byKey = new LinkedHashMap<>();
+        Stream.concat(rows.stream(), archived.stream()).forEach(row -> byKey.merge(
+                Arrays.asList(row).subList(0, keyColumns), row.clone(), (sum, next) -> {
+                    for (int i = keyColumns; i < sum.length; i++) {
+                        if (sum[i] == null || next[i] == null) {
+                            sum[i] = sum[i] != null ? sum[i] : next[i];
+                        } else {
+                            sum[i] = ((Number) sum[i]).longValue() + ((Number) next[i]).longValue();
+                        }
+                    }
+                    return sum;
+                }));
+        return new ArrayList<>(byKey.values());
+    }
+
+    // One pass of rebuildSketches: rows arrive ordered by date and doctor, each sketch is saved when the next begins
+    private class SketchPass {
+        private SketchKey key;
+        private HyperLogLog sketch;
+        private int sketches;
+
+        void add(Object[] row) {
+            SketchKey rowKey = new SketchKey((LocalDate) row[0], (Long) row[1]);
+            if (!rowKey.equals(key)) {
+                finishSketch();
+                key = rowKey;
+                sketch = new HyperLogLog();
+            }
+            sketch.add((Long) row[2]);
+        }
+
+        int finish() {
+            finishSketch();
+            return sketches;
+        }
+
+        private void finishSketch() {
+            if (key != null) {
+                saveSketch(new DailyPatientSketch(), key, sketch);
+                sketches++;
+                key = null;
+            }
+        }
+    }
+
+    private void saveSketch(DailyPatientSketch row, SketchKey key, HyperLogLog sketch) {
+        row.setVisitDate(key.visitDate());
+        row.setDoctorId(key.doctorId());
+        row.setRegisters(sketch.toBytes());
+        sketchRepository.save(row);
+    }
+
+    private record DailyKey(LocalDate visitDate, Long doctorId, Long diagnosisId) {
+        static final Comparator<DailyKey> ORDER = Comparator.comparing(DailyKey::visitDate)
+                .thenComparing(DailyKey::doctorId)
+                .thenComparing(DailyKey::diagnosisId, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    private record HourlyKey(LocalDate visitDate, Long doctorId, int visitHour) {
+        static final Comparator<HourlyKey> ORDER = Comparator.comparing(HourlyKey::visitDate)
+                .thenComparing(HourlyKey::doctorId)
+                .thenComparingInt(HourlyKey::visitHour);
+    }
+
+    private record SickLeaveKey(LocalDate startDate, Long doctorId) {
+        static final Comparator<SickLeaveKey> ORDER = Comparator.comparing(SickLeaveKey::startDate)
+                .thenComparing(SickLeaveKey::doctorId);
+    }
+
+    private record SketchKey(LocalDate visitDate, Long doctorId) {
+        static final Comparator<SketchKey> ORDER = Comparator.comparing(SketchKey::visitDate)
+                .thenComparing(SketchKey::doctorId);
+    }
+
+    /**
+     * Roll-up contributions of a set of visits, in the row shapes of the rebuild queries:
+     * daily [visitDate, doctorId, diagnosisId, count], hourly [visitDate, doctorId, hour, count]
+     * and sick leaves [startDate, doctorId, count, total days]. Rows may repeat a key.
+     */
+    public record VisitAggregates(List<Object[]> daily, List<Object[]> hourly, List<Object[]> sickLeaves) {
+
+        public VisitAggregates() {
+            this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        }
+    }
+
+    @Data
+    public static class RebuildResult {
+        private int visitRows;
+        private int sickLeaveRows;
+        private int hourlyRows;
+        private int sketchRows;
+        
+        public RebuildResult(int visitRows, int sickLeaveRows, int hourlyRows, int sketchRows) {
+            this.visitRows = visitRows;
+            this.sickLeaveRows = sickLeaveRows;
+            this.hourlyRows = hourlyRows;
+            this.sketchRows = sketchRows;
+        }
+    }
+}
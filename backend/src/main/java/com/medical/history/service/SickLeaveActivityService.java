@@ -0,0 +1,234 @@
+package com.medical.history.service;
+
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.repository.ArchivedSickLeaveRepository;
+import com.medical.history.repository.DiagnosisRepository;
+import com.medical.history.repository.DoctorRepository;
+import com.medical.history.repository.SickLeaveRepository;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Who was actually off sick on each day: loads the leave intervals overlapping a window and
+ * runs one sorted sweep over them (see {@link SickLeaveIntervals}). Per-day counts, weekly
+ * peaks and absence day totals are all derived from the same cached sweep.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class SickLeaveActivityService {
+
+    // Longest window a single sweep may cover, about ten years
+    public static final int MAX_WINDOW_DAYS = 3660;
+
+    public static final Set<EntityType> DEPENDS_ON =
+            EnumSet.of(EntityType.SICK_LEAVE, EntityType.MEDICAL_VISIT, EntityType.DOCTOR, EntityType.DIAGNOSIS);
+
+    private final SickLeaveRepository sickLeaveRepository;
+    private final ArchivedSickLeaveRepository archivedSickLeaveRepository;
+    private final VisitArchiveService visitArchiveService;
+    private final DoctorRepository doctorRepository;
+    private final DiagnosisRepository diagnosisRepository;
+    private final ReportCache reportCache;
+
+    public enum GroupBy {
+        NONE,
+        DOCTOR,
+        DIAGNOSIS
+    }
+
+    public List<GroupDailyActivity> getActiveByDay(LocalDate startDate, LocalDate endDate, GroupBy groupBy) {
+        return activity(startDate, endDate, groupBy).stream()
+                .map(group -> {
+                    List<DayCount> days = new ArrayList<>(group.active.length);
+                    for (int i = 0; i < group.active.length; i++) {
+                        days.add(new DayCount(startDate.plusDays(i), group.active[i]));
+                    }
+                    GroupDailyActivity result = new GroupDailyActivity();
+                    result.setGroupId(group.groupId);
+                    result.setGroupName(group.groupName);
+                    result.setDays(days);
+                    return result;
+                })
+                .collect(Collectors.toList());
+    }
+
+    // Weeks run Monday to Sunday; the first and last week are cut at the window edges
+    public List<GroupWeeklyPeaks> getWeeklyPeaks(LocalDate startDate, LocalDate endDate, GroupBy groupBy) {
+        return activity(startDate, endDate, groupBy).stream()
+                .map(group -> {
+                    Map<LocalDate, WeekPeak> weeks = new LinkedHashMap<>();
+                    for (int i = 0; i < group.active.length; i++) {
+                        LocalDate date = startDate.plusDays(i);
+                        WeekPeak week = weeks.computeIfAbsent(
+                                date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)), WeekPeak::new);
+                        if (week.getPeakDate() == null || group.active[i] > week.getPeakActive()) {
+                            week.setPeakActive(group.active[i]);
+                            week.setPeakDate(date);
+                        }
+                    }
+                    GroupWeeklyPeaks result = new GroupWeeklyPeaks();
+                    result.setGroupId(group.groupId);
+                    result.setGroupName(group.groupName);
+                    result.setWeeks(new ArrayList<>(weeks.values()));
+                    return result;
+                })
+                .collect(Collectors.toList());
+    }
+
+    public List<GroupAbsence> getAbsenceDays(LocalDate startDate, LocalDate endDate, GroupBy groupBy) {
+        return activity(startDate, endDate, groupBy).stream()
+                .map(group -> {
+                    GroupAbsence result = new GroupAbsence();
+                    result.setGroupId(group.groupId);
+                    result.setGroupName(group.groupName);
+                    result.setAbsenceDays(group.absenceDays);
+                    result.setAverageActive(Math.round((double) group.absenceDays / group.active.length * 100.0) / 100.0);
+                    for (int i = 0; i < group.active.length; i++) {
+                        if (result.getPeakDate() == null || group.active[i] > result.getPeakActive()) {
+                            result.setPeakActive(group.active[i]);
+                            result.setPeakDate(startDate.plusDays(i));
+                        }
+                    }
+                    return result;
+                })
+                .collect(Collectors.toList());
+    }
+
+    // Groups ordered by absence days, largest first
+    private List<GroupActivity> activity(LocalDate startDate, LocalDate endDate, GroupBy groupBy) {
+        return reportCache.get("sick-leave-activity", List.of(startDate, endDate, groupBy), DEPENDS_ON, () -> {
+            SickLeaveIntervals intervals = new SickLeaveIntervals(startDate.toEpochDay(), endDate.toEpochDay());
+            try (Stream<Object[]> rows = sickLeaveRepository.streamIntervalsOverlapping(startDate, endDate)) {
+                rows.forEach(row -> intervals.add(
+                        ((LocalDate) row[0]).toEpochDay(),
+                        ((LocalDate) row[1]).toEpochDay(),
+                        groupKey(row, groupBy)));
+            }
+            if (visitArchiveService.sickLeaveEndsReach(startDate)) {
+                try (Stream<Object[]> rows = archivedSickLeaveRepository.streamIntervalsOverlapping(startDate, endDate)) {
+                    rows.forEach(row -> intervals.add(
+                            ((LocalDate) row[0]).toEpochDay(),
+                            ((LocalDate) row[1]).toEpochDay(),
+                            groupKey(row, groupBy)));
+                }
+            }
+
+            Map<Long, int[]> activeByGroup = intervals.activeByDay();
+            Map<Long, String> names = groupNames(activeByGroup.keySet(), groupBy);
+            if (groupBy == GroupBy.NONE && activeByGroup.isEmpty()) {
+                activeByGroup.put(SickLeaveIntervals.NO_GROUP, new int[intervals.windowDays()]);
+            }
+
+            List<GroupActivity> groups = new ArrayList<>();
+            activeByGroup.forEach((key, active) -> groups.add(new GroupActivity(
+                    key == SickLeaveIntervals.NO_GROUP ? null : key,
+                    names.getOrDefault(key, groupBy == GroupBy.NONE ? "All" : "No diagnosis"),
+                    active)));
+            groups.sort(Comparator.comparingLong((GroupActivity group) -> group.absenceDays).reversed());
+            return groups;
+        });
+    }
+
+    private static long groupKey(Object[] row, GroupBy groupBy) {
+        Object key = switch (groupBy) {
+            case DOCTOR -> row[2];
+            case DIAGNOSIS -> row[3];
+            case NONE -> null;
+        };
+        return key != null ? (Long) key : SickLeaveIntervals.NO_GROUP;
+    }
+
+    private Map<Long, String> groupNames(Set<Long> keys, GroupBy groupBy) {
+        Set<Long> ids = keys.stream()
+                .filter(key -> key != SickLeaveIntervals.NO_GROUP)
+                .collect(Collectors.toSet());
+        Map<Long, String> names = new HashMap<>();
+        if (groupBy == GroupBy.DOCTOR) {
+            doctorRepository.findAllById(ids).forEach(doctor -> names.put(doctor.getId(), doctor.getName()));
+        } else if (groupBy == GroupBy.DIAGNOSIS) {
+            diagnosisRepository.findAllById(ids).forEach(diagnosis -> names.put(diagnosis.getId(), diagnosis.getName()));
+        }
+        return names;
+    }
+
+    private static class GroupActivity {
+        private final Long groupId;
+        private final String groupName;
+        private final int[] active;
+        private final long absenceDays;
+
+        GroupActivity(Long groupId, String groupName, int[] active) {
+            this.groupId = groupId;
+            this.groupName = groupName;
+            this.active = active;
+            long total = 0;
+            for (int count : active) {
+                total += count;
+            }
+            this.absenceDays = total;
+        }
+    }
+
+    @Data
+    public static class DayCount {
+        private LocalDate date;
+        private int active;
+
+        public DayCount(LocalDate date, int active) {
+            this.date = date;
+            this.active = active;
+        }
+    }
+
+    @Data
+    public static class WeekPeak {
+        private LocalDate weekStart;
+        private int peakActive;
+        private LocalDate peakDate;
+
+        public WeekPeak(LocalDate weekStart) {
+            this.weekStart = weekStart;
+        }
+    }
+
+    @Data
+    public static class GroupDailyActivity {
+        private Long groupId;
+        private String groupName;
+        private List<DayCount> days;
+    }
+
+    @Data
+    public static class GroupWeeklyPeaks {
+        private Long groupId;
+        private String groupName;
+        private List<WeekPeak> weeks;
+    }
+
+    @Data
+    public static class GroupAbsence {
+        private Long groupId;
+        private String groupName;
+        private long absenceDays;
+        private double averageActive;
+        private int peakActive;
+        private LocalDate peakDate;
+    }
+}
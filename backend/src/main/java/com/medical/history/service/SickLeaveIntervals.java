@@ -0,0 +1,100 @@
+package com.medical.history.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sick leave intervals held as primitive epoch-day arrays, clipped to a window, with an
+ * optional group key per interval (doctor or diagnosis id). A sweep sorts the start and end
+ * days once and walks the window a day at a time, so per-day active counts cost
+ * O(n log n + days) instead of a self-join of leaves against a calendar.
+ */
+final class SickLeaveIntervals {
+
+    // Group key for intervals that have no doctor/diagnosis, or when nothing is grouped
+    static final long NO_GROUP = -1L;
+
+    private final int windowStart;
+    private final int windowEnd;
+    private int[] starts = new int[64];
+    private int[] ends = new int[64];
+    private long[] groups = new long[64];
+    private int size;
+
+    SickLeaveIntervals(long windowStart, long windowEnd) {
+        this.windowStart = Math.toIntExact(windowStart);
+        this.windowEnd = Math.toIntExact(windowEnd);
+    }
+
+    // Both days inclusive; the part outside the window is dropped
+    void add(long startDay, long endDay, long group) {
+        int start = (int) Math.max(startDay, windowStart);
+        int end = (int) Math.min(endDay, windowEnd);
+        if (start > end) {
+            return;
+        }
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+            groups = Arrays.copyOf(groups, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        groups[size] = group;
+        size++;
+    }
+
+    int windowDays() {
+        return windowEnd - windowStart + 1;
+    }
+
+    /**
+     * Active interval count for every day of the window, per group key in order of first
+     * appearance. Intervals added with {@link #NO_GROUP} form their own group.
+     */
+    Map<Long, int[]> activeByDay() {
+        Map<Long, Integer> groupIndex = new LinkedHashMap<>();
+        int[] groupSizes = new int[size];
+        for (int i = 0; i < size; i++) {
+            groupSizes[groupIndex.computeIfAbsent(groups[i], key -> groupIndex.size())]++;
+        }
+
+        int[][] groupStarts = new int[groupIndex.size()][];
+        int[][] groupEnds = new int[groupIndex.size()][];
+        for (int g = 0; g < groupStarts.length; g++) {
+            groupStarts[g] = new int[groupSizes[g]];
+            groupEnds[g] = new int[groupSizes[g]];
+        }
+        int[] filled = new int[groupStarts.length];
+        for (int i = 0; i < size; i++) {
+            int g = groupIndex.get(groups[i]);
+            groupStarts[g][filled[g]] = starts[i];
+            groupEnds[g][filled[g]] = ends[i];
+            filled[g]++;
+        }
+
+        Map<Long, int[]> result = new LinkedHashMap<>();
+        groupIndex.forEach((group, g) -> result.put(group, sweep(groupStarts[g], groupEnds[g])));
+        return result;
+    }
+
+    private int[] sweep(int[] startDays, int[] endDays) {
+        Arrays.sort(startDays);
+        Arrays.sort(endDays);
+
+        int[] active = new int[windowDays()];
+        int opened = 0;
+        int closed = 0;
+        for (int day = windowStart; day <= windowEnd; day++) {
+            while (opened < startDays.length && startDays[opened] <= day) {
+                opened++;
+            }
+            while (closed < endDays.length && endDays[closed] < day) {
+                closed++;
+            }
+            active[day - windowStart] = opened - closed;
+        }
+        return active;
+    }
+}
@@ -1,8 +1,16 @@
 package com.medical.history.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.medical.history.config.AppProperties;
+import com.medical.history.dto.CursorPage;
+import com.medical.history.dto.PageQuery;
 import com.medical.history.dto.SickLeaveDto;
+import com.medical.history.entity.ArchivedSickLeave;
 import com.medical.history.entity.MedicalVisit;
 import com.medical.history.entity.SickLeave;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.event.DomainEventPublisher;
+import com.medical.history.repository.ArchivedSickLeaveRepository;
 import com.medical.history.repository.MedicalVisitRepository;
 import com.medical.history.repository.SickLeaveRepository;
 import lombok.RequiredArgsConstructor;
@@ -10,8 +18,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,67 +33,165 @@ import java.util.stream.Collectors;
 @Transactional
 public class SickLeaveService {
     
+    // Backed by the primary keys and the (start_date, id) indexes
+    private static final Map<String, Function<String, ? extends Comparable<?>>> SORT_KEYS =
+            Map.of("startDate", LocalDate::parse, "id", Long::valueOf);
+    private static final String DEFAULT_SORT = "startDate,desc";
+    
     private final SickLeaveRepository sickLeaveRepository;
+    private final ArchivedSickLeaveRepository archivedSickLeaveRepository;
+    private final VisitArchiveService visitArchiveService;
     private final MedicalVisitRepository medicalVisitRepository;
+    private final RollupService rollupService;
+    private final DomainEventPublisher domainEventPublisher;
+    private final JsonMergePatcher jsonMergePatcher;
+    private final ReportCache reportCache;
+    private final AppProperties appProperties;
     
-    public List<SickLeaveDto> getAllSickLeaves() {
-        return sickLeaveRepository.findAll().stream()
+    // Archived sick leaves are included the same way MedicalVisitService includes archived visits:
+    // both tables are read with the same keyset predicate and the two pages merged
+    @Transactional(readOnly = true)
+    public CursorPage<SickLeaveDto> getSickLeaves(PageQuery pageQuery) {
+        KeysetSort keyset = KeysetSort.parse(pageQuery.getSort(), DEFAULT_SORT, SORT_KEYS);
+        int size = KeysetSort.pageSize(pageQuery.getSize(), appProperties.getPagination());
+        KeysetSort.Position after = keyset.position(pageQuery.getCursor());
+        List<SickLeaveDto> rows = keyset.read(sickLeaveRepository, null, after, size).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
+        // Ascending by start date, a page that starts past the archive's latest sick leave has nothing left there
+        boolean archivePassed = after != null && after.key() instanceof LocalDate cursorDate
+                && keyset.direction().isAscending() && !visitArchiveService.sickLeaveStartsReach(cursorDate);
+        if (visitArchiveService.hasArchive() && !archivePassed) {
+            List<SickLeaveDto> merged = new ArrayList<>();
+            VisitArchiveService.mergeOrdered(
+                    keyset.read(archivedSickLeaveRepository, null, after, size).stream().map(this::convertToDto).iterator(),
+                    rows.iterator(), keyset.comparator(), merged::add);
+            rows = merged;
+        }
+        CursorPage<SickLeaveDto> page = keyset.page(rows, size);
+        if (pageQuery.isIncludeTotal()) {
+            page.setTotal(reportCache.get("sick-leaves-count", List.of(), Set.of(EntityType.SICK_LEAVE),
+                    () -> sickLeaveRepository.count() + archivedSickLeaveRepository.count()));
+        }
+        return page;
     }
     
     public Optional<SickLeaveDto> getSickLeaveById(Long id) {
-        return sickLeaveRepository.findById(id)
+        Optional<SickLeaveDto> sickLeave = sickLeaveRepository.findById(id)
                 .map(this::convertToDto);
+        if (sickLeave.isPresent() || !visitArchiveService.hasArchive()) {
+            return sickLeave;
+        }
+        return archivedSickLeaveRepository.findById(id).map(this::convertToDto);
     }
     
     public List<SickLeaveDto> getSickLeavesByPatient(Long patientId) {
-        return sickLeaveRepository.findByMedicalVisitPatientId(patientId).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return withArchived(sickLeaveRepository.findByMedicalVisitPatientId(patientId),
+                visitArchiveService.hasArchive(), () -> archivedSickLeaveRepository.findByMedicalVisitPatientId(patientId));
     }
     
     public List<SickLeaveDto> getSickLeavesByDoctor(Long doctorId) {
-        return sickLeaveRepository.findByMedicalVisitDoctorId(doctorId).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return withArchived(sickLeaveRepository.findByMedicalVisitDoctorId(doctorId),
+                visitArchiveService.hasArchive(), () -> archivedSickLeaveRepository.findByMedicalVisitDoctorId(doctorId));
     }
     
     public List<SickLeaveDto> getSickLeavesByDateRange(LocalDate startDate, LocalDate endDate) {
-        return sickLeaveRepository.findByStartDateBetween(startDate, endDate).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return withArchived(sickLeaveRepository.findByStartDateBetween(startDate, endDate),
+                visitArchiveService.sickLeaveStartsReach(startDate),
+                () -> archivedSickLeaveRepository.findByStartDateBetween(startDate, endDate));
+    }
+    
+    private List<SickLeaveDto> withArchived(List<SickLeave> sickLeaves, boolean readArchive,
+                                            Supplier<List<ArchivedSickLeave>> archived) {
+        List<SickLeaveDto> dtos = new ArrayList<>();
+        if (readArchive) {
+            archived.get().forEach(sickLeave -> dtos.add(convertToDto(sickLeave)));
+        }
+        sickLeaves.forEach(sickLeave -> dtos.add(convertToDto(sickLeave)));
+        return dtos;
     }
     
     public SickLeaveDto createSickLeave(SickLeaveDto sickLeaveDto) {
         SickLeave sickLeave = convertToEntity(sickLeaveDto);
         SickLeave savedSickLeave = sickLeaveRepository.save(sickLeave);
+        rollupService.sickLeaveAdded(savedSickLeave);
+        domainEventPublisher.created(EntityType.SICK_LEAVE, savedSickLeave.getId());
         return convertToDto(savedSickLeave);
     }
     
     public Optional<SickLeaveDto> updateSickLeave(Long id, SickLeaveDto sickLeaveDto) {
         return sickLeaveRepository.findById(id)
                 .map(existingSickLeave -> {
-                    existingSickLeave.setStartDate(sickLeaveDto.getStartDate());
-                    existingSickLeave.setDurationDays(sickLeaveDto.getDurationDays());
-                    existingSickLeave.setReason(sickLeaveDto.getReason());
-                    
-                    if (sickLeaveDto.getMedicalVisitId() != null) {
-                        MedicalVisit medicalVisit = medicalVisitRepository.findById(sickLeaveDto.getMedicalVisitId())
-                                .orElseThrow(() -> new RuntimeException("Medical visit not found"));
-                        existingSickLeave.setMedicalVisit(medicalVisit);
-                    }
-                    
-                    return convertToDto(sickLeaveRepository.save(existingSickLeave));
+                    JsonMergePatcher.checkVersion(existingSickLeave, sickLeaveDto.getVersion());
+                    return saveChanges(existingSickLeave, sickLeaveDto);
                 });
     }
     
-    public boolean deleteSickLeave(Long id) {
-        if (sickLeaveRepository.existsById(id)) {
-            sickLeaveRepository.deleteById(id);
-            return true;
+    // JSON merge patch: only the fields in the patch change, and only their columns are written
+    public Optional<SickLeaveDto> patchSickLeave(Long id, JsonNode patch) {
+        return sickLeaveRepository.findById(id)
+                .map(existingSickLeave -> {
+                    SickLeaveDto patched = jsonMergePatcher.apply(convertToDto(existingSickLeave), patch);
+                    JsonMergePatcher.checkVersion(existingSickLeave, patched.getVersion());
+                    return saveChanges(existingSickLeave, patched);
+                });
+    }
+    
+    private SickLeaveDto saveChanges(SickLeave existingSickLeave, SickLeaveDto sickLeaveDto) {
+        boolean movesVisit = sickLeaveDto.getMedicalVisitId() != null
+                && !sickLeaveDto.getMedicalVisitId().equals(existingSickLeave.getMedicalVisit().getId());
+        // The roll-ups count leaves per start date and issuing doctor, and sum their days
+        boolean rollupsMove = movesVisit
+                || !Objects.equals(existingSickLeave.getStartDate(), sickLeaveDto.getStartDate())
+                || !Objects.equals(existingSickLeave.getDurationDays(), sickLeaveDto.getDurationDays());
+        if (rollupsMove) {
+            rollupService.sickLeaveRemoved(existingSickLeave);
         }
-        return false;
+        
+        Long versionBefore = existingSickLeave.getVersion();
+        existingSickLeave.setStartDate(sickLeaveDto.getStartDate());
+        existingSickLeave.setDurationDays(sickLeaveDto.getDurationDays());
+        existingSickLeave.setReason(sickLeaveDto.getReason());
+        
+        if (movesVisit) {
+            MedicalVisit medicalVisit = medicalVisitRepository.findById(sickLeaveDto.getMedicalVisitId())
+                    .orElseThrow(() -> new RuntimeException("Medical visit not found"));
+            existingSickLeave.setMedicalVisit(medicalVisit);
+        }
+        
+        SickLeave savedSickLeave = JsonMergePatcher.flushed(existingSickLeave,
+                () -> sickLeaveRepository.saveAndFlush(existingSickLeave));
+        if (rollupsMove) {
+            rollupService.sickLeaveAdded(savedSickLeave);
+        }
+        // Nothing was written when the version did not move
+        if (!Objects.equals(versionBefore, savedSickLeave.getVersion())) {
+            domainEventPublisher.updated(EntityType.SICK_LEAVE, savedSickLeave.getId());
+        }
+        return convertToDto(savedSickLeave);
+    }
+    
+    public boolean deleteSickLeave(Long id) {
+        return sickLeaveRepository.findById(id)
+                .map(sickLeave -> {
+                    rollupService.sickLeaveRemoved(sickLeave);
+                    domainEventPublisher.deleted(EntityType.SICK_LEAVE, sickLeave.getId());
+                    sickLeaveRepository.delete(sickLeave);
+                    return true;
+                })
+                .orElse(false);
+    }
+    
+    private SickLeaveDto convertToDto(ArchivedSickLeave sickLeave) {
+        SickLeaveDto dto = new SickLeaveDto();
+        dto.setId(sickLeave.getId());
+        dto.setStartDate(sickLeave.getStartDate());
+        dto.setDurationDays(sickLeave.getDurationDays());
+        dto.setEndDate(sickLeave.getEndDate());
+        dto.setReason(sickLeave.getReason());
+        dto.setMedicalVisitId(sickLeave.getMedicalVisitId());
+        dto.setArchived(true);
+        return dto;
     }
     
     private SickLeaveDto convertToDto(SickLeave sickLeave) {
@@ -89,6 +201,7 @@ public class SickLeaveService {
         dto.setDurationDays(sickLeave.getDurationDays());
         dto.setEndDate(sickLeave.getEndDate());
         dto.setReason(sickLeave.getReason());
+        dto.setVersion(sickLeave.getVersion());
         
         if (sickLeave.getMedicalVisit() != null) {
             dto.setMedicalVisitId(sickLeave.getMedicalVisit().getId());
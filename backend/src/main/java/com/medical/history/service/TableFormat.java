@@ -0,0 +1,46 @@
+package com.medical.history.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+// Spreadsheet formats the reports export to (format=csv or format=xlsx)
+public enum TableFormat {
+    
+    CSV("text/csv; charset=UTF-8", "csv"),
+    XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+    
+    private final String mediaType;
+    private final String extension;
+    
+    TableFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+    
+    public static Optional<TableFormat> of(String name) {
+        for (TableFormat format : values()) {
+            if (format.extension.equals(name.toLowerCase(Locale.ROOT))) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    public String getMediaType() {
+        return mediaType;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+    
+    // Writes the header row straight away
+    public TableWriter open(OutputStream out, List<String> header) throws IOException {
+        TableWriter writer = this == CSV ? new CsvTableWriter(out) : new XlsxTableWriter(out, header.size());
+        writer.writeRow(header);
+        return writer;
+    }
+}
@@ -0,0 +1,97 @@
+package com.medical.history.service;
+
+import com.medical.history.config.ReplicaRoutingDataSource;
+import com.medical.history.event.DomainChangeEvent;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One version counter per entity type, bumped once a write to that type has committed, and
+ * turned into the weak ETags of the list and report endpoints. A response depends only on the
+ * entity types it reads, so its ETag changes exactly when one of their counters does.
+ * <p>
+ * Like {@link ReportCache}, the counters live in this process. Writes made through another
+ * instance reach them via {@link RemoteChangeSubscriber}, a few seconds after their commit.
+ * The ETags carry the start time of the process, so a tag issued before a restart or by
+ * another instance never matches here.
+ * <p>
+ * No ETags are issued while a read replica is configured. A counter moves when the write
+ * commits on the primary, but the body tagged with it may be read from a replica that has not
+ * replayed that write yet, and the stale body would then be revalidated as current until the
+ * next write.
+ */
+@Component
+public class TableVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<EntityType, AtomicLong> versions = new EnumMap<>(EntityType.class);
+    private final boolean issuesEtags;
+
+    public TableVersions(ObjectProvider<ReplicaRoutingDataSource> replicaRouting) {
+        this.issuesEtags = replicaRouting.getIfAvailable() == null;
+        for (EntityType type : EntityType.values()) {
+            versions.put(type, new AtomicLong());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDomainChange(DomainChangeEvent event) {
+        increment(event.getEntityType());
+    }
+
+    /**
+     * For writes that change what the endpoints return without announcing a DomainChangeEvent.
+     * Inside a transaction the bump waits for the commit, so no reader sees the new version
+     * before the new data.
+     */
+    public void bump(EntityType... types) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(types);
+                }
+            });
+        } else {
+            increment(types);
+        }
+    }
+
+    public void bumpAll() {
+        bump(EntityType.values());
+    }
+
+    private void increment(EntityType... types) {
+        for (EntityType type : types) {
+            versions.get(type).incrementAndGet();
+        }
+    }
+
+    // False with a read replica, see above
+    public boolean issuesEtags() {
+        return issuesEtags;
+    }
+
+    /**
+     * Weak ETag over the given entity types. The counters only ever grow, so their sum changes
+     * whenever any of them does. It is taken before the response is read; a write landing
+     * meanwhile leaves the response tagged with the older version, which is merely refetched.
+     */
+    public String etag(Set<EntityType> dependsOn) {
+        long sum = 0;
+        for (EntityType type : dependsOn) {
+            sum += versions.get(type).get();
+        }
+        return "W/\"" + epoch + "-" + sum + "\"";
+    }
+}
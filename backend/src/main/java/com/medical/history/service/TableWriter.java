@@ -0,0 +1,16 @@
+package com.medical.history.service;
+
+import java.io.IOException;
+
+/**
+ * A spreadsheet written one row at a time, see {@link TableFormat#open}. Nothing but the row
+ * being written is held, so a table can have any number of rows. Cells may be null, strings,
+ * numbers, booleans, dates and times; anything else is written as its toString().
+ */
+public interface TableWriter {
+    
+    void writeRow(Iterable<?> cells) throws IOException;
+    
+    // Completes the file and flushes it; the underlying stream is left open
+    void finish() throws IOException;
+}
@@ -0,0 +1,35 @@
+package com.medical.history.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded top-K selection: keeps the k best items seen so far in a heap whose head is the
+ * worst of them, so picking the top 10 of n groups costs O(n log 10) instead of a full sort.
+ */
+final class TopK {
+    
+    private TopK() {
+    }
+    
+    // Returns at most k items of the collection, best first according to order
+    static <T> List<T> select(Collection<T> items, int k, Comparator<? super T> order) {
+        // Sized for what it can actually hold; k may be far larger than the collection
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.min(k, items.size()) + 1, order.reversed());
+        for (T item : items) {
+            if (heap.size() < k) {
+                heap.add(item);
+            } else if (order.compare(item, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+        
+        List<T> selected = new ArrayList<>(heap);
+        selected.sort(order);
+        return selected;
+    }
+}
@@ -0,0 +1,181 @@
+package com.medical.history.service;
+
+import com.medical.history.config.AppProperties;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.repository.ArchivedMedicalVisitRepository;
+import com.medical.history.repository.ArchivedSickLeaveRepository;
+import com.medical.history.repository.MedicalVisitRepository;
+import com.medical.history.repository.SickLeaveRepository;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Moves visits dated before a cutoff, with their sick leaves, from medical_visits and
+ * sick_leaves into medical_visits_archive and sick_leaves_archive, one batch per transaction.
+ * Archived rows keep their ids and columns and are read-only. The roll-ups and the doctors'
+ * visit counts are not touched, since the visits still exist.
+ * <p>
+ * Readers call {@link #visitsReach} and friends to decide whether a request needs the archive
+ * at all. The answer comes from the latest archived dates, cached here and refreshed after
+ * every run, so requests for recent dates only ever touch the hot tables. They are read on
+ * the primary: bounds taken from a replica that has not replayed the last run yet would
+ * send requests for the newly archived dates to the hot tables only, until the next run.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VisitArchiveService {
+    
+    private final MedicalVisitRepository medicalVisitRepository;
+    private final SickLeaveRepository sickLeaveRepository;
+    private final ArchivedMedicalVisitRepository archivedVisitRepository;
+    private final ArchivedSickLeaveRepository archivedSickLeaveRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final AppProperties appProperties;
+    private final TableVersions tableVersions;
+    private final ReportCache reportCache;
+    
+    // Latest archived dates; null until first read, and after a run
+    private volatile Bounds bounds;
+    
+    // Off unless app.visits.archive-cron is set
+    @Scheduled(cron = "${app.visits.archive-cron:-}")
+    public void archiveScheduled() {
+        archive(defaultCutoff());
+    }
+    
+    public LocalDate defaultCutoff() {
+        return LocalDate.now().minus(appProperties.getVisits().getArchiveAfter());
+    }
+    
+    /**
+     * Archives every visit dated before the cutoff. Each batch commits on its own, so an
+     * interrupted run leaves whole visits in one table or the other and can simply be repeated.
+     */
+    public ArchiveResult archive(LocalDate cutoff) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int batchSize = appProperties.getVisits().getArchiveBatchSize();
+        ArchiveResult result = new ArchiveResult(cutoff);
+        try {
+            while (true) {
+                int[] moved = transactionTemplate.execute(status -> moveBatch(cutoff, batchSize));
+                if (moved[0] == 0) {
+                    break;
+                }
+                result.setVisits(result.getVisits() + moved[0]);
+                result.setSickLeaves(result.getSickLeaves() + moved[1]);
+                result.setBatches(result.getBatches() + 1);
+            }
+        } finally {
+            bounds = null;
+            // Moved rows come back flagged as archived
+            tableVersions.bump(EntityType.MEDICAL_VISIT, EntityType.SICK_LEAVE);
+            reportCache.invalidate(EntityType.MEDICAL_VISIT);
+            reportCache.invalidate(EntityType.SICK_LEAVE);
+        }
+        log.info("Archived {} visits and {} sick leaves dated before {} in {} batches",
+                result.getVisits(), result.getSickLeaves(), cutoff, result.getBatches());
+        return result;
+    }
+    
+    // {visits moved, sick leaves moved}
+    private int[] moveBatch(LocalDate cutoff, int batchSize) {
+        // The ids are locked, so a concurrent update cannot land between the copy and the delete
+        List<Long> ids = medicalVisitRepository.findIdsByVisitDateBefore(cutoff, Limit.of(batchSize));
+        if (ids.isEmpty()) {
+            return new int[2];
+        }
+        LocalDateTime archivedAt = LocalDateTime.now();
+        int visits = archivedVisitRepository.copyFromMedicalVisits(ids, archivedAt);
+        int sickLeaves = archivedSickLeaveRepository.copyFromSickLeaves(ids, archivedAt);
+        sickLeaveRepository.deleteByMedicalVisitIdIn(ids);
+        medicalVisitRepository.deleteByIdIn(ids);
+        return new int[] {visits, sickLeaves};
+    }
+    
+    public boolean hasArchive() {
+        return bounds().visitDate() != null;
+    }
+    
+    // Whether visits dated on or after from may be in the archive
+    public boolean visitsReach(LocalDate from) {
+        return reaches(bounds().visitDate(), from);
+    }
+    
+    // Whether sick leaves starting on or after from may be in the archive
+    public boolean sickLeaveStartsReach(LocalDate from) {
+        return reaches(bounds().sickLeaveStart(), from);
+    }
+    
+    // Whether sick leaves still running on or after from may be in the archive
+    public boolean sickLeaveEndsReach(LocalDate from) {
+        return reaches(bounds().sickLeaveEnd(), from);
+    }
+    
+    private static boolean reaches(LocalDate latestArchived, LocalDate from) {
+        return latestArchived != null && !from.isAfter(latestArchived);
+    }
+    
+    private Bounds bounds() {
+        Bounds current = bounds;
+        if (current == null) {
+            // Read-write and in a transaction of its own, so even a read-only caller's load goes to the primary
+            TransactionTemplate primaryRead = new TransactionTemplate(transactionManager);
+            primaryRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            current = primaryRead.execute(status -> new Bounds(
+                    archivedVisitRepository.findLatestVisitDate().orElse(null),
+                    archivedSickLeaveRepository.findLatestStartDate().orElse(null),
+                    archivedSickLeaveRepository.findLatestEndDate().orElse(null)));
+            bounds = current;
+        }
+        return current;
+    }
+    
+    /**
+     * Feeds the consumer from two iterators that are each in the given order, keeping that
+     * order overall. Lets a hot-table cursor and an archive cursor be read as one.
+     */
+    static <T> void mergeOrdered(Iterator<? extends T> first, Iterator<? extends T> second,
+                                 Comparator<? super T> order, Consumer<? super T> consumer) {
+        T nextFirst = first.hasNext() ? first.next() : null;
+        T nextSecond = second.hasNext() ? second.next() : null;
+        while (nextFirst != null || nextSecond != null) {
+            if (nextSecond == null || (nextFirst != null && order.compare(nextFirst, nextSecond) <= 0)) {
+                consumer.accept(nextFirst);
+                nextFirst = first.hasNext() ? first.next() : null;
+            } else {
+                consumer.accept(nextSecond);
+                nextSecond = second.hasNext() ? second.next() : null;
+            }
+        }
+    }
+    
+    private record Bounds(LocalDate visitDate, LocalDate sickLeaveStart, LocalDate sickLeaveEnd) {
+    }
+    
+    @Data
+    public static class ArchiveResult {
+        private LocalDate cutoff;
+        private int visits;
+        private int sickLeaves;
+        private int batches;
+        
+        public ArchiveResult(LocalDate cutoff) {
+            this.cutoff = cutoff;
+        }
+    }
+}
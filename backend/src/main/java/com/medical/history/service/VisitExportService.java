@@ -0,0 +1,135 @@
+package com.medical.history.service;
+
+import com.medical.history.config.AppProperties;
+import com.medical.history.dto.MedicalVisitSearch;
+import com.medical.history.dto.VisitExportFilter;
+import com.medical.history.entity.ArchivedMedicalVisit;
+import com.medical.history.entity.MedicalVisit;
+import com.medical.history.event.DomainChangeEvent.ChangeType;
+import com.medical.history.event.DomainChangeEvent.EntityType;
+import com.medical.history.repository.MedicalVisitRepository;
+import com.medical.history.repository.OutboxEventRepository;
+import com.medical.history.repository.VisitSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * GET /medical-visits/export: every visit matching the filter, hot and archived, in
+ * (visitDate, id) order, written in the columnar format of {@link ColumnarVisitWriter}.
+ * Only the id, date and key columns are selected, over forward-only cursors, and each row goes
+ * into the current row group as it is read, so neither the result nor any entity is held.
+ * <p>
+ * updatedSince picks up visits created or changed since a previous pull. Deleted visits leave
+ * no row behind; {@link #deletedSince} lists their ids from the DELETED events in the outbox,
+ * which go back app.outbox.retention. A mirror that last pulled longer ago than that has to
+ * pull everything again.
+ */
+@Service
+@RequiredArgsConstructor
+public class VisitExportService {
+
+    public static final String MEDIA_TYPE = "application/vnd.medical-history.visits+columnar";
+
+    private static final Comparator<ColumnarVisitWriter.VisitRow> ORDER =
+            Comparator.comparing(ColumnarVisitWriter.VisitRow::visitDate).thenComparing(ColumnarVisitWriter.VisitRow::id);
+
+    private final EntityManager entityManager;
+    private final VisitArchiveService visitArchiveService;
+    private final ReferenceDataRegistry referenceData;
+    private final AppProperties appProperties;
+    private final OutboxEventRepository outboxEventRepository;
+
+    // Returns the number of visits written
+    @Transactional(readOnly = true)
+    public long export(VisitExportFilter filter, OutputStream outputStream) throws IOException {
+        ColumnarVisitWriter writer = new ColumnarVisitWriter(outputStream,
+                appProperties.getVisits().getExportRowGroupSize());
+        MedicalVisitSearch range = new MedicalVisitSearch();
+        range.setFrom(filter.getFrom());
+        range.setTo(filter.getTo());
+        boolean readArchive = filter.getFrom() != null
+                ? visitArchiveService.visitsReach(filter.getFrom())
+                : visitArchiveService.hasArchive();
+        try (Stream<ColumnarVisitWriter.VisitRow> hot = rows(MedicalVisit.class,
+                VisitSpecifications.medicalVisits(range, null), filter.getUpdatedSince(), false,
+                root -> root.get("patient").get("id"), root -> root.get("doctor").get("id"),
+                root -> root.get("diagnosis").get("id"));
+             Stream<ColumnarVisitWriter.VisitRow> archived = readArchive
+                     ? rows(ArchivedMedicalVisit.class, VisitSpecifications.archivedVisits(range, null),
+                             filter.getUpdatedSince(), true, root -> root.get("patientId"),
+                             root -> root.get("doctorId"), root -> root.get("diagnosisId"))
+                     : Stream.empty()) {
+            VisitArchiveService.mergeOrdered(archived.iterator(), hot.iterator(), ORDER, writer::write);
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Ids of the visits deleted at or after since, or empty if since is older than the outbox
+     * retention, when pruned events may be missing. Like updatedSince, since should reach a
+     * little before the previous pull started: an event is stamped just before its commit.
+     */
+    @Transactional(readOnly = true)
+    public Optional<List<Long>> deletedSince(LocalDateTime since) {
+        if (since.isBefore(LocalDateTime.now().minus(appProperties.getOutbox().getRetention()))) {
+            return Optional.empty();
+        }
+        return Optional.of(outboxEventRepository.findEntityIdsByChangeSince(
+                        EntityType.MEDICAL_VISIT, ChangeType.DELETED, since).stream()
+                .flatMap(Arrays::stream)
+                .toList());
+    }
+
+    // The archive keeps its foreign keys as plain columns, hence the paths per table
+    private <T> Stream<ColumnarVisitWriter.VisitRow> rows(Class<T> entityType, Specification<T> filter,
+                                                         LocalDateTime updatedSince, boolean archived,
+                                                         Function<Root<T>, Path<Long>> patientId,
+                                                         Function<Root<T>, Path<Long>> doctorId,
+                                                         Function<Root<T>, Path<Long>> diagnosisId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityType);
+        Specification<T> where = Specification.where(filter);
+        if (updatedSince != null) {
+            where = where.and((r, q, b) -> b.greaterThanOrEqualTo(r.get("updatedAt"), updatedSince));
+        }
+        query.where(where.toPredicate(root, query, cb))
+                .multiselect(root.get("id"), root.get("visitDate"), patientId.apply(root), doctorId.apply(root),
+                        diagnosisId.apply(root), root.get("updatedAt"))
+                .orderBy(cb.asc(root.get("visitDate")), cb.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, Integer.parseInt(MedicalVisitRepository.STREAM_FETCH_SIZE))
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(row -> toRow(row, archived));
+    }
+
+    private ColumnarVisitWriter.VisitRow toRow(Tuple row, boolean archived) {
+        long doctorId = row.get(3, Long.class);
+        Long diagnosisId = row.get(4, Long.class);
+        return new ColumnarVisitWriter.VisitRow(row.get(0, Long.class), row.get(1, LocalDate.class),
+                row.get(2, Long.class), doctorId, referenceData.doctorName(doctorId), diagnosisId,
+                diagnosisId != null ? referenceData.diagnosisName(diagnosisId) : null,
+                row.get(5, LocalDateTime.class), archived);
+    }
+}
@@ -0,0 +1,121 @@
+package com.medical.history.service;
+
+import com.medical.history.dto.MedicalVisitDto;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The MedicalVisitDto properties a visit list reads (fields=), selected as columns rather than
+ * whole entities, so the four TEXT columns are only read when asked for. "summary", the
+ * default, is what the visit tables show; "full" is every column; otherwise a comma-separated
+ * list of property names. id and visitDate are always read, as the cursor is built from them.
+ * Properties left out stay null. Doctor and diagnosis names come from the reference data by id.
+ */
+public final class VisitProjection {
+
+    public static final String SUMMARY = "summary";
+    public static final String FULL = "full";
+
+    // Property -> attribute path in medical_visits and in medical_visits_archive (null: not there)
+    private static final Map<String, String[]> COLUMNS = new LinkedHashMap<>();
+    private static final Set<String> SUMMARY_FIELDS = Set.of("id", "visitDate", "visitTime", "patientId", "patientName",
+            "doctorId", "doctorName", "diagnosisId", "diagnosisName", "version");
+    private static final Set<String> ALWAYS = Set.of("id", "visitDate");
+
+    static {
+        COLUMNS.put("id", new String[] {"id", "id"});
+        COLUMNS.put("visitDate", new String[] {"visitDate", "visitDate"});
+        COLUMNS.put("visitTime", new String[] {"visitTime", "visitTime"});
+        COLUMNS.put("symptoms", new String[] {"symptoms", "symptoms"});
+        COLUMNS.put("treatment", new String[] {"treatment", "treatment"});
+        COLUMNS.put("prescribedMedication", new String[] {"prescribedMedication", "prescribedMedication"});
+        COLUMNS.put("notes", new String[] {"notes", "notes"});
+        COLUMNS.put("patientId", new String[] {"patient.id", "patientId"});
+        COLUMNS.put("patientName", new String[] {"patient.name", "patient.name"});
+        COLUMNS.put("doctorId", new String[] {"doctor.id", "doctorId"});
+        COLUMNS.put("diagnosisId", new String[] {"diagnosis.id", "diagnosisId"});
+        COLUMNS.put("version", new String[] {"version", null});
+    }
+
+    private final Set<String> fields;
+
+    private VisitProjection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static VisitProjection parse(String fields) {
+        if (fields == null || fields.isBlank() || fields.equals(SUMMARY)) {
+            return new VisitProjection(SUMMARY_FIELDS);
+        }
+        if (fields.equals(FULL)) {
+            Set<String> all = new LinkedHashSet<>(COLUMNS.keySet());
+            all.add("doctorName");
+            all.add("diagnosisName");
+            return new VisitProjection(all);
+        }
+        Set<String> requested = new LinkedHashSet<>(ALWAYS);
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!COLUMNS.containsKey(name) && !name.equals("doctorName") && !name.equals("diagnosisName")) {
+                throw new InvalidPageRequestException("Unsupported field '" + name + "', expected " + SUMMARY + ", "
+                        + FULL + " or any of " + COLUMNS.keySet() + ", doctorName, diagnosisName");
+            }
+            requested.add(name);
+        }
+        return new VisitProjection(requested);
+    }
+
+    // A name needs its id, which is read (and returned) even when only the name was asked for
+    private Set<String> columns() {
+        Set<String> columns = new LinkedHashSet<>(fields);
+        columns.retainAll(COLUMNS.keySet());
+        if (fields.contains("doctorName")) {
+            columns.add("doctorId");
+        }
+        if (fields.contains("diagnosisName")) {
+            columns.add("diagnosisId");
+        }
+        return columns;
+    }
+
+    // One selection per column, aliased with the property it fills
+    public List<Selection<?>> select(Root<?> root, boolean archived) {
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String column : columns()) {
+            String path = COLUMNS.get(column)[archived ? 1 : 0];
+            if (path != null) {
+                Path<?> attribute = root;
+                for (String name : path.split("\\.")) {
+                    attribute = attribute.get(name);
+                }
+                selections.add(attribute.alias(column));
+            }
+        }
+        return selections;
+    }
+
+    public MedicalVisitDto toDto(Tuple row, boolean archived, ReferenceDataRegistry referenceData) {
+        MedicalVisitDto dto = new MedicalVisitDto();
+        BeanWrapper properties = PropertyAccessorFactory.forBeanPropertyAccess(dto);
+        row.getElements().forEach(element -> properties.setPropertyValue(element.getAlias(), row.get(element)));
+        if (fields.contains("doctorName")) {
+            dto.setDoctorName(referenceData.doctorName(dto.getDoctorId()));
+        }
+        if (fields.contains("diagnosisName") && dto.getDiagnosisId() != null) {
+            dto.setDiagnosisName(referenceData.diagnosisName(dto.getDiagnosisId()));
+        }
+        dto.setArchived(archived);
+        return dto;
+    }
+}
@@ -0,0 +1,231 @@
+package com.medical.history.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Office Open XML workbook written as it goes: the zip entries are deflated straight into the
+ * output, each row becomes one &lt;row&gt; of inline strings and numbers, and the parts that
+ * list the sheets are written last, once their number is known. Unlike a spreadsheet library's
+ * object model this keeps nothing per row and needs no temporary files.
+ * <p>
+ * The first row is the header, shown bold and frozen. A sheet holds at most Excel's 1,048,576
+ * rows; further rows go on to another sheet under a repeated header. Dates and times are
+ * written as Excel serial numbers with a date format, so they sort and filter as dates.
+ */
+final class XlsxTableWriter implements TableWriter {
+
+    private static final int MAX_ROWS = 1_048_576;
+    // Excel's limit on the length of a cell's text
+    private static final int MAX_CELL_LENGTH = 32_767;
+    // Excel counts days from 1899-12-30
+    private static final long EPOCH_DAY_OFFSET = 25_569;
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String DOCUMENT_RELATIONSHIPS_NS =
+            "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    // Indexes into cellXfs in styles.xml
+    private static final int HEADER_STYLE = 1;
+    private static final int DATE_STYLE = 2;
+    private static final int DATE_TIME_STYLE = 3;
+    private static final int TIME_STYLE = 4;
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final String[] columnNames;
+    private List<String> header;
+    private int sheets;
+    private int rowsInSheet;
+
+    XlsxTableWriter(OutputStream outputStream, int columns) throws IOException {
+        this.zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        this.out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 1 << 16);
+        this.columnNames = new String[columns];
+        for (int i = 0; i < columns; i++) {
+            columnNames[i] = columnName(i);
+        }
+        writePart("xl/styles.xml", "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+                + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+                + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+                + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"5\">"
+                + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>"
+                + "<xf numFmtId=\"14\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"22\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"21\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "</cellXfs>"
+                + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+                + "</styleSheet>");
+    }
+
+    @Override
+    public void writeRow(Iterable<?> cells) throws IOException {
+        if (header == null) {
+            header = new ArrayList<>();
+            cells.forEach(cell -> header.add(String.valueOf(cell)));
+            startSheet();
+            return;
+        }
+        if (rowsInSheet == MAX_ROWS) {
+            endSheet();
+            startSheet();
+        }
+        writeCells(cells, 0);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (header == null) {
+            header = List.of();
+            startSheet();
+        }
+        endSheet();
+        StringBuilder sheetList = new StringBuilder();
+        StringBuilder sheetRelationships = new StringBuilder();
+        StringBuilder sheetTypes = new StringBuilder();
+        for (int sheet = 1; sheet <= sheets; sheet++) {
+            sheetList.append("<sheet name=\"Sheet").append(sheet).append("\" sheetId=\"").append(sheet)
+                    .append("\" r:id=\"rId").append(sheet).append("\"/>");
+            sheetRelationships.append("<Relationship Id=\"rId").append(sheet)
+                    .append("\" Type=\"").append(DOCUMENT_RELATIONSHIPS_NS).append("/worksheet\" Target=\"worksheets/sheet")
+                    .append(sheet).append(".xml\"/>");
+            sheetTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(sheet)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        writePart("xl/workbook.xml", "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + DOCUMENT_RELATIONSHIPS_NS + "\">"
+                + "<sheets>" + sheetList + "</sheets></workbook>");
+        writePart("xl/_rels/workbook.xml.rels", "<Relationships xmlns=\"" + RELATIONSHIPS_NS + "\">" + sheetRelationships
+                + "<Relationship Id=\"rId" + (sheets + 1) + "\" Type=\"" + DOCUMENT_RELATIONSHIPS_NS
+                + "/styles\" Target=\"styles.xml\"/></Relationships>");
+        writePart("_rels/.rels", "<Relationships xmlns=\"" + RELATIONSHIPS_NS + "\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + DOCUMENT_RELATIONSHIPS_NS
+                + "/officeDocument\" Target=\"xl/workbook.xml\"/></Relationships>");
+        writePart("[Content_Types].xml", "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" "
+                + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/styles.xml\" "
+                + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+                + sheetTypes + "</Types>");
+        // Ends the zip without closing the response stream under it
+        zip.finish();
+        zip.flush();
+    }
+
+    private void startSheet() throws IOException {
+        sheets++;
+        rowsInSheet = 0;
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheets + ".xml"));
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<worksheet xmlns=\"" + MAIN_NS + "\">"
+                + "<sheetViews><sheetView workbookViewId=\"0\">"
+                + "<pane ySplit=\"1\" topLeftCell=\"A2\" activePane=\"bottomLeft\" state=\"frozen\"/>"
+                + "</sheetView></sheetViews><sheetData>");
+        writeCells(header, HEADER_STYLE);
+    }
+
+    private void endSheet() throws IOException {
+        out.write("</sheetData></worksheet>");
+        out.flush();
+        zip.closeEntry();
+    }
+
+    private void writeCells(Iterable<?> cells, int style) throws IOException {
+        int row = ++rowsInSheet;
+        out.write("<row r=\"" + row + "\">");
+        int column = 0;
+        for (Object cell : cells) {
+            if (cell != null) {
+                writeCell(columnNames[column] + row, cell, style);
+            }
+            column++;
+        }
+        out.write("</row>");
+    }
+
+    private void writeCell(String reference, Object value, int style) throws IOException {
+        if (value instanceof Number number && isFinite(number)) {
+            writeNumber(reference, number.toString(), style);
+        } else if (value instanceof Boolean bool) {
+            out.write("<c r=\"" + reference + "\" t=\"b\"><v>" + (bool ? 1 : 0) + "</v></c>");
+        } else if (value instanceof LocalDate date) {
+            writeNumber(reference, Long.toString(date.toEpochDay() + EPOCH_DAY_OFFSET), DATE_STYLE);
+        } else if (value instanceof LocalDateTime dateTime) {
+            double days = dateTime.toLocalDate().toEpochDay() + EPOCH_DAY_OFFSET
+                    + dateTime.toLocalTime().toNanoOfDay() / 86_400e9;
+            writeNumber(reference, Double.toString(days), DATE_TIME_STYLE);
+        } else if (value instanceof LocalTime time) {
+            writeNumber(reference, Double.toString(time.toNanoOfDay() / 86_400e9), TIME_STYLE);
+        } else {
+            String text = value.toString();
+            if (text.length() > MAX_CELL_LENGTH) {
+                text = text.substring(0, MAX_CELL_LENGTH);
+            }
+            out.write("<c r=\"" + reference + "\" t=\"inlineStr\"" + styleAttribute(style)
+                    + "><is><t xml:space=\"preserve\">");
+            writeEscaped(text);
+            out.write("</t></is></c>");
+        }
+    }
+
+    private void writeNumber(String reference, String number, int style) throws IOException {
+        out.write("<c r=\"" + reference + "\"" + styleAttribute(style) + "><v>" + number + "</v></c>");
+    }
+
+    private static String styleAttribute(int style) {
+        return style == 0 ? "" : " s=\"" + style + "\"";
+    }
+
+    private static boolean isFinite(Number number) {
+        return !(number instanceof Double || number instanceof Float) || Double.isFinite(number.doubleValue());
+    }
+
+    // Control characters other than tab and line breaks are not allowed in XML 1.0 and are dropped
+    private void writeEscaped(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> out.write("&amp;");
+                case '<' -> out.write("&lt;");
+                case '>' -> out.write("&gt;");
+                default -> {
+                    if (c >= 0x20 && c != 0xFFFE && c != 0xFFFF || c == '\t' || c == '\n' || c == '\r') {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writePart(String name, String xml) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        out.write(xml);
+        out.flush();
+        zip.closeEntry();
+    }
+
+    // 0 -> A, 25 -> Z, 26 -> AA
+    private static String columnName(int index) {
+        StringBuilder name = new StringBuilder();
+        for (int i = index + 1; i > 0; i = (i - 1) / 26) {
+            name.insert(0, (char) ('A' + (i - 1) % 26));
+        }
+        return name.toString();
+    }
+}
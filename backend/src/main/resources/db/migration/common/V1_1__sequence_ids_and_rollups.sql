@@ -0,0 +1,68 @@
+-- Pooled id sequences (see BaseEntity), the report roll-up tables and the denormalized doctor
+-- counters. The sequences of the V1 tables start at 1 here; V1_2 moves them past the ids the
+-- bigserial columns already handed out. DataInitializer backfills the roll-ups and counters
+-- on startup.
+
+create sequence daily_patient_sketches_seq start with 1 increment by 50;
+create sequence daily_sick_leave_rollups_seq start with 1 increment by 50;
+create sequence daily_visit_rollups_seq start with 1 increment by 50;
+create sequence diagnoses_seq start with 1 increment by 50;
+create sequence doctors_seq start with 1 increment by 50;
+create sequence hourly_visit_rollups_seq start with 1 increment by 50;
+create sequence medical_visits_seq start with 1 increment by 50;
+create sequence patients_seq start with 1 increment by 50;
+create sequence roles_seq start with 1 increment by 50;
+create sequence sick_leaves_seq start with 1 increment by 50;
+create sequence users_seq start with 1 increment by 50;
+
+create table daily_patient_sketches (
+    visit_date date not null,
+    created_at timestamp(6),
+    doctor_id bigint not null,
+    id bigint not null,
+    updated_at timestamp(6),
+    registers bytea not null,
+    primary key (id),
+    unique (visit_date, doctor_id)
+);
+
+create table daily_sick_leave_rollups (
+    start_date date not null,
+    created_at timestamp(6),
+    doctor_id bigint not null,
+    id bigint not null,
+    leave_count bigint not null,
+    total_days bigint not null,
+    updated_at timestamp(6),
+    primary key (id),
+    unique (start_date, doctor_id)
+);
+
+create table daily_visit_rollups (
+    visit_date date not null,
+    created_at timestamp(6),
+    diagnosis_id bigint,
+    doctor_id bigint not null,
+    id bigint not null,
+    updated_at timestamp(6),
+    visit_count bigint not null,
+    primary key (id),
+    -- Visits without a diagnosis share one row per day and doctor; RollupService upserts on this key
+    unique nulls not distinct (visit_date, doctor_id, diagnosis_id)
+);
+
+create table hourly_visit_rollups (
+    day_of_week integer not null,
+    visit_date date not null,
+    visit_hour integer not null,
+    created_at timestamp(6),
+    doctor_id bigint not null,
+    id bigint not null,
+    updated_at timestamp(6),
+    visit_count bigint not null,
+    primary key (id),
+    unique (visit_date, doctor_id, visit_hour)
+);
+
+alter table doctors add column patient_count bigint default 0 not null;
+alter table doctors add column visit_count bigint default 0 not null;
@@ -0,0 +1,101 @@
+-- Schema as Hibernate generated it under ddl-auto for the original entities, with bigserial ids,
+-- before Flyway took over. Databases created by ddl-auto already have it and are baselined at
+-- this version instead; every later change is a migration of its own, so both kinds of
+-- database end up with the same schema.
+
+create table diagnoses (
+    created_at timestamp(6),
+    id bigserial not null,
+    updated_at timestamp(6),
+    code varchar(255) not null unique,
+    description TEXT,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table doctors (
+    is_family_doctor boolean,
+    created_at timestamp(6),
+    id bigserial not null,
+    updated_at timestamp(6),
+    identification_number varchar(255) not null unique,
+    name varchar(255) not null,
+    specialty varchar(255) not null,
+    primary key (id)
+);
+
+create table medical_visits (
+    visit_date date not null,
+    visit_time time(6),
+    created_at timestamp(6),
+    diagnosis_id bigint,
+    doctor_id bigint not null,
+    id bigserial not null,
+    patient_id bigint not null,
+    updated_at timestamp(6),
+    notes TEXT,
+    prescribed_medication TEXT,
+    symptoms TEXT,
+    treatment TEXT,
+    primary key (id)
+);
+
+create table patients (
+    health_insurance_paid boolean,
+    last_insurance_payment_date date,
+    created_at timestamp(6),
+    family_doctor_id bigint not null,
+    id bigserial not null,
+    updated_at timestamp(6),
+    egn varchar(10) not null unique,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table roles (
+    created_at timestamp(6),
+    id bigserial not null,
+    updated_at timestamp(6),
+    name varchar(255) not null unique check (name in ('ROLE_PATIENT','ROLE_DOCTOR','ROLE_ADMIN')),
+    primary key (id)
+);
+
+create table sick_leaves (
+    duration_days integer not null,
+    end_date date,
+    start_date date not null,
+    created_at timestamp(6),
+    id bigserial not null,
+    medical_visit_id bigint not null unique,
+    updated_at timestamp(6),
+    reason TEXT,
+    primary key (id)
+);
+
+create table user_roles (
+    role_id bigint not null,
+    user_id bigint not null,
+    primary key (role_id, user_id)
+);
+
+create table users (
+    created_at timestamp(6),
+    doctor_id bigint unique,
+    id bigserial not null,
+    patient_id bigint unique,
+    updated_at timestamp(6),
+    email varchar(255) not null unique,
+    password varchar(255) not null,
+    username varchar(255) not null unique,
+    primary key (id)
+);
+
+alter table medical_visits add constraint FKtgfgtmmkh9xutppj0u0rtyej6 foreign key (diagnosis_id) references diagnoses;
+alter table medical_visits add constraint FK35fw8mtkowidi1sxfvkay5smw foreign key (doctor_id) references doctors;
+alter table medical_visits add constraint FKres86f3xrxf3j6lhidfvw6mt9 foreign key (patient_id) references patients;
+alter table patients add constraint FKsuy5wl4qwid6ts5rs9b3ss7h9 foreign key (family_doctor_id) references doctors;
+alter table sick_leaves add constraint FKk2v23c1ke3ecxhmdr2w1dvk2a foreign key (medical_visit_id) references medical_visits;
+alter table user_roles add constraint FKh8ciramu9cc9q3qcqiv4ue8a6 foreign key (role_id) references roles;
+alter table user_roles add constraint FKhfh9dx7w3ubf1co1vdev94g3f foreign key (user_id) references users;
+alter table users add constraint FK3gu8o4dp0h33o79y3yohdfqvw foreign key (doctor_id) references doctors;
+alter table users add constraint FKa98w1ceplk9u7a6x4w9xn29jd foreign key (patient_id) references patients;
@@ -0,0 +1,37 @@
+-- Cold storage for old visits and their sick leaves, filled by VisitArchiveService.
+-- Rows keep their original ids and columns, so the archive has no sequences of its own.
+
+create table medical_visits_archive (
+    visit_date date not null,
+    visit_time time(6),
+    archived_at timestamp(6) not null,
+    created_at timestamp(6),
+    diagnosis_id bigint,
+    doctor_id bigint not null,
+    id bigint not null,
+    patient_id bigint not null,
+    updated_at timestamp(6),
+    notes TEXT,
+    prescribed_medication TEXT,
+    symptoms TEXT,
+    treatment TEXT,
+    primary key (id)
+);
+
+create table sick_leaves_archive (
+    duration_days integer not null,
+    end_date date,
+    start_date date not null,
+    archived_at timestamp(6) not null,
+    created_at timestamp(6),
+    id bigint not null,
+    medical_visit_id bigint not null unique,
+    updated_at timestamp(6),
+    reason TEXT,
+    primary key (id)
+);
+
+alter table medical_visits_archive add constraint fk_medical_visits_archive_diagnosis foreign key (diagnosis_id) references diagnoses;
+alter table medical_visits_archive add constraint fk_medical_visits_archive_doctor foreign key (doctor_id) references doctors;
+alter table medical_visits_archive add constraint fk_medical_visits_archive_patient foreign key (patient_id) references patients;
+alter table sick_leaves_archive add constraint fk_sick_leaves_archive_visit foreign key (medical_visit_id) references medical_visits_archive;
@@ -0,0 +1,13 @@
+-- Optimistic lock column of BaseEntity. Existing rows start at version 0.
+
+alter table daily_patient_sketches add column version bigint default 0 not null;
+alter table daily_sick_leave_rollups add column version bigint default 0 not null;
+alter table daily_visit_rollups add column version bigint default 0 not null;
+alter table diagnoses add column version bigint default 0 not null;
+alter table doctors add column version bigint default 0 not null;
+alter table hourly_visit_rollups add column version bigint default 0 not null;
+alter table medical_visits add column version bigint default 0 not null;
+alter table patients add column version bigint default 0 not null;
+alter table roles add column version bigint default 0 not null;
+alter table sick_leaves add column version bigint default 0 not null;
+alter table users add column version bigint default 0 not null;
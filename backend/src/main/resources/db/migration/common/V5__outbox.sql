@@ -0,0 +1,23 @@
+-- Transactional outbox of domain change events (see DomainEventPublisher and OutboxRelay).
+-- One row per entity type and change type per transaction, with the ids it touched
+
+-- Increment 1: every id is drawn at insert time, never from a block an instance cached earlier
+create sequence outbox_events_seq start with 1 increment by 1;
+
+create table outbox_events (
+    entity_ids bigint array not null,
+    id bigint not null,
+    occurred_at timestamp(6) not null,
+    change_type varchar(10) not null check (change_type in ('CREATED','UPDATED','DELETED')),
+    entity_type varchar(20) not null check (entity_type in ('PATIENT','DOCTOR','DIAGNOSIS','MEDICAL_VISIT','SICK_LEAVE')),
+    origin varchar(100) not null,
+    primary key (id)
+);
+
+-- One row per subscriber; the relay reads and prunes outbox_events by primary key only
+create table outbox_cursors (
+    last_event_id bigint not null,
+    updated_at timestamp(6) not null,
+    subscriber varchar(100) not null,
+    primary key (subscriber)
+);
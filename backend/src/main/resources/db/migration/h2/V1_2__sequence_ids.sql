@@ -0,0 +1,10 @@
+-- Ids now come from the V1_1 sequences, so the identity columns H2 makes of bigserial go.
+-- IdSequenceAligner moves the sequences past any existing ids on startup.
+
+alter table diagnoses alter column id drop identity;
+alter table doctors alter column id drop identity;
+alter table medical_visits alter column id drop identity;
+alter table patients alter column id drop identity;
+alter table roles alter column id drop identity;
+alter table sick_leaves alter column id drop identity;
+alter table users alter column id drop identity;
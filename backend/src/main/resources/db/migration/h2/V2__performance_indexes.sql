@@ -0,0 +1,23 @@
+-- The indexes of postgresql/V2, V6 and V7 in their final shape, for the H2 test database.
+-- H2 has no INCLUDE columns, partial indexes or trigram search, so each keeps only its key
+-- columns, and it cannot drop an index a foreign key has adopted, so they are not reshaped later.
+
+create index idx_medical_visits_patient_date on medical_visits (patient_id, visit_date, id);
+create index idx_medical_visits_doctor_date on medical_visits (doctor_id, visit_date, id);
+create index idx_medical_visits_diagnosis on medical_visits (diagnosis_id, visit_date, id);
+create index idx_medical_visits_visit_date on medical_visits (visit_date, id);
+create index idx_medical_visits_visit_time on medical_visits (visit_time);
+
+create index idx_patients_family_doctor on patients (family_doctor_id);
+create index idx_patients_insurance_paid on patients (health_insurance_paid);
+create index idx_patients_name on patients (name, id);
+
+create index idx_doctors_specialty on doctors (specialty);
+create index idx_doctors_family_doctor on doctors (is_family_doctor);
+create index idx_doctors_name on doctors (name, id);
+
+create index idx_diagnoses_name on diagnoses (name, id);
+
+create index idx_sick_leaves_start_date on sick_leaves (start_date, id);
+
+create index idx_hourly_visit_rollups_doctor_date on hourly_visit_rollups (doctor_id, visit_date);
@@ -0,0 +1,10 @@
+-- postgresql/V3_1, V6 and V7 for the archive tables, in their final shape (see h2/V2)
+
+create index idx_medical_visits_archive_patient_date on medical_visits_archive (patient_id, visit_date, id);
+create index idx_medical_visits_archive_doctor_date on medical_visits_archive (doctor_id, visit_date, id);
+create index idx_medical_visits_archive_diagnosis on medical_visits_archive (diagnosis_id, visit_date, id);
+create index idx_medical_visits_archive_visit_date on medical_visits_archive (visit_date, id);
+create index idx_medical_visits_archive_visit_time on medical_visits_archive (visit_time);
+
+create index idx_sick_leaves_archive_start_date on sick_leaves_archive (start_date, id);
+create index idx_sick_leaves_archive_end_date on sick_leaves_archive (end_date);
@@ -0,0 +1,27 @@
+-- Ids now come from the V1_1 sequences. The bigserial defaults go, so nothing hands out ids
+-- from two sources, and each sequence starts past the existing ids: the pooled optimizer uses
+-- (value - 50, value] for the value it fetches, hence MAX(id) + 50.
+
+alter table diagnoses alter column id drop default;
+alter table doctors alter column id drop default;
+alter table medical_visits alter column id drop default;
+alter table patients alter column id drop default;
+alter table roles alter column id drop default;
+alter table sick_leaves alter column id drop default;
+alter table users alter column id drop default;
+
+drop sequence if exists diagnoses_id_seq;
+drop sequence if exists doctors_id_seq;
+drop sequence if exists medical_visits_id_seq;
+drop sequence if exists patients_id_seq;
+drop sequence if exists roles_id_seq;
+drop sequence if exists sick_leaves_id_seq;
+drop sequence if exists users_id_seq;
+
+select setval('diagnoses_seq', coalesce(max(id), 0) + 50, false) from diagnoses;
+select setval('doctors_seq', coalesce(max(id), 0) + 50, false) from doctors;
+select setval('medical_visits_seq', coalesce(max(id), 0) + 50, false) from medical_visits;
+select setval('patients_seq', coalesce(max(id), 0) + 50, false) from patients;
+select setval('roles_seq', coalesce(max(id), 0) + 50, false) from roles;
+select setval('sick_leaves_seq', coalesce(max(id), 0) + 50, false) from sick_leaves;
+select setval('users_seq', coalesce(max(id), 0) + 50, false) from users;
@@ -0,0 +1,39 @@
+-- Indexes behind the repository queries. Foreign keys get no index of their own in PostgreSQL,
+-- so every lookup by patient, doctor or diagnosis used to scan medical_visits/patients.
+-- Run with --check-query-plans to list any repository query that still needs a sequential scan.
+-- sick_leaves.medical_visit_id and the roll-up keys are already covered by their unique constraints.
+
+-- Visits of a patient / doctor, newest first, and doctor visits in a date window
+create index idx_medical_visits_patient_date on medical_visits (patient_id, visit_date);
+create index idx_medical_visits_doctor_date on medical_visits (doctor_id, visit_date);
+
+-- Visits and patients by diagnosis; also serves the diagnosis_id IS NOT NULL count report
+create index idx_medical_visits_diagnosis on medical_visits (diagnosis_id) include (patient_id);
+
+-- Date range reports and the distinct-patient sketch rebuild; patient and doctor ids are
+-- included so the per-day distinct counts are answered from the index alone
+create index idx_medical_visits_visit_date on medical_visits (visit_date) include (patient_id, doctor_id);
+
+-- Peak hour report and the hourly roll-up rebuild only read visits that have a time
+create index idx_medical_visits_visit_time on medical_visits (visit_time) include (visit_date, doctor_id)
+    where visit_time is not null;
+
+-- Family doctor patient lists and the patient_count subqueries
+create index idx_patients_family_doctor on patients (family_doctor_id);
+
+-- Insurance status counts are answered from the index alone
+create index idx_patients_insurance_paid on patients (health_insurance_paid);
+
+create index idx_doctors_specialty on doctors (specialty);
+create index idx_doctors_family_doctor on doctors (id) where is_family_doctor;
+
+-- Sick leaves by start date, and the activity sweep's overlap query (start_date <= window end)
+create index idx_sick_leaves_start_date on sick_leaves (start_date) include (end_date, medical_visit_id);
+
+-- Case-insensitive substring search on diagnosis names (LIKE '%...%' cannot use a btree)
+create extension if not exists pg_trgm;
+create index idx_diagnoses_name_trgm on diagnoses using gin (upper(name) gin_trgm_ops);
+
+-- One doctor's weekday x hour heatmap; the unique key (visit_date, doctor_id, visit_hour)
+-- already serves the all-doctors heatmap and the roll-up maintenance lookups
+create index idx_hourly_visit_rollups_doctor_date on hourly_visit_rollups (doctor_id, visit_date);
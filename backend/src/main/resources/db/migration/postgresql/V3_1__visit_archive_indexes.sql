@@ -0,0 +1,12 @@
+-- Indexes of the V3 archive tables: the same lookups as the hot tables (see V2); the archive is
+-- only read when a request reaches into it
+
+create index idx_medical_visits_archive_patient_date on medical_visits_archive (patient_id, visit_date);
+create index idx_medical_visits_archive_doctor_date on medical_visits_archive (doctor_id, visit_date);
+create index idx_medical_visits_archive_diagnosis on medical_visits_archive (diagnosis_id) include (patient_id);
+create index idx_medical_visits_archive_visit_date on medical_visits_archive (visit_date) include (patient_id, doctor_id);
+create index idx_medical_visits_archive_visit_time on medical_visits_archive (visit_time) include (visit_date, doctor_id)
+    where visit_time is not null;
+
+create index idx_sick_leaves_archive_start_date on sick_leaves_archive (start_date) include (end_date, medical_visit_id);
+create index idx_sick_leaves_archive_end_date on sick_leaves_archive (end_date);
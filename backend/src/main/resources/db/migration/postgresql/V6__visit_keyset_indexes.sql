@@ -0,0 +1,22 @@
+-- Keyset pagination of /medical-visits/search orders by (visit_date, id). With id appended to
+-- the visit indexes, each filter combination reads its page straight off an index in that
+-- order and stops after size + 1 rows, with no sort step. The diagnosis index also gains
+-- visit_date, so a diagnosis filter with a date range no longer reads the diagnosis's whole history.
+
+drop index idx_medical_visits_patient_date;
+drop index idx_medical_visits_doctor_date;
+drop index idx_medical_visits_diagnosis;
+drop index idx_medical_visits_visit_date;
+create index idx_medical_visits_patient_date on medical_visits (patient_id, visit_date, id);
+create index idx_medical_visits_doctor_date on medical_visits (doctor_id, visit_date, id);
+create index idx_medical_visits_diagnosis on medical_visits (diagnosis_id, visit_date, id) include (patient_id);
+create index idx_medical_visits_visit_date on medical_visits (visit_date, id) include (patient_id, doctor_id);
+
+drop index idx_medical_visits_archive_patient_date;
+drop index idx_medical_visits_archive_doctor_date;
+drop index idx_medical_visits_archive_diagnosis;
+drop index idx_medical_visits_archive_visit_date;
+create index idx_medical_visits_archive_patient_date on medical_visits_archive (patient_id, visit_date, id);
+create index idx_medical_visits_archive_doctor_date on medical_visits_archive (doctor_id, visit_date, id);
+create index idx_medical_visits_archive_diagnosis on medical_visits_archive (diagnosis_id, visit_date, id) include (patient_id);
+create index idx_medical_visits_archive_visit_date on medical_visits_archive (visit_date, id) include (patient_id, doctor_id);
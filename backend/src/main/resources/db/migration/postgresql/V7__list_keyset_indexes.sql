@@ -0,0 +1,13 @@
+-- Keyset pagination of the list endpoints: each whitelisted sort key leads an index ending in
+-- id, so a page is an index range scan that stops after size + 1 rows. Sorting by id uses the
+-- primary key; egn and code use their unique indexes, which already make the order total.
+
+create index idx_patients_name on patients (name, id);
+create index idx_doctors_name on doctors (name, id);
+create index idx_diagnoses_name on diagnoses (name, id);
+
+-- The start date reports keep their covering columns
+drop index idx_sick_leaves_start_date;
+create index idx_sick_leaves_start_date on sick_leaves (start_date, id) include (end_date, medical_visit_id);
+drop index idx_sick_leaves_archive_start_date;
+create index idx_sick_leaves_archive_start_date on sick_leaves_archive (start_date, id) include (end_date, medical_visit_id);
@@ -0,0 +1,163 @@
+package com.medical.history.config;
+
+import com.medical.history.dto.DoctorDto;
+import com.medical.history.dto.PatientDto;
+import com.medical.history.repository.DoctorRepository;
+import com.medical.history.service.DoctorService;
+import com.medical.history.service.PatientService;
+import com.medical.history.service.ReferenceDataRegistry;
+import com.medical.history.service.ReportCache;
+import com.medical.history.service.ReportsService;
+import com.medical.history.service.TableVersions;
+import com.medical.history.service.VisitArchiveService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing against two in-memory H2 databases. The "replica" gets the schema but never any
+ * rows, so it stands for a replica lagging behind every write: whatever a read-only
+ * transaction sees there, it did not see on the primary.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=" + ReplicaRoutingDataSourceTest.PRIMARY_URL,
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "app.datasource.replica.url=" + ReplicaRoutingDataSourceTest.REPLICA_URL,
+        "app.datasource.replica.username=sa",
+        "app.datasource.replica.password=",
+        "app.datasource.replica.health-check-interval=PT1H",
+        "app.reports.cache-enabled=true"
+})
+class ReplicaRoutingDataSourceTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private ReferenceDataRegistry referenceDataRegistry;
+
+    @Autowired
+    private VisitArchiveService visitArchiveService;
+
+    @Autowired
+    private ReportsService reportsService;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    static void migrateReplica() {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .load()
+                .migrate();
+    }
+
+    @BeforeEach
+    void clearReportCache() {
+        reportCache.evictAll();
+    }
+
+    @Test
+    void readOnlyTransactionsReadTheReplica() {
+        createDoctor("RR-ROUTE");
+
+        long onReplica = readOnly(doctorRepository::count);
+        assertThat(new JdbcTemplate(primaryDataSource).queryForObject("select count(*) from doctors", Long.class))
+                .isPositive();
+        assertThat(onReplica).isZero();
+    }
+
+    @Test
+    void referenceDataLoadsFromThePrimary() {
+        DoctorDto doctor = createDoctor("RR-REF");
+
+        assertThat(readOnly(() -> referenceDataRegistry.doctorIdByIdentificationNumber("RR-REF")))
+                .contains(doctor.getId());
+    }
+
+    @Test
+    void archiveBoundsLoadFromThePrimary() {
+        DoctorDto doctor = createDoctor("RR-ARCHIVE");
+        PatientDto patient = new PatientDto();
+        patient.setName("Archived Patient");
+        patient.setEgn("7001010000");
+        patient.setFamilyDoctorId(doctor.getId());
+        patient = patientService.createPatient(patient);
+        new JdbcTemplate(primaryDataSource).update(
+                "insert into medical_visits_archive (id, visit_date, archived_at, doctor_id, patient_id) values (?, ?, ?, ?, ?)",
+                900_001L, LocalDate.of(2001, 1, 1), LocalDateTime.now(), doctor.getId(), patient.getId());
+        // A run, even an empty one, drops the cached bounds
+        visitArchiveService.archive(LocalDate.of(1900, 1, 1));
+
+        assertThat(readOnly(() -> visitArchiveService.visitsReach(LocalDate.of(2000, 6, 1)))).isTrue();
+    }
+
+    @Test
+    void reportsReadFromTheReplicaAreNotCached() {
+        createDoctor("RR-REPORT");
+
+        assertThat(reportsService.getDashboardStats().getTotalDoctors()).isZero();
+        assertThat(reportCache.size()).isZero();
+    }
+
+    @Test
+    void noEtagsWithAReplica() {
+        assertThat(tableVersions.issuesEtags()).isFalse();
+    }
+
+    private DoctorDto createDoctor(String identificationNumber) {
+        DoctorDto doctor = new DoctorDto();
+        doctor.setIdentificationNumber(identificationNumber);
+        doctor.setName("Dr " + identificationNumber);
+        doctor.setSpecialty("General Practice");
+        doctor.setIsFamilyDoctor(true);
+        return doctorService.createDoctor(doctor);
+    }
+
+    private <T> T readOnly(Supplier<T> action) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(status -> action.get());
+    }
+}
@@ -0,0 +1,91 @@
+package com.medical.history.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Estimates against the exact distinct counts of sequential ids, the ids the visit sketches
+ * are fed. The hash is fixed, so every estimate here is deterministic.
+ */
+class HyperLogLogTest {
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertThat(new HyperLogLog().estimate()).isZero();
+    }
+
+    // A handful of ids rarely share a register, and linear counting then counts them almost exactly
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 10, 20})
+    void fewIdsAreCountedAlmostExactly(long distinct) {
+        assertThat(sketchOf(1, distinct).estimate()).isCloseTo(distinct, within(1L));
+    }
+
+    // Up to 2.5 ids per register the small range correction (linear counting) gives the estimate,
+    // beyond that the harmonic mean does; both within three times the 2.3% standard error
+    @ParameterizedTest
+    @ValueSource(longs = {100, 1_000, 5_000, 10_000, 100_000, 1_000_000})
+    void estimatesStayWithinTheStandardError(long distinct) {
+        assertThat(sketchOf(1, distinct).estimate()).isCloseTo(distinct, within(distinct * 7 / 100));
+    }
+
+    @Test
+    void repeatedIdsCountOnce() {
+        HyperLogLog sketch = sketchOf(1, 1_000);
+        LongStream.rangeClosed(1, 1_000).forEach(sketch::add);
+
+        assertThat(sketch.toBytes()).isEqualTo(sketchOf(1, 1_000).toBytes());
+    }
+
+    @Test
+    void mergeIsTheSketchOfTheUnion() {
+        HyperLogLog merged = sketchOf(1, 60_000);
+        merged.merge(sketchOf(40_001, 100_000));
+
+        assertThat(merged.toBytes()).isEqualTo(sketchOf(1, 100_000).toBytes());
+        assertThat(merged.estimate()).isCloseTo(100_000L, within(7_000L));
+    }
+
+    // Per-day sketches of disjoint visit sets merged into a range-wide count
+    @Test
+    void mergedDaysEstimateTheRange() {
+        HyperLogLog range = new HyperLogLog();
+        for (long day = 0; day < 30; day++) {
+            range.merge(sketchOf(day * 200 + 1, day * 200 + 200));
+        }
+
+        assertThat(range.estimate()).isCloseTo(6_000L, within(6_000L * 7 / 100));
+    }
+
+    @Test
+    void bytesRoundTripAsACopy() {
+        HyperLogLog sketch = sketchOf(1, 500);
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+        bytes[0] = Byte.MAX_VALUE;
+
+        assertThat(restored.toBytes()).isEqualTo(sketch.toBytes());
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void rejectsSketchesOfAnotherPrecision() {
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[HyperLogLog.REGISTERS / 2]))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static HyperLogLog sketchOf(long firstId, long lastId) {
+        HyperLogLog sketch = new HyperLogLog();
+        LongStream.rangeClosed(firstId, lastId).forEach(sketch::add);
+        return sketch;
+    }
+}
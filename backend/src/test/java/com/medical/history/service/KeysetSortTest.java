@@ -0,0 +1,114 @@
+package com.medical.history.service;
+
+import com.medical.history.dto.CursorPage;
+import com.medical.history.entity.Doctor;
+import com.medical.history.repository.DoctorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Walks the doctors list page by page, as the list endpoints do, over names that repeat across
+ * page boundaries. Every walk must return each row exactly once, in the order of a full sort
+ * by name and id.
+ */
+@DataJpaTest
+class KeysetSortTest {
+
+    private static final Map<String, Function<String, ? extends Comparable<?>>> KEYS =
+            Map.of("name", String::valueOf, "id", Long::valueOf);
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    private List<Doctor> doctors;
+
+    // Four names, seven doctors each, saved interleaved so ids do not follow names
+    @BeforeEach
+    void saveDoctors() {
+        List<Doctor> unsaved = new ArrayList<>();
+        for (int i = 0; i < 28; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setIdentificationNumber("KS-" + i);
+            doctor.setName("Dr " + "DBCA".charAt(i % 4));
+            doctor.setSpecialty("General Practice");
+            unsaved.add(doctor);
+        }
+        doctors = doctorRepository.saveAllAndFlush(unsaved);
+    }
+
+    // Page sizes below, at and across the seven rows that share a name
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 7, 10, 28, 50})
+    void pagesContinueAcrossDuplicateKeys(int size) {
+        Comparator<Doctor> byName = Comparator.comparing(Doctor::getName).thenComparing(Doctor::getId);
+
+        assertThat(walk("name,asc", size)).containsExactlyElementsOf(sorted(byName));
+        assertThat(walk("name,desc", size)).containsExactlyElementsOf(sorted(byName.reversed()));
+        assertThat(walk("id", size)).containsExactlyElementsOf(sorted(Comparator.comparing(Doctor::getId).reversed()));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        KeysetSort keyset = KeysetSort.parse("name,asc", "name,asc", KEYS);
+        CursorPage<Doctor> page = keyset.page(keyset.read(doctorRepository, null, null, 28), 28);
+
+        assertThat(page.getItems()).hasSize(28);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void cursorsOnlyFitTheirOwnSort() {
+        KeysetSort byName = KeysetSort.parse("name,asc", "name,asc", KEYS);
+        String cursor = byName.page(byName.read(doctorRepository, null, null, 5), 5).getNextCursor();
+
+        assertThat(byName.position(cursor).key()).isEqualTo(sorted(Comparator.comparing(Doctor::getName)
+                .thenComparing(Doctor::getId)).get(4).getName());
+        assertThatThrownBy(() -> KeysetSort.parse("name,desc", "name,asc", KEYS).position(cursor))
+                .isInstanceOf(InvalidPageRequestException.class);
+        assertThatThrownBy(() -> byName.position("not a cursor"))
+                .isInstanceOf(InvalidPageRequestException.class);
+    }
+
+    @Test
+    void rejectsUnknownKeysAndDirections() {
+        assertThatThrownBy(() -> KeysetSort.parse("specialty", "name,asc", KEYS))
+                .isInstanceOf(InvalidPageRequestException.class);
+        assertThatThrownBy(() -> KeysetSort.parse("name,up", "name,asc", KEYS))
+                .isInstanceOf(InvalidPageRequestException.class);
+        assertThat(KeysetSort.parse(null, "name,asc", KEYS).token()).isEqualTo("name,asc");
+        assertThat(KeysetSort.parse("name", "name,asc", KEYS).token()).isEqualTo("name,desc");
+    }
+
+    private List<Doctor> walk(String sort, int size) {
+        KeysetSort keyset = KeysetSort.parse(sort, "name,asc", KEYS);
+        List<Doctor> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Doctor> page = keyset.page(
+                    keyset.read(doctorRepository, null, keyset.position(cursor), size), size);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(size);
+            seen.addAll(page.getItems());
+            // A cursor that stands still would page forever
+            assertThat(seen).hasSizeLessThanOrEqualTo(doctors.size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return seen;
+    }
+
+    private List<Doctor> sorted(Comparator<Doctor> order) {
+        return doctors.stream().sorted(order).toList();
+    }
+}
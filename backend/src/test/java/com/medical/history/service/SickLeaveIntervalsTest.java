@@ -0,0 +1,99 @@
+package com.medical.history.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The sweep against a day-by-day count of the same intervals. Days are plain epoch-day
+ * numbers here; the window runs from day 10 to day 19 unless a test says otherwise.
+ */
+class SickLeaveIntervalsTest {
+
+    private static final long NONE = SickLeaveIntervals.NO_GROUP;
+
+    @Test
+    void bothEndDaysAreActive() {
+        SickLeaveIntervals intervals = new SickLeaveIntervals(10, 19);
+        intervals.add(12, 14, NONE);
+        intervals.add(16, 16, NONE);
+
+        assertThat(intervals.activeByDay().get(NONE)).containsExactly(0, 0, 1, 1, 1, 0, 1, 0, 0, 0);
+    }
+
+    @Test
+    void intervalsAreClippedToTheWindow() {
+        SickLeaveIntervals intervals = new SickLeaveIntervals(10, 19);
+        intervals.add(1, 30, NONE);
+        // Touching the window on its first and last day only
+        intervals.add(5, 10, NONE);
+        intervals.add(19, 25, NONE);
+
+        assertThat(intervals.activeByDay().get(NONE)).containsExactly(2, 1, 1, 1, 1, 1, 1, 1, 1, 2);
+    }
+
+    @Test
+    void intervalsOutsideTheWindowAreDropped() {
+        SickLeaveIntervals intervals = new SickLeaveIntervals(10, 19);
+        intervals.add(1, 9, 7L);
+        intervals.add(20, 30, 8L);
+
+        assertThat(intervals.activeByDay()).isEmpty();
+    }
+
+    @Test
+    void groupsComeInOrderOfFirstAppearance() {
+        SickLeaveIntervals intervals = new SickLeaveIntervals(10, 12);
+        intervals.add(10, 10, 5L);
+        intervals.add(11, 12, NONE);
+        intervals.add(10, 12, 3L);
+        intervals.add(12, 12, 5L);
+
+        Map<Long, int[]> active = intervals.activeByDay();
+        assertThat(active.keySet()).containsExactly(5L, NONE, 3L);
+        assertThat(active.get(5L)).containsExactly(1, 0, 1);
+        assertThat(active.get(NONE)).containsExactly(0, 1, 1);
+        assertThat(active.get(3L)).containsExactly(1, 1, 1);
+    }
+
+    @Test
+    void oneDayWindow() {
+        SickLeaveIntervals intervals = new SickLeaveIntervals(15, 15);
+        intervals.add(10, 15, NONE);
+        intervals.add(15, 20, NONE);
+        intervals.add(16, 20, NONE);
+
+        assertThat(intervals.windowDays()).isEqualTo(1);
+        assertThat(intervals.activeByDay().get(NONE)).containsExactly(2);
+    }
+
+    // Enough intervals to grow the arrays, many of them sharing start and end days
+    @Test
+    void matchesADayByDayCount() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int windowStart = random.nextInt(60);
+            int windowEnd = windowStart + random.nextInt(45);
+            SickLeaveIntervals intervals = new SickLeaveIntervals(windowStart, windowEnd);
+            Map<Long, int[]> expected = new LinkedHashMap<>();
+            int count = random.nextInt(300);
+            for (int i = 0; i < count; i++) {
+                int start = random.nextInt(120);
+                int end = start + random.nextInt(25);
+                long group = random.nextInt(4) - 1;
+                intervals.add(start, end, group);
+                for (int day = Math.max(start, windowStart); day <= Math.min(end, windowEnd); day++) {
+                    expected.computeIfAbsent(group, key -> new int[windowEnd - windowStart + 1])[day - windowStart]++;
+                }
+            }
+
+            Map<Long, int[]> active = intervals.activeByDay();
+            assertThat(active.keySet()).containsExactlyElementsOf(expected.keySet());
+            expected.forEach((group, days) -> assertThat(active.get(group)).containsExactly(days));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.medical.history.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Selections against a full sort of the same items. The rankings order by count descending
+ * with the id as tie-breaker, as the ranking reports do, and most counts here are shared.
+ */
+class TopKTest {
+
+    private static final Comparator<Group> RANKING =
+            Comparator.comparingLong(Group::count).reversed().thenComparingLong(Group::id);
+
+    @Test
+    void cutThroughTiesKeepsTheLowestIds() {
+        List<Group> groups = List.of(new Group(5, 10), new Group(3, 7), new Group(1, 7), new Group(4, 7),
+                new Group(2, 7), new Group(6, 2));
+
+        assertThat(TopK.select(groups, 3, RANKING))
+                .containsExactly(new Group(5, 10), new Group(1, 7), new Group(2, 7));
+    }
+
+    @Test
+    void tiesResolveTheSameWhateverTheInputOrder() {
+        List<Group> groups = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            groups.add(new Group(id, id % 3));
+        }
+        List<Group> expected = groups.stream().sorted(RANKING).limit(10).toList();
+
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            Collections.shuffle(groups, random);
+            assertThat(TopK.select(groups, 10, RANKING)).containsExactlyElementsOf(expected);
+        }
+    }
+
+    // Without a tie-breaker any of the tied items may come back, but the counts are fixed
+    @Test
+    void tiesWithoutATieBreakerStillGiveTheTopCounts() {
+        List<Group> groups = List.of(new Group(1, 4), new Group(2, 9), new Group(3, 4), new Group(4, 4),
+                new Group(5, 1));
+
+        List<Group> selected = TopK.select(groups, 3, Comparator.comparingLong(Group::count).reversed());
+        assertThat(selected).extracting(Group::count).containsExactly(9L, 4L, 4L);
+        assertThat(groups).containsAll(selected);
+    }
+
+    @Test
+    void largerLimitsReturnEverythingSorted() {
+        List<Group> groups = List.of(new Group(3, 1), new Group(1, 1), new Group(2, 5));
+
+        assertThat(TopK.select(groups, 3, RANKING)).containsExactly(new Group(2, 5), new Group(1, 1), new Group(3, 1));
+        assertThat(TopK.select(groups, Integer.MAX_VALUE, RANKING)).containsExactly(new Group(2, 5), new Group(1, 1),
+                new Group(3, 1));
+        assertThat(TopK.select(List.<Group>of(), 10, RANKING)).isEmpty();
+    }
+
+    @Test
+    void matchesAFullSort() {
+        Random random = new Random(11);
+        for (int round = 0; round < 300; round++) {
+            List<Group> groups = new ArrayList<>();
+            int size = random.nextInt(60);
+            for (long id = 1; id <= size; id++) {
+                groups.add(new Group(id, random.nextInt(6)));
+            }
+            Collections.shuffle(groups, random);
+            int limit = 1 + random.nextInt(15);
+
+            assertThat(TopK.select(groups, limit, RANKING))
+                    .containsExactlyElementsOf(groups.stream().sorted(RANKING).limit(limit).toList());
+        }
+    }
+
+    private record Group(long id, long count) {
+    }
+}
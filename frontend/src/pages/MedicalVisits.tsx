@@ -7,6 +7,7 @@ import { format } from 'date-fns';
 
 import { 
   useGetMedicalVisitsQuery, 
+  useLazyGetMedicalVisitByIdQuery,
   useGetMedicalVisitsByDoctorQuery,
   useGetMedicalVisitsByPatientQuery,
   useCreateMedicalVisitMutation, 
@@ -60,6 +61,13 @@ const MedicalVisits: React.FC = () => {
     skip: !isPatient() || !user?.patientId 
   });
 
+  // The admin list holds summaries without the clinical text; view and edit load the whole visit
+  const [fetchVisit] = useLazyGetMedicalVisitByIdQuery();
+  const loadFullVisit = async (visit: MedicalVisit) => {
+    const { data } = await fetchVisit(visit.id);
+    return data ?? visit;
+  };
+
   // Get the appropriate data based on role
   const visits = isAdmin() ? allVisits : isDoctor() ? doctorVisits : patientVisits;
   const isLoading = isAdmin() ? isLoadingAll : isDoctor() ? isLoadingDoctor : isLoadingPatient;
@@ -130,7 +138,8 @@ const MedicalVisits: React.FC = () => {
     setFormOpen(true);
   };
 
-  const handleEdit = (visit: MedicalVisit) => {
+  const handleEdit = async (row: MedicalVisit) => {
+    const visit = await loadFullVisit(row);
     setEditingVisit(visit);
     form.reset({
       visitDate: new Date(visit.visitDate),
@@ -146,8 +155,8 @@ const MedicalVisits: React.FC = () => {
     setFormOpen(true);
   };
 
-  const handleView = (visit: MedicalVisit) => {
-    setViewingVisit(visit);
+  const handleView = async (row: MedicalVisit) => {
+    setViewingVisit(await loadFullVisit(row));
     setViewOpen(true);
   };
 
@@ -1,5 +1,6 @@
-import { createApi, fetchBaseQuery } from '@reduxjs/toolkit/query/react';
+import { createApi, fetchBaseQuery, FetchArgs, FetchBaseQueryError } from '@reduxjs/toolkit/query/react';
 import type { RootState } from './store';
+import type { CursorPage } from '../types';
 
 const API_BASE_URL = process.env.REACT_APP_API_URL || 'http://localhost:8080';
 
@@ -11,11 +12,41 @@ const baseQuery = fetchBaseQuery({
     if (token) {
       headers.set('authorization', `Bearer ${token}`);
     }
-    headers.set('content-type', 'application/json');
+    // fetchBaseQuery already sends JSON bodies as application/json; FormData uploads need
+    // the browser to set multipart/form-data with its boundary
     return headers;
   },
 });
 
+// Largest page the list endpoints serve (app.pagination.max-size)
+const MAX_PAGE_SIZE = 500;
+
+// queryFn for screens that still need a whole list: follows nextCursor until the last page
+export const fetchAllPages = <T>(url: string) =>
+  async (
+    _arg: void,
+    _api: unknown,
+    _extraOptions: unknown,
+    baseQuery: (arg: string | FetchArgs) => any
+  ): Promise<{ data: T[] } | { error: FetchBaseQueryError }> => {
+    const items: T[] = [];
+    let cursor: string | null = null;
+    do {
+      const params: Record<string, string | number> = { size: MAX_PAGE_SIZE, sort: 'id,asc' };
+      if (cursor) {
+        params.cursor = cursor;
+      }
+      const result = await baseQuery({ url, params });
+      if (result.error) {
+        return { error: result.error as FetchBaseQueryError };
+      }
+      const page = result.data as CursorPage<T>;
+      items.push(...page.items);
+      cursor = page.nextCursor;
+    } while (cursor);
+    return { data: items };
+  };
+
 // Create the base API slice
 export const api = createApi({
   reducerPath: 'api',
@@ -1,10 +1,10 @@
-import { api } from './api';
+import { api, fetchAllPages } from './api';
 import { Diagnosis } from '../types';
 
 export const diagnosesApi = api.injectEndpoints({
   endpoints: (builder) => ({
     getDiagnoses: builder.query<Diagnosis[], void>({
-      query: () => '/diagnoses',
+      queryFn: fetchAllPages<Diagnosis>('/diagnoses'),
       providesTags: ['Diagnosis'],
     }),
     
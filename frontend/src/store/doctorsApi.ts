@@ -1,10 +1,10 @@
-import { api } from './api';
+import { api, fetchAllPages } from './api';
 import { Doctor } from '../types';
 
 export const doctorsApi = api.injectEndpoints({
   endpoints: (builder) => ({
     getDoctors: builder.query<Doctor[], void>({
-      query: () => '/doctors',
+      queryFn: fetchAllPages<Doctor>('/doctors'),
       providesTags: ['Doctor'],
     }),
     
@@ -1,10 +1,16 @@
-import { api } from './api';
-import { MedicalVisit } from '../types';
+import { api, fetchAllPages } from './api';
+import { CursorPage, MedicalVisit, MedicalVisitBatchResult, MedicalVisitSearchParams } from '../types';
 
 export const medicalVisitsApi = api.injectEndpoints({
   endpoints: (builder) => ({
     getMedicalVisits: builder.query<MedicalVisit[], void>({
-      query: () => '/medical-visits',
+      queryFn: fetchAllPages<MedicalVisit>('/medical-visits'),
+      providesTags: ['MedicalVisit'],
+    }),
+    
+    // Filtered on the server, one page at a time
+    searchMedicalVisits: builder.query<CursorPage<MedicalVisit>, MedicalVisitSearchParams>({
+      query: (params) => ({ url: '/medical-visits/search', params }),
       providesTags: ['MedicalVisit'],
     }),
     
@@ -48,6 +54,15 @@ export const medicalVisitsApi = api.injectEndpoints({
       invalidatesTags: ['MedicalVisit', 'Patient', 'Doctor'],
     }),
     
+    createMedicalVisitsBatch: builder.mutation<MedicalVisitBatchResult, Partial<MedicalVisit>[]>({
+      query: (visits) => ({
+        url: '/medical-visits/batch',
+        method: 'POST',
+        body: visits,
+      }),
+      invalidatesTags: ['MedicalVisit', 'Patient', 'Doctor'],
+    }),
+    
     updateMedicalVisit: builder.mutation<MedicalVisit, { id: number; visit: Partial<MedicalVisit> }>({
       query: ({ id, visit }) => ({
         url: `/medical-visits/${id}`,
@@ -57,6 +72,17 @@ export const medicalVisitsApi = api.injectEndpoints({
       invalidatesTags: (result, error, { id }) => [{ type: 'MedicalVisit', id }],
     }),
     
+    // Sends only the changed fields (JSON merge patch); include version to detect concurrent edits
+    patchMedicalVisit: builder.mutation<MedicalVisit, { id: number; visit: Partial<MedicalVisit> }>({
+      query: ({ id, visit }) => ({
+        url: `/medical-visits/${id}`,
+        method: 'PATCH',
+        headers: { 'Content-Type': 'application/merge-patch+json' },
+        body: visit,
+      }),
+      invalidatesTags: (result, error, { id }) => [{ type: 'MedicalVisit', id }],
+    }),
+    
     deleteMedicalVisit: builder.mutation<void, number>({
       query: (id) => ({
         url: `/medical-visits/${id}`,
@@ -69,13 +95,17 @@ export const medicalVisitsApi = api.injectEndpoints({
 
 export const {
   useGetMedicalVisitsQuery,
+  useSearchMedicalVisitsQuery,
   useGetMedicalVisitByIdQuery,
+  useLazyGetMedicalVisitByIdQuery,
   useGetMedicalVisitsByPatientQuery,
   useGetMedicalVisitsByDoctorQuery,
   useGetMedicalVisitsByDateRangeQuery,
   useGetMedicalVisitsByDoctorAndDateRangeQuery,
   useGetPatientMedicalHistoryQuery,
   useCreateMedicalVisitMutation,
+  useCreateMedicalVisitsBatchMutation,
   useUpdateMedicalVisitMutation,
+  usePatchMedicalVisitMutation,
   useDeleteMedicalVisitMutation,
 } = medicalVisitsApi;
@@ -1,10 +1,10 @@
-import { api } from './api';
-import { Patient } from '../types';
+import { api, fetchAllPages } from './api';
+import { Patient, PatientImportJob } from '../types';
 
 export const patientsApi = api.injectEndpoints({
   endpoints: (builder) => ({
     getPatients: builder.query<Patient[], void>({
-      query: () => '/patients',
+      queryFn: fetchAllPages<Patient>('/patients'),
       providesTags: ['Patient'],
     }),
     
@@ -46,6 +46,37 @@ export const patientsApi = api.injectEndpoints({
       invalidatesTags: (result, error, { id }) => [{ type: 'Patient', id }],
     }),
     
+    // Sends only the changed fields (JSON merge patch); include version to detect concurrent edits
+    patchPatient: builder.mutation<Patient, { id: number; patient: Partial<Patient> }>({
+      query: ({ id, patient }) => ({
+        url: `/patients/${id}`,
+        method: 'PATCH',
+        headers: { 'Content-Type': 'application/merge-patch+json' },
+        body: patient,
+      }),
+      invalidatesTags: (result, error, { id }) => [{ type: 'Patient', id }],
+    }),
+    
+    // CSV with name, egn, familyDoctorIdentificationNumber and optional insurance columns,
+    // sent as the raw request body so the server can read it as it arrives
+    importPatients: builder.mutation<PatientImportJob, File>({
+      query: (file) => ({
+        url: `/patients/import?filename=${encodeURIComponent(file.name)}`,
+        method: 'POST',
+        headers: { 'Content-Type': 'text/csv' },
+        body: file,
+      }),
+      invalidatesTags: ['Patient'],
+    }),
+    
+    getPatientImportJobs: builder.query<PatientImportJob[], void>({
+      query: () => '/patients/import',
+    }),
+    
+    getPatientImportJob: builder.query<PatientImportJob, string>({
+      query: (id) => `/patients/import/${id}`,
+    }),
+    
     deletePatient: builder.mutation<void, number>({
       query: (id) => ({
         url: `/patients/${id}`,
@@ -64,5 +95,9 @@ export const {
   useGetPatientsByDiagnosisQuery,
   useCreatePatientMutation,
   useUpdatePatientMutation,
+  usePatchPatientMutation,
+  useImportPatientsMutation,
+  useGetPatientImportJobsQuery,
+  useGetPatientImportJobQuery,
   useDeletePatientMutation,
 } = patientsApi;
@@ -27,6 +27,92 @@ export interface DoctorSickLeaveReport {
   sickLeaveCount: number;
 }
 
+export interface DailyVisitStats {
+  date: string;
+  visitCount: number;
+  distinctPatients: number;
+  distinctDoctors: number;
+}
+
+export interface DailyVisitStatsReport {
+  startDate: string;
+  endDate: string;
+  approximate: boolean;
+  totalVisits: number;
+  distinctPatients: number;
+  distinctDoctors: number;
+  days: DailyVisitStats[];
+}
+
+// counts[day][hour]: day 0 is Monday, hour 0..23
+export interface VisitHeatmap {
+  doctorId: number | null;
+  from: string | null;
+  to: string | null;
+  counts: number[][];
+  totalVisits: number;
+  peakDay: string | null;
+  peakHour: number | null;
+  peakCount: number;
+}
+
+export interface VisitHeatmapParams {
+  doctorId?: number;
+  from?: string;
+  to?: string;
+}
+
+export type SickLeaveGroupBy = 'NONE' | 'DOCTOR' | 'DIAGNOSIS';
+
+export interface SickLeaveActivityParams {
+  startDate: string;
+  endDate: string;
+  groupBy?: SickLeaveGroupBy;
+}
+
+// groupId is null for the ungrouped series and for leaves whose visit has no diagnosis
+export interface SickLeaveDailyActivity {
+  groupId: number | null;
+  groupName: string;
+  days: Array<{ date: string; active: number }>;
+}
+
+export interface SickLeaveWeeklyPeaks {
+  groupId: number | null;
+  groupName: string;
+  weeks: Array<{ weekStart: string; peakActive: number; peakDate: string }>;
+}
+
+export interface SickLeaveAbsence {
+  groupId: number | null;
+  groupName: string;
+  absenceDays: number;
+  averageActive: number;
+  peakActive: number;
+  peakDate: string;
+}
+
+const sickLeaveActivityQuery = (path: string, { startDate, endDate, groupBy = 'NONE' }: SickLeaveActivityParams) =>
+  `${path}?startDate=${startDate}&endDate=${endDate}&groupBy=${groupBy}`;
+
+// Optional top-N and date window for the ranking reports, applied by the backend
+export interface RankingParams {
+  limit?: number;
+  from?: string;
+  to?: string;
+}
+
+const rankingQuery = (path: string, params?: RankingParams | void) => {
+  const search = new URLSearchParams();
+  if (params) {
+    if (params.limit !== undefined) search.set('limit', String(params.limit));
+    if (params.from) search.set('from', params.from);
+    if (params.to) search.set('to', params.to);
+  }
+  const query = search.toString();
+  return query ? `${path}?${query}` : path;
+};
+
 export const reportsApi = api.injectEndpoints({
   endpoints: (builder) => ({
     // 3a. Списък с пациенти, с дадена диагноза
@@ -36,8 +122,8 @@ export const reportsApi = api.injectEndpoints({
     }),
     
     // 3b. Най-често диагностицирани диагнози
-    getMostCommonDiagnoses: builder.query<DiagnosisReport[], void>({
-      query: () => '/reports/most-common-diagnoses',
+    getMostCommonDiagnoses: builder.query<DiagnosisReport[], RankingParams | void>({
+      query: (params) => rankingQuery('/reports/most-common-diagnoses', params),
       providesTags: ['Reports'],
     }),
     
@@ -54,8 +140,8 @@ export const reportsApi = api.injectEndpoints({
     }),
     
     // 3e. Брой посещения при всеки от лекарите
-    getDoctorVisitCounts: builder.query<DoctorVisitCountReport[], void>({
-      query: () => '/reports/doctor-visit-counts',
+    getDoctorVisitCounts: builder.query<DoctorVisitCountReport[], RankingParams | void>({
+      query: (params) => rankingQuery('/reports/doctor-visit-counts', params),
       providesTags: ['Reports'],
     }),
     
@@ -68,6 +154,27 @@ export const reportsApi = api.injectEndpoints({
       providesTags: ['Reports'],
     }),
     
+    // Gap-filled day series; approximate uses the daily patient sketches
+    getDailyVisitStats: builder.query<DailyVisitStatsReport, { startDate: string; endDate: string; approximate?: boolean }>({
+      query: ({ startDate, endDate, approximate = false }) =>
+        `/reports/daily-visit-stats?startDate=${startDate}&endDate=${endDate}&approximate=${approximate}`,
+      providesTags: ['Reports'],
+    }),
+    
+    getVisitHeatmap: builder.query<VisitHeatmap, VisitHeatmapParams | void>({
+      query: (params) => {
+        const search = new URLSearchParams();
+        if (params) {
+          if (params.doctorId !== undefined) search.set('doctorId', String(params.doctorId));
+          if (params.from) search.set('from', params.from);
+          if (params.to) search.set('to', params.to);
+        }
+        const query = search.toString();
+        return query ? `/reports/visit-heatmap?${query}` : '/reports/visit-heatmap';
+      },
+      providesTags: ['Reports'],
+    }),
+    
     // 3h. Списък на прегледите при определен лекар за даден период
     getVisitsByDoctorAndDateRange: builder.query<any[], { doctorId: number; startDate: string; endDate: string }>({
       query: ({ doctorId, startDate, endDate }) => 
@@ -81,9 +188,24 @@ export const reportsApi = api.injectEndpoints({
       providesTags: ['Reports'],
     }),
     
+    getSickLeavesActiveByDay: builder.query<SickLeaveDailyActivity[], SickLeaveActivityParams>({
+      query: (params) => sickLeaveActivityQuery('/reports/sick-leaves-active-by-day', params),
+      providesTags: ['Reports'],
+    }),
+    
+    getSickLeavesWeeklyPeaks: builder.query<SickLeaveWeeklyPeaks[], SickLeaveActivityParams>({
+      query: (params) => sickLeaveActivityQuery('/reports/sick-leaves-weekly-peaks', params),
+      providesTags: ['Reports'],
+    }),
+    
+    getSickLeaveAbsenceDays: builder.query<SickLeaveAbsence[], SickLeaveActivityParams>({
+      query: (params) => sickLeaveActivityQuery('/reports/sick-leave-absence-days', params),
+      providesTags: ['Reports'],
+    }),
+    
     // 3j. Лекар/лекари, които са издали най-много болнични
-    getDoctorsWithMostSickLeaves: builder.query<DoctorSickLeaveReport[], void>({
-      query: () => '/reports/doctors-most-sick-leaves',
+    getDoctorsWithMostSickLeaves: builder.query<DoctorSickLeaveReport[], RankingParams | void>({
+      query: (params) => rankingQuery('/reports/doctors-most-sick-leaves', params),
       providesTags: ['Reports'],
     }),
     
@@ -137,8 +259,8 @@ export const reportsApi = api.injectEndpoints({
       sickLeaveCount: number;
       totalDays: number;
       averageDays: number;
-    }>, void>({
-      query: () => '/reports/doctors-sick-leaves-detailed',
+    }>, RankingParams | void>({
+      query: (params) => rankingQuery('/reports/doctors-sick-leaves-detailed', params),
       providesTags: ['Reports'],
     }),
   }),
@@ -151,8 +273,13 @@ export const {
   useGetFamilyDoctorPatientCountsQuery,
   useGetDoctorVisitCountsQuery,
   useGetVisitsByDateRangeQuery,
+  useGetDailyVisitStatsQuery,
+  useGetVisitHeatmapQuery,
   useGetVisitsByDoctorAndDateRangeQuery,
   useGetMonthWithMostSickLeavesQuery,
+  useGetSickLeavesActiveByDayQuery,
+  useGetSickLeavesWeeklyPeaksQuery,
+  useGetSickLeaveAbsenceDaysQuery,
   useGetDoctorsWithMostSickLeavesQuery,
   useGetSickLeavesByMonthQuery,
   useGetDashboardStatsQuery,
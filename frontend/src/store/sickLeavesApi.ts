@@ -1,10 +1,10 @@
-import { api } from './api';
+import { api, fetchAllPages } from './api';
 import { SickLeave } from '../types';
 
 export const sickLeavesApi = api.injectEndpoints({
   endpoints: (builder) => ({
     getSickLeaves: builder.query<SickLeave[], void>({
-      query: () => '/sick-leaves',
+      queryFn: fetchAllPages<SickLeave>('/sick-leaves'),
       providesTags: ['SickLeave'],
     }),
     
@@ -46,6 +46,17 @@ export const sickLeavesApi = api.injectEndpoints({
       invalidatesTags: (result, error, { id }) => [{ type: 'SickLeave', id }],
     }),
     
+    // Sends only the changed fields (JSON merge patch); include version to detect concurrent edits
+    patchSickLeave: builder.mutation<SickLeave, { id: number; sickLeave: Partial<SickLeave> }>({
+      query: ({ id, sickLeave }) => ({
+        url: `/sick-leaves/${id}`,
+        method: 'PATCH',
+        headers: { 'Content-Type': 'application/merge-patch+json' },
+        body: sickLeave,
+      }),
+      invalidatesTags: (result, error, { id }) => [{ type: 'SickLeave', id }],
+    }),
+    
     deleteSickLeave: builder.mutation<void, number>({
       query: (id) => ({
         url: `/sick-leaves/${id}`,
@@ -64,5 +75,6 @@ export const {
   useGetSickLeavesByDateRangeQuery,
   useCreateSickLeaveMutation,
   useUpdateSickLeaveMutation,
+  usePatchSickLeaveMutation,
   useDeleteSickLeaveMutation,
 } = sickLeavesApi;
@@ -17,6 +17,8 @@ export interface Patient {
   familyDoctorId: number;
   familyDoctorName?: string;
   healthInsuranceValid?: boolean;
+  // Optimistic lock; send it back on update to get 409 if someone else changed the record
+  version?: number;
 }
 
 export interface Diagnosis {
@@ -34,6 +36,9 @@ export interface SickLeave {
   endDate?: string;
   reason?: string;
   medicalVisitId: number;
+  version?: number;
+  // Moved to the archive tables; read-only
+  archived?: boolean;
 }
 
 export interface MedicalVisit {
@@ -51,6 +56,58 @@ export interface MedicalVisit {
   diagnosisId?: number;
   diagnosisName?: string;
   sickLeave?: SickLeave;
+  version?: number;
+  archived?: boolean;
+}
+
+// One page of a keyset-paginated list; send nextCursor back as cursor for the following page
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor: string | null;
+  // Only when requested with includeTotal=true
+  total: number | null;
+}
+
+// Query of GET /medical-visits/search; unset filters are left out, dates are yyyy-MM-dd
+export interface MedicalVisitSearchParams {
+  doctorId?: number;
+  diagnosisId?: number;
+  patientEgn?: string;
+  from?: string;
+  to?: string;
+  sort?: 'visitDate,asc' | 'visitDate,desc' | 'id,asc' | 'id,desc';
+  size?: number;
+  cursor?: string;
+  includeTotal?: boolean;
+  // 'summary' (default) leaves out symptoms, treatment, prescribedMedication and notes; 'full' or a property list
+  fields?: string;
+}
+
+// Response of POST /medical-visits/batch; items are in request order
+export interface MedicalVisitBatchResult {
+  received: number;
+  created: number;
+  failed: number;
+  items: Array<{
+    index: number;
+    status: 'CREATED' | 'FAILED';
+    id: number | null;
+    sickLeaveId: number | null;
+    error: string | null;
+  }>;
+}
+
+// Progress of POST /patients/import; rows that were not imported are at /patients/import/{id}/rejected
+export interface PatientImportJob {
+  id: string;
+  source: string;
+  status: 'RUNNING' | 'COMPLETED' | 'FAILED';
+  startedAt: string;
+  finishedAt: string | null;
+  rowsRead: number;
+  imported: number;
+  rejected: number;
+  error: string | null;
 }
 
 export interface User {